@@ -0,0 +1,107 @@
+package be.foreseegroup.micro.resourceservice.assignment;
+
+import be.foreseegroup.micro.resourceservice.assignment.model.Assignment;
+import be.foreseegroup.micro.resourceservice.assignment.service.AssignmentRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Full HTTP round-trips through the running service and a local Mongo.
+ */
+@State(Scope.Benchmark)
+public class AssignmentEndToEndBenchmark {
+    private static final int ASSIGNMENTS = 10000;
+    private static final int CONSULTANTS = 100;
+    private static final int FAN_IN = 100;
+
+    private StandaloneAssignmentService service;
+    private RestTemplate restTemplate;
+    private HttpHeaders jsonHeaders;
+    private List<String> ids;
+
+    @Setup
+    public void setUp() throws IOException {
+        service = StandaloneAssignmentService.start();
+        restTemplate = new RestTemplate();
+        jsonHeaders = new HttpHeaders();
+        jsonHeaders.setContentType(MediaType.APPLICATION_JSON);
+
+        AssignmentRepository repo = service.getBean(AssignmentRepository.class);
+        repo.deleteAll();
+        List<Assignment> assignments = new ArrayList<>(ASSIGNMENTS);
+        for (int i = 0; i < ASSIGNMENTS; i++)
+            assignments.add(new Assignment("consultant" + i % CONSULTANTS, "customer" + i % 10, new Date(), new Date()));
+        ids = new ArrayList<>(ASSIGNMENTS);
+        for (Assignment assignment : repo.save(assignments))
+            ids.add(assignment.getId());
+    }
+
+    @TearDown
+    public void tearDown() {
+        service.getBean(AssignmentRepository.class).deleteAll();
+        service.close();
+    }
+
+    @Benchmark
+    public ResponseEntity<String> getById() {
+        return restTemplate.getForEntity(service.baseUrl() + "/assignments/" + randomId(), String.class);
+    }
+
+    @Benchmark
+    public ResponseEntity<String> getByConsultantId() {
+        return restTemplate.getForEntity(service.baseUrl() + "/assignmentsbycid/consultant" + ThreadLocalRandom.current().nextInt(CONSULTANTS), String.class);
+    }
+
+    @Benchmark
+    public ResponseEntity<String> getAllPage() {
+        return restTemplate.getForEntity(service.baseUrl() + "/assignments?limit=100", String.class);
+    }
+
+    @Benchmark
+    public ResponseEntity<String> update() {
+        Assignment values = new Assignment("consultant" + ThreadLocalRandom.current().nextInt(CONSULTANTS), "customer1", new Date(), new Date());
+        return restTemplate.exchange(service.baseUrl() + "/assignments/" + randomId(), HttpMethod.PUT,
+                new HttpEntity<>(values, jsonHeaders), String.class);
+    }
+
+    /** Fetches {@value #FAN_IN} assignments the way aggregating callers did, one GET per id. */
+    @Benchmark
+    public List<ResponseEntity<String>> getByIdFanIn() {
+        List<ResponseEntity<String>> responses = new ArrayList<>(FAN_IN);
+        for (String id : randomIds())
+            responses.add(restTemplate.getForEntity(service.baseUrl() + "/assignments/" + id, String.class));
+        return responses;
+    }
+
+    /** Fetches {@value #FAN_IN} assignments with one multi-get. */
+    @Benchmark
+    public ResponseEntity<String> batchGetFanIn() {
+        return restTemplate.postForEntity(service.baseUrl() + "/assignments/batch-get", new HttpEntity<>(randomIds(), jsonHeaders), String.class);
+    }
+
+    private List<String> randomIds() {
+        List<String> fanIn = new ArrayList<>(FAN_IN);
+        for (int i = 0; i < FAN_IN; i++)
+            fanIn.add(randomId());
+        return fanIn;
+    }
+
+    private String randomId() {
+        return ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+    }
+}
@@ -0,0 +1,91 @@
+package be.foreseegroup.micro.resourceservice.assignment;
+
+import de.flapdoodle.embed.mongo.MongodExecutable;
+import de.flapdoodle.embed.mongo.MongodStarter;
+import de.flapdoodle.embed.mongo.config.MongodConfigBuilder;
+import de.flapdoodle.embed.mongo.config.Net;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.process.runtime.Network;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Runs {@link AssignmentServiceApplication} on a free port without Eureka, backed by an embedded Mongo.
+ * Set {@code -Dbenchmark.mongo.port} to use an already running Mongo on localhost instead.
+ */
+public final class StandaloneAssignmentService implements Closeable {
+    private final MongodExecutable mongod;
+    private final ConfigurableApplicationContext context;
+    private final int port;
+
+    private StandaloneAssignmentService(MongodExecutable mongod, ConfigurableApplicationContext context, int port) {
+        this.mongod = mongod;
+        this.context = context;
+        this.port = port;
+    }
+
+    public static StandaloneAssignmentService start(String... extraArgs) throws IOException {
+        MongodExecutable mongod = null;
+        Integer mongoPort = Integer.getInteger("benchmark.mongo.port");
+        if (mongoPort == null) {
+            mongoPort = Network.getFreeServerPort();
+            mongod = startMongo(mongoPort);
+        }
+        try {
+            return start(mongod, mongoPort, extraArgs);
+        } catch (RuntimeException e) {
+            if (mongod != null)
+                mongod.stop();
+            throw e;
+        }
+    }
+
+    /**
+     * Runs the service against a Mongo that is already running on localhost, which is left running on close.
+     */
+    public static StandaloneAssignmentService start(int mongoPort, String... extraArgs) throws IOException {
+        return start(null, mongoPort, extraArgs);
+    }
+
+    /**
+     * Starts an embedded Mongo on localhost; stop it when done.
+     */
+    public static MongodExecutable startMongo(int port) throws IOException {
+        MongodExecutable mongod = MongodStarter.getDefaultInstance().prepare(new MongodConfigBuilder()
+                .version(Version.Main.V3_0)
+                .net(new Net(port, Network.localhostIsIPv6()))
+                .build());
+        mongod.start();
+        return mongod;
+    }
+
+    private static StandaloneAssignmentService start(MongodExecutable mongod, int mongoPort, String... extraArgs) throws IOException {
+        int port = Network.getFreeServerPort();
+        String[] args = new String[4 + extraArgs.length];
+        args[0] = "--server.port=" + port;
+        args[1] = "--spring.data.mongodb.host=localhost";
+        args[2] = "--spring.data.mongodb.port=" + mongoPort;
+        args[3] = "--eureka.client.enabled=false";
+        System.arraycopy(extraArgs, 0, args, 4, extraArgs.length);
+        ConfigurableApplicationContext context = SpringApplication.run(AssignmentServiceApplication.class, args);
+        return new StandaloneAssignmentService(mongod, context, port);
+    }
+
+    public String baseUrl() {
+        return "http://localhost:" + port;
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    @Override
+    public void close() {
+        context.close();
+        if (mongod != null)
+            mongod.stop();
+    }
+}
@@ -0,0 +1,123 @@
+package be.foreseegroup.micro.resourceservice.assignment;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.MongoClient;
+import de.flapdoodle.embed.mongo.MongodExecutable;
+import de.flapdoodle.embed.process.runtime.Network;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.client.DefaultResponseErrorHandler;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cold starts of the service, each in a fresh JVM, with and without the fast-start profile, against a Mongo holding
+ * {@code assignments} assignments and with the conflict index enabled. {@code start} measures until the context is
+ * running and serving, {@code startUntilHealthy} until /health also reports the background warm-up as done.
+ * Set {@code -Dbenchmark.mongo.port} to use an already running Mongo on localhost.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(5)
+public class StartupBenchmark {
+    private static final int BATCH_SIZE = 1000;
+
+    @Param({"default", "fast-start"})
+    public String profile;
+
+    @Param({"0", "200000"})
+    public int assignments;
+
+    private MongodExecutable mongod;
+    private int mongoPort;
+    private StandaloneAssignmentService service;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Integer port = Integer.getInteger("benchmark.mongo.port");
+        if (port == null) {
+            mongoPort = Network.getFreeServerPort();
+            mongod = StandaloneAssignmentService.startMongo(mongoPort);
+        } else {
+            mongoPort = port;
+        }
+        MongoClient client = new MongoClient("localhost", mongoPort);
+        try {
+            DBCollection collection = client.getDB("test").getCollection("assignment");
+            collection.drop();
+            List<DBObject> batch = new ArrayList<>(BATCH_SIZE);
+            for (int i = 0; i < assignments; i++) {
+                long start = 1420070400000L + (i / 100) * 86400000L;
+                batch.add(new BasicDBObject("consultantId", "consultant" + i % 1000).append("customerId", "customer" + i % 10)
+                        .append("startDate", new Date(start)).append("endDate", new Date(start + 30 * 86400000L)).append("version", 0L));
+                if (batch.size() == BATCH_SIZE || i == assignments - 1) {
+                    collection.insert(batch);
+                    batch.clear();
+                }
+            }
+        } finally {
+            client.close();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (mongod != null)
+            mongod.stop();
+    }
+
+    @TearDown(Level.Invocation)
+    public void stop() {
+        if (service != null)
+            service.close();
+        service = null;
+    }
+
+    @Benchmark
+    public StandaloneAssignmentService start() throws IOException {
+        service = StandaloneAssignmentService.start(mongoPort, "--spring.profiles.active=" + profile, "--assignment.conflicts.enabled=true");
+        return service;
+    }
+
+    @Benchmark
+    public StandaloneAssignmentService startUntilHealthy() throws IOException, InterruptedException {
+        service = StandaloneAssignmentService.start(mongoPort, "--spring.profiles.active=" + profile, "--assignment.conflicts.enabled=true",
+                "--endpoints.health.sensitive=false");
+        RestTemplate restTemplate = new RestTemplate();
+        restTemplate.setErrorHandler(new DefaultResponseErrorHandler() {
+            @Override
+            public boolean hasError(ClientHttpResponse response) {
+                return false;
+            }
+        });
+        while (true) {
+            Map<?, ?> warmUp = (Map<?, ?>) restTemplate.getForObject(service.baseUrl() + "/health", Map.class).get("warmUp");
+            if (warmUp == null || "UP".equals(warmUp.get("status")))
+                return service;
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package be.foreseegroup.micro.resourceservice.assignment.conflicts;
+
+import be.foreseegroup.micro.resourceservice.assignment.model.Assignment;
+import be.foreseegroup.micro.resourceservice.assignment.model.Conflict;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Conflict queries and incremental updates of the {@link ConflictIndex} holding 100,000 consultants with a year of
+ * assignments each, about one in twenty overlapping the previous assignment of its consultant.
+ */
+@State(Scope.Benchmark)
+public class ConflictIndexBenchmark {
+    private static final long DAY = 86400000L;
+    private static final long START = 1420070400000L;
+
+    @Param({"100000"})
+    public int consultants;
+
+    @Param({"8"})
+    public int assignmentsPerConsultant;
+
+    private ConflictIndex index;
+    private Random random;
+    private long next;
+
+    @Setup
+    public void setUp() {
+        index = new ConflictIndex();
+        random = new Random(42);
+        for (int c = 0; c < consultants; c++) {
+            long start = START;
+            for (int a = 0; a < assignmentsPerConsultant; a++) {
+                long length = (10 + random.nextInt(35)) * DAY;
+                if (random.nextInt(20) == 0)
+                    start -= 5 * DAY;
+                index.put(new Assignment("a" + c + "-" + a, "consultant" + c, "customer" + a, new Date(start), new Date(start + length)));
+                start += length + DAY;
+            }
+        }
+    }
+
+    @Benchmark
+    public List<Conflict> conflictsOfConsultant() {
+        return index.conflictsOf("consultant" + random.nextInt(consultants));
+    }
+
+    @Benchmark
+    public List<Conflict> conflictsInWeek() {
+        long from = START + random.nextInt(300) * DAY;
+        return index.conflictsIn(new Date(from), new Date(from + 7 * DAY));
+    }
+
+    @Benchmark
+    public List<Conflict> checkCreate() {
+        long from = START + random.nextInt(300) * DAY;
+        return index.conflictsWith(new Assignment("new", "consultant" + random.nextInt(consultants), "customer", new Date(from), new Date(from + 14 * DAY)));
+    }
+
+    /** Moves an existing assignment, which removes and adds its period and the overlaps it has. */
+    @Benchmark
+    public void moveAssignment() {
+        int consultant = random.nextInt(consultants);
+        long from = START + random.nextInt(300) * DAY;
+        index.put(new Assignment("a" + consultant + "-" + random.nextInt(assignmentsPerConsultant), "consultant" + consultant, "customer",
+                new Date(from), new Date(from + 14 * DAY + (next++ % 7) * DAY)));
+    }
+}
@@ -0,0 +1,98 @@
+package be.foreseegroup.micro.resourceservice.assignment.loadtest;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DB;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.MongoClient;
+import org.bson.types.ObjectId;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The assignments a load test starts from: {@code assignmentsPerConsultant} consecutive assignments of a month for
+ * every consultant, each at one of the customers in turn. Written straight to Mongo before the service starts, so
+ * the caches, the replica and the conflict index start the way they would on a production collection.
+ */
+final class Dataset {
+    static final long FIRST_START = 1420070400000L;
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+    private static final int BATCH_SIZE = 1000;
+
+    private final int consultants;
+    private final int customers;
+    private final int assignmentsPerConsultant;
+    private final List<String> ids;
+
+    Dataset(int consultants, int customers, int assignmentsPerConsultant) {
+        this.consultants = consultants;
+        this.customers = customers;
+        this.assignmentsPerConsultant = assignmentsPerConsultant;
+        this.ids = new ArrayList<>(consultants * assignmentsPerConsultant);
+    }
+
+    /**
+     * Replaces the assignments and everything derived from them in the {@code database} the service uses.
+     */
+    void seed(MongoClient client, String database) {
+        DB db = client.getDB(database);
+        for (String collection : new String[]{"assignment", "assignmentArchive", "assignmentChanges", "assignmentListVersions"})
+            db.getCollection(collection).drop();
+        DBCollection collection = db.getCollection("assignment");
+        Date now = new Date();
+        List<DBObject> batch = new ArrayList<>(BATCH_SIZE);
+        for (int c = 0; c < consultants; c++) {
+            for (int a = 0; a < assignmentsPerConsultant; a++) {
+                ObjectId id = ObjectId.get();
+                long start = FIRST_START + (a * 30L + c % 30) * DAY;
+                batch.add(new BasicDBObject("_id", id)
+                        .append("consultantId", consultant(c))
+                        .append("customerId", customer(c + a))
+                        .append("startDate", new Date(start))
+                        .append("endDate", new Date(start + 29 * DAY))
+                        .append("version", 0L)
+                        .append("lastModified", now));
+                ids.add(id.toString());
+                if (batch.size() == BATCH_SIZE) {
+                    collection.insert(batch);
+                    batch.clear();
+                }
+            }
+        }
+        if (!batch.isEmpty())
+            collection.insert(batch);
+    }
+
+    int size() {
+        return ids.size();
+    }
+
+    String randomId(Random random) {
+        return ids.get(random.nextInt(ids.size()));
+    }
+
+    String randomConsultant(Random random) {
+        return consultant(random.nextInt(consultants));
+    }
+
+    String randomCustomer(Random random) {
+        return customer(random.nextInt(customers));
+    }
+
+    /** @return a day within the period the seeded assignments cover */
+    Date randomDay(Random random) {
+        return new Date(FIRST_START + random.nextInt(Math.max(1, assignmentsPerConsultant * 30)) * DAY);
+    }
+
+    static String consultant(int index) {
+        return "consultant" + index;
+    }
+
+    String customer(int index) {
+        return "customer" + index % customers;
+    }
+}
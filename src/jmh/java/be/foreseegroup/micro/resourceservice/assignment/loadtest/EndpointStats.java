@@ -0,0 +1,44 @@
+package be.foreseegroup.micro.resourceservice.assignment.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The latencies of the requests of one operation, in microseconds. The latency runs from the time the request was
+ * due by the schedule, not from the time it was sent, so a request held up behind slow ones counts the wait too:
+ * measured from the send, a stalled service would only delay the samples it should have produced
+ * (coordinated omission). The service time, from the send, is kept next to it to see how much is queueing.
+ */
+final class EndpointStats {
+    private static final long HIGHEST_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+    private final Histogram latency = new ConcurrentHistogram(HIGHEST_MICROS, 3);
+    private final Histogram serviceTime = new ConcurrentHistogram(HIGHEST_MICROS, 3);
+    private final AtomicLong errors = new AtomicLong();
+
+    void record(long dueNanos, long sentNanos, long doneNanos, boolean succeeded) {
+        latency.recordValue(Math.min(HIGHEST_MICROS, TimeUnit.NANOSECONDS.toMicros(doneNanos - dueNanos)));
+        serviceTime.recordValue(Math.min(HIGHEST_MICROS, TimeUnit.NANOSECONDS.toMicros(doneNanos - sentNanos)));
+        if (!succeeded)
+            errors.incrementAndGet();
+    }
+
+    Histogram getLatency() {
+        return latency;
+    }
+
+    Histogram getServiceTime() {
+        return serviceTime;
+    }
+
+    long getRequests() {
+        return latency.getTotalCount();
+    }
+
+    long getErrors() {
+        return errors.get();
+    }
+}
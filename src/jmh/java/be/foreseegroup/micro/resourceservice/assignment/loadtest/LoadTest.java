@@ -0,0 +1,151 @@
+package be.foreseegroup.micro.resourceservice.assignment.loadtest;
+
+import be.foreseegroup.micro.resourceservice.assignment.StandaloneAssignmentService;
+import com.mongodb.MongoClient;
+import de.flapdoodle.embed.mongo.MongodExecutable;
+import de.flapdoodle.embed.process.runtime.Network;
+import org.HdrHistogram.Histogram;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test of the whole service: seeds a {@link Dataset} into an embedded Mongo, starts the service on it without
+ * Eureka or the config server, and sends a {@link Workload} at each of the given arrival rates in turn with an
+ * {@link OpenLoopRunner}. Prints the throughput and the latency percentiles of every operation, measured from the time
+ * each request was due, and writes the full latency distribution of every operation to {@code loadtest.report-dir}
+ * to compare runs before and after a change. The same settings and seed send the same requests.
+ * <p>
+ * Configured with system properties, run with {@code gradle loadTest -Dloadtest.rates=100,200,400}:
+ * <ul>
+ * <li>{@code loadtest.consultants}, {@code loadtest.customers}, {@code loadtest.assignments-per-consultant}: the dataset</li>
+ * <li>{@code loadtest.mix}: operation weights, see {@link Workload#DEFAULT_MIX}</li>
+ * <li>{@code loadtest.rates}: requests per second, one run per rate</li>
+ * <li>{@code loadtest.arrivals}: {@code uniform} or {@code poisson}</li>
+ * <li>{@code loadtest.warm-up-seconds}, {@code loadtest.duration-seconds}: per rate, only the duration is reported</li>
+ * <li>{@code loadtest.connections}: requests in flight at most</li>
+ * <li>{@code loadtest.seed}: seed of the requests</li>
+ * <li>{@code loadtest.service-args}: space separated arguments of the service, e.g. {@code --assignment.replica.enabled=true}</li>
+ * </ul>
+ * Set {@code -Dbenchmark.mongo.port} to use an already running Mongo on localhost; its {@code test} database is replaced.
+ */
+public final class LoadTest {
+    private static final String DATABASE = "test";
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int consultants = Integer.getInteger("loadtest.consultants", 1000);
+        int customers = Integer.getInteger("loadtest.customers", 100);
+        int assignmentsPerConsultant = Integer.getInteger("loadtest.assignments-per-consultant", 20);
+        String mix = System.getProperty("loadtest.mix", Workload.DEFAULT_MIX);
+        String rates = System.getProperty("loadtest.rates", "200");
+        boolean poisson = "poisson".equals(System.getProperty("loadtest.arrivals", "uniform"));
+        long warmUpMillis = TimeUnit.SECONDS.toMillis(Long.getLong("loadtest.warm-up-seconds", 10));
+        long durationMillis = TimeUnit.SECONDS.toMillis(Long.getLong("loadtest.duration-seconds", 60));
+        int connections = Integer.getInteger("loadtest.connections", 64);
+        long seed = Long.getLong("loadtest.seed", 42);
+        String serviceArgs = System.getProperty("loadtest.service-args", "").trim();
+        String reportDir = System.getProperty("loadtest.report-dir");
+
+        MongodExecutable mongod = null;
+        Integer mongoPort = Integer.getInteger("benchmark.mongo.port");
+        if (mongoPort == null) {
+            mongoPort = Network.getFreeServerPort();
+            mongod = StandaloneAssignmentService.startMongo(mongoPort);
+        }
+        try {
+            Dataset dataset = new Dataset(consultants, customers, assignmentsPerConsultant);
+            MongoClient client = new MongoClient("localhost", mongoPort);
+            try {
+                dataset.seed(client, DATABASE);
+            } finally {
+                client.close();
+            }
+            List<String> argsOfService = new ArrayList<>();
+            argsOfService.add("--spring.cloud.config.enabled=false");
+            if (!serviceArgs.isEmpty())
+                for (String arg : serviceArgs.split("\\s+"))
+                    argsOfService.add(arg);
+            try (StandaloneAssignmentService service = StandaloneAssignmentService.start(mongoPort, argsOfService.toArray(new String[argsOfService.size()]));
+                 OpenLoopRunner runner = new OpenLoopRunner(Workload.parse(mix, dataset), service.baseUrl(), connections, poisson)) {
+                for (String rate : rates.split(",")) {
+                    double perSecond = Double.parseDouble(rate.trim());
+                    Map<Workload.Operation, EndpointStats> stats = runner.run(perSecond, seed, warmUpMillis, durationMillis, durationMillis);
+                    System.out.printf(Locale.ROOT, "%n%d assignments, %.0f requests per second (%s), %d connections, %s%n",
+                            dataset.size(), perSecond, poisson ? "poisson" : "uniform", connections, serviceArgs.isEmpty() ? "default settings" : serviceArgs);
+                    print(System.out, stats, durationMillis);
+                    if (reportDir != null)
+                        write(new File(reportDir, "rate-" + rate.trim()), stats, durationMillis);
+                }
+            }
+        } finally {
+            if (mongod != null)
+                mongod.stop();
+        }
+    }
+
+    /**
+     * Prints one line per operation: the requests, errors and throughput, the latency percentiles in milliseconds and,
+     * for comparison, the 99th percentile of the service time.
+     */
+    static void print(PrintStream out, Map<Workload.Operation, EndpointStats> stats, long durationMillis) {
+        out.printf(Locale.ROOT, "%-18s %9s %7s %9s %9s %9s %9s %9s %9s %12s%n",
+                "operation", "requests", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "p99 sent ms");
+        Histogram total = null;
+        long requests = 0;
+        long errors = 0;
+        for (Map.Entry<Workload.Operation, EndpointStats> entry : stats.entrySet()) {
+            EndpointStats endpoint = entry.getValue();
+            if (endpoint.getRequests() == 0)
+                continue;
+            line(out, entry.getKey().getHandler(), endpoint.getLatency(), endpoint.getRequests(), endpoint.getErrors(), durationMillis);
+            out.printf(Locale.ROOT, " %12.2f%n", endpoint.getServiceTime().getValueAtPercentile(99) / 1000.0);
+            if (total == null)
+                total = endpoint.getLatency().copy();
+            else
+                total.add(endpoint.getLatency());
+            requests += endpoint.getRequests();
+            errors += endpoint.getErrors();
+        }
+        if (total != null) {
+            line(out, "all", total, requests, errors, durationMillis);
+            out.println();
+        }
+    }
+
+    private static void line(PrintStream out, String name, Histogram latency, long requests, long errors, long durationMillis) {
+        out.printf(Locale.ROOT, "%-18s %9d %7d %9.1f", name, requests, errors, requests * 1000.0 / durationMillis);
+        for (double percentile : PERCENTILES)
+            out.printf(Locale.ROOT, " %9.2f", latency.getValueAtPercentile(percentile) / 1000.0);
+        out.printf(Locale.ROOT, " %9.2f", latency.getMaxValue() / 1000.0);
+    }
+
+    /**
+     * Writes the summary and, per operation, the latency distribution in the HdrHistogram percentile format, which
+     * plots next to the distribution of another run.
+     */
+    private static void write(File dir, Map<Workload.Operation, EndpointStats> stats, long durationMillis) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs())
+            throw new IOException("Could not create " + dir);
+        try (PrintStream out = new PrintStream(new FileOutputStream(new File(dir, "summary.txt")), false, "UTF-8")) {
+            print(out, stats, durationMillis);
+        }
+        for (Map.Entry<Workload.Operation, EndpointStats> entry : stats.entrySet()) {
+            if (entry.getValue().getRequests() == 0)
+                continue;
+            try (PrintStream out = new PrintStream(new FileOutputStream(new File(dir, entry.getKey().getHandler() + ".hgrm")), false, "UTF-8")) {
+                entry.getValue().getLatency().outputPercentileDistribution(out, 1000.0);
+            }
+        }
+    }
+}
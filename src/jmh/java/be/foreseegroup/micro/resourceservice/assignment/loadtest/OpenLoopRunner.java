@@ -0,0 +1,134 @@
+package be.foreseegroup.micro.resourceservice.assignment.loadtest;
+
+import org.apache.http.impl.client.HttpClients;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.web.client.DefaultResponseErrorHandler;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.Closeable;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends the requests of a {@link Workload} at a fixed arrival rate, whether or not the earlier ones were answered:
+ * one thread schedules the requests and hands them to {@code connections} threads, each with a connection of its
+ * own. Requests due while all connections are busy wait in a queue, and that wait is part of their latency, the way
+ * users arriving at a slow service wait. Arrivals are evenly spaced, or random with the same mean rate when
+ * {@code poisson}.
+ */
+final class OpenLoopRunner implements Closeable {
+    private static final Logger LOG = LoggerFactory.getLogger(OpenLoopRunner.class);
+
+    private final Workload workload;
+    private final String baseUrl;
+    private final int connections;
+    private final boolean poisson;
+    private final HttpComponentsClientHttpRequestFactory requestFactory;
+    private final RestTemplate restTemplate;
+
+    OpenLoopRunner(Workload workload, String baseUrl, int connections, boolean poisson) {
+        this.workload = workload;
+        this.baseUrl = baseUrl;
+        this.connections = connections;
+        this.poisson = poisson;
+        requestFactory = new HttpComponentsClientHttpRequestFactory(
+                HttpClients.custom().setMaxConnTotal(connections).setMaxConnPerRoute(connections).build());
+        restTemplate = new RestTemplate(requestFactory);
+        restTemplate.setErrorHandler(new DefaultResponseErrorHandler() {
+            @Override
+            public boolean hasError(ClientHttpResponse response) {
+                return false;
+            }
+        });
+    }
+
+    /**
+     * Sends {@code rate} requests per second for the warm-up and then for the measured duration, and waits up to
+     * {@code drainMillis} for the requests still running.
+     *
+     * @return the statistics of the requests due in the measured duration, per operation sent
+     */
+    Map<Workload.Operation, EndpointStats> run(double rate, long seed, long warmUpMillis, long durationMillis, long drainMillis)
+            throws InterruptedException {
+        Map<Workload.Operation, EndpointStats> stats = new EnumMap<>(Workload.Operation.class);
+        for (Workload.Operation operation : Workload.Operation.values())
+            stats.put(operation, new EndpointStats());
+        ThreadPoolExecutor senders = new ThreadPoolExecutor(connections, connections, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), new CustomizableThreadFactory("loadtest-"));
+        Random random = new Random(seed);
+        double intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        long start = System.nanoTime();
+        long measuredFrom = start + TimeUnit.MILLISECONDS.toNanos(warmUpMillis);
+        long end = measuredFrom + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+        double offset = 0;
+        while (true) {
+            long due = start + (long) offset;
+            if (due >= end)
+                break;
+            long wait;
+            while ((wait = due - System.nanoTime()) > 0)
+                LockSupport.parkNanos(wait);
+            Workload.Request request = workload.next(random);
+            senders.execute(new Send(request, due, due >= measuredFrom ? stats.get(request.operation) : null));
+            offset += poisson ? -Math.log(1 - random.nextDouble()) * intervalNanos : intervalNanos;
+        }
+        senders.shutdown();
+        if (!senders.awaitTermination(drainMillis, TimeUnit.MILLISECONDS)) {
+            // Never sent, but due: left out, they would hide the very overload that kept them waiting
+            long now = System.nanoTime();
+            int dropped = 0;
+            for (Runnable waiting : senders.shutdownNow()) {
+                ((Send) waiting).fail(now);
+                dropped++;
+            }
+            LOG.warn("{} requests were still waiting {} ms after the last one was due, the service cannot keep up with {} requests per second",
+                    dropped, drainMillis, rate);
+        }
+        return stats;
+    }
+
+    @Override
+    public void close() {
+        try {
+            requestFactory.destroy();
+        } catch (Exception e) {
+            LOG.warn("Could not close the connections: {}", e.getMessage());
+        }
+    }
+
+    /** Sends a request and records it in the statistics of its operation, unless it was due in the warm-up. */
+    private final class Send implements Runnable {
+        private final Workload.Request request;
+        private final long due;
+        private final EndpointStats stats;
+
+        Send(Workload.Request request, long due, EndpointStats stats) {
+            this.request = request;
+            this.due = due;
+            this.stats = stats;
+        }
+
+        @Override
+        public void run() {
+            long sent = System.nanoTime();
+            boolean succeeded = workload.execute(request, restTemplate, baseUrl);
+            if (stats != null)
+                stats.record(due, sent, System.nanoTime(), succeeded);
+        }
+
+        /** Records the request as failed without sending it. */
+        void fail(long now) {
+            if (stats != null)
+                stats.record(due, now, now, false);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package be.foreseegroup.micro.resourceservice.assignment.loadtest;
+
+import be.foreseegroup.micro.resourceservice.assignment.model.Assignment;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The mix of requests a load test sends, each operation named after the handler method it calls, like the request
+ * metrics of the service. The mix is given as weights, e.g. {@code getById=60,update=10}; every request is picked
+ * with a seeded {@link Random}, so a run with the same seed sends the same requests in the same order.
+ * Deletes remove assignments the run created itself and are sent as creates until there is one.
+ */
+final class Workload {
+    static final String DEFAULT_MIX = "getById=35,getByConsultantId=20,getByCustomerId=5,getActive=5,getAll=5,batchGet=5,"
+            + "create=10,update=10,delete=5";
+    private static final int BATCH_GET_SIZE = 50;
+
+    enum Operation {
+        GET_BY_ID("getById"), GET_BY_CONSULTANT_ID("getByConsultantId"), GET_BY_CUSTOMER_ID("getByCustomerId"),
+        GET_ACTIVE("getActive"), GET_ALL("getAll"), BATCH_GET("batchGet"), CREATE("create"), UPDATE("update"), DELETE("delete");
+
+        private final String handler;
+
+        Operation(String handler) {
+            this.handler = handler;
+        }
+
+        /** @return the name of the handler method, which the mix and the report use */
+        String getHandler() {
+            return handler;
+        }
+
+        static Operation ofHandler(String handler) {
+            for (Operation operation : values()) {
+                if (operation.handler.equals(handler))
+                    return operation;
+            }
+            throw new IllegalArgumentException("Unknown operation: " + handler);
+        }
+    }
+
+    private final Dataset dataset;
+    private final Map<Operation, Integer> weights;
+    private final int totalWeight;
+    private final Queue<String> created = new ConcurrentLinkedQueue<>();
+    private final HttpHeaders jsonHeaders = new HttpHeaders();
+
+    private Workload(Dataset dataset, Map<Operation, Integer> weights) {
+        this.dataset = dataset;
+        this.weights = weights;
+        this.totalWeight = weights.values().stream().mapToInt(Integer::intValue).sum();
+        jsonHeaders.setContentType(MediaType.APPLICATION_JSON);
+    }
+
+    /**
+     * @param mix comma separated {@code operation=weight} pairs
+     */
+    static Workload parse(String mix, Dataset dataset) {
+        Map<Operation, Integer> weights = new LinkedHashMap<>();
+        for (String entry : mix.split(",")) {
+            String[] pair = entry.trim().split("=");
+            if (pair.length != 2)
+                throw new IllegalArgumentException("Not an operation=weight pair: " + entry);
+            int weight = Integer.parseInt(pair[1].trim());
+            if (weight < 0)
+                throw new IllegalArgumentException("Negative weight: " + entry);
+            if (weight > 0)
+                weights.put(Operation.ofHandler(pair[0].trim()), weight);
+        }
+        if (weights.isEmpty())
+            throw new IllegalArgumentException("Empty mix: " + mix);
+        return new Workload(dataset, weights);
+    }
+
+    /**
+     * Picks the next request; called by the one thread scheduling the requests.
+     */
+    Request next(Random random) {
+        int pick = random.nextInt(totalWeight);
+        Operation operation = null;
+        for (Map.Entry<Operation, Integer> weight : weights.entrySet()) {
+            operation = weight.getKey();
+            pick -= weight.getValue();
+            if (pick < 0)
+                break;
+        }
+        switch (operation) {
+            case GET_BY_ID:
+                return new Request(operation, HttpMethod.GET, "/assignments/" + dataset.randomId(random), null);
+            case GET_BY_CONSULTANT_ID:
+                return new Request(operation, HttpMethod.GET, "/assignmentsbycid/" + dataset.randomConsultant(random), null);
+            case GET_BY_CUSTOMER_ID:
+                return new Request(operation, HttpMethod.GET, "/assignmentsbycuid/" + dataset.randomCustomer(random), null);
+            case GET_ACTIVE:
+                return new Request(operation, HttpMethod.GET, "/assignments/active?at=" + format(dataset.randomDay(random)), null);
+            case GET_ALL:
+                return new Request(operation, HttpMethod.GET, "/assignments?limit=100", null);
+            case BATCH_GET:
+                List<String> ids = new ArrayList<>(BATCH_GET_SIZE);
+                for (int i = 0; i < BATCH_GET_SIZE; i++)
+                    ids.add(dataset.randomId(random));
+                return new Request(operation, HttpMethod.POST, "/assignments/batch-get", ids);
+            case UPDATE:
+                return new Request(operation, HttpMethod.PUT, "/assignments/" + dataset.randomId(random), randomAssignment(random));
+            case DELETE:
+                String id = created.poll();
+                if (id != null)
+                    return new Request(operation, HttpMethod.DELETE, "/assignments/" + id, null);
+                return new Request(Operation.CREATE, HttpMethod.POST, "/assignments", randomAssignment(random));
+            default:
+                return new Request(Operation.CREATE, HttpMethod.POST, "/assignments", randomAssignment(random));
+        }
+    }
+
+    /**
+     * Sends the request.
+     *
+     * @return true when it was answered with a 2xx or 304
+     */
+    boolean execute(Request request, RestTemplate restTemplate, String baseUrl) {
+        HttpEntity<?> entity = request.body == null ? null : new HttpEntity<>(request.body, jsonHeaders);
+        try {
+            if (request.operation == Operation.CREATE) {
+                ResponseEntity<Assignment> response = restTemplate.exchange(baseUrl + request.path, request.method, entity, Assignment.class);
+                if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null)
+                    created.add(response.getBody().getId());
+                return response.getStatusCode().is2xxSuccessful();
+            }
+            ResponseEntity<byte[]> response = restTemplate.exchange(baseUrl + request.path, request.method, entity, byte[].class);
+            return response.getStatusCode().is2xxSuccessful() || response.getStatusCode().value() == 304;
+        } catch (RestClientException e) {
+            return false;
+        }
+    }
+
+    private Assignment randomAssignment(Random random) {
+        Date start = dataset.randomDay(random);
+        return new Assignment(dataset.randomConsultant(random), dataset.randomCustomer(random), start,
+                new Date(start.getTime() + TimeUnit.DAYS.toMillis(1 + random.nextInt(60))));
+    }
+
+    private static String format(Date day) {
+        SimpleDateFormat format = new SimpleDateFormat(Assignment.DATE_PATTERN);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format.format(day);
+    }
+
+    /** One request of the workload, picked ahead of the time it is due. */
+    static final class Request {
+        final Operation operation;
+        final HttpMethod method;
+        final String path;
+        final Object body;
+
+        Request(Operation operation, HttpMethod method, String path, Object body) {
+            this.operation = operation;
+            this.method = method;
+            this.path = path;
+            this.body = body;
+        }
+    }
+}
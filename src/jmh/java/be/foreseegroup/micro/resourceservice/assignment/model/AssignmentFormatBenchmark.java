@@ -0,0 +1,80 @@
+package be.foreseegroup.micro.resourceservice.assignment.model;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Encoding and decoding of list responses in the formats the service negotiates: JSON, gzipped JSON, Smile and CBOR.
+ * The wire size of each list is printed when the benchmark is set up.
+ */
+@State(Scope.Benchmark)
+public class AssignmentFormatBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int size;
+
+    @Param({"json", "json-gzip", "smile", "cbor"})
+    public String format;
+
+    private ObjectWriter writer;
+    private ObjectReader reader;
+    private boolean gzip;
+    private List<Assignment> assignments;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() throws IOException {
+        JsonFactory factory = format.equals("smile") ? new SmileFactory() : format.equals("cbor") ? new CBORFactory() : new JsonFactory();
+        ObjectMapper mapper = new ObjectMapper(factory);
+        gzip = format.equals("json-gzip");
+        writer = mapper.writerWithType(mapper.getTypeFactory().constructCollectionType(List.class, Assignment.class));
+        reader = mapper.reader(mapper.getTypeFactory().constructCollectionType(List.class, Assignment.class));
+        assignments = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Assignment assignment = new Assignment(Integer.toHexString(0x10000000 + i) + "0000000000000000", "consultant" + i % 100, "customer" + i % 10,
+                    new Date(1420070400000L + i * 86400000L), new Date(1451606400000L + i * 86400000L));
+            assignment.setVersion((long) i);
+            assignments.add(assignment);
+        }
+        encoded = encode();
+        System.out.printf("%n%s, %d assignments: %d bytes (%.1f per assignment)%n", format, size, encoded.length, (double) encoded.length / size);
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        if (!gzip)
+            return writer.writeValueAsBytes(assignments);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            writer.writeValue(out, assignments);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Benchmark
+    public List<Assignment> decode() throws IOException {
+        if (!gzip)
+            return reader.readValue(encoded);
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(encoded))) {
+            return reader.readValue(in);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package be.foreseegroup.micro.resourceservice.assignment.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Jackson serialization and deserialization of single assignments and of list responses.
+ */
+@State(Scope.Benchmark)
+public class AssignmentJsonBenchmark {
+
+    @Param({"1", "100", "10000"})
+    public int size;
+
+    private ObjectWriter writer;
+    private ObjectReader reader;
+    private List<Assignment> assignments;
+    private byte[] json;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        writer = mapper.writerWithType(mapper.getTypeFactory().constructCollectionType(List.class, Assignment.class));
+        reader = mapper.reader(mapper.getTypeFactory().constructCollectionType(List.class, Assignment.class));
+        assignments = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Assignment assignment = new Assignment(Integer.toHexString(0x10000000 + i) + "0000000000000000", "consultant" + i % 100, "customer" + i % 10,
+                    new Date(1420070400000L + i * 86400000L), new Date(1451606400000L + i * 86400000L));
+            assignment.setVersion((long) i);
+            assignments.add(assignment);
+        }
+        json = writer.writeValueAsBytes(assignments);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return writer.writeValueAsBytes(assignments);
+    }
+
+    @Benchmark
+    public List<Assignment> deserialize() throws IOException {
+        return reader.readValue(json);
+    }
+}
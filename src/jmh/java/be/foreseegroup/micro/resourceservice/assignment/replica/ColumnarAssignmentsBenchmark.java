@@ -0,0 +1,114 @@
+package be.foreseegroup.micro.resourceservice.assignment.replica;
+
+import be.foreseegroup.micro.resourceservice.assignment.model.Assignment;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Queries and writes of {@link ColumnarAssignments} holding a million assignments of 20,000 consultants at 2,000
+ * customers. The setup prints the heap taken by the columns next to the same assignments held as objects in a map
+ * by id, which is what an object cache of the collection would hold at the least.
+ */
+@State(Scope.Benchmark)
+public class ColumnarAssignmentsBenchmark {
+    private static final long DAY = 86400000L;
+    private static final long START = 1420070400000L;
+
+    @Param({"1000000"})
+    public int assignments;
+
+    @Param({"20000"})
+    public int consultants;
+
+    private ColumnarAssignments columns;
+    private String[] ids;
+    private Random random;
+    private long sequence;
+
+    @Setup
+    public void setUp() {
+        random = new Random(42);
+        ids = new String[assignments];
+        List<Assignment> generated = new ArrayList<>(assignments);
+        for (int i = 0; i < assignments; i++) {
+            ids[i] = new ObjectId().toString();
+            long start = START + random.nextInt(700) * DAY;
+            Assignment assignment = new Assignment(ids[i], "consultant" + random.nextInt(consultants), "customer" + random.nextInt(consultants / 10),
+                    new Date(start), new Date(start + (10 + random.nextInt(80)) * DAY));
+            assignment.setVersion((long) random.nextInt(3));
+            assignment.setLastModified(new Date(start));
+            generated.add(assignment);
+        }
+
+        long before = usedHeap();
+        Map<String, Assignment> objects = new HashMap<>();
+        for (Assignment assignment : generated)
+            objects.put(assignment.getId(), copy(assignment));
+        long objectBytes = usedHeap() - before;
+
+        before = usedHeap();
+        columns = new ColumnarAssignments(0, START, assignments);
+        generated.forEach(columns::append);
+        columns.sortById();
+        long columnBytes = usedHeap() - before;
+
+        System.out.printf("%nHeap for %d assignments: %d MB as objects by id, %d MB as columns (%s and %s)%n",
+                assignments, objectBytes >> 20, columnBytes >> 20, objects.size(), columns.size());
+    }
+
+    @Benchmark
+    public Assignment findById() {
+        return columns.get(ids[random.nextInt(assignments)]);
+    }
+
+    @Benchmark
+    public List<Assignment> consultantInMonth() {
+        long from = START + random.nextInt(700) * DAY;
+        return columns.ofConsultant("consultant" + random.nextInt(consultants), new Date(from), new Date(from + 30 * DAY), null);
+    }
+
+    @Benchmark
+    public List<Assignment> pageOfIds() {
+        return columns.pageAfter(ids[random.nextInt(assignments)], 500, null);
+    }
+
+    /** Scans every row, the worst case of the replica. */
+    @Benchmark
+    public List<Assignment> activeAt() {
+        return columns.activeAt(new Date(START + random.nextInt(700) * DAY), null);
+    }
+
+    /** Moves an existing assignment to another consultant and period, as applying an update change does. */
+    @Benchmark
+    public void applyUpdate() {
+        long start = START + random.nextInt(700) * DAY;
+        columns.put(new Assignment(ids[random.nextInt(assignments)], "consultant" + random.nextInt(consultants), "customer" + random.nextInt(consultants / 10),
+                new Date(start), new Date(start + 30 * DAY)), ++sequence, start);
+    }
+
+    private static Assignment copy(Assignment assignment) {
+        Assignment copy = new Assignment(new String(assignment.getId()), new String(assignment.getConsultantId()), new String(assignment.getCustomerId()),
+                new Date(assignment.getStartDate().getTime()), new Date(assignment.getEndDate().getTime()));
+        copy.setVersion(assignment.getVersion());
+        copy.setLastModified(new Date(assignment.getLastModified().getTime()));
+        return copy;
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++)
+            System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,118 @@
+package be.foreseegroup.micro.resourceservice.assignment.service;
+
+import be.foreseegroup.micro.resourceservice.assignment.cache.AssignmentCache;
+import be.foreseegroup.micro.resourceservice.assignment.events.ChangeLog;
+import be.foreseegroup.micro.resourceservice.assignment.model.Assignment;
+import be.foreseegroup.micro.resourceservice.assignment.mongo.ReadRouting;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.ReadPreference;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The {@link AssignmentService} handler methods on top of an in-memory repository, with and without the
+ * lookup cache, so the measured time is the controller's own overhead. The handlers run on the calling thread.
+ */
+@State(Scope.Benchmark)
+public class AssignmentServiceBenchmark {
+    private static final int ASSIGNMENTS = 10000;
+    private static final int CONSULTANTS = 100;
+
+    @Param({"true", "false"})
+    public boolean cached;
+
+    private AssignmentService service;
+    private List<String> ids;
+
+    @Setup
+    public void setUp() {
+        List<Assignment> assignments = new ArrayList<>(ASSIGNMENTS);
+        ids = new ArrayList<>(ASSIGNMENTS);
+        for (int i = 0; i < ASSIGNMENTS; i++) {
+            String id = String.format("%024x", i);
+            Assignment assignment = new Assignment(id, "consultant" + i % CONSULTANTS, "customer" + i % 10, new Date(), new Date());
+            assignment.setVersion(0L);
+            assignments.add(assignment);
+            ids.add(id);
+        }
+        service = new AssignmentService();
+        service.repo = InMemoryAssignmentRepository.create(assignments);
+        service.cache = cache(cached ? 100000 : 0);
+        service.executor = new AssignmentExecutor();
+        service.listVersions = new UnchangedListVersions();
+        service.changes = new ChangeLog();
+        service.objectMapper = new ObjectMapper();
+        service.readRouting = new ReadRouting(null, ReadPreference.primary(), 0, 0);
+        service.defaultPageSize = 500;
+        service.maxPageSize = 5000;
+    }
+
+    @Benchmark
+    public DeferredResult<ResponseEntity<Assignment>> getById() {
+        return service.getById(randomId(), false, null);
+    }
+
+    @Benchmark
+    public DeferredResult<ResponseEntity<Iterable<Assignment>>> getByConsultantId() {
+        return service.getByConsultantId("consultant" + ThreadLocalRandom.current().nextInt(CONSULTANTS), null, null, null, false, null);
+    }
+
+    @Benchmark
+    public DeferredResult<ResponseEntity<Iterable<Assignment>>> getAllPage() {
+        return service.getAll(100, null, null, false, null);
+    }
+
+    @Benchmark
+    public DeferredResult<ResponseEntity<Assignment>> update() {
+        String id = randomId();
+        Assignment values = new Assignment("consultant" + ThreadLocalRandom.current().nextInt(CONSULTANTS), "customer1", new Date(), new Date());
+        return service.update(id, values, null);
+    }
+
+    private String randomId() {
+        return ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+    }
+
+    /** List versions without Mongo; every list stays at version 0. */
+    private static class UnchangedListVersions extends ListVersions {
+        private static final Version UNCHANGED = new Version(0, null);
+
+        @Override
+        Version get(String list) {
+            return UNCHANGED;
+        }
+
+        @Override
+        void bump(Assignment... assignments) {
+        }
+    }
+
+    private static AssignmentCache cache(int maxSize) {
+        AssignmentCache cache = new AssignmentCache();
+        setField(cache, "maxSize", maxSize);
+        setField(cache, "ttlSeconds", 60L);
+        Method init = ReflectionUtils.findMethod(AssignmentCache.class, "init");
+        ReflectionUtils.makeAccessible(init);
+        ReflectionUtils.invokeMethod(init, cache);
+        return cache;
+    }
+
+    private static void setField(Object target, String name, Object value) {
+        Field field = ReflectionUtils.findField(target.getClass(), name);
+        ReflectionUtils.makeAccessible(field);
+        ReflectionUtils.setField(field, target, value);
+    }
+}
@@ -0,0 +1,96 @@
+package be.foreseegroup.micro.resourceservice.assignment.service;
+
+import be.foreseegroup.micro.resourceservice.assignment.model.Assignment;
+import org.bson.types.ObjectId;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Map backed stand-in for {@link AssignmentRepository}, so the controller can be measured without Mongo.
+ * Only the methods the controller calls are implemented, field selections are ignored.
+ */
+final class InMemoryAssignmentRepository {
+    private final NavigableMap<String, Assignment> assignments = new ConcurrentSkipListMap<>();
+
+    static AssignmentRepository create(List<Assignment> initial) {
+        InMemoryAssignmentRepository store = new InMemoryAssignmentRepository();
+        initial.forEach(store::save);
+        return (AssignmentRepository) Proxy.newProxyInstance(AssignmentRepository.class.getClassLoader(),
+                new Class<?>[]{AssignmentRepository.class}, (proxy, method, args) -> store.invoke(method.getName(), args));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object invoke(String method, Object[] args) {
+        switch (method) {
+            case "findOne":
+                return assignments.get(args[0]);
+            case "exists":
+                return assignments.containsKey(args[0]);
+            case "findByConsultantId":
+                return filter(a -> args[0].equals(a.getConsultantId()));
+            case "findByCustomerId":
+                return filter(a -> args[0].equals(a.getCustomerId()));
+            case "findPageAfter":
+                Map<String, Assignment> tail = args[0] == null ? assignments : assignments.tailMap((String) args[0], false);
+                return tail.values().stream().limit((Integer) args[1]).collect(Collectors.toList());
+            case "streamAll":
+                assignments.values().forEach((Consumer<Assignment>) args[1]);
+                return null;
+            case "save":
+                return save((Assignment) args[0]);
+            case "insertNew":
+                return insertNew((Assignment) args[0]);
+            case "updateFields":
+                return updateFields((String) args[0], (Long) args[1], (Assignment) args[2]);
+            case "removeById":
+                return assignments.remove(args[0]);
+            case "hashCode":
+                return System.identityHashCode(this);
+            case "toString":
+                return "InMemoryAssignmentRepository";
+            default:
+                throw new UnsupportedOperationException(method);
+        }
+    }
+
+    private Assignment save(Assignment assignment) {
+        if (assignment.getId() == null)
+            assignment.setId(new ObjectId().toString());
+        assignments.put(assignment.getId(), assignment);
+        return assignment;
+    }
+
+    private Assignment insertNew(Assignment assignment) {
+        if (assignment.getId() != null && assignments.putIfAbsent(assignment.getId(), assignment) != null)
+            throw new DuplicateKeyException("Duplicate id: " + assignment.getId());
+        return save(assignment);
+    }
+
+    private synchronized Assignment updateFields(String id, Long expectedVersion, Assignment values) {
+        Assignment previous = assignments.get(id);
+        if (previous == null || (expectedVersion != null && !expectedVersion.equals(previous.getVersion())))
+            return null;
+        Assignment updated = new Assignment(id, values.getConsultantId(), values.getCustomerId(), values.getStartDate(), values.getEndDate());
+        updated.setVersion((previous.getVersion() == null ? 0 : previous.getVersion()) + 1);
+        assignments.put(id, updated);
+        return previous;
+    }
+
+    private List<Assignment> filter(Predicate<Assignment> predicate) {
+        List<Assignment> result = new ArrayList<>();
+        for (Assignment assignment : assignments.values()) {
+            if (predicate.test(assignment))
+                result.add(assignment);
+        }
+        return result;
+    }
+}
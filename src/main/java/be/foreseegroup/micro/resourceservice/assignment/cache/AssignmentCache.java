@@ -0,0 +1,223 @@
+package be.foreseegroup.micro.resourceservice.assignment.cache;
+
+import be.foreseegroup.micro.resourceservice.assignment.model.Assignment;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Read-through cache in front of the assignment lookups by id, consultant id and customer id.
+ * Writes invalidate the affected keys here and, when enabled, on every other instance through
+ * {@link CacheInvalidationBroadcaster}; the TTL bounds staleness should a broadcast get lost.
+ * <p>
+ * A list is cached with the list version read before it was loaded, and only served again under that version: the
+ * versions are shared by all instances, so a list another instance wrote to is reloaded here whether or not the
+ * invalidation reached this instance.
+ */
+@Component
+public class AssignmentCache implements PublicMetrics {
+    private final String instanceId = UUID.randomUUID().toString();
+
+    /** Bumped by every invalidation, so a load that raced with a write is not cached. */
+    private final AtomicLong generation = new AtomicLong();
+
+    @Value("${assignment.cache.max-size:10000}")
+    private int maxSize;
+
+    @Value("${assignment.cache.ttl-seconds:30}")
+    private long ttlSeconds;
+
+    @Autowired(required = false)
+    private CacheInvalidationBroadcaster broadcaster;
+
+    private BoundedCache<String, Assignment> byId;
+    private BoundedCache<String, VersionedList> byConsultantId;
+    private BoundedCache<String, VersionedList> byCustomerId;
+
+    @PostConstruct
+    void init() {
+        long ttlMillis = ttlSeconds * 1000;
+        byId = new BoundedCache<>(maxSize, ttlMillis);
+        byConsultantId = new BoundedCache<>(maxSize, ttlMillis);
+        byCustomerId = new BoundedCache<>(maxSize, ttlMillis);
+    }
+
+    public Assignment getById(String id, Function<String, Assignment> loader) {
+        return readThrough(byId, id, loader);
+    }
+
+    /**
+     * @return the cached assignment, or null when it is not cached; never loads it
+     */
+    public Assignment peekById(String id) {
+        return byId.get(id);
+    }
+
+    /**
+     * Looks up many ids at once: the cached ones in memory, all others with a single call of {@code loader}.
+     *
+     * @return the assignments found by id, the cached ones first; ids that do not exist are left out
+     */
+    public Map<String, Assignment> getAllById(Collection<String> ids, Function<Collection<String>, Iterable<Assignment>> loader) {
+        Map<String, Assignment> found = new LinkedHashMap<>();
+        List<String> uncached = new ArrayList<>();
+        for (String id : ids) {
+            Assignment assignment = byId.get(id);
+            if (assignment != null)
+                found.put(id, assignment);
+            else
+                uncached.add(id);
+        }
+        if (uncached.isEmpty())
+            return found;
+        long loadGeneration = generation.get();
+        List<Assignment> loaded = toList(loader.apply(uncached));
+        boolean current = generation.get() == loadGeneration;
+        for (Assignment assignment : loaded) {
+            found.put(assignment.getId(), assignment);
+            if (current)
+                byId.put(assignment.getId(), assignment);
+        }
+        return found;
+    }
+
+    /**
+     * @param version the version of the list, read before calling this
+     */
+    public List<Assignment> getByConsultantId(String consultantId, long version, Function<String, Iterable<Assignment>> loader) {
+        return readThrough(byConsultantId, consultantId, version, loader);
+    }
+
+    /**
+     * @param version the version of the list, read before calling this
+     */
+    public List<Assignment> getByCustomerId(String customerId, long version, Function<String, Iterable<Assignment>> loader) {
+        return readThrough(byCustomerId, customerId, version, loader);
+    }
+
+    /**
+     * Drops every key the given assignments are cached under, locally and on the other instances.
+     * Pass both the old and the new state of an updated assignment.
+     */
+    public void invalidate(Assignment... assignments) {
+        CacheInvalidation invalidation = new CacheInvalidation(instanceId);
+        for (Assignment assignment : assignments) {
+            if (assignment == null)
+                continue;
+            if (assignment.getId() != null)
+                invalidation.getIds().add(assignment.getId());
+            if (assignment.getConsultantId() != null)
+                invalidation.getConsultantIds().add(assignment.getConsultantId());
+            if (assignment.getCustomerId() != null)
+                invalidation.getCustomerIds().add(assignment.getCustomerId());
+        }
+        evict(invalidation);
+        if (broadcaster != null)
+            broadcaster.broadcast(invalidation);
+    }
+
+    /**
+     * Drops every local entry, e.g. after the collection was modified behind the service's back.
+     */
+    public void clear() {
+        generation.incrementAndGet();
+        byId.clear();
+        byConsultantId.clear();
+        byCustomerId.clear();
+    }
+
+    /**
+     * Drops the lists of the consultants that do not pass {@code keep}, e.g. those another instance now serves.
+     */
+    public void retainConsultants(Predicate<String> keep) {
+        byConsultantId.retainKeys(keep);
+    }
+
+    /**
+     * Applies an invalidation received from another instance.
+     */
+    void onRemoteInvalidation(CacheInvalidation invalidation) {
+        if (!instanceId.equals(invalidation.getOrigin()))
+            evict(invalidation);
+    }
+
+    private void evict(CacheInvalidation invalidation) {
+        generation.incrementAndGet();
+        invalidation.getIds().forEach(byId::invalidate);
+        invalidation.getConsultantIds().forEach(byConsultantId::invalidate);
+        invalidation.getCustomerIds().forEach(byCustomerId::invalidate);
+    }
+
+    private <V> V readThrough(BoundedCache<String, V> cache, String key, Function<String, V> loader) {
+        V value = cache.get(key);
+        if (value != null)
+            return value;
+        long loadGeneration = generation.get();
+        value = loader.apply(key);
+        if (value != null && generation.get() == loadGeneration)
+            cache.put(key, value);
+        return value;
+    }
+
+    private List<Assignment> readThrough(BoundedCache<String, VersionedList> cache, String key, long version,
+                                         Function<String, Iterable<Assignment>> loader) {
+        VersionedList cached = cache.get(key);
+        if (cached != null && cached.version == version)
+            return cached.assignments;
+        long loadGeneration = generation.get();
+        List<Assignment> loaded = toList(loader.apply(key));
+        if (loaded != null && generation.get() == loadGeneration)
+            cache.put(key, new VersionedList(version, loaded));
+        return loaded;
+    }
+
+    private static List<Assignment> toList(Iterable<Assignment> assignments) {
+        if (assignments == null)
+            return null;
+        List<Assignment> list = new ArrayList<>();
+        assignments.forEach(list::add);
+        return Collections.unmodifiableList(list);
+    }
+
+    /** A cached list and the version it was loaded under; the list may be newer, never older. */
+    private static final class VersionedList {
+        final long version;
+        final List<Assignment> assignments;
+
+        VersionedList(long version, List<Assignment> assignments) {
+            this.version = version;
+            this.assignments = assignments;
+        }
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        List<Metric<?>> metrics = new ArrayList<>();
+        addMetrics(metrics, "byId", byId);
+        addMetrics(metrics, "byConsultantId", byConsultantId);
+        addMetrics(metrics, "byCustomerId", byCustomerId);
+        return metrics;
+    }
+
+    private static void addMetrics(List<Metric<?>> metrics, String name, BoundedCache<?, ?> cache) {
+        String prefix = "cache.assignments." + name;
+        metrics.add(new Metric<>(prefix + ".size", cache.size()));
+        metrics.add(new Metric<>(prefix + ".hits", cache.hits()));
+        metrics.add(new Metric<>(prefix + ".misses", cache.misses()));
+        metrics.add(new Metric<>(prefix + ".evictions", cache.evictions()));
+    }
+}
@@ -0,0 +1,58 @@
+package be.foreseegroup.micro.resourceservice.assignment.cache;
+
+import org.springframework.amqp.core.AmqpTemplate;
+import org.springframework.amqp.core.AnonymousQueue;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.FanoutExchange;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Broadcasts assignment cache invalidations over RabbitMQ, enabled with {@code assignment.cache.broadcast=true}.
+ * Every instance consumes from its own auto-deleted queue bound to the fanout exchange.
+ */
+@Configuration
+@ConditionalOnProperty("assignment.cache.broadcast")
+public class CacheBroadcastConfiguration {
+
+    private final MessageConverter converter = new Jackson2JsonMessageConverter();
+
+    @Value("${assignment.cache.exchange:assignment.cache.invalidation}")
+    private String exchangeName;
+
+    @Bean
+    public FanoutExchange cacheInvalidationExchange() {
+        return new FanoutExchange(exchangeName, false, false);
+    }
+
+    @Bean
+    public Queue cacheInvalidationQueue() {
+        return new AnonymousQueue();
+    }
+
+    @Bean
+    public Binding cacheInvalidationBinding() {
+        return BindingBuilder.bind(cacheInvalidationQueue()).to(cacheInvalidationExchange());
+    }
+
+    @Bean
+    public CacheInvalidationBroadcaster cacheInvalidationBroadcaster(AmqpTemplate amqpTemplate) {
+        return new CacheInvalidationBroadcaster(amqpTemplate, converter, exchangeName);
+    }
+
+    @Bean
+    public SimpleMessageListenerContainer cacheInvalidationListener(ConnectionFactory connectionFactory, AssignmentCache cache) {
+        SimpleMessageListenerContainer container = new SimpleMessageListenerContainer(connectionFactory);
+        container.setQueues(cacheInvalidationQueue());
+        container.setMessageListener(new CacheInvalidationListener(cache, converter));
+        return container;
+    }
+}
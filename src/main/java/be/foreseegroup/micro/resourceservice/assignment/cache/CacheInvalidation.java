@@ -0,0 +1,54 @@
+package be.foreseegroup.micro.resourceservice.assignment.cache;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Keys to drop from the assignment caches, exchanged between instances.
+ */
+public class CacheInvalidation {
+    private String origin;
+    private Set<String> ids = new HashSet<>();
+    private Set<String> consultantIds = new HashSet<>();
+    private Set<String> customerIds = new HashSet<>();
+
+    public CacheInvalidation() {
+
+    }
+
+    public CacheInvalidation(String origin) {
+        this.origin = origin;
+    }
+
+    public String getOrigin() {
+        return origin;
+    }
+
+    public void setOrigin(String origin) {
+        this.origin = origin;
+    }
+
+    public Set<String> getIds() {
+        return ids;
+    }
+
+    public void setIds(Set<String> ids) {
+        this.ids = ids;
+    }
+
+    public Set<String> getConsultantIds() {
+        return consultantIds;
+    }
+
+    public void setConsultantIds(Set<String> consultantIds) {
+        this.consultantIds = consultantIds;
+    }
+
+    public Set<String> getCustomerIds() {
+        return customerIds;
+    }
+
+    public void setCustomerIds(Set<String> customerIds) {
+        this.customerIds = customerIds;
+    }
+}
@@ -0,0 +1,36 @@
+package be.foreseegroup.micro.resourceservice.assignment.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.AmqpTemplate;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+/**
+ * Publishes cache invalidations on a fanout exchange every instance is bound to.
+ */
+public class CacheInvalidationBroadcaster {
+    private static final Logger LOG = LoggerFactory.getLogger(CacheInvalidationBroadcaster.class);
+
+    private final AmqpTemplate amqpTemplate;
+    private final MessageConverter converter;
+    private final String exchange;
+
+    public CacheInvalidationBroadcaster(AmqpTemplate amqpTemplate, MessageConverter converter, String exchange) {
+        this.amqpTemplate = amqpTemplate;
+        this.converter = converter;
+        this.exchange = exchange;
+    }
+
+    /**
+     * Failures are only logged: the cache TTL still bounds how long other instances serve stale data.
+     */
+    public void broadcast(CacheInvalidation invalidation) {
+        try {
+            amqpTemplate.send(exchange, "", converter.toMessage(invalidation, new MessageProperties()));
+        } catch (AmqpException e) {
+            LOG.warn("Could not broadcast cache invalidation: {}", e.getMessage());
+        }
+    }
+}
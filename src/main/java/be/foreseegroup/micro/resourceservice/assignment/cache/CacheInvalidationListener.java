@@ -0,0 +1,23 @@
+package be.foreseegroup.micro.resourceservice.assignment.cache;
+
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageListener;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+/**
+ * Applies the invalidations broadcast by the other instances to the local {@link AssignmentCache}.
+ */
+class CacheInvalidationListener implements MessageListener {
+    private final AssignmentCache cache;
+    private final MessageConverter converter;
+
+    CacheInvalidationListener(AssignmentCache cache, MessageConverter converter) {
+        this.cache = cache;
+        this.converter = converter;
+    }
+
+    @Override
+    public void onMessage(Message message) {
+        cache.onRemoteInvalidation((CacheInvalidation) converter.fromMessage(message));
+    }
+}
@@ -0,0 +1,160 @@
+package be.foreseegroup.micro.resourceservice.assignment.conflicts;
+
+import be.foreseegroup.micro.resourceservice.assignment.events.ChangeLog;
+import be.foreseegroup.micro.resourceservice.assignment.model.Assignment;
+import be.foreseegroup.micro.resourceservice.assignment.model.AssignmentChange;
+import be.foreseegroup.micro.resourceservice.assignment.model.Conflict;
+import be.foreseegroup.micro.resourceservice.assignment.service.AssignmentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Double bookings of consultants, answered from a {@link ConflictIndex} of all assignments. The index is read from
+ * Mongo at startup, or right after it in the background, and then follows the {@link ChangeLog}, so it sees the
+ * writes of every instance, bulk writes included. It catches up in the background every {@code assignment.conflicts.poll-interval-ms} and before every
+ * query, so a client sees its own writes.
+ * <p>
+ * With {@code assignment.conflicts.reject-overlapping-creates} a create overlapping an assignment of the same
+ * consultant is refused. The check is not a lock: two overlapping creates racing on different instances both pass.
+ * Enabled with {@code assignment.conflicts.enabled=true}, which needs {@code assignment.changes.enabled}.
+ */
+@Component
+@ConditionalOnProperty("assignment.conflicts.enabled")
+public class AssignmentConflicts {
+    private static final int BATCH_SIZE = 1000;
+    private static final List<String> FIELDS = Arrays.asList("id", "consultantId", "startDate", "endDate");
+    private static final Logger LOG = LoggerFactory.getLogger(AssignmentConflicts.class);
+
+    @Autowired
+    private AssignmentRepository repo;
+
+    @Autowired
+    private ChangeLog changes;
+
+    @Value("${assignment.conflicts.poll-interval-ms:1000}")
+    private long pollIntervalMillis;
+
+    @Value("${assignment.conflicts.reject-overlapping-creates:false}")
+    private boolean rejectOverlappingCreates;
+
+    @Value("${assignment.startup.warm-up-in-background:false}")
+    private boolean loadInBackground;
+
+    private final ConflictIndex index = new ConflictIndex();
+    private boolean loaded;
+    private long sequence;
+    private ScheduledExecutorService poller;
+
+    @PostConstruct
+    void start() {
+        if (!changes.isEnabled())
+            throw new IllegalStateException("assignment.conflicts.enabled needs assignment.changes.enabled");
+        if (!loadInBackground)
+            load();
+        poller = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("assignment-conflicts-"));
+        poller.scheduleWithFixedDelay(() -> {
+            try {
+                catchUp();
+            } catch (RuntimeException e) {
+                LOG.warn("Could not follow the assignment changes: {}", e.getMessage());
+            }
+        }, pollIntervalMillis, pollIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (poller != null)
+            poller.shutdownNow();
+    }
+
+    public boolean isRejectingOverlappingCreates() {
+        return rejectOverlappingCreates;
+    }
+
+    /**
+     * @return the overlaps between the assignments of a consultant, ordered by start
+     */
+    public synchronized List<Conflict> conflictsOf(String consultantId) {
+        catchUp();
+        return index.conflictsOf(consultantId);
+    }
+
+    /**
+     * @return the overlaps of all consultants that fall in [from, to], ordered by start
+     */
+    public synchronized List<Conflict> conflictsIn(Date from, Date to) {
+        catchUp();
+        return index.conflictsIn(from, to);
+    }
+
+    /**
+     * @return the overlaps the assignment would have with the other assignments of its consultant
+     */
+    public synchronized List<Conflict> conflictsWith(Assignment assignment) {
+        catchUp();
+        return index.conflictsWith(assignment);
+    }
+
+    /**
+     * Reads every assignment unless that was done already. Done at startup, or by the startup warm-up or the first
+     * query when {@code assignment.startup.warm-up-in-background}.
+     */
+    public synchronized void ensureLoaded() {
+        if (!loaded)
+            load();
+    }
+
+    /**
+     * Reads every assignment. The log position is taken first, so the writes made during the read are applied again
+     * afterwards, which is harmless: applying a change sets the assignment to its state after that change.
+     */
+    private synchronized void load() {
+        long start = System.currentTimeMillis();
+        index.clear();
+        sequence = changes.lastSequence();
+        repo.streamAllFromPrimary(FIELDS, index::put);
+        loaded = true;
+        LOG.info("Indexed {} assignments for conflict detection in {} ms", index.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Applies the changes logged since the last call.
+     */
+    synchronized void catchUp() {
+        ensureLoaded();
+        List<AssignmentChange> found;
+        do {
+            found = changes.findAfter(sequence, BATCH_SIZE);
+            if (!found.isEmpty() && found.get(0).getSequence() != sequence + 1) {
+                // Either a crashed commit or changes that expired before they were read
+                Long first = changes.firstSequence();
+                if (first != null && sequence + 1 < first) {
+                    LOG.warn("Assignment changes after {} expired, reading all assignments again", sequence);
+                    load();
+                    return;
+                }
+            }
+            for (AssignmentChange change : found) {
+                if (change.isRemoval())
+                    index.remove(change.getAssignmentId());
+                else
+                    index.put(change.getAssignment());
+                sequence = change.getSequence();
+            }
+        } while (found.size() == BATCH_SIZE);
+    }
+}
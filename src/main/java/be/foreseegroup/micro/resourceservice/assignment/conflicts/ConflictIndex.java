@@ -0,0 +1,139 @@
+package be.foreseegroup.micro.resourceservice.assignment.conflicts;
+
+import be.foreseegroup.micro.resourceservice.assignment.model.Assignment;
+import be.foreseegroup.micro.resourceservice.assignment.model.Conflict;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory index of the assignment periods per consultant and of the overlaps between them. Every put or remove
+ * updates the overlaps it creates or ends, so the conflicts are never recomputed from scratch. A missing start or
+ * end date is taken as open on that side. Not thread-safe.
+ */
+class ConflictIndex {
+    private final Map<String, Period> periods = new HashMap<>();
+    private final Map<String, Consultant> consultants = new HashMap<>();
+    private final IntervalTree<Conflict> conflicts = new IntervalTree<>();
+
+    int size() {
+        return periods.size();
+    }
+
+    void clear() {
+        periods.clear();
+        consultants.clear();
+        conflicts.clear();
+    }
+
+    /**
+     * Adds an assignment, or moves it when it was indexed before.
+     */
+    void put(Assignment assignment) {
+        remove(assignment.getId());
+        if (assignment.getConsultantId() == null)
+            return;
+        Period period = new Period(assignment.getId(), assignment.getConsultantId(), start(assignment.getStartDate()), end(assignment.getEndDate()));
+        Consultant consultant = consultants.computeIfAbsent(period.consultantId, id -> new Consultant());
+        for (Period other : consultant.periods.overlapping(period.start, period.end)) {
+            Conflict conflict = conflict(period, other);
+            String key = key(period.id, other.id);
+            long start = Math.max(period.start, other.start);
+            consultant.conflicts.insert(start, Math.min(period.end, other.end), key, conflict);
+            conflicts.insert(start, Math.min(period.end, other.end), key, conflict);
+        }
+        consultant.periods.insert(period.start, period.end, period.id, period);
+        periods.put(period.id, period);
+    }
+
+    void remove(String assignmentId) {
+        Period period = periods.remove(assignmentId);
+        if (period == null)
+            return;
+        Consultant consultant = consultants.get(period.consultantId);
+        consultant.periods.remove(period.start, period.id);
+        for (Period other : consultant.periods.overlapping(period.start, period.end)) {
+            String key = key(period.id, other.id);
+            long start = Math.max(period.start, other.start);
+            consultant.conflicts.remove(start, key);
+            conflicts.remove(start, key);
+        }
+        if (consultant.periods.isEmpty())
+            consultants.remove(period.consultantId);
+    }
+
+    /**
+     * @return the overlaps between the assignments of a consultant, ordered by start
+     */
+    List<Conflict> conflictsOf(String consultantId) {
+        Consultant consultant = consultants.get(consultantId);
+        return consultant == null ? new ArrayList<>() : consultant.conflicts.values();
+    }
+
+    /**
+     * @return the overlaps of all consultants that fall in [from, to], ordered by start
+     */
+    List<Conflict> conflictsIn(Date from, Date to) {
+        return conflicts.overlapping(start(from), end(to));
+    }
+
+    /**
+     * @return the overlaps an assignment would have with the other assignments of its consultant
+     */
+    List<Conflict> conflictsWith(Assignment assignment) {
+        List<Conflict> found = new ArrayList<>();
+        Consultant consultant = consultants.get(assignment.getConsultantId());
+        if (consultant == null)
+            return found;
+        Period period = new Period(assignment.getId(), assignment.getConsultantId(), start(assignment.getStartDate()), end(assignment.getEndDate()));
+        for (Period other : consultant.periods.overlapping(period.start, period.end)) {
+            if (!other.id.equals(period.id))
+                found.add(conflict(period, other));
+        }
+        return found;
+    }
+
+    private static Conflict conflict(Period period, Period other) {
+        long start = Math.max(period.start, other.start);
+        long end = Math.min(period.end, other.end);
+        boolean ordered = period.id == null || period.id.compareTo(other.id) < 0;
+        return new Conflict(period.consultantId, ordered ? period.id : other.id, ordered ? other.id : period.id,
+                start == Long.MIN_VALUE ? null : new Date(start), end == Long.MAX_VALUE ? null : new Date(end));
+    }
+
+    private static String key(String id, String otherId) {
+        return id.compareTo(otherId) < 0 ? id + '|' + otherId : otherId + '|' + id;
+    }
+
+    private static long start(Date date) {
+        return date == null ? Long.MIN_VALUE : date.getTime();
+    }
+
+    private static long end(Date date) {
+        return date == null ? Long.MAX_VALUE : date.getTime();
+    }
+
+    /** The period of one assignment. */
+    private static class Period {
+        final String id;
+        final String consultantId;
+        final long start;
+        final long end;
+
+        Period(String id, String consultantId, long start, long end) {
+            this.id = id;
+            this.consultantId = consultantId;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    /** The periods of one consultant and the overlaps between them. */
+    private static class Consultant {
+        final IntervalTree<Period> periods = new IntervalTree<>();
+        final IntervalTree<Conflict> conflicts = new IntervalTree<>();
+    }
+}
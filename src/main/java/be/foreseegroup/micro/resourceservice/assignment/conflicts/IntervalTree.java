@@ -0,0 +1,170 @@
+package be.foreseegroup.micro.resourceservice.assignment.conflicts;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Closed intervals [start, end] ordered by start, each with a unique key. A treap (randomized balanced search tree)
+ * whose nodes also hold the largest end of their subtree, so an overlap query only descends into subtrees that can
+ * contain an overlapping interval. Insert and remove take O(log n), an overlap query O(log n) per interval found.
+ * Not thread-safe.
+ */
+class IntervalTree<T> {
+    private Node<T> root;
+    private int size;
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void clear() {
+        root = null;
+        size = 0;
+    }
+
+    /**
+     * Adds an interval, replacing the value of an interval with the same start and key.
+     */
+    void insert(long start, long end, String key, T value) {
+        root = insert(root, new Node<>(start, end, key, value));
+    }
+
+    /**
+     * @return whether the interval with this start and key was there
+     */
+    boolean remove(long start, String key) {
+        int before = size;
+        root = remove(root, start, key);
+        return size < before;
+    }
+
+    /**
+     * @return the values of the intervals overlapping [from, to], ordered by start
+     */
+    List<T> overlapping(long from, long to) {
+        List<T> found = new ArrayList<>();
+        overlapping(root, from, to, found);
+        return found;
+    }
+
+    /**
+     * @return all values, ordered by start
+     */
+    List<T> values() {
+        return overlapping(Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    private Node<T> insert(Node<T> node, Node<T> added) {
+        if (node == null) {
+            size++;
+            return added;
+        }
+        int order = compare(added.start, added.key, node);
+        if (order == 0) {
+            node.end = added.end;
+            node.value = added.value;
+        } else if (order < 0) {
+            node.left = insert(node.left, added);
+            if (node.left.priority > node.priority)
+                return rotateRight(node);
+        } else {
+            node.right = insert(node.right, added);
+            if (node.right.priority > node.priority)
+                return rotateLeft(node);
+        }
+        node.update();
+        return node;
+    }
+
+    private Node<T> remove(Node<T> node, long start, String key) {
+        if (node == null)
+            return null;
+        int order = compare(start, key, node);
+        if (order < 0) {
+            node.left = remove(node.left, start, key);
+        } else if (order > 0) {
+            node.right = remove(node.right, start, key);
+        } else {
+            if (node.left == null || node.right == null) {
+                size--;
+                return node.left != null ? node.left : node.right;
+            }
+            // Rotate the node down below its higher priority child, then remove it from there
+            if (node.left.priority > node.right.priority) {
+                node = rotateRight(node);
+                node.right = remove(node.right, start, key);
+            } else {
+                node = rotateLeft(node);
+                node.left = remove(node.left, start, key);
+            }
+        }
+        node.update();
+        return node;
+    }
+
+    private static <T> void overlapping(Node<T> node, long from, long to, List<T> found) {
+        if (node == null || node.maxEnd < from)
+            return;
+        overlapping(node.left, from, to, found);
+        if (node.start > to)
+            return;
+        if (node.end >= from)
+            found.add(node.value);
+        overlapping(node.right, from, to, found);
+    }
+
+    private static int compare(long start, String key, Node<?> node) {
+        int order = Long.compare(start, node.start);
+        return order != 0 ? order : key.compareTo(node.key);
+    }
+
+    private static <T> Node<T> rotateRight(Node<T> node) {
+        Node<T> left = node.left;
+        node.left = left.right;
+        left.right = node;
+        node.update();
+        left.update();
+        return left;
+    }
+
+    private static <T> Node<T> rotateLeft(Node<T> node) {
+        Node<T> right = node.right;
+        node.right = right.left;
+        right.left = node;
+        node.update();
+        right.update();
+        return right;
+    }
+
+    private static class Node<T> {
+        final long start;
+        final String key;
+        final int priority = ThreadLocalRandom.current().nextInt();
+        long end;
+        long maxEnd;
+        T value;
+        Node<T> left;
+        Node<T> right;
+
+        Node(long start, long end, String key, T value) {
+            this.start = start;
+            this.end = end;
+            this.maxEnd = end;
+            this.key = key;
+            this.value = value;
+        }
+
+        void update() {
+            maxEnd = end;
+            if (left != null && left.maxEnd > maxEnd)
+                maxEnd = left.maxEnd;
+            if (right != null && right.maxEnd > maxEnd)
+                maxEnd = right.maxEnd;
+        }
+    }
+}
@@ -0,0 +1,317 @@
+package be.foreseegroup.micro.resourceservice.assignment.events;
+
+import be.foreseegroup.micro.resourceservice.assignment.model.Assignment;
+import be.foreseegroup.micro.resourceservice.assignment.model.AssignmentChange;
+import com.mongodb.BasicDBObject;
+import com.mongodb.BulkWriteOperation;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Log of the assignment changes, kept in the {@code assignmentChanges} collection. It backs the change feed and
+ * serves as the transactional outbox of the {@link ChangePublisher}.
+ * <p>
+ * Mongo cannot write two documents atomically, so a change is written PENDING before the assignment, committed
+ * once the assignment write succeeded and removed when it failed. Committing gives the change the next number of
+ * a global sequence, so the log is ordered across instances. A crash in between leaves a PENDING change behind,
+ * which is settled after {@code assignment.changes.pending-timeout-ms}: the assignment is written with the id of its
+ * change, so a create or update is committed only while the assignment still holds the state that change wrote.
+ * So no change is lost, no change is logged for a write that did not happen, and a settled change never follows
+ * a newer change of its assignment.
+ * <p>
+ * With {@code assignment.changes.enabled} off nothing is recorded: {@link #prepare(AssignmentChange.Type, Assignment)}
+ * returns null and the other methods ignore it.
+ */
+@Component
+public class ChangeLog {
+    static final String COUNTERS = "assignmentCounters";
+    private static final String SEQUENCE = "changes";
+    private static final int RECOVERY_BATCH_SIZE = 500;
+    private static final Logger LOG = LoggerFactory.getLogger(ChangeLog.class);
+
+    @Autowired
+    private MongoOperations mongo;
+
+    @Autowired(required = false)
+    private ChangePublisher publisher;
+
+    @Autowired(required = false)
+    private List<RecoveryListener> recoveryListeners = Collections.emptyList();
+
+    @Value("${assignment.changes.enabled:true}")
+    private boolean enabled;
+
+    @Value("${assignment.changes.pending-timeout-ms:60000}")
+    private long pendingTimeoutMillis;
+
+    private ScheduledExecutorService recovery;
+
+    @PostConstruct
+    void start() {
+        if (!enabled)
+            return;
+        recovery = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("assignment-changes-"));
+        recovery.scheduleWithFixedDelay(() -> {
+            try {
+                recover();
+            } catch (RuntimeException e) {
+                LOG.warn("Could not settle pending assignment changes: {}", e.getMessage());
+            }
+        }, pendingTimeoutMillis, pendingTimeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (recovery != null)
+            recovery.shutdownNow();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Records a change before writing the assignment, and sets the id of the change on the assignment to write it
+     * with, which {@link #recover} relies on.
+     *
+     * @return the PENDING change, or null when the log is disabled
+     */
+    public AssignmentChange prepare(AssignmentChange.Type type, Assignment assignment) {
+        if (!enabled)
+            return null;
+        Date time = assignment.getLastModified() != null ? assignment.getLastModified() : new Date();
+        AssignmentChange change = new AssignmentChange(type, assignment, time);
+        mongo.insert(change);
+        assignment.setChangeId(change.getId());
+        return change;
+    }
+
+    /**
+     * Records the changes of a bulk write in a single round-trip. The changes already carry their ids, which the
+     * assignments they create or update are written with.
+     */
+    public void prepare(List<AssignmentChange> changes) {
+        if (enabled && !changes.isEmpty())
+            mongo.insert(changes, AssignmentChange.class);
+    }
+
+    /**
+     * Commits a change once its assignment was written, with the state the assignment was written in, and sets the
+     * number it is committed under.
+     */
+    public void commit(AssignmentChange change, Assignment state) {
+        if (change == null)
+            return;
+        long sequence = allocate(1);
+        Update update = Update.update("state", AssignmentChange.State.READY)
+                .set("sequence", sequence)
+                .set("allocated", new Date())
+                .set("version", state.getVersion())
+                .set("assignment", state);
+        if (change.getPrevious() != null)
+            update.set("previous", change.getPrevious());
+        mongo.updateFirst(new Query(Criteria.where("id").is(change.getId())), update, AssignmentChange.class);
+        change.setSequence(sequence);
+        wakePublisher();
+    }
+
+    /**
+     * Commits the changes of a bulk write, numbered in the given order, in two round-trips, and sets their numbers.
+     */
+    public void commit(List<AssignmentChange> changes) {
+        if (changes.isEmpty())
+            return;
+        long sequence = allocate(changes.size()) - changes.size();
+        Date allocated = new Date();
+        BulkWriteOperation bulk = collection().initializeUnorderedBulkOperation();
+        for (AssignmentChange change : changes) {
+            DBObject fields = new BasicDBObject("state", AssignmentChange.State.READY.name())
+                    .append("sequence", ++sequence)
+                    .append("allocated", allocated);
+            if (change.getVersion() != null)
+                fields.put("version", change.getVersion());
+            bulk.find(new BasicDBObject("_id", new ObjectId(change.getId()))).updateOne(new BasicDBObject("$set", fields));
+            change.setSequence(sequence);
+        }
+        bulk.execute();
+        wakePublisher();
+    }
+
+    /**
+     * Removes the changes of assignment writes that failed.
+     */
+    public void discard(AssignmentChange change) {
+        if (change != null)
+            discard(Collections.singletonList(change));
+    }
+
+    public void discard(Collection<AssignmentChange> changes) {
+        if (!changes.isEmpty())
+            mongo.remove(new Query(Criteria.where("id").in(ids(changes))), AssignmentChange.class);
+    }
+
+    /**
+     * @return the number of the last committed change, 0 when none was
+     */
+    public long lastSequence() {
+        DBObject counter = mongo.getCollection(COUNTERS).findOne(new BasicDBObject("_id", SEQUENCE));
+        return counter == null ? 0 : ((Number) counter.get("value")).longValue();
+    }
+
+    /**
+     * @return the number of the oldest change still in the log, or null when the log is empty
+     */
+    public Long firstSequence() {
+        Query query = new Query(Criteria.where("sequence").ne(null)).with(new Sort(Sort.Direction.ASC, "sequence"));
+        AssignmentChange first = mongo.findOne(query, AssignmentChange.class);
+        return first == null ? null : first.getSequence();
+    }
+
+    /**
+     * Returns the committed changes after {@code since} in sequence order. A number is allocated before its change is
+     * written, so a missing number is a commit still in flight: the changes after it are left for the next read.
+     * The missing number was allocated before the number after it, so once that one was allocated longer than the
+     * pending timeout ago, the gap is left by a crashed commit and skipped; its change is committed again under a new
+     * number.
+     */
+    public List<AssignmentChange> findAfter(long since, int limit) {
+        Query query = new Query(Criteria.where("sequence").gt(since))
+                .with(new Sort(Sort.Direction.ASC, "sequence"))
+                .limit(limit);
+        long settled = System.currentTimeMillis() - pendingTimeoutMillis;
+        List<AssignmentChange> changes = new ArrayList<>();
+        long expected = since + 1;
+        for (AssignmentChange change : mongo.find(query, AssignmentChange.class)) {
+            // Changes committed before allocation times were recorded are long settled
+            if (change.getSequence() != expected && change.getAllocated() != null && change.getAllocated().getTime() > settled)
+                break;
+            changes.add(change);
+            expected = change.getSequence() + 1;
+        }
+        return changes;
+    }
+
+    /**
+     * @return the oldest committed changes that were not published yet, in sequence order
+     */
+    List<AssignmentChange> findUnpublished(int limit) {
+        Query query = new Query(Criteria.where("state").is(AssignmentChange.State.READY).and("published").is(false))
+                .with(new Sort(Sort.Direction.ASC, "sequence"))
+                .limit(limit);
+        return mongo.find(query, AssignmentChange.class);
+    }
+
+    /**
+     * Marks the changes the broker confirmed as published.
+     */
+    void published(Collection<String> changeIds) {
+        if (!changeIds.isEmpty())
+            mongo.updateMulti(new Query(Criteria.where("id").in(changeIds)), Update.update("published", true), AssignmentChange.class);
+    }
+
+    /**
+     * Settles the changes left PENDING for more than the pending timeout. A create or update is committed, with the
+     * current version, when the assignment still holds the state it wrote. Otherwise it did not go through, or a newer
+     * change of the assignment did and already carries a later state: committed now, after that newer change, it
+     * would roll the followers of the log back. A delete or archiving is committed when the assignment is gone.
+     * The other changes are removed.
+     *
+     * @return the number of changes settled
+     */
+    int recover() {
+        Query stale = new Query(Criteria.where("state").is(AssignmentChange.State.PENDING)
+                .and("time").lt(new Date(System.currentTimeMillis() - pendingTimeoutMillis)))
+                .limit(RECOVERY_BATCH_SIZE);
+        List<AssignmentChange> changes = mongo.find(stale, AssignmentChange.class);
+        if (changes.isEmpty())
+            return 0;
+
+        Set<String> assignmentIds = new HashSet<>();
+        for (AssignmentChange change : changes)
+            assignmentIds.add(change.getAssignmentId());
+        Query current = new Query(Criteria.where("id").in(assignmentIds));
+        current.fields().include("changeId").include("version");
+        Map<String, Assignment> written = new HashMap<>();
+        for (Assignment assignment : mongo.find(current, Assignment.class))
+            written.put(assignment.getId(), assignment);
+
+        List<AssignmentChange> applied = new ArrayList<>();
+        List<AssignmentChange> failed = new ArrayList<>();
+        for (AssignmentChange change : changes) {
+            Assignment assignment = written.get(change.getAssignmentId());
+            boolean latest = change.isRemoval()
+                    ? assignment == null
+                    : assignment != null && change.getId().equals(assignment.getChangeId());
+            if (latest && assignment != null)
+                change.setVersion(assignment.getVersion() == null ? 0 : assignment.getVersion());
+            (latest ? applied : failed).add(change);
+        }
+        // Before the commit: a listener that fails leaves the changes pending, to be settled again
+        if (!applied.isEmpty())
+            recoveryListeners.forEach(listener -> listener.recovered(applied));
+        commit(applied);
+        discard(failed);
+        return changes.size();
+    }
+
+    /**
+     * Reserves {@code count} numbers of the sequence with a single find-and-modify.
+     *
+     * @return the last reserved number
+     */
+    private long allocate(int count) {
+        DBObject counter = mongo.getCollection(COUNTERS).findAndModify(new BasicDBObject("_id", SEQUENCE), null, null, false,
+                new BasicDBObject("$inc", new BasicDBObject("value", (long) count)), true, true);
+        return ((Number) counter.get("value")).longValue();
+    }
+
+    private DBCollection collection() {
+        return mongo.getCollection(mongo.getCollectionName(AssignmentChange.class));
+    }
+
+    private void wakePublisher() {
+        if (publisher != null)
+            publisher.wake();
+    }
+
+    /**
+     * Follow-up of the writes whose changes {@link #recover} commits: their writers stopped before finishing it.
+     */
+    public interface RecoveryListener {
+        void recovered(List<AssignmentChange> changes);
+    }
+
+    private static List<String> ids(Collection<AssignmentChange> changes) {
+        List<String> ids = new ArrayList<>(changes.size());
+        for (AssignmentChange change : changes)
+            ids.add(change.getId());
+        return ids;
+    }
+}
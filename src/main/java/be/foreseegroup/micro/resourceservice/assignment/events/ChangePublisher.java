@@ -0,0 +1,206 @@
+package be.foreseegroup.micro.resourceservice.assignment.events;
+
+import be.foreseegroup.micro.resourceservice.assignment.model.AssignmentChange;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.core.TopicExchange;
+import org.springframework.amqp.rabbit.connection.CachingConnectionFactory;
+import org.springframework.amqp.rabbit.core.RabbitAdmin;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.support.CorrelationData;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.autoconfigure.amqp.RabbitProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes the committed changes of the {@link ChangeLog} on the {@code assignment.events.exchange} topic exchange,
+ * with routing keys {@code assignment.created}, {@code assignment.updated}, {@code assignment.deleted} and
+ * {@code assignment.archived}.
+ * <p>
+ * A background thread sends up to {@code assignment.events.batch-size} changes without waiting in between, then
+ * waits for all their publisher confirms and marks the confirmed changes as published in one write. Changes
+ * that were not confirmed are sent again, so delivery is at least once. The thread is woken by every committed
+ * change and polls every {@code assignment.events.poll-interval-ms} otherwise, so HTTP requests never wait on the
+ * broker. Enabled with {@code assignment.events.enabled=true}.
+ */
+@Component
+@ConditionalOnProperty("assignment.events.enabled")
+public class ChangePublisher implements PublicMetrics {
+    private static final Logger LOG = LoggerFactory.getLogger(ChangePublisher.class);
+
+    @Autowired
+    private ChangeLog changes;
+
+    @Autowired
+    private RabbitProperties rabbit;
+
+    @Value("${assignment.events.exchange:assignment.changes}")
+    private String exchange;
+
+    @Value("${assignment.events.batch-size:100}")
+    private int batchSize;
+
+    @Value("${assignment.events.poll-interval-ms:1000}")
+    private long pollIntervalMillis;
+
+    @Value("${assignment.events.confirm-timeout-ms:5000}")
+    private long confirmTimeoutMillis;
+
+    private final MessageConverter converter = new Jackson2JsonMessageConverter();
+    private final Semaphore wakeups = new Semaphore(0);
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    private CachingConnectionFactory connectionFactory;
+    private RabbitTemplate template;
+    private volatile Batch current;
+    private volatile boolean running;
+    private Thread thread;
+
+    @PostConstruct
+    void start() {
+        // A connection of its own: the confirms need channels in confirm mode
+        connectionFactory = new CachingConnectionFactory(rabbit.getHost(), rabbit.getPort());
+        if (rabbit.getAddresses() != null)
+            connectionFactory.setAddresses(rabbit.getAddresses());
+        if (rabbit.getUsername() != null)
+            connectionFactory.setUsername(rabbit.getUsername());
+        if (rabbit.getPassword() != null)
+            connectionFactory.setPassword(rabbit.getPassword());
+        if (rabbit.getVirtualHost() != null)
+            connectionFactory.setVirtualHost(rabbit.getVirtualHost());
+        connectionFactory.setPublisherConfirms(true);
+        template = new RabbitTemplate(connectionFactory);
+        template.setConfirmCallback(this::confirm);
+
+        running = true;
+        thread = new Thread(this::run, "assignment-events");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        thread.interrupt();
+        thread.join(confirmTimeoutMillis);
+        connectionFactory.destroy();
+    }
+
+    /**
+     * Publishes the changes committed since the last batch without waiting for the next poll.
+     */
+    void wake() {
+        wakeups.release();
+    }
+
+    private void run() {
+        boolean declared = false;
+        while (running) {
+            try {
+                if (!declared) {
+                    new RabbitAdmin(connectionFactory).declareExchange(new TopicExchange(exchange, true, false));
+                    declared = true;
+                }
+                if (publishBatch() < batchSize) {
+                    wakeups.tryAcquire(pollIntervalMillis, TimeUnit.MILLISECONDS);
+                    wakeups.drainPermits();
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                LOG.warn("Could not publish assignment changes: {}", e.getMessage());
+                sleep(pollIntervalMillis);
+            }
+        }
+    }
+
+    /**
+     * @return the number of changes the broker confirmed
+     */
+    private int publishBatch() throws InterruptedException {
+        List<AssignmentChange> unpublished = changes.findUnpublished(batchSize);
+        if (unpublished.isEmpty())
+            return 0;
+        Batch batch = new Batch(unpublished);
+        current = batch;
+        try {
+            for (AssignmentChange change : unpublished) {
+                MessageProperties properties = new MessageProperties();
+                properties.setMessageId(change.getId());
+                properties.setTimestamp(change.getTime());
+                String routingKey = "assignment." + change.getType().name().toLowerCase();
+                template.send(exchange, routingKey, converter.toMessage(change, properties), new CorrelationData(change.getId()));
+            }
+            batch.confirmed.await(confirmTimeoutMillis, TimeUnit.MILLISECONDS);
+        } finally {
+            current = null;
+        }
+        List<String> acked = new ArrayList<>(batch.acked);
+        changes.published(acked);
+        published.addAndGet(acked.size());
+        if (acked.size() < unpublished.size()) {
+            failed.addAndGet(unpublished.size() - acked.size());
+            LOG.warn("{} of {} assignment changes were not confirmed, sending them again", unpublished.size() - acked.size(), unpublished.size());
+        }
+        return acked.size();
+    }
+
+    private void confirm(CorrelationData correlationData, boolean ack, String cause) {
+        Batch batch = current;
+        if (batch == null || correlationData == null || !batch.ids.contains(correlationData.getId()))
+            return;
+        if (ack)
+            batch.acked.add(correlationData.getId());
+        batch.confirmed.countDown();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        List<Metric<?>> metrics = new ArrayList<>();
+        metrics.add(new Metric<>("events.assignments.published", published.get()));
+        metrics.add(new Metric<>("events.assignments.unconfirmed", failed.get()));
+        return metrics;
+    }
+
+    /** The changes of one batch and the confirms received for them. */
+    private static class Batch {
+        final Set<String> ids = new HashSet<>();
+        final Set<String> acked = ConcurrentHashMap.newKeySet();
+        final CountDownLatch confirmed;
+
+        Batch(List<AssignmentChange> changes) {
+            for (AssignmentChange change : changes)
+                ids.add(change.getId());
+            confirmed = new CountDownLatch(changes.size());
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package be.foreseegroup.micro.resourceservice.assignment.format;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+
+/**
+ * Holds back flushes of a response until {@code minSize} bytes were written. The message converters flush right
+ * after writing, which commits the response without a Content-Length, and Tomcat compresses every response of unknown
+ * length whatever its size. Left in the buffer, a small response gets its Content-Length when it is completed and
+ * is only compressed when it reaches the compression threshold.
+ */
+class CompressionThresholdFilter extends OncePerRequestFilter {
+    private final int minSize;
+
+    CompressionThresholdFilter(int minSize) {
+        this.minSize = minSize;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        chain.doFilter(request, new ThresholdResponse(response));
+    }
+
+    private class ThresholdResponse extends HttpServletResponseWrapper {
+        private ThresholdOutputStream out;
+
+        ThresholdResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (out == null)
+                out = new ThresholdOutputStream(super.getOutputStream());
+            return out;
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (out == null || out.written >= minSize)
+                super.flushBuffer();
+        }
+    }
+
+    private class ThresholdOutputStream extends ServletOutputStream {
+        private final ServletOutputStream delegate;
+        long written;
+
+        ThresholdOutputStream(ServletOutputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            delegate.write(b);
+            written++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            delegate.write(b, off, len);
+            written += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (written >= minSize)
+                delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            delegate.setWriteListener(writeListener);
+        }
+    }
+}
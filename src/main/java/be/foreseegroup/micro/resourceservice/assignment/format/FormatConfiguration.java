@@ -0,0 +1,76 @@
+package be.foreseegroup.micro.resourceservice.assignment.format;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.embedded.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.List;
+
+/**
+ * Adds the binary Smile and CBOR encodings of the JSON model next to JSON, chosen by the Accept header for responses
+ * and by the Content-Type for request bodies. They are added after the default converters, so a request without a
+ * preference is still answered with JSON. Responses carry {@code Vary: Accept} since their ETag is the same in
+ * every format. JSON responses are gzipped by Tomcat from the {@code server.tomcat.compression} threshold on.
+ */
+@Configuration
+public class FormatConfiguration extends WebMvcConfigurerAdapter {
+    public static final String SMILE_VALUE = "application/x-jackson-smile";
+    public static final String CBOR_VALUE = "application/cbor";
+
+    @Autowired
+    private Jackson2ObjectMapperBuilder jacksonBuilder;
+
+    @Value("${server.tomcat.compression:off}")
+    private String compression;
+
+    /**
+     * Lets Tomcat apply a numeric {@code server.tomcat.compression} threshold to the converted responses as well.
+     */
+    @Bean
+    public FilterRegistrationBean compressionThresholdFilter() {
+        boolean threshold = compression.matches("\\d+");
+        FilterRegistrationBean registration = new FilterRegistrationBean(new CompressionThresholdFilter(threshold ? Integer.parseInt(compression) : 0));
+        registration.setEnabled(threshold);
+        return registration;
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(new BinaryJacksonConverter(jacksonBuilder, new ObjectMapper(new SmileFactory()), MediaType.valueOf(SMILE_VALUE)));
+        converters.add(new BinaryJacksonConverter(jacksonBuilder, new ObjectMapper(new CBORFactory()), MediaType.valueOf(CBOR_VALUE)));
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new HandlerInterceptorAdapter() {
+            @Override
+            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+                return true;
+            }
+        });
+    }
+
+    /** Jackson over a binary format, configured like the JSON mapper so both give the same fields and date formats. */
+    private static class BinaryJacksonConverter extends AbstractJackson2HttpMessageConverter {
+        BinaryJacksonConverter(Jackson2ObjectMapperBuilder builder, ObjectMapper mapper, MediaType mediaType) {
+            super(mapper, mediaType);
+            builder.configure(mapper);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package be.foreseegroup.micro.resourceservice.assignment.limits;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounds the requests handled at once, adapting the bound to the latency (additive increase, multiplicative
+ * decrease). The latencies are averaged per window of {@code windowMs}. A window averaging more than
+ * {@code latencyTolerance} times the lowest average seen shrinks the limit by a tenth; a window in which the limit
+ * was reached without latency rising raises it by one. The lowest average creeps up by a percent per window, so
+ * it follows a lasting change such as a growing collection.
+ */
+final class AdaptiveConcurrencyLimit {
+    private static final int MIN_SAMPLES = 10;
+
+    private final LimitsProperties.Concurrency settings;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peak = new AtomicInteger();
+    private final LongAdder samples = new LongAdder();
+    private final LongAdder latencyNanos = new LongAdder();
+    private final AtomicLong windowStart;
+
+    private volatile int limit;
+    private volatile double baselineNanos = Double.MAX_VALUE;
+
+    AdaptiveConcurrencyLimit(LimitsProperties.Concurrency settings, long now) {
+        this.settings = settings;
+        this.limit = settings.getInitialLimit();
+        this.windowStart = new AtomicLong(now);
+    }
+
+    /** @return whether a request may start, in which case {@link #release} has to follow */
+    boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit)
+                return false;
+            if (inFlight.compareAndSet(current, current + 1)) {
+                peak.accumulateAndGet(current + 1, Math::max);
+                return true;
+            }
+        }
+    }
+
+    void release(long latency, long now) {
+        inFlight.decrementAndGet();
+        samples.increment();
+        latencyNanos.add(latency);
+        long start = windowStart.get();
+        if (now - start >= TimeUnit.MILLISECONDS.toNanos(settings.getWindowMs()) && windowStart.compareAndSet(start, now))
+            adjust(samples.sumThenReset(), latencyNanos.sumThenReset(), peak.getAndSet(inFlight.get()));
+    }
+
+    private void adjust(long count, long sum, int reached) {
+        int next = limit;
+        if (count >= MIN_SAMPLES) {
+            double average = (double) sum / count;
+            double baseline = Math.min(baselineNanos * 1.01, average);
+            baselineNanos = baseline;
+            if (average > settings.getLatencyTolerance() * baseline)
+                next = Math.min(next - 1, (int) (next * 0.9));
+            else if (reached >= next)
+                next++;
+        }
+        limit = Math.max(settings.getMinLimit(), Math.min(settings.getMaxLimit(), next));
+    }
+
+    int limit() {
+        return limit;
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+}
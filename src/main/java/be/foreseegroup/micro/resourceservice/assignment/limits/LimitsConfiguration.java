@@ -0,0 +1,32 @@
+package be.foreseegroup.micro.resourceservice.assignment.limits;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
+
+/**
+ * Puts the {@link LoadLimitInterceptor} in front of the assignment endpoints; the actuator endpoints are not limited.
+ * Rate limiting and concurrency limiting are switched on with {@code assignment.limits.rate.enabled} and
+ * {@code assignment.limits.concurrency.enabled}.
+ */
+@Configuration
+@EnableConfigurationProperties(LimitsProperties.class)
+public class LimitsConfiguration extends WebMvcConfigurerAdapter {
+
+    @Autowired
+    private LimitsProperties properties;
+
+    @Bean
+    public LoadLimiter loadLimiter() {
+        return new LoadLimiter(properties);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new LoadLimitInterceptor(loadLimiter(), properties))
+                .addPathPatterns("/assignments/**", "/assignmentsbycid/**", "/assignmentsbycuid/**");
+    }
+}
@@ -0,0 +1,158 @@
+package be.foreseegroup.micro.resourceservice.assignment.limits;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The {@code assignment.limits.*} settings. They are read on every request and rebound when the environment changes,
+ * e.g. by {@code POST /refresh}, which reads the configuration files such as an {@code application.yml} next to the
+ * jar again, so limits can be changed without a restart. No config server client is on the classpath, so the config
+ * server is not asked.
+ */
+@ConfigurationProperties("assignment.limits")
+public class LimitsProperties {
+    private String clientHeader = "X-Api-Key";
+    private final Rate rate = new Rate();
+    private final Concurrency concurrency = new Concurrency();
+
+    public String getClientHeader() {
+        return clientHeader;
+    }
+
+    public void setClientHeader(String clientHeader) {
+        this.clientHeader = clientHeader;
+    }
+
+    public Rate getRate() {
+        return rate;
+    }
+
+    public Concurrency getConcurrency() {
+        return concurrency;
+    }
+
+    /** Requests per second of one client on one endpoint, of which {@code burst} may come at once. 0 is unlimited. */
+    public static class Limit {
+        private double requestsPerSecond;
+        private int burst;
+
+        public Limit() {
+
+        }
+
+        Limit(double requestsPerSecond, int burst) {
+            this.requestsPerSecond = requestsPerSecond;
+            this.burst = burst;
+        }
+
+        public double getRequestsPerSecond() {
+            return requestsPerSecond;
+        }
+
+        public void setRequestsPerSecond(double requestsPerSecond) {
+            this.requestsPerSecond = requestsPerSecond;
+        }
+
+        public int getBurst() {
+            return burst;
+        }
+
+        public void setBurst(int burst) {
+            this.burst = burst;
+        }
+    }
+
+    /** The default {@link Limit}, overridden per endpoint (handler method name) and, over that, per client. */
+    public static class Rate extends Limit {
+        private boolean enabled;
+        private final Map<String, Limit> endpoints = new ConcurrentHashMap<>();
+        private final Map<String, Limit> clients = new ConcurrentHashMap<>();
+
+        Rate() {
+            super(50, 100);
+        }
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Map<String, Limit> getEndpoints() {
+            return endpoints;
+        }
+
+        public Map<String, Limit> getClients() {
+            return clients;
+        }
+
+        Limit of(String client, String endpoint) {
+            Limit limit = clients.get(client);
+            if (limit == null)
+                limit = endpoints.get(endpoint);
+            return limit != null ? limit : this;
+        }
+    }
+
+    /** Bounds of the {@link AdaptiveConcurrencyLimit}. */
+    public static class Concurrency {
+        private boolean enabled;
+        private int initialLimit = 32;
+        private int minLimit = 4;
+        private int maxLimit = 256;
+        private double latencyTolerance = 2.0;
+        private long windowMs = 1000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getInitialLimit() {
+            return initialLimit;
+        }
+
+        public void setInitialLimit(int initialLimit) {
+            this.initialLimit = initialLimit;
+        }
+
+        public int getMinLimit() {
+            return minLimit;
+        }
+
+        public void setMinLimit(int minLimit) {
+            this.minLimit = minLimit;
+        }
+
+        public int getMaxLimit() {
+            return maxLimit;
+        }
+
+        public void setMaxLimit(int maxLimit) {
+            this.maxLimit = maxLimit;
+        }
+
+        public double getLatencyTolerance() {
+            return latencyTolerance;
+        }
+
+        public void setLatencyTolerance(double latencyTolerance) {
+            this.latencyTolerance = latencyTolerance;
+        }
+
+        public long getWindowMs() {
+            return windowMs;
+        }
+
+        public void setWindowMs(long windowMs) {
+            this.windowMs = windowMs;
+        }
+    }
+}
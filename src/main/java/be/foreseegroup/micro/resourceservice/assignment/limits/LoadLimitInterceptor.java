@@ -0,0 +1,101 @@
+package be.foreseegroup.micro.resourceservice.assignment.limits;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Answers requests over the rate of their client with TOO_MANY_REQUESTS (429) and requests over the concurrency
+ * limit with SERVICE_UNAVAILABLE (503), both with a Retry-After header, before the handler runs. The client is
+ * named by the {@code assignment.limits.client-header} header, or else is the remote address. An admitted request
+ * holds its permit until the response is complete, also when it is answered asynchronously.
+ * <p>
+ * Handlers that write the response themselves, the NDJSON streams and the server-sent events, are rate limited but
+ * not counted against the concurrency limit: they run for as long as the client keeps reading, so their permits and
+ * latencies would shrink the limit and shed the short requests the limit is there for.
+ */
+public class LoadLimitInterceptor extends HandlerInterceptorAdapter {
+    private static final String PERMIT = LoadLimitInterceptor.class.getName() + ".permit";
+    private static final String RETRY_AFTER_SECONDS = "1";
+
+    private final LoadLimiter limiter;
+    private final LimitsProperties properties;
+
+    public LoadLimitInterceptor(LoadLimiter limiter, LimitsProperties properties) {
+        this.limiter = limiter;
+        this.properties = properties;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // Asynchronously handled requests pass here again when dispatched back to the container
+        if (!(handler instanceof HandlerMethod) || request.getAttribute(PERMIT) != null)
+            return true;
+        String endpoint = ((HandlerMethod) handler).getMethod().getName();
+        String client = request.getHeader(properties.getClientHeader());
+        long wait = limiter.acquireRate(client != null ? client : request.getRemoteAddr(), endpoint);
+        if (wait > 0) {
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(TimeUnit.NANOSECONDS.toSeconds(wait) + 1));
+            return false;
+        }
+        LoadLimiter.Permit permit = limiter.acquireConcurrency(endpoint, !((HandlerMethod) handler).isVoid());
+        if (permit == null) {
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS);
+            return false;
+        }
+        request.setAttribute(PERMIT, permit);
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        LoadLimiter.Permit permit = (LoadLimiter.Permit) request.getAttribute(PERMIT);
+        if (permit != null)
+            request.getAsyncContext().addListener(new ReleasingListener(permit));
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        LoadLimiter.Permit permit = (LoadLimiter.Permit) request.getAttribute(PERMIT);
+        if (permit != null)
+            permit.release();
+    }
+
+    /** Releases the permit of an asynchronous request that ends without being dispatched back, e.g. on an error. */
+    private static final class ReleasingListener implements AsyncListener {
+        private final LoadLimiter.Permit permit;
+
+        ReleasingListener(LoadLimiter.Permit permit) {
+            this.permit = permit;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            permit.release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            permit.release();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            permit.release();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+
+        }
+    }
+}
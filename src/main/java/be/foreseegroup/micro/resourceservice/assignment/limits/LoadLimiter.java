@@ -0,0 +1,160 @@
+package be.foreseegroup.micro.resourceservice.assignment.limits;
+
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decides whether a request of a client on an endpoint is handled: first against the {@link TokenBucket} of that
+ * client and endpoint, then against the {@link AdaptiveConcurrencyLimit} shared by all requests. The decisions are
+ * counted per endpoint and published as e.g. {@code limits.assignments.getAll.rateLimited}, next to the current
+ * concurrency limit.
+ * <p>
+ * Buckets are created on first use. Once there are more than {@value #MAX_BUCKETS}, the full ones are dropped:
+ * a new bucket starts out full, so that loses nothing. A background thread checks every
+ * {@value #SWEEP_INTERVAL_MS} ms, so no request pays for walking the buckets.
+ */
+public class LoadLimiter implements PublicMetrics {
+    private static final int MAX_BUCKETS = 10000;
+    private static final long SWEEP_INTERVAL_MS = 1000;
+
+    private final LimitsProperties properties;
+    private final AdaptiveConcurrencyLimit concurrency;
+    private final ConcurrentMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Decisions> decisions = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService sweeper;
+
+    public LoadLimiter(LimitsProperties properties) {
+        this.properties = properties;
+        this.concurrency = new AdaptiveConcurrencyLimit(properties.getConcurrency(), System.nanoTime());
+    }
+
+    @PostConstruct
+    void start() {
+        sweeper = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("assignment-limits-"));
+        sweeper.scheduleWithFixedDelay(this::sweep, SWEEP_INTERVAL_MS, SWEEP_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (sweeper != null)
+            sweeper.shutdownNow();
+    }
+
+    /**
+     * Takes a token of the client on the endpoint.
+     *
+     * @return 0 when the request is within the rate, otherwise the nanoseconds until it would be
+     */
+    public long acquireRate(String client, String endpoint) {
+        LimitsProperties.Rate rate = properties.getRate();
+        if (!rate.isEnabled())
+            return 0;
+        LimitsProperties.Limit limit = rate.of(client, endpoint);
+        if (limit.getRequestsPerSecond() <= 0)
+            return 0;
+        long now = System.nanoTime();
+        String key = client + '\n' + endpoint;
+        TokenBucket bucket = buckets.get(key);
+        if (bucket == null || !bucket.hasLimit(limit)) {
+            bucket = buckets.compute(key, (k, existing) -> existing != null && existing.hasLimit(limit)
+                    ? existing : new TokenBucket(limit.getRequestsPerSecond(), limit.getBurst(), now));
+        }
+        long wait = bucket.tryAcquire(now);
+        if (wait > 0)
+            decisions(endpoint).rateLimited.increment();
+        return wait;
+    }
+
+    /** Drops the full buckets once there are more than {@value #MAX_BUCKETS}. */
+    void sweep() {
+        if (buckets.size() > MAX_BUCKETS) {
+            long now = System.nanoTime();
+            buckets.values().removeIf(bucket -> bucket.isFull(now));
+        }
+    }
+
+    /**
+     * @param limited false to admit the request without counting it against the concurrency limit
+     * @return the permit to {@link Permit#release} once the request is answered, or null when it has to be shed
+     */
+    public Permit acquireConcurrency(String endpoint, boolean limited) {
+        if (!limited || !properties.getConcurrency().isEnabled()) {
+            decisions(endpoint).allowed.increment();
+            return new Permit(null);
+        }
+        if (!concurrency.tryAcquire()) {
+            decisions(endpoint).shed.increment();
+            return null;
+        }
+        decisions(endpoint).allowed.increment();
+        return new Permit(concurrency);
+    }
+
+    private Decisions decisions(String endpoint) {
+        Decisions counts = decisions.get(endpoint);
+        if (counts == null) {
+            counts = new Decisions();
+            Decisions existing = decisions.putIfAbsent(endpoint, counts);
+            if (existing != null)
+                counts = existing;
+        }
+        return counts;
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        List<Metric<?>> metrics = new ArrayList<>();
+        for (Map.Entry<String, Decisions> entry : decisions.entrySet()) {
+            String prefix = "limits.assignments." + entry.getKey();
+            metrics.add(new Metric<>(prefix + ".allowed", entry.getValue().allowed.sum()));
+            metrics.add(new Metric<>(prefix + ".rateLimited", entry.getValue().rateLimited.sum()));
+            metrics.add(new Metric<>(prefix + ".shed", entry.getValue().shed.sum()));
+        }
+        metrics.add(new Metric<>("limits.rate.buckets", buckets.size()));
+        if (properties.getConcurrency().isEnabled()) {
+            metrics.add(new Metric<>("limits.concurrency.limit", concurrency.limit()));
+            metrics.add(new Metric<>("limits.concurrency.inFlight", concurrency.inFlight()));
+        }
+        return metrics;
+    }
+
+    /** A request counted against the concurrency limit until it is released; releasing more than once is harmless. */
+    public static final class Permit {
+        private final AdaptiveConcurrencyLimit limit;
+        private final long start = System.nanoTime();
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(AdaptiveConcurrencyLimit limit) {
+            this.limit = limit;
+        }
+
+        public void release() {
+            if (limit != null && released.compareAndSet(false, true)) {
+                long now = System.nanoTime();
+                limit.release(now - start, now);
+            }
+        }
+    }
+
+    private static final class Decisions {
+        final LongAdder allowed = new LongAdder();
+        final LongAdder rateLimited = new LongAdder();
+        final LongAdder shed = new LongAdder();
+    }
+}
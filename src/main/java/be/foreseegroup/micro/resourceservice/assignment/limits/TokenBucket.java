@@ -0,0 +1,51 @@
+package be.foreseegroup.micro.resourceservice.assignment.limits;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket refilled with {@code requestsPerSecond} tokens per second and holding at most {@code burst}, kept as
+ * the single time at which it would be full again (the generic cell rate algorithm). Taking a token is one
+ * compare-and-set on that time, so the bucket needs no lock and no refill thread.
+ */
+final class TokenBucket {
+    final double requestsPerSecond;
+    final int burst;
+
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    private final AtomicLong fullAt;
+
+    TokenBucket(double requestsPerSecond, int burst, long now) {
+        this.requestsPerSecond = requestsPerSecond;
+        this.burst = burst;
+        this.intervalNanos = (long) (1e9 / requestsPerSecond);
+        this.toleranceNanos = Math.max(burst - 1, 0) * intervalNanos;
+        this.fullAt = new AtomicLong(now);
+    }
+
+    /**
+     * Takes a token.
+     *
+     * @return 0 when a token was taken, otherwise the nanoseconds until the next one is available
+     */
+    long tryAcquire(long now) {
+        while (true) {
+            long current = fullAt.get();
+            long start = current - now > 0 ? current : now;
+            long wait = start - toleranceNanos - now;
+            if (wait > 0)
+                return wait;
+            if (fullAt.compareAndSet(current, start + intervalNanos))
+                return 0;
+        }
+    }
+
+    /** @return whether the bucket is full again, so dropping it loses nothing */
+    boolean isFull(long now) {
+        return fullAt.get() - now <= 0;
+    }
+
+    boolean hasLimit(LimitsProperties.Limit limit) {
+        return limit.getRequestsPerSecond() == requestsPerSecond && limit.getBurst() == burst;
+    }
+}
@@ -0,0 +1,78 @@
+package be.foreseegroup.micro.resourceservice.assignment.metrics;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Named HdrHistogram recorders for latencies and result sizes. Recording is wait-free, so it can be done on
+ * every request; the recorded values are only folded into the totals when the metrics are read.
+ * Exposed on the actuator {@code /metrics} endpoint as e.g. {@code histogram.assignments.getById.latency.p99}
+ * in milliseconds, counting from the start of the application.
+ */
+public class LatencyHistograms implements PublicMetrics {
+    private static final int SIGNIFICANT_DIGITS = 3;
+    private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final ConcurrentMap<String, RecordedHistogram> histograms = new ConcurrentHashMap<>();
+
+    public void recordLatency(String name, long nanos) {
+        histogram(name + ".latency", NANOS_PER_MILLI).recorder.recordValue(Math.max(nanos, 0));
+    }
+
+    public void recordSize(String name, long size) {
+        histogram(name + ".resultSize", 1).recorder.recordValue(Math.max(size, 0));
+    }
+
+    private RecordedHistogram histogram(String name, double unit) {
+        RecordedHistogram histogram = histograms.get(name);
+        if (histogram == null) {
+            histogram = new RecordedHistogram(unit);
+            RecordedHistogram existing = histograms.putIfAbsent(name, histogram);
+            if (existing != null)
+                histogram = existing;
+        }
+        return histogram;
+    }
+
+    @Override
+    public synchronized Collection<Metric<?>> metrics() {
+        List<Metric<?>> metrics = new ArrayList<>();
+        for (Map.Entry<String, RecordedHistogram> entry : histograms.entrySet()) {
+            RecordedHistogram histogram = entry.getValue();
+            histogram.interval = histogram.recorder.getIntervalHistogram(histogram.interval);
+            histogram.total.add(histogram.interval);
+            String prefix = "histogram." + entry.getKey();
+            metrics.add(new Metric<>(prefix + ".count", histogram.total.getTotalCount()));
+            metrics.add(new Metric<>(prefix + ".p50", histogram.valueAt(50)));
+            metrics.add(new Metric<>(prefix + ".p99", histogram.valueAt(99)));
+            metrics.add(new Metric<>(prefix + ".p999", histogram.valueAt(99.9)));
+            metrics.add(new Metric<>(prefix + ".max", histogram.total.getMaxValue() / histogram.unit));
+        }
+        return metrics;
+    }
+
+    private static class RecordedHistogram {
+        final Recorder recorder = new Recorder(SIGNIFICANT_DIGITS);
+        final Histogram total = new Histogram(SIGNIFICANT_DIGITS);
+        final double unit;
+        Histogram interval;
+
+        RecordedHistogram(double unit) {
+            this.unit = unit;
+        }
+
+        double valueAt(double percentile) {
+            return total.getValueAtPercentile(percentile) / unit;
+        }
+    }
+}
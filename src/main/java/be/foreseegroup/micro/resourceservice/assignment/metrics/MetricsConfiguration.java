@@ -0,0 +1,51 @@
+package be.foreseegroup.micro.resourceservice.assignment.metrics;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.metrics.CounterService;
+import org.springframework.boot.actuate.metrics.GaugeService;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Registers the per-request metrics: repository timing, latency histograms, result size, serialization time
+ * and error counts.
+ */
+@Configuration
+public class MetricsConfiguration extends WebMvcConfigurerAdapter {
+
+    @Autowired
+    private GaugeService gaugeService;
+
+    @Autowired
+    private CounterService counterService;
+
+    @Autowired
+    private LatencyHistograms latencyHistograms;
+
+    @Autowired(required = false)
+    private List<RequestMetricsListener> listeners = Collections.emptyList();
+
+    @Value("${assignment.metrics.log-sample-rate:100}")
+    private int logSampleRate;
+
+    @Bean
+    public static LatencyHistograms latencyHistograms() {
+        return new LatencyHistograms();
+    }
+
+    @Bean
+    public static RepositoryMetricsPostProcessor repositoryMetricsPostProcessor(LatencyHistograms latencyHistograms) {
+        return new RepositoryMetricsPostProcessor(latencyHistograms);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new RequestMetricsInterceptor(gaugeService, counterService, latencyHistograms, logSampleRate, listeners));
+    }
+}
@@ -0,0 +1,45 @@
+package be.foreseegroup.micro.resourceservice.assignment.metrics;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.data.repository.Repository;
+
+/**
+ * Wraps every Spring Data repository so each call is timed per method in the {@link LatencyHistograms},
+ * e.g. {@code histogram.mongo.findByConsultantId.latency}, and counted in the {@link RequestMetrics}
+ * of the current request.
+ */
+public class RepositoryMetricsPostProcessor implements BeanPostProcessor {
+    private final LatencyHistograms histograms;
+
+    public RepositoryMetricsPostProcessor(LatencyHistograms histograms) {
+        this.histograms = histograms;
+    }
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        return bean;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof Repository))
+            return bean;
+        ProxyFactory proxyFactory = new ProxyFactory(bean);
+        proxyFactory.addAdvice((MethodInterceptor) invocation -> {
+            long start = System.nanoTime();
+            try {
+                return invocation.proceed();
+            } finally {
+                long nanos = System.nanoTime() - start;
+                String operation = invocation.getMethod().getName();
+                histograms.recordLatency("mongo." + operation, nanos);
+                RequestMetrics metrics = RequestMetrics.current();
+                if (metrics != null)
+                    metrics.recordMongoOperation(operation, nanos);
+            }
+        });
+        return proxyFactory.getProxy();
+    }
+}
@@ -0,0 +1,102 @@
+package be.foreseegroup.micro.resourceservice.assignment.metrics;
+
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Measurements collected while a single request is handled: the repository calls and the time
+ * spent in them, the size of the returned result and the time needed to serialize it.
+ * Bound to the current request by {@link RequestMetricsInterceptor}, and with {@link #bind} to a thread handling
+ * the request off the container thread.
+ */
+public class RequestMetrics {
+    static final String ATTRIBUTE = RequestMetrics.class.getName();
+    private static final ThreadLocal<RequestMetrics> BOUND = new ThreadLocal<>();
+
+    private final String endpoint;
+    private final long startNanos = System.nanoTime();
+
+    private final List<String> mongoOperations = new ArrayList<>();
+    private long mongoNanos;
+    private int resultSize = -1;
+    private long serializationStartNanos;
+
+    RequestMetrics(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    /**
+     * @return the metrics of the request handled by the current thread, or null outside of a handled request
+     */
+    public static RequestMetrics current() {
+        RequestMetrics bound = BOUND.get();
+        if (bound != null)
+            return bound;
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null)
+            return null;
+        return (RequestMetrics) attributes.getAttribute(ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+    }
+
+    /**
+     * Makes {@link #current()} return {@code metrics} on this thread, or unbinds them when null. Unlike the request
+     * itself, the metrics may still be written to after the request completed.
+     */
+    public static void bind(RequestMetrics metrics) {
+        if (metrics == null)
+            BOUND.remove();
+        else
+            BOUND.set(metrics);
+    }
+
+    public void recordMongoOperation(String operation, long nanos) {
+        mongoOperations.add(operation);
+        mongoNanos += nanos;
+    }
+
+    public void setResultSize(int resultSize) {
+        this.resultSize = resultSize;
+    }
+
+    void markSerializationStart() {
+        serializationStartNanos = System.nanoTime();
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public int getMongoOperations() {
+        return mongoOperations.size();
+    }
+
+    /**
+     * @return the names of the repository methods called, in call order
+     */
+    public List<String> getMongoOperationNames() {
+        return Collections.unmodifiableList(mongoOperations);
+    }
+
+    public long getMongoNanos() {
+        return mongoNanos;
+    }
+
+    public int getResultSize() {
+        return resultSize;
+    }
+
+    long getStartNanos() {
+        return startNanos;
+    }
+
+    /**
+     * @return the time between the start of serialization and {@code endNanos}, or -1 when nothing was serialized
+     */
+    long serializationNanos(long endNanos) {
+        return serializationStartNanos == 0 ? -1 : endNanos - serializationStartNanos;
+    }
+}
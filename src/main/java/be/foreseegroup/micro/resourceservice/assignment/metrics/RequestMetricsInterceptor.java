@@ -0,0 +1,89 @@
+package be.foreseegroup.micro.resourceservice.assignment.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.metrics.CounterService;
+import org.springframework.boot.actuate.metrics.GaugeService;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Binds a {@link RequestMetrics} to every handled request and publishes it once the response has been
+ * written: as gauges, e.g. {@code gauge.assignments.getAll.mongo.operations}, as latency and result size
+ * histograms and as error counters. Only one in {@code logSampleRate} requests is logged, failed requests
+ * are always logged. The completed metrics are then handed to every {@link RequestMetricsListener}.
+ */
+public class RequestMetricsInterceptor extends HandlerInterceptorAdapter {
+    private static final Logger LOG = LoggerFactory.getLogger(RequestMetricsInterceptor.class);
+
+    private final GaugeService gauges;
+    private final CounterService counters;
+    private final LatencyHistograms histograms;
+    private final int logSampleRate;
+    private final List<RequestMetricsListener> listeners;
+    private final AtomicLong requests = new AtomicLong();
+
+    public RequestMetricsInterceptor(GaugeService gauges, CounterService counters, LatencyHistograms histograms, int logSampleRate,
+                                     List<RequestMetricsListener> listeners) {
+        this.gauges = gauges;
+        this.counters = counters;
+        this.histograms = histograms;
+        this.logSampleRate = logSampleRate;
+        this.listeners = listeners;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // Asynchronously handled requests pass here again when dispatched back to the container
+        if (handler instanceof HandlerMethod && request.getAttribute(RequestMetrics.ATTRIBUTE) == null)
+            request.setAttribute(RequestMetrics.ATTRIBUTE, new RequestMetrics(((HandlerMethod) handler).getMethod().getName()));
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        RequestMetrics metrics = (RequestMetrics) request.getAttribute(RequestMetrics.ATTRIBUTE);
+        if (metrics == null)
+            return;
+        long end = System.nanoTime();
+        long latencyNanos = end - metrics.getStartNanos();
+        String name = "assignments." + metrics.getEndpoint();
+        String prefix = "gauge." + name;
+        gauges.submit(prefix + ".mongo.operations", metrics.getMongoOperations());
+        gauges.submit(prefix + ".mongo.time", toMillis(metrics.getMongoNanos()));
+        histograms.recordLatency(name, latencyNanos);
+        if (metrics.getResultSize() >= 0) {
+            gauges.submit(prefix + ".resultSize", metrics.getResultSize());
+            histograms.recordSize(name, metrics.getResultSize());
+        }
+        long serializationNanos = metrics.serializationNanos(end);
+        if (serializationNanos >= 0)
+            gauges.submit(prefix + ".serialization.time", toMillis(serializationNanos));
+
+        int status = response.getStatus();
+        boolean failed = ex != null || status >= 500;
+        if (failed)
+            counters.increment(name + ".errors");
+        else if (status >= 400)
+            counters.increment(name + ".clientErrors");
+
+        if (failed)
+            LOG.warn("{} {} failed with {} after {} ms", request.getMethod(), request.getRequestURI(), status, toMillis(latencyNanos), ex);
+        else if (logSampleRate > 0 && requests.getAndIncrement() % logSampleRate == 0)
+            LOG.info("{} {} answered {} in {} ms, {} mongo operations, result size {}", request.getMethod(), request.getRequestURI(),
+                    status, toMillis(latencyNanos), metrics.getMongoOperations(), metrics.getResultSize());
+
+        for (RequestMetricsListener listener : listeners)
+            listener.requestCompleted(metrics);
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
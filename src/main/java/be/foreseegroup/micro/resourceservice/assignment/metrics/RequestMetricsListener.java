@@ -0,0 +1,10 @@
+package be.foreseegroup.micro.resourceservice.assignment.metrics;
+
+/**
+ * Receives the {@link RequestMetrics} of every handled request once they have been published. Called on the
+ * thread completing the request, so implementations should return quickly.
+ */
+public interface RequestMetricsListener {
+
+    void requestCompleted(RequestMetrics metrics);
+}
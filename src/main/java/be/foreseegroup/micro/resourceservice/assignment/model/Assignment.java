@@ -1,23 +1,51 @@
 package be.foreseegroup.micro.resourceservice.assignment.model;
 
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.util.Date;
 
 /**
  * Created by Kaj on 24/09/15.
  */
+@Document
+@CompoundIndexes({
+        @CompoundIndex(name = "consultant_start", def = "{'consultantId': 1, 'startDate': 1}"),
+        @CompoundIndex(name = "customer_start", def = "{'customerId': 1, 'startDate': 1}"),
+        @CompoundIndex(name = "end_start", def = "{'endDate': 1, 'startDate': 1}")
+})
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class Assignment {
+    public static final String DATE_PATTERN = "yyyy-MM-dd";
+
     @Id
     private String id;
 
     private String consultantId;
     private String customerId;
 
-    private String startDate;
-    private String endDate;
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = DATE_PATTERN, timezone = "UTC")
+    private Date startDate;
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = DATE_PATTERN, timezone = "UTC")
+    private Date endDate;
+
+    /** Incremented by every update; exposed as the ETag of the assignment. */
+    private Long version;
+
+    /** Time of the last create or update; exposed as the Last-Modified header of the assignment. */
+    @JsonIgnore
+    private Date lastModified;
+
+    /** Id of the change that wrote this state of the assignment, to tell whether a change left pending was applied. */
+    @JsonIgnore
+    private String changeId;
 
-    public Assignment(String id, String consultantId, String customerId, String startDate, String endDate) {
+    public Assignment(String id, String consultantId, String customerId, Date startDate, Date endDate) {
         this.id = id;
         this.consultantId = consultantId;
         this.customerId = customerId;
@@ -29,7 +57,7 @@ public class Assignment {
 
     }
 
-    public Assignment(String consultantId, String customerId, String startDate, String endDate) {
+    public Assignment(String consultantId, String customerId, Date startDate, Date endDate) {
         this.consultantId = consultantId;
         this.customerId = customerId;
         this.startDate = startDate;
@@ -60,19 +88,43 @@ public class Assignment {
         this.customerId = customerId;
     }
 
-    public String getStartDate() {
+    public Date getStartDate() {
         return startDate;
     }
 
-    public void setStartDate(String startDate) {
+    public void setStartDate(Date startDate) {
         this.startDate = startDate;
     }
 
-    public String getEndDate() {
+    public Date getEndDate() {
         return endDate;
     }
 
-    public void setEndDate(String endDate) {
+    public void setEndDate(Date endDate) {
         this.endDate = endDate;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public Date getLastModified() {
+        return lastModified;
+    }
+
+    public void setLastModified(Date lastModified) {
+        this.lastModified = lastModified;
+    }
+
+    public String getChangeId() {
+        return changeId;
+    }
+
+    public void setChangeId(String changeId) {
+        this.changeId = changeId;
+    }
 }
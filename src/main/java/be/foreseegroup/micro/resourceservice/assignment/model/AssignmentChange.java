@@ -0,0 +1,189 @@
+package be.foreseegroup.micro.resourceservice.assignment.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+/**
+ * A create, update, delete or archiving of an assignment, served by the change feed and published to the other services.
+ * The id identifies the change, so consumers can drop the duplicates an at-least-once delivery may produce.
+ * The sequence orders the committed changes of all instances.
+ * <p>
+ * Changes are kept in the {@code assignmentChanges} collection for {@link #RETENTION_SECONDS}; the {@link State}
+ * tracks them there.
+ */
+@Document(collection = "assignmentChanges")
+@CompoundIndexes({
+        @CompoundIndex(name = "state_time", def = "{'state': 1, 'time': 1}"),
+        @CompoundIndex(name = "state_published_sequence", def = "{'state': 1, 'published': 1, 'sequence': 1}")
+})
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class AssignmentChange {
+    public enum Type {
+        CREATED, UPDATED, DELETED,
+        /** Moved to the archive: gone from the working set, so followers of the working set treat it as a delete. */
+        ARCHIVED
+    }
+
+    public enum State {
+        /** Written before the assignment, not known to have been applied yet. */
+        PENDING,
+        /** Applied and numbered, visible in the change feed. */
+        READY
+    }
+
+    /** How long changes are kept, and so how old a change feed token can be. */
+    public static final int RETENTION_SECONDS = 7 * 24 * 60 * 60;
+
+    @Id
+    private String id;
+
+    private Type type;
+    private String assignmentId;
+
+    /** Version of the assignment after the change, absent for deletes and bulk updates. */
+    private Long version;
+
+    @Indexed(sparse = true)
+    private Long sequence;
+
+    @Indexed(expireAfterSeconds = RETENTION_SECONDS)
+    private Date time;
+
+    /** When the sequence number was allocated; the numbers before it were allocated earlier still. */
+    @JsonIgnore
+    private Date allocated;
+
+    /** State of the assignment after the change, or the removed assignment of a delete. */
+    private Assignment assignment;
+
+    /**
+     * Consultant and customer of the assignment before an update, so a consumer following a consultant or customer
+     * also sees the assignments moved away from it.
+     */
+    private Assignment previous;
+
+    @JsonIgnore
+    private State state;
+
+    @JsonIgnore
+    private boolean published;
+
+    public AssignmentChange() {
+
+    }
+
+    public AssignmentChange(Type type, Assignment assignment, Date time) {
+        this.type = type;
+        this.assignmentId = assignment.getId();
+        this.version = assignment.getVersion();
+        this.time = time;
+        this.assignment = assignment;
+        this.state = State.PENDING;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    /** @return true when the assignment left the working set: deleted or archived */
+    @JsonIgnore
+    public boolean isRemoval() {
+        return type == Type.DELETED || type == Type.ARCHIVED;
+    }
+
+    public String getAssignmentId() {
+        return assignmentId;
+    }
+
+    public void setAssignmentId(String assignmentId) {
+        this.assignmentId = assignmentId;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public Long getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(Long sequence) {
+        this.sequence = sequence;
+    }
+
+    public Date getTime() {
+        return time;
+    }
+
+    public void setTime(Date time) {
+        this.time = time;
+    }
+
+    public Date getAllocated() {
+        return allocated;
+    }
+
+    public void setAllocated(Date allocated) {
+        this.allocated = allocated;
+    }
+
+    public Assignment getAssignment() {
+        return assignment;
+    }
+
+    public void setAssignment(Assignment assignment) {
+        this.assignment = assignment;
+    }
+
+    public Assignment getPrevious() {
+        return previous;
+    }
+
+    public void setPrevious(Assignment previous) {
+        this.previous = previous;
+    }
+
+    /** Records the consultant and customer of {@code assignment} as the ones before the change. */
+    public void recordPrevious(Assignment assignment) {
+        this.previous = new Assignment(assignment.getId(), assignment.getConsultantId(), assignment.getCustomerId(), null, null);
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public void setState(State state) {
+        this.state = state;
+    }
+
+    public boolean isPublished() {
+        return published;
+    }
+
+    public void setPublished(boolean published) {
+        this.published = published;
+    }
+}
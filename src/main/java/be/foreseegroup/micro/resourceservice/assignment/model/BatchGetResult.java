@@ -0,0 +1,37 @@
+package be.foreseegroup.micro.resourceservice.assignment.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Answer to a multi-get: the assignments that were found and the requested ids that do not exist.
+ */
+public class BatchGetResult {
+    private List<Assignment> found = new ArrayList<>();
+    private List<String> missing = new ArrayList<>();
+
+    public BatchGetResult() {
+
+    }
+
+    public BatchGetResult(List<Assignment> found, List<String> missing) {
+        this.found = found;
+        this.missing = missing;
+    }
+
+    public List<Assignment> getFound() {
+        return found;
+    }
+
+    public void setFound(List<Assignment> found) {
+        this.found = found;
+    }
+
+    public List<String> getMissing() {
+        return missing;
+    }
+
+    public void setMissing(List<String> missing) {
+        this.missing = missing;
+    }
+}
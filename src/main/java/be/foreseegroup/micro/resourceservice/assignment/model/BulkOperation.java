@@ -0,0 +1,48 @@
+package be.foreseegroup.micro.resourceservice.assignment.model;
+
+/**
+ * One item of a bulk request: a create, an update or a delete of an assignment.
+ */
+public class BulkOperation {
+    public enum Type {
+        CREATE, UPDATE, DELETE
+    }
+
+    private Type op;
+    private String id;
+    private Assignment assignment;
+
+    public BulkOperation() {
+
+    }
+
+    public BulkOperation(Type op, String id, Assignment assignment) {
+        this.op = op;
+        this.id = id;
+        this.assignment = assignment;
+    }
+
+    public Type getOp() {
+        return op;
+    }
+
+    public void setOp(Type op) {
+        this.op = op;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public Assignment getAssignment() {
+        return assignment;
+    }
+
+    public void setAssignment(Assignment assignment) {
+        this.assignment = assignment;
+    }
+}
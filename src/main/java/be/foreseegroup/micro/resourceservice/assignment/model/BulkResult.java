@@ -0,0 +1,66 @@
+package be.foreseegroup.micro.resourceservice.assignment.model;
+
+/**
+ * Outcome of one item of a bulk request. The status follows the single item endpoints (200, 201, 204,
+ * 400, 404); 409 marks a rejected write and 424 an item that was not run because an earlier item of an
+ * ordered request failed.
+ */
+public class BulkResult {
+    private int index;
+    private BulkOperation.Type op;
+    private String id;
+    private int status;
+    private String error;
+
+    public BulkResult() {
+
+    }
+
+    public BulkResult(int index, BulkOperation.Type op, String id, int status, String error) {
+        this.index = index;
+        this.op = op;
+        this.id = id;
+        this.status = status;
+        this.error = error;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public BulkOperation.Type getOp() {
+        return op;
+    }
+
+    public void setOp(BulkOperation.Type op) {
+        this.op = op;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public void setStatus(int status) {
+        this.status = status;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
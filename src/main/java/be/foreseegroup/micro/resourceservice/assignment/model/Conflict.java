@@ -0,0 +1,74 @@
+package be.foreseegroup.micro.resourceservice.assignment.model;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.Date;
+
+/**
+ * Two assignments of the same consultant that overlap, from the later start date to the earlier end date.
+ * A missing date means the overlap is open on that side.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class Conflict {
+    private String consultantId;
+    private String assignmentId;
+    private String otherAssignmentId;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = Assignment.DATE_PATTERN, timezone = "UTC")
+    private Date from;
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = Assignment.DATE_PATTERN, timezone = "UTC")
+    private Date to;
+
+    public Conflict() {
+
+    }
+
+    public Conflict(String consultantId, String assignmentId, String otherAssignmentId, Date from, Date to) {
+        this.consultantId = consultantId;
+        this.assignmentId = assignmentId;
+        this.otherAssignmentId = otherAssignmentId;
+        this.from = from;
+        this.to = to;
+    }
+
+    public String getConsultantId() {
+        return consultantId;
+    }
+
+    public void setConsultantId(String consultantId) {
+        this.consultantId = consultantId;
+    }
+
+    public String getAssignmentId() {
+        return assignmentId;
+    }
+
+    public void setAssignmentId(String assignmentId) {
+        this.assignmentId = assignmentId;
+    }
+
+    public String getOtherAssignmentId() {
+        return otherAssignmentId;
+    }
+
+    public void setOtherAssignmentId(String otherAssignmentId) {
+        this.otherAssignmentId = otherAssignmentId;
+    }
+
+    public Date getFrom() {
+        return from;
+    }
+
+    public void setFrom(Date from) {
+        this.from = from;
+    }
+
+    public Date getTo() {
+        return to;
+    }
+
+    public void setTo(Date to) {
+        this.to = to;
+    }
+}
@@ -0,0 +1,118 @@
+package be.foreseegroup.micro.resourceservice.assignment.model;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * How much of a date window a consultant is booked: the number of days covered by at least one assignment,
+ * the days in between, and the booked share of the window in percent. Days are counted inclusive of both bounds.
+ */
+public class Utilization {
+    private String consultantId;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = Assignment.DATE_PATTERN, timezone = "UTC")
+    private Date from;
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = Assignment.DATE_PATTERN, timezone = "UTC")
+    private Date to;
+
+    private int bookedDays;
+    private double utilization;
+    private List<Interval> freeIntervals = new ArrayList<>();
+
+    public Utilization() {
+
+    }
+
+    public Utilization(String consultantId, Date from, Date to, int bookedDays, double utilization, List<Interval> freeIntervals) {
+        this.consultantId = consultantId;
+        this.from = from;
+        this.to = to;
+        this.bookedDays = bookedDays;
+        this.utilization = utilization;
+        this.freeIntervals = freeIntervals;
+    }
+
+    public String getConsultantId() {
+        return consultantId;
+    }
+
+    public void setConsultantId(String consultantId) {
+        this.consultantId = consultantId;
+    }
+
+    public Date getFrom() {
+        return from;
+    }
+
+    public void setFrom(Date from) {
+        this.from = from;
+    }
+
+    public Date getTo() {
+        return to;
+    }
+
+    public void setTo(Date to) {
+        this.to = to;
+    }
+
+    public int getBookedDays() {
+        return bookedDays;
+    }
+
+    public void setBookedDays(int bookedDays) {
+        this.bookedDays = bookedDays;
+    }
+
+    public double getUtilization() {
+        return utilization;
+    }
+
+    public void setUtilization(double utilization) {
+        this.utilization = utilization;
+    }
+
+    public List<Interval> getFreeIntervals() {
+        return freeIntervals;
+    }
+
+    public void setFreeIntervals(List<Interval> freeIntervals) {
+        this.freeIntervals = freeIntervals;
+    }
+
+    /** Consecutive days, both bounds included. */
+    public static class Interval {
+        @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = Assignment.DATE_PATTERN, timezone = "UTC")
+        private Date from;
+        @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = Assignment.DATE_PATTERN, timezone = "UTC")
+        private Date to;
+
+        public Interval() {
+
+        }
+
+        public Interval(Date from, Date to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        public Date getFrom() {
+            return from;
+        }
+
+        public void setFrom(Date from) {
+            this.from = from;
+        }
+
+        public Date getTo() {
+            return to;
+        }
+
+        public void setTo(Date to) {
+            this.to = to;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package be.foreseegroup.micro.resourceservice.assignment.mongo;
+
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Publishes the connection pools of the Mongo client, one per server, from the statistics the driver registers in JMX:
+ * open and checked out connections, the maximum, the threads waiting for a connection and the share of the pool in
+ * use. The {@code mongo.pool.*} totals add up the pools of all servers.
+ */
+public class ConnectionPoolMetrics implements PublicMetrics {
+    private static final String POOLS = "org.mongodb.driver:type=ConnectionPool,*";
+
+    private final MBeanServer server;
+
+    public ConnectionPoolMetrics(MBeanServer server) {
+        this.server = server;
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        List<Metric<?>> metrics = new ArrayList<>();
+        int size = 0;
+        int checkedOut = 0;
+        int max = 0;
+        int waiting = 0;
+        try {
+            for (ObjectName pool : server.queryNames(new ObjectName(POOLS), null)) {
+                String prefix = "mongo.pool." + server.getAttribute(pool, "Host") + ":" + server.getAttribute(pool, "Port");
+                int poolSize = (Integer) server.getAttribute(pool, "Size");
+                int poolCheckedOut = (Integer) server.getAttribute(pool, "CheckedOutCount");
+                int poolMax = (Integer) server.getAttribute(pool, "MaxSize");
+                int poolWaiting = (Integer) server.getAttribute(pool, "WaitQueueSize");
+                addMetrics(metrics, prefix, poolSize, poolCheckedOut, poolMax, poolWaiting);
+                size += poolSize;
+                checkedOut += poolCheckedOut;
+                max += poolMax;
+                waiting += poolWaiting;
+            }
+        } catch (JMException e) {
+            // A pool closed while it was read, it is left out
+        }
+        addMetrics(metrics, "mongo.pool", size, checkedOut, max, waiting);
+        return metrics;
+    }
+
+    private static void addMetrics(List<Metric<?>> metrics, String prefix, int size, int checkedOut, int max, int waiting) {
+        metrics.add(new Metric<>(prefix + ".size", size));
+        metrics.add(new Metric<>(prefix + ".checkedOut", checkedOut));
+        metrics.add(new Metric<>(prefix + ".max", max));
+        metrics.add(new Metric<>(prefix + ".waitQueue", waiting));
+        metrics.add(new Metric<>(prefix + ".utilization", max == 0 ? 0.0 : Math.round(1000.0 * checkedOut / max) / 10.0));
+    }
+}
@@ -0,0 +1,63 @@
+package be.foreseegroup.micro.resourceservice.assignment.mongo;
+
+import com.mongodb.MongoClientOptions;
+import com.mongodb.ReadPreference;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.MongoOperations;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Sizes the connection pool of the Mongo client created by the Mongo auto-configuration from
+ * {@code assignment.mongo.pool.*}, and registers the {@link ReadRouting} of list reads and the pool metrics.
+ */
+@Configuration
+public class MongoConfiguration {
+
+    @Value("${assignment.mongo.pool.connections-per-host:100}")
+    private int connectionsPerHost;
+
+    @Value("${assignment.mongo.pool.wait-queue-multiplier:5}")
+    private int waitQueueMultiplier;
+
+    @Value("${assignment.mongo.pool.max-wait-time-ms:2000}")
+    private int maxWaitTimeMillis;
+
+    @Value("${assignment.mongo.pool.connect-timeout-ms:10000}")
+    private int connectTimeoutMillis;
+
+    @Value("${assignment.mongo.pool.socket-timeout-ms:0}")
+    private int socketTimeoutMillis;
+
+    @Value("${assignment.mongo.read.lists:secondaryPreferred}")
+    private String listReadPreference;
+
+    @Value("${assignment.mongo.read.max-staleness-ms:10000}")
+    private long maxStalenessMillis;
+
+    @Value("${assignment.mongo.read.staleness-check-interval-ms:5000}")
+    private long stalenessCheckIntervalMillis;
+
+    @Bean
+    public MongoClientOptions mongoClientOptions() {
+        return MongoClientOptions.builder()
+                .connectionsPerHost(connectionsPerHost)
+                .threadsAllowedToBlockForConnectionMultiplier(waitQueueMultiplier)
+                .maxWaitTime(maxWaitTimeMillis)
+                .connectTimeout(connectTimeoutMillis)
+                .socketTimeout(socketTimeoutMillis)
+                .build();
+    }
+
+    @Bean
+    public ReadRouting readRouting(MongoOperations mongo) {
+        return new ReadRouting(mongo, ReadPreference.valueOf(listReadPreference), maxStalenessMillis, stalenessCheckIntervalMillis);
+    }
+
+    @Bean
+    public ConnectionPoolMetrics connectionPoolMetrics() {
+        return new ConnectionPoolMetrics(ManagementFactory.getPlatformMBeanServer());
+    }
+}
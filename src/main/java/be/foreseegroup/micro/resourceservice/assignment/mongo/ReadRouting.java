@@ -0,0 +1,104 @@
+package be.foreseegroup.micro.resourceservice.assignment.mongo;
+
+import com.mongodb.CommandResult;
+import com.mongodb.DBObject;
+import com.mongodb.ReadPreference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Date;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Where reads go. Single assignments, the lists served from the cache and everything read to handle a write go to
+ * the primary, so a client reads its own writes. Lists, ranges and aggregations read straight from Mongo use
+ * {@code assignment.mongo.read.lists}, as long as no secondary lags the primary by more than
+ * {@code assignment.mongo.read.max-staleness-ms}. The list versions are read from the primary, so a list read from a
+ * secondary is answered without its version and not cached.
+ * <p>
+ * The lag is taken from {@code replSetGetStatus} every {@code assignment.mongo.read.staleness-check-interval-ms}.
+ * Until the first check, when it fails, or when Mongo is not a replica set, lists are read from the primary as well.
+ */
+public class ReadRouting {
+    private static final Logger LOG = LoggerFactory.getLogger(ReadRouting.class);
+
+    private final MongoOperations mongo;
+    private final ReadPreference listPreference;
+    private final long maxStalenessMillis;
+    private final long checkIntervalMillis;
+
+    private volatile boolean secondariesFresh;
+    private ScheduledExecutorService checker;
+
+    public ReadRouting(MongoOperations mongo, ReadPreference listPreference, long maxStalenessMillis, long checkIntervalMillis) {
+        this.mongo = mongo;
+        this.listPreference = listPreference;
+        this.maxStalenessMillis = maxStalenessMillis;
+        this.checkIntervalMillis = checkIntervalMillis;
+    }
+
+    @PostConstruct
+    void start() {
+        if (listPreference.equals(ReadPreference.primary()))
+            return;
+        checker = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("assignment-read-routing-"));
+        checker.scheduleWithFixedDelay(this::check, 0, checkIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (checker != null)
+            checker.shutdownNow();
+    }
+
+    /** @return the read preference of list reads that may be served by a secondary */
+    public ReadPreference forLists() {
+        return secondariesFresh ? listPreference : ReadPreference.primary();
+    }
+
+    void check() {
+        long lag;
+        try {
+            CommandResult status = mongo.execute(db -> db.getSisterDB("admin").command("replSetGetStatus"));
+            lag = status.ok() ? maxLagMillis(status) : Long.MAX_VALUE;
+        } catch (RuntimeException e) {
+            lag = Long.MAX_VALUE;
+        }
+        boolean fresh = lag <= maxStalenessMillis;
+        if (fresh != secondariesFresh)
+            LOG.info(fresh ? "Reading lists with {}" : "Reading lists from the primary, secondary lag is {} ms",
+                    fresh ? listPreference.getName() : (lag == Long.MAX_VALUE ? "unknown" : lag));
+        secondariesFresh = fresh;
+    }
+
+    /**
+     * @return how far the furthest secondary is behind the primary in a {@code replSetGetStatus} result,
+     * {@link Long#MAX_VALUE} when there is no primary or no secondary
+     */
+    static long maxLagMillis(DBObject status) {
+        Object members = status.get("members");
+        if (!(members instanceof Iterable))
+            return Long.MAX_VALUE;
+        Date primary = null;
+        Date oldestSecondary = null;
+        for (Object member : (Iterable<?>) members) {
+            DBObject fields = (DBObject) member;
+            Date optime = (Date) fields.get("optimeDate");
+            if (optime == null)
+                continue;
+            if ("PRIMARY".equals(fields.get("stateStr")))
+                primary = optime;
+            else if ("SECONDARY".equals(fields.get("stateStr")) && (oldestSecondary == null || optime.before(oldestSecondary)))
+                oldestSecondary = optime;
+        }
+        if (primary == null || oldestSecondary == null)
+            return Long.MAX_VALUE;
+        return Math.max(0, primary.getTime() - oldestSecondary.getTime());
+    }
+}
@@ -0,0 +1,322 @@
+package be.foreseegroup.micro.resourceservice.assignment.replica;
+
+import be.foreseegroup.micro.resourceservice.assignment.events.ChangeLog;
+import be.foreseegroup.micro.resourceservice.assignment.model.Assignment;
+import be.foreseegroup.micro.resourceservice.assignment.model.AssignmentChange;
+import be.foreseegroup.micro.resourceservice.assignment.service.AssignmentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * All assignments in memory as {@link ColumnarAssignments}, answering the assignment reads of the service without
+ * going to Mongo. Read from Mongo at startup, or right after it in the background, and then kept current by following
+ * the {@link ChangeLog} every {@code assignment.replica.poll-interval-ms}, so it sees the writes of every instance.
+ * The writes of this instance are followed right after they are committed, so a client reads its own writes here;
+ * writes of other instances show up within the poll interval. A commit of another write still in flight holds up the
+ * changes numbered after it; a write of this instance waits up to {@code assignment.replica.own-write-wait-ms} for it.
+ * The changes are read from Mongo outside the lock, which is only taken to apply them.
+ * <p>
+ * Enabled with {@code assignment.replica.enabled=true}, which needs {@code assignment.changes.enabled}.
+ */
+@Component
+@ConditionalOnProperty("assignment.replica.enabled")
+public class AssignmentReplica implements PublicMetrics {
+    private static final int BATCH_SIZE = 1000;
+    private static final int STREAM_PAGE_SIZE = 1000;
+    private static final long GAP_RETRY_MILLIS = 5;
+    private static final Logger LOG = LoggerFactory.getLogger(AssignmentReplica.class);
+
+    @Autowired
+    private AssignmentRepository repo;
+
+    @Autowired
+    private ChangeLog changes;
+
+    @Value("${assignment.replica.poll-interval-ms:1000}")
+    private long pollIntervalMillis;
+
+    @Value("${assignment.replica.own-write-wait-ms:1000}")
+    private long ownWriteWaitMillis;
+
+    @Value("${assignment.startup.warm-up-in-background:false}")
+    private boolean loadInBackground;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Held while following the log, so one thread at a time reads and applies the changes after sequence
+    private final Object following = new Object();
+    private ColumnarAssignments assignments;
+    private volatile long sequence;
+    private ScheduledExecutorService poller;
+
+    @PostConstruct
+    void start() {
+        if (!changes.isEnabled())
+            throw new IllegalStateException("assignment.replica.enabled needs assignment.changes.enabled");
+        if (!loadInBackground)
+            load();
+        poller = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("assignment-replica-"));
+        poller.scheduleWithFixedDelay(() -> {
+            try {
+                catchUp();
+            } catch (RuntimeException e) {
+                LOG.warn("Could not follow the assignment changes: {}", e.getMessage());
+            }
+        }, pollIntervalMillis, pollIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (poller != null)
+            poller.shutdownNow();
+    }
+
+    public Assignment findOne(String id) {
+        return read(columns -> columns.get(id));
+    }
+
+    /** @return the assignments found, by id, in the order of {@code ids} */
+    public Map<String, Assignment> findAll(Collection<String> ids) {
+        return read(columns -> {
+            Map<String, Assignment> found = new LinkedHashMap<>();
+            for (String id : ids) {
+                Assignment assignment = columns.get(id);
+                if (assignment != null)
+                    found.put(id, assignment);
+            }
+            return found;
+        });
+    }
+
+    /** Same as {@link AssignmentRepository#findPageAfter}. */
+    public List<Assignment> findPageAfter(String afterId, int limit, Collection<String> fields) {
+        Collection<String> read = withId(fields);
+        return read(columns -> columns.pageAfter(afterId, limit, read));
+    }
+
+    /**
+     * Same as {@link AssignmentRepository#streamAll}. The assignments are copied a page at a time, so a slow consumer
+     * does not hold up the changes.
+     */
+    public void streamAll(Collection<String> fields, Consumer<Assignment> consumer) {
+        Collection<String> read = withId(fields);
+        boolean dropId = fields != null && !fields.contains("id");
+        String after = null;
+        List<Assignment> page;
+        do {
+            String from = after;
+            page = read(columns -> columns.pageAfter(from, STREAM_PAGE_SIZE, read));
+            for (Assignment assignment : page) {
+                after = assignment.getId();
+                if (dropId)
+                    assignment.setId(null);
+                consumer.accept(assignment);
+            }
+        } while (page.size() == STREAM_PAGE_SIZE);
+    }
+
+    public List<Assignment> findActiveAt(Date at, Collection<String> fields) {
+        return read(columns -> columns.activeAt(at, fields));
+    }
+
+    /** Same as {@link AssignmentRepository#findByConsultantIdProjected}. */
+    public List<Assignment> findByConsultantId(String consultantId, Date from, Date to, Collection<String> fields) {
+        return read(columns -> columns.ofConsultant(consultantId, from, to, fields));
+    }
+
+    /** Same as {@link AssignmentRepository#findByCustomerIdProjected}. */
+    public List<Assignment> findByCustomerId(String customerId, Date from, Date to, Collection<String> fields) {
+        return read(columns -> columns.ofCustomer(customerId, from, to, fields));
+    }
+
+    /** See {@link ColumnarAssignments#forEachConsultant}. The periods are collected before they are handed over. */
+    public void forEachConsultant(Date from, Date to, BiConsumer<String, List<long[]>> consumer) {
+        Map<String, List<long[]>> periods = read(columns -> {
+            Map<String, List<long[]>> collected = new LinkedHashMap<>();
+            columns.forEachConsultant(from, to, collected::put);
+            return collected;
+        });
+        periods.forEach(consumer);
+    }
+
+    /**
+     * @return the change sequence and time of the last write to any assignment, to version the whole collection
+     */
+    public long[] lastChange() {
+        return read(ColumnarAssignments::stampOfAll);
+    }
+
+    /**
+     * @return the change sequence and time of the last write to an assignment of the consultant
+     */
+    public long[] lastChangeOfConsultant(String consultantId) {
+        return read(columns -> columns.stampOfConsultant(consultantId));
+    }
+
+    /**
+     * @return the change sequence and time of the last write to an assignment at the customer
+     */
+    public long[] lastChangeOfCustomer(String customerId) {
+        return read(columns -> columns.stampOfCustomer(customerId));
+    }
+
+    /**
+     * Reads every assignment unless that was done already. Done at startup, or by the startup warm-up or the first
+     * read when {@code assignment.startup.warm-up-in-background}.
+     */
+    public void ensureLoaded() {
+        lock.readLock().lock();
+        try {
+            if (assignments != null)
+                return;
+        } finally {
+            lock.readLock().unlock();
+        }
+        catchUp();
+    }
+
+    /**
+     * Applies the changes logged since the last call. Called by the poller.
+     */
+    public void catchUp() {
+        catchUpTo(0);
+    }
+
+    /**
+     * Applies the changes logged since the last call, at least up to {@code upTo} unless a commit before it stays in
+     * flight longer than {@code assignment.replica.own-write-wait-ms}. Called after every write of this instance
+     * with the number of its last change.
+     */
+    public void catchUpTo(long upTo) {
+        long deadline = System.currentTimeMillis() + ownWriteWaitMillis;
+        synchronized (following) {
+            if (assignments == null) {
+                load();
+                return;
+            }
+            List<AssignmentChange> found;
+            do {
+                found = changes.findAfter(sequence, BATCH_SIZE);
+                if (!found.isEmpty() && found.get(0).getSequence() != sequence + 1) {
+                    // Either a crashed commit or changes that expired before they were read
+                    Long first = changes.firstSequence();
+                    if (first != null && sequence + 1 < first) {
+                        LOG.warn("Assignment changes after {} expired, reading all assignments again", sequence);
+                        load();
+                        return;
+                    }
+                }
+                apply(found);
+                if (found.size() < BATCH_SIZE && sequence < upTo) {
+                    if (System.currentTimeMillis() >= deadline) {
+                        LOG.debug("Assignment change {} is held up by a commit still in flight after {}", upTo, sequence);
+                        return;
+                    }
+                    try {
+                        Thread.sleep(GAP_RETRY_MILLIS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            } while (found.size() == BATCH_SIZE || sequence < upTo);
+        }
+    }
+
+    private void apply(List<AssignmentChange> found) {
+        if (found.isEmpty())
+            return;
+        lock.writeLock().lock();
+        try {
+            for (AssignmentChange change : found) {
+                long time = change.getTime() == null ? System.currentTimeMillis() : change.getTime().getTime();
+                if (change.isRemoval())
+                    assignments.remove(change.getAssignmentId(), change.getSequence(), time);
+                else
+                    assignments.put(change.getAssignment(), change.getSequence(), time);
+                sequence = change.getSequence();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Reads every assignment, outside the lock: the reads keep being answered from the previous copy meanwhile.
+     * The log position is taken first, so the writes made during the read are applied again afterwards, which is
+     * harmless: applying a change sets the assignment to its state after that change.
+     */
+    private void load() {
+        synchronized (following) {
+            long start = System.currentTimeMillis();
+            long loadSequence = changes.lastSequence();
+            ColumnarAssignments loaded = new ColumnarAssignments(loadSequence, start, (int) Math.min(repo.count(), Integer.MAX_VALUE));
+            repo.streamAllFromPrimary(null, loaded::append);
+            loaded.sortById();
+            lock.writeLock().lock();
+            try {
+                assignments = loaded;
+                sequence = loadSequence;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            LOG.info("Replicated {} assignments in {} ms", loaded.size(), System.currentTimeMillis() - start);
+        }
+    }
+
+    private static Collection<String> withId(Collection<String> fields) {
+        if (fields == null || fields.contains("id"))
+            return fields;
+        List<String> withId = new ArrayList<>(fields);
+        withId.add("id");
+        return withId;
+    }
+
+    private <T> T read(Function<ColumnarAssignments, T> query) {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            return query.apply(assignments);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        List<Metric<?>> metrics = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            if (assignments != null) {
+                metrics.add(new Metric<>("replica.assignments.size", assignments.size()));
+                metrics.add(new Metric<>("replica.assignments.sequence", sequence));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return metrics;
+    }
+}
@@ -0,0 +1,466 @@
+package be.foreseegroup.micro.resourceservice.assignment.replica;
+
+import be.foreseegroup.micro.resourceservice.assignment.model.Assignment;
+import org.bson.types.ObjectId;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * All assignments held column by column in primitive arrays, one row per assignment. Ids that are ObjectIds are
+ * kept as the three ints of their twelve bytes, other ids as strings. Consultant and customer ids are {@link Dictionary} codes, dates are
+ * days since the epoch (the API only takes whole days, a time of day is dropped) and versions and lastModified are
+ * longs. Rows are kept in id order through a separate array of row numbers, which serves lookups and keyset pages by
+ * binary search, and listed per consultant and per customer code in int posting lists. A removed row is replaced
+ * by the last one, so the arrays stay dense.
+ * <p>
+ * Each write also stamps the lists it touches, all assignments and those of the consultants and customers before and
+ * after it, with the sequence and time of its change. A list not stamped since the load has the stamp of the load.
+ * <p>
+ * Not thread-safe: {@link AssignmentReplica} guards it.
+ */
+final class ColumnarAssignments {
+    private static final long DAY = 86400000L;
+    private static final int NO_DAY = Integer.MIN_VALUE;
+    private static final long NO_VALUE = Long.MIN_VALUE;
+
+    private final Dictionary consultants = new Dictionary();
+    private final Dictionary customers = new Dictionary();
+    private final Postings byConsultant = new Postings();
+    private final Postings byCustomer = new Postings();
+    private final Stamps consultantStamps = new Stamps();
+    private final Stamps customerStamps = new Stamps();
+
+    private final long loadSequence;
+    private final long loadTime;
+    private long sequence;
+    private long time;
+
+    private int size;
+    private int[] idHigh;
+    private int[] idMiddle;
+    private int[] idLow;
+    private String[] otherIds;
+    private int[] consultant;
+    private int[] customer;
+    private int[] startDay;
+    private int[] endDay;
+    private long[] version;
+    private long[] lastModified;
+    private int[] byId;
+
+    ColumnarAssignments(long loadSequence, long loadTime, int capacity) {
+        this.loadSequence = loadSequence;
+        this.loadTime = loadTime;
+        this.sequence = loadSequence;
+        this.time = loadTime;
+        int initial = Math.max(capacity, 16);
+        idHigh = new int[initial];
+        idMiddle = new int[initial];
+        idLow = new int[initial];
+        consultant = new int[initial];
+        customer = new int[initial];
+        startDay = new int[initial];
+        endDay = new int[initial];
+        version = new long[initial];
+        lastModified = new long[initial];
+        byId = new int[initial];
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Adds an assignment while loading, without keeping the id order: call {@link #sortById} once all are appended.
+     * The ids have to be unique.
+     */
+    void append(Assignment assignment) {
+        int row = newRow();
+        write(row, assignment);
+        byId[row] = row;
+    }
+
+    void sortById() {
+        Integer[] rows = new Integer[size];
+        for (int i = 0; i < size; i++)
+            rows[i] = i;
+        Arrays.sort(rows, (a, b) -> compare(a, key(b)));
+        for (int i = 0; i < size; i++)
+            byId[i] = rows[i];
+    }
+
+    /** Adds or overwrites the assignment with the id of {@code assignment}. */
+    void put(Assignment assignment, long changeSequence, long changeTime) {
+        stampAll(changeSequence, changeTime);
+        int position = find(key(assignment.getId()));
+        int row;
+        if (position >= 0) {
+            row = byId[position];
+            stamp(row, changeSequence, changeTime);
+            byConsultant.remove(consultant[row], row);
+            byCustomer.remove(customer[row], row);
+        } else {
+            int insertAt = -position - 1;
+            row = newRow();
+            System.arraycopy(byId, insertAt, byId, insertAt + 1, size - 1 - insertAt);
+            byId[insertAt] = row;
+        }
+        write(row, assignment);
+        stamp(row, changeSequence, changeTime);
+    }
+
+    void remove(String id, long changeSequence, long changeTime) {
+        stampAll(changeSequence, changeTime);
+        int position = find(key(id));
+        if (position < 0)
+            return;
+        int row = byId[position];
+        stamp(row, changeSequence, changeTime);
+        byConsultant.remove(consultant[row], row);
+        byCustomer.remove(customer[row], row);
+        System.arraycopy(byId, position + 1, byId, position, size - 1 - position);
+        int last = --size;
+        if (row != last) {
+            byId[find(key(last))] = row;
+            byConsultant.replace(consultant[last], last, row);
+            byCustomer.replace(customer[last], last, row);
+            idHigh[row] = idHigh[last];
+            idMiddle[row] = idMiddle[last];
+            idLow[row] = idLow[last];
+            if (otherIds != null)
+                otherIds[row] = otherIds[last];
+            consultant[row] = consultant[last];
+            customer[row] = customer[last];
+            startDay[row] = startDay[last];
+            endDay[row] = endDay[last];
+            version[row] = version[last];
+            lastModified[row] = lastModified[last];
+        }
+        if (otherIds != null)
+            otherIds[last] = null;
+    }
+
+    /** @return the assignment, or null when there is none with that id */
+    Assignment get(String id) {
+        int position = find(key(id));
+        return position < 0 ? null : read(byId[position], null);
+    }
+
+    /** Keyset page in id order, starting right after {@code afterId}, or at the first id when it is null. */
+    List<Assignment> pageAfter(String afterId, int limit, Collection<String> fields) {
+        int start = 0;
+        if (afterId != null) {
+            int position = find(key(afterId));
+            start = position >= 0 ? position + 1 : -position - 1;
+        }
+        int end = (int) Math.min((long) start + limit, size);
+        List<Assignment> page = new ArrayList<>(Math.max(end - start, 0));
+        for (int i = start; i < end; i++)
+            page.add(read(byId[i], fields));
+        return page;
+    }
+
+    /** @return the assignments running on {@code at}, in id order */
+    List<Assignment> activeAt(Date at, Collection<String> fields) {
+        int day = day(at);
+        List<Assignment> active = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            int row = byId[i];
+            if (overlaps(row, day, day))
+                active.add(read(row, fields));
+        }
+        return active;
+    }
+
+    /** @return the assignments of the consultant, only those overlapping [from, to] when both are given, in id order */
+    List<Assignment> ofConsultant(String consultantId, Date from, Date to, Collection<String> fields) {
+        return select(byConsultant, consultants.find(consultantId), from, to, fields);
+    }
+
+    /** @return the assignments at the customer, only those overlapping [from, to] when both are given, in id order */
+    List<Assignment> ofCustomer(String customerId, Date from, Date to, Collection<String> fields) {
+        return select(byCustomer, customers.find(customerId), from, to, fields);
+    }
+
+    /**
+     * Hands the periods overlapping [from, to], as start and end in epoch milliseconds, to {@code consumer} per
+     * consultant, ordered by consultant id. Consultants without such a period are skipped.
+     */
+    void forEachConsultant(Date from, Date to, BiConsumer<String, List<long[]>> consumer) {
+        int fromDay = day(from);
+        int toDay = day(to);
+        Integer[] codes = new Integer[consultants.size()];
+        for (int code = 0; code < codes.length; code++)
+            codes[code] = code;
+        Arrays.sort(codes, (a, b) -> consultants.decode(a).compareTo(consultants.decode(b)));
+        for (int code : codes) {
+            int[] rows = byConsultant.rows(code);
+            List<long[]> periods = new ArrayList<>();
+            for (int i = 0; i < byConsultant.size(code); i++) {
+                if (overlaps(rows[i], fromDay, toDay))
+                    periods.add(new long[]{startDay[rows[i]] * DAY, endDay[rows[i]] * DAY});
+            }
+            if (!periods.isEmpty())
+                consumer.accept(consultants.decode(code), periods);
+        }
+    }
+
+    /** @return the sequence and time of the last change to any assignment */
+    long[] stampOfAll() {
+        return new long[]{sequence, time};
+    }
+
+    long[] stampOfConsultant(String consultantId) {
+        return consultantStamps.get(consultants.find(consultantId), loadSequence, loadTime);
+    }
+
+    long[] stampOfCustomer(String customerId) {
+        return customerStamps.get(customers.find(customerId), loadSequence, loadTime);
+    }
+
+    private List<Assignment> select(Postings postings, int code, Date from, Date to, Collection<String> fields) {
+        if (code == Dictionary.NONE)
+            return new ArrayList<>();
+        int[] rows = postings.rows(code);
+        Integer[] selected = new Integer[postings.size(code)];
+        int count = 0;
+        boolean ranged = from != null && to != null;
+        int fromDay = ranged ? day(from) : 0;
+        int toDay = ranged ? day(to) : 0;
+        for (int i = 0; i < selected.length; i++) {
+            if (!ranged || overlaps(rows[i], fromDay, toDay))
+                selected[count++] = rows[i];
+        }
+        Arrays.sort(selected, 0, count, (a, b) -> compare(a, key(b)));
+        List<Assignment> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+            result.add(read(selected[i], fields));
+        return result;
+    }
+
+    private boolean overlaps(int row, int fromDay, int toDay) {
+        return startDay[row] != NO_DAY && endDay[row] != NO_DAY && startDay[row] <= toDay && endDay[row] >= fromDay;
+    }
+
+    private int newRow() {
+        if (size == byId.length) {
+            int capacity = byId.length + (byId.length >> 1);
+            idHigh = Arrays.copyOf(idHigh, capacity);
+            idMiddle = Arrays.copyOf(idMiddle, capacity);
+            idLow = Arrays.copyOf(idLow, capacity);
+            if (otherIds != null)
+                otherIds = Arrays.copyOf(otherIds, capacity);
+            consultant = Arrays.copyOf(consultant, capacity);
+            customer = Arrays.copyOf(customer, capacity);
+            startDay = Arrays.copyOf(startDay, capacity);
+            endDay = Arrays.copyOf(endDay, capacity);
+            version = Arrays.copyOf(version, capacity);
+            lastModified = Arrays.copyOf(lastModified, capacity);
+            byId = Arrays.copyOf(byId, capacity);
+        }
+        return size++;
+    }
+
+    private void write(int row, Assignment assignment) {
+        String id = assignment.getId();
+        if (ObjectId.isValid(id)) {
+            ByteBuffer bytes = ByteBuffer.wrap(new ObjectId(id).toByteArray());
+            idHigh[row] = bytes.getInt();
+            idMiddle[row] = bytes.getInt();
+            idLow[row] = bytes.getInt();
+            if (otherIds != null)
+                otherIds[row] = null;
+        } else {
+            if (otherIds == null)
+                otherIds = new String[byId.length];
+            otherIds[row] = id;
+        }
+        consultant[row] = consultants.encode(assignment.getConsultantId());
+        customer[row] = customers.encode(assignment.getCustomerId());
+        startDay[row] = assignment.getStartDate() == null ? NO_DAY : day(assignment.getStartDate());
+        endDay[row] = assignment.getEndDate() == null ? NO_DAY : day(assignment.getEndDate());
+        version[row] = assignment.getVersion() == null ? NO_VALUE : assignment.getVersion();
+        lastModified[row] = assignment.getLastModified() == null ? NO_VALUE : assignment.getLastModified().getTime();
+        byConsultant.add(consultant[row], row);
+        byCustomer.add(customer[row], row);
+    }
+
+    /** Builds an assignment holding only {@code fields}, the id included only when listed, or all when it is null. */
+    private Assignment read(int row, Collection<String> fields) {
+        Assignment assignment = new Assignment();
+        if (fields == null || fields.contains("id"))
+            assignment.setId(otherIds != null && otherIds[row] != null ? otherIds[row] : objectId(row));
+        if (fields == null || fields.contains("consultantId"))
+            assignment.setConsultantId(consultants.decode(consultant[row]));
+        if (fields == null || fields.contains("customerId"))
+            assignment.setCustomerId(customers.decode(customer[row]));
+        if ((fields == null || fields.contains("startDate")) && startDay[row] != NO_DAY)
+            assignment.setStartDate(new Date(startDay[row] * DAY));
+        if ((fields == null || fields.contains("endDate")) && endDay[row] != NO_DAY)
+            assignment.setEndDate(new Date(endDay[row] * DAY));
+        if ((fields == null || fields.contains("version")) && version[row] != NO_VALUE)
+            assignment.setVersion(version[row]);
+        if (fields == null && lastModified[row] != NO_VALUE)
+            assignment.setLastModified(new Date(lastModified[row]));
+        return assignment;
+    }
+
+    private String objectId(int row) {
+        return new ObjectId(ByteBuffer.allocate(12).putInt(idHigh[row]).putInt(idMiddle[row]).putInt(idLow[row]).array()).toString();
+    }
+
+    private void stampAll(long changeSequence, long changeTime) {
+        sequence = changeSequence;
+        time = changeTime;
+    }
+
+    private void stamp(int row, long changeSequence, long changeTime) {
+        consultantStamps.set(consultant[row], changeSequence, changeTime);
+        customerStamps.set(customer[row], changeSequence, changeTime);
+    }
+
+    /** @return the position of the id in {@link #byId}, or -(insertion point) - 1 when it is not there */
+    private int find(Key key) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = compare(byId[middle], key);
+            if (comparison < 0)
+                low = middle + 1;
+            else if (comparison > 0)
+                high = middle - 1;
+            else
+                return middle;
+        }
+        return -low - 1;
+    }
+
+    /** Compares like Mongo sorts ids: strings before ObjectIds, ObjectIds by their unsigned bytes. */
+    private int compare(int row, Key key) {
+        String other = otherIds == null ? null : otherIds[row];
+        if (other != null || key.other != null) {
+            if (other == null)
+                return 1;
+            return key.other == null ? -1 : other.compareTo(key.other);
+        }
+        int comparison = Integer.compareUnsigned(idHigh[row], key.high);
+        if (comparison == 0)
+            comparison = Integer.compareUnsigned(idMiddle[row], key.middle);
+        if (comparison == 0)
+            comparison = Integer.compareUnsigned(idLow[row], key.low);
+        return comparison;
+    }
+
+    private Key key(int row) {
+        String other = otherIds == null ? null : otherIds[row];
+        return new Key(idHigh[row], idMiddle[row], idLow[row], other);
+    }
+
+    private static Key key(String id) {
+        if (!ObjectId.isValid(id))
+            return new Key(0, 0, 0, id);
+        ByteBuffer bytes = ByteBuffer.wrap(new ObjectId(id).toByteArray());
+        return new Key(bytes.getInt(), bytes.getInt(), bytes.getInt(), null);
+    }
+
+    private static int day(Date date) {
+        return (int) Math.floorDiv(date.getTime(), DAY);
+    }
+
+    private static final class Key {
+        final int high;
+        final int middle;
+        final int low;
+        final String other;
+
+        Key(int high, int middle, int low, String other) {
+            this.high = high;
+            this.middle = middle;
+            this.low = low;
+            this.other = other;
+        }
+    }
+
+    /** Unordered row numbers per code. */
+    private static final class Postings {
+        private int[][] rows = new int[64][];
+        private int[] sizes = new int[64];
+
+        void add(int code, int row) {
+            if (code == Dictionary.NONE)
+                return;
+            if (code >= rows.length) {
+                rows = Arrays.copyOf(rows, Math.max(code + 1, rows.length * 2));
+                sizes = Arrays.copyOf(sizes, rows.length);
+            }
+            int[] list = rows[code];
+            if (list == null)
+                list = rows[code] = new int[2];
+            else if (sizes[code] == list.length)
+                list = rows[code] = Arrays.copyOf(list, list.length * 2);
+            list[sizes[code]++] = row;
+        }
+
+        void remove(int code, int row) {
+            if (code == Dictionary.NONE)
+                return;
+            int[] list = rows[code];
+            for (int i = 0; i < sizes[code]; i++) {
+                if (list[i] == row) {
+                    list[i] = list[--sizes[code]];
+                    return;
+                }
+            }
+        }
+
+        void replace(int code, int row, int by) {
+            if (code == Dictionary.NONE)
+                return;
+            int[] list = rows[code];
+            for (int i = 0; i < sizes[code]; i++) {
+                if (list[i] == row) {
+                    list[i] = by;
+                    return;
+                }
+            }
+        }
+
+        int[] rows(int code) {
+            return code < rows.length && rows[code] != null ? rows[code] : new int[0];
+        }
+
+        int size(int code) {
+            return code < sizes.length ? sizes[code] : 0;
+        }
+    }
+
+    /** Sequence and time of the last change per code. */
+    private static final class Stamps {
+        private long[] sequences = new long[64];
+        private long[] times = new long[64];
+
+        void set(int code, long sequence, long time) {
+            if (code == Dictionary.NONE)
+                return;
+            if (code >= sequences.length) {
+                sequences = Arrays.copyOf(sequences, Math.max(code + 1, sequences.length * 2));
+                times = Arrays.copyOf(times, sequences.length);
+            }
+            sequences[code] = sequence;
+            times[code] = time;
+        }
+
+        long[] get(int code, long loadSequence, long loadTime) {
+            if (code == Dictionary.NONE || code >= sequences.length || sequences[code] <= loadSequence)
+                return new long[]{loadSequence, loadTime};
+            return new long[]{sequences[code], times[code]};
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package be.foreseegroup.micro.resourceservice.assignment.replica;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Dense int codes for strings, handed out in order of first use. Codes are never released, a reload starts over.
+ */
+final class Dictionary {
+    static final int NONE = -1;
+
+    private final Map<String, Integer> codes = new HashMap<>();
+    private String[] values = new String[64];
+
+    /** @return the code of {@code value}, a new one when it was not seen before, {@link #NONE} for null */
+    int encode(String value) {
+        if (value == null)
+            return NONE;
+        Integer code = codes.get(value);
+        if (code != null)
+            return code;
+        int next = codes.size();
+        if (next == values.length)
+            values = Arrays.copyOf(values, next * 2);
+        values[next] = value;
+        codes.put(value, next);
+        return next;
+    }
+
+    /** @return the code of {@code value}, {@link #NONE} when it was not seen before */
+    int find(String value) {
+        Integer code = value == null ? null : codes.get(value);
+        return code != null ? code : NONE;
+    }
+
+    String decode(int code) {
+        return code == NONE ? null : values[code];
+    }
+
+    int size() {
+        return codes.size();
+    }
+}
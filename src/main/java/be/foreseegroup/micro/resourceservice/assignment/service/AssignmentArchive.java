@@ -0,0 +1,85 @@
+package be.foreseegroup.micro.resourceservice.assignment.service;
+
+import be.foreseegroup.micro.resourceservice.assignment.model.Assignment;
+import be.foreseegroup.micro.resourceservice.assignment.mongo.ReadRouting;
+import com.mongodb.ReadPreference;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.IndexOperations;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Reads of the {@value #COLLECTION} collection, the cold tier holding the assignments the {@link AssignmentArchiver}
+ * moved out of the working set. Archived assignments keep their id and version and are read with the same queries
+ * as the hot ones. Present without the archiver too, so assignments archived before it was disabled stay readable.
+ */
+@Component
+public class AssignmentArchive {
+    static final String COLLECTION = "assignmentArchive";
+
+    @Autowired
+    private MongoOperations mongo;
+
+    @Autowired
+    private ReadRouting readRouting;
+
+    /**
+     * Creates the indexes the assignment queries need, the same ones as on the hot collection.
+     */
+    void ensureIndexes() {
+        IndexOperations indexes = mongo.indexOps(COLLECTION);
+        indexes.ensureIndex(new Index().named("consultant_start").on("consultantId", Sort.Direction.ASC).on("startDate", Sort.Direction.ASC));
+        indexes.ensureIndex(new Index().named("customer_start").on("customerId", Sort.Direction.ASC).on("startDate", Sort.Direction.ASC));
+        indexes.ensureIndex(new Index().named("end_start").on("endDate", Sort.Direction.ASC).on("startDate", Sort.Direction.ASC));
+    }
+
+    /**
+     * @return the archived assignment, or null when it is not archived
+     */
+    public Assignment findOne(String id) {
+        return mongo.findById(id, Assignment.class, COLLECTION);
+    }
+
+    /** Archived part of {@link AssignmentRepositoryCustom#findPageAfter}. */
+    public List<Assignment> findPageAfter(String afterId, int limit, Collection<String> fields, ReadPreference readPreference) {
+        return findForList(AssignmentRepositoryImpl.pageAfter(afterId, limit, fields), readPreference);
+    }
+
+    /** Archived part of {@link AssignmentRepositoryCustom#streamAll}. */
+    public void streamAll(Collection<String> fields, Consumer<Assignment> consumer) {
+        AssignmentRepositoryImpl.forEach(mongo, COLLECTION, AssignmentRepositoryImpl.project(new Query(), fields),
+                readRouting.forLists(), consumer);
+    }
+
+    /** Archived part of {@link AssignmentRepositoryCustom#findActiveAtProjected}. */
+    public List<Assignment> findActiveAt(Date at, Collection<String> fields, ReadPreference readPreference) {
+        return findForList(AssignmentRepositoryImpl.project(AssignmentRepositoryImpl.activeAt(at), fields), readPreference);
+    }
+
+    /** Archived part of {@link AssignmentRepositoryCustom#findByConsultantIdProjected}. */
+    public List<Assignment> findByConsultantId(String consultantId, Date from, Date to, Collection<String> fields, ReadPreference readPreference) {
+        return findForList(AssignmentRepositoryImpl.project(AssignmentRepositoryImpl.overlapping("consultantId", consultantId, from, to), fields),
+                readPreference);
+    }
+
+    /** Archived part of {@link AssignmentRepositoryCustom#findByCustomerIdProjected}. */
+    public List<Assignment> findByCustomerId(String customerId, Date from, Date to, Collection<String> fields, ReadPreference readPreference) {
+        return findForList(AssignmentRepositoryImpl.project(AssignmentRepositoryImpl.overlapping("customerId", customerId, from, to), fields),
+                readPreference);
+    }
+
+    private List<Assignment> findForList(Query query, ReadPreference readPreference) {
+        List<Assignment> found = new ArrayList<>();
+        AssignmentRepositoryImpl.forEach(mongo, COLLECTION, query, readPreference, found::add);
+        return found;
+    }
+}
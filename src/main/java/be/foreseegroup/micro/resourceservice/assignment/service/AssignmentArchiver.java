@@ -0,0 +1,208 @@
+package be.foreseegroup.micro.resourceservice.assignment.service;
+
+import be.foreseegroup.micro.resourceservice.assignment.cache.AssignmentCache;
+import be.foreseegroup.micro.resourceservice.assignment.events.ChangeLog;
+import be.foreseegroup.micro.resourceservice.assignment.model.Assignment;
+import be.foreseegroup.micro.resourceservice.assignment.model.AssignmentChange;
+import be.foreseegroup.micro.resourceservice.assignment.replica.AssignmentReplica;
+import com.mongodb.BasicDBObject;
+import com.mongodb.BulkWriteOperation;
+import com.mongodb.DBCollection;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Moves the assignments that ended more than {@code assignment.archive.horizon-days} ago out of the working set into
+ * the {@link AssignmentArchive}, so the indexes, the cache, the conflict index and the replica only hold the
+ * assignments still in use. A background thread moves up to {@code assignment.archive.batch-size} assignments at a
+ * time, oldest end first, pausing {@code assignment.archive.pause-ms} between batches so the archiving never
+ * competes with the requests, and looks again every {@code assignment.archive.interval-ms} once all are moved.
+ * <p>
+ * An assignment is copied to the archive before it is removed from the working set, and only removed in the version
+ * that was copied: one updated or deleted meanwhile stays where it is and its copy is dropped. Every move is an
+ * {@link AssignmentChange.Type#ARCHIVED} change, which the caches, the replica and the followers of the change feed
+ * treat as a delete. Enabled with {@code assignment.archive.enabled=true}, on one instance only.
+ */
+@Component
+@ConditionalOnProperty("assignment.archive.enabled")
+public class AssignmentArchiver implements PublicMetrics {
+    private static final Logger LOG = LoggerFactory.getLogger(AssignmentArchiver.class);
+
+    @Autowired
+    private MongoOperations mongo;
+
+    @Autowired
+    private AssignmentArchive archive;
+
+    @Autowired
+    private ChangeLog changes;
+
+    @Autowired
+    private AssignmentCache cache;
+
+    @Autowired
+    private ListVersions listVersions;
+
+    @Autowired(required = false)
+    private AssignmentReplica replica;
+
+    @Autowired(required = false)
+    private ChangeSubscriptions subscriptions;
+
+    @Value("${assignment.archive.horizon-days:365}")
+    private int horizonDays;
+
+    @Value("${assignment.archive.batch-size:500}")
+    private int batchSize;
+
+    @Value("${assignment.archive.pause-ms:1000}")
+    private long pauseMillis;
+
+    @Value("${assignment.archive.interval-ms:3600000}")
+    private long intervalMillis;
+
+    private final AtomicLong archived = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+
+    private boolean indexed;
+    private volatile boolean running;
+    private Thread thread;
+
+    @PostConstruct
+    void start() {
+        running = true;
+        thread = new Thread(this::run, "assignment-archiver");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        thread.interrupt();
+        thread.join(pauseMillis);
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                Thread.sleep(archiveBatch() < batchSize ? intervalMillis : pauseMillis);
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                LOG.warn("Could not archive assignments: {}", e.getMessage());
+                sleep(intervalMillis);
+            }
+        }
+    }
+
+    /**
+     * Moves one batch of ended assignments to the archive.
+     *
+     * @return the number of assignments found to archive, the batch size when there may be more
+     */
+    synchronized int archiveBatch() {
+        if (!indexed) {
+            archive.ensureIndexes();
+            indexed = true;
+        }
+        DBCollection hot = mongo.getCollection(mongo.getCollectionName(Assignment.class));
+        DBCollection cold = mongo.getCollection(AssignmentArchive.COLLECTION);
+        Date horizon = new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(horizonDays));
+        List<DBObject> ended = new ArrayList<>(batchSize);
+        DBCursor cursor = hot.find(new BasicDBObject("endDate", new BasicDBObject("$lt", horizon)))
+                .sort(new BasicDBObject("endDate", 1)).limit(batchSize);
+        try {
+            while (cursor.hasNext())
+                ended.add(cursor.next());
+        } finally {
+            cursor.close();
+        }
+        if (ended.isEmpty())
+            return 0;
+
+        Date now = new Date();
+        List<AssignmentChange> prepared = new ArrayList<>(ended.size());
+        BulkWriteOperation copy = cold.initializeUnorderedBulkOperation();
+        for (DBObject document : ended) {
+            prepared.add(new AssignmentChange(AssignmentChange.Type.ARCHIVED, mongo.getConverter().read(Assignment.class, document), now));
+            copy.find(new BasicDBObject("_id", document.get("_id"))).upsert().replaceOne(document);
+        }
+        changes.prepare(prepared);
+        copy.execute();
+
+        // One remove per assignment: only its own result tells a move from a concurrent update or delete
+        List<Assignment> moved = new ArrayList<>();
+        List<AssignmentChange> applied = new ArrayList<>();
+        List<AssignmentChange> failed = new ArrayList<>();
+        List<Object> stale = new ArrayList<>();
+        for (int i = 0; i < ended.size(); i++) {
+            DBObject document = ended.get(i);
+            DBObject current = new BasicDBObject("_id", document.get("_id")).append("version", document.get("version"));
+            AssignmentChange change = prepared.get(i);
+            if (hot.remove(current).getN() == 1) {
+                moved.add(change.getAssignment());
+                if (changes.isEnabled())
+                    applied.add(change);
+            } else {
+                stale.add(document.get("_id"));
+                if (changes.isEnabled())
+                    failed.add(change);
+            }
+        }
+        if (!stale.isEmpty())
+            cold.remove(new BasicDBObject("_id", new BasicDBObject("$in", stale)));
+        Assignment[] removed = moved.toArray(new Assignment[moved.size()]);
+        if (removed.length > 0) {
+            cache.invalidate(removed);
+            listVersions.bump(removed);
+        }
+        changes.commit(applied);
+        changes.discard(failed);
+        archived.addAndGet(moved.size());
+        skipped.addAndGet(stale.size());
+
+        if (removed.length > 0) {
+            if (replica != null && !applied.isEmpty())
+                replica.catchUpTo(applied.get(applied.size() - 1).getSequence());
+            if (subscriptions != null)
+                subscriptions.wake();
+        }
+        LOG.info("Archived {} assignments that ended before {}", moved.size(), horizon);
+        return ended.size();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        List<Metric<?>> metrics = new ArrayList<>();
+        metrics.add(new Metric<>("archive.assignments.archived", archived.get()));
+        metrics.add(new Metric<>("archive.assignments.skipped", skipped.get()));
+        return metrics;
+    }
+}
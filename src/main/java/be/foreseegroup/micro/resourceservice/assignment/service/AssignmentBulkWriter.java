@@ -0,0 +1,361 @@
+package be.foreseegroup.micro.resourceservice.assignment.service;
+
+import be.foreseegroup.micro.resourceservice.assignment.cache.AssignmentCache;
+import be.foreseegroup.micro.resourceservice.assignment.conflicts.AssignmentConflicts;
+import be.foreseegroup.micro.resourceservice.assignment.events.ChangeLog;
+import be.foreseegroup.micro.resourceservice.assignment.model.Assignment;
+import be.foreseegroup.micro.resourceservice.assignment.model.AssignmentChange;
+import be.foreseegroup.micro.resourceservice.assignment.model.BulkOperation;
+import be.foreseegroup.micro.resourceservice.assignment.model.BulkResult;
+import be.foreseegroup.micro.resourceservice.assignment.replica.AssignmentReplica;
+import com.mongodb.BasicDBObject;
+import com.mongodb.BulkWriteError;
+import com.mongodb.BulkWriteException;
+import com.mongodb.BulkWriteOperation;
+import com.mongodb.BulkWriteResult;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Runs creates, updates and deletes as Mongo bulk writes of {@code assignment.bulk.batch-size} items.
+ * The operations are pulled from an iterator, so a streamed request is never held in memory as a whole.
+ * <p>
+ * An ordered request stops at the first failing item: the items after it are reported with
+ * {@link HttpStatus#FAILED_DEPENDENCY}. An unordered request runs every valid item.
+ * <p>
+ * With {@code assignment.conflicts.reject-overlapping-creates}, a create overlapping an assignment of the same
+ * consultant, or an earlier create of the same request, is reported with {@link HttpStatus#CONFLICT} like a single
+ * create is.
+ */
+@Component
+public class AssignmentBulkWriter {
+
+    @Autowired
+    private MongoOperations mongo;
+
+    @Autowired
+    private AssignmentCache cache;
+
+    @Autowired
+    private ListVersions listVersions;
+
+    @Autowired
+    private ChangeLog changes;
+
+    @Autowired(required = false)
+    private AssignmentReplica replica;
+
+    @Autowired(required = false)
+    private ChangeSubscriptions subscriptions;
+
+    @Autowired(required = false)
+    private AssignmentConflicts conflicts;
+
+    @Value("${assignment.bulk.batch-size:500}")
+    private int batchSize;
+
+    public List<BulkResult> write(Iterator<BulkOperation> operations, boolean ordered) {
+        List<BulkResult> results = new ArrayList<>();
+        boolean stopped = false;
+        int index = 0;
+        while (operations.hasNext() && !stopped) {
+            List<BulkOperation> batch = new ArrayList<>(batchSize);
+            while (batch.size() < batchSize && operations.hasNext())
+                batch.add(operations.next());
+            stopped = writeBatch(batch, index, ordered, results);
+            index += batch.size();
+        }
+        while (operations.hasNext()) {
+            BulkOperation operation = operations.next();
+            results.add(result(index++, operation, operation.getId(), HttpStatus.FAILED_DEPENDENCY, "Not run, an earlier item failed"));
+        }
+        return results;
+    }
+
+    /**
+     * @return true when an ordered request has to stop
+     */
+    private boolean writeBatch(List<BulkOperation> batch, int firstIndex, boolean ordered, List<BulkResult> results) {
+        DBCollection collection = mongo.getCollection(mongo.getCollectionName(Assignment.class));
+        Map<String, Assignment> existing = findExisting(collection, batch);
+        BulkWriteOperation bulk = ordered ? collection.initializeOrderedBulkOperation() : collection.initializeUnorderedBulkOperation();
+
+        BulkResult[] batchResults = new BulkResult[batch.size()];
+        List<Integer> queued = new ArrayList<>();
+        List<DBObject> inserted = new ArrayList<>();
+        List<Assignment> previous = new ArrayList<>();
+        List<AssignmentChange> batchChanges = new ArrayList<>();
+        List<Assignment> batchCreates = new ArrayList<>();
+        boolean stopped = false;
+        Date now = new Date();
+
+        for (int i = 0; i < batch.size() && !stopped; i++) {
+            BulkOperation operation = batch.get(i);
+            int index = firstIndex + i;
+            BulkResult rejected = validate(index, operation, existing);
+            if (rejected != null) {
+                batchResults[i] = rejected;
+                stopped = ordered;
+                continue;
+            }
+            if (operation.getOp() == BulkOperation.Type.CREATE && overlaps(operation.getAssignment(), batchCreates)) {
+                batchResults[i] = result(index, operation, operation.getAssignment().getId(), HttpStatus.CONFLICT,
+                        "Overlaps another assignment of the consultant");
+                stopped = ordered;
+                continue;
+            }
+            Assignment assignment = operation.getAssignment();
+            DBObject document = null;
+            switch (operation.getOp()) {
+                case CREATE:
+                    assignment.setVersion(0L);
+                    assignment.setLastModified(now);
+                    if (assignment.getId() == null)
+                        assignment.setId(new ObjectId().toString());
+                    AssignmentChange created = change(AssignmentChange.Type.CREATED, assignment.getId(), assignment, now);
+                    assignment.setChangeId(created.getId());
+                    document = toDocument(assignment);
+                    bulk.insert(document);
+                    existing.put(assignment.getId(), assignment);
+                    previous.add(null);
+                    batchChanges.add(created);
+                    batchCreates.add(assignment);
+                    break;
+                case UPDATE:
+                    assignment.setId(operation.getId());
+                    assignment.setLastModified(now);
+                    AssignmentChange change = change(AssignmentChange.Type.UPDATED, operation.getId(), assignment, now);
+                    assignment.setChangeId(change.getId());
+                    bulk.find(byId(operation.getId())).updateOne(toUpdate(assignment));
+                    Assignment replaced = existing.put(operation.getId(), assignment);
+                    previous.add(replaced);
+                    change.recordPrevious(replaced);
+                    batchChanges.add(change);
+                    break;
+                case DELETE:
+                    bulk.find(byId(operation.getId())).removeOne();
+                    Assignment removed = existing.remove(operation.getId());
+                    previous.add(removed);
+                    batchChanges.add(change(AssignmentChange.Type.DELETED, operation.getId(), removed, now));
+                    break;
+            }
+            inserted.add(document);
+            queued.add(i);
+        }
+
+        Map<Integer, String> errors = new HashMap<>();
+        BulkWriteResult written = null;
+        if (!queued.isEmpty()) {
+            changes.prepare(batchChanges);
+            try {
+                written = bulk.execute();
+            } catch (BulkWriteException e) {
+                written = e.getWriteResult();
+                for (BulkWriteError error : e.getWriteErrors())
+                    errors.put(error.getIndex(), error.getMessage());
+            }
+        }
+
+        int firstError = errors.isEmpty() ? Integer.MAX_VALUE : errors.keySet().stream().min(Integer::compare).get();
+        List<String> updated = new ArrayList<>();
+        for (int q = 0; q < queued.size(); q++) {
+            boolean ran = !errors.containsKey(q) && !(ordered && q > firstError);
+            if (ran && batch.get(queued.get(q)).getOp() == BulkOperation.Type.UPDATE)
+                updated.add(batch.get(queued.get(q)).getId());
+        }
+        Set<String> unmatched = unmatched(collection, updated, written);
+        List<Assignment> invalidated = new ArrayList<>();
+        List<AssignmentChange> applied = new ArrayList<>();
+        List<AssignmentChange> failed = new ArrayList<>();
+        for (int q = 0; q < queued.size(); q++) {
+            int i = queued.get(q);
+            BulkOperation operation = batch.get(i);
+            int index = firstIndex + i;
+            boolean ran = !errors.containsKey(q) && !(ordered && q > firstError);
+            boolean missed = ran && operation.getOp() == BulkOperation.Type.UPDATE && unmatched.contains(operation.getId());
+            if (changes.isEnabled())
+                (ran && !missed ? applied : failed).add(batchChanges.get(q));
+            if (errors.containsKey(q)) {
+                batchResults[i] = result(index, operation, operation.getId(), HttpStatus.CONFLICT, errors.get(q));
+            } else if (!ran) {
+                batchResults[i] = null;
+            } else if (missed) {
+                // Like a single update of an assignment that does not exist
+                batchResults[i] = result(index, operation, operation.getId(), HttpStatus.BAD_REQUEST, "Deleted before the update ran");
+            } else if (operation.getOp() == BulkOperation.Type.CREATE) {
+                String id = inserted.get(q).get("_id").toString();
+                operation.getAssignment().setId(id);
+                batchResults[i] = result(index, operation, id, HttpStatus.OK, null);
+                invalidated.add(operation.getAssignment());
+            } else {
+                HttpStatus status = operation.getOp() == BulkOperation.Type.DELETE ? HttpStatus.NO_CONTENT : HttpStatus.OK;
+                batchResults[i] = result(index, operation, operation.getId(), status, null);
+                invalidated.add(previous.get(q));
+                invalidated.add(operation.getAssignment());
+            }
+        }
+        stopped |= ordered && !errors.isEmpty();
+        Assignment[] changed = invalidated.toArray(new Assignment[invalidated.size()]);
+        if (changed.length > 0) {
+            cache.invalidate(changed);
+            listVersions.bump(changed);
+        }
+        changes.commit(applied);
+        changes.discard(failed);
+        if (changed.length > 0) {
+            if (replica != null && !applied.isEmpty())
+                replica.catchUpTo(applied.get(applied.size() - 1).getSequence());
+            if (subscriptions != null)
+                subscriptions.wake();
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            BulkOperation operation = batch.get(i);
+            if (batchResults[i] == null)
+                batchResults[i] = result(firstIndex + i, operation, operation.getId(), HttpStatus.FAILED_DEPENDENCY, "Not run, an earlier item failed");
+            results.add(batchResults[i]);
+        }
+        return stopped;
+    }
+
+    private static BulkResult validate(int index, BulkOperation operation, Map<String, Assignment> existing) {
+        if (operation.getOp() == null)
+            return result(index, operation, operation.getId(), HttpStatus.BAD_REQUEST, "Missing or unreadable op");
+        if (operation.getOp() != BulkOperation.Type.DELETE && operation.getAssignment() == null)
+            return result(index, operation, operation.getId(), HttpStatus.BAD_REQUEST, "Missing assignment");
+        if (operation.getOp() != BulkOperation.Type.DELETE && AssignmentService.isInverted(operation.getAssignment()))
+            return result(index, operation, operation.getId(), HttpStatus.BAD_REQUEST, "Start date after end date");
+        if (operation.getOp() == BulkOperation.Type.CREATE)
+            return null;
+        if (operation.getId() == null)
+            return result(index, operation, null, HttpStatus.BAD_REQUEST, "Missing id");
+        if (!existing.containsKey(operation.getId()))
+            return result(index, operation, operation.getId(), HttpStatus.NOT_FOUND, "Unknown id");
+        return null;
+    }
+
+    /**
+     * @return true when overlapping creates are rejected and {@code assignment} overlaps an assignment of its
+     * consultant, those created earlier in the batch included: the conflict index only sees them once committed
+     */
+    private boolean overlaps(Assignment assignment, List<Assignment> batchCreates) {
+        if (conflicts == null || !conflicts.isRejectingOverlappingCreates())
+            return false;
+        for (Assignment created : batchCreates) {
+            if (Objects.equals(created.getConsultantId(), assignment.getConsultantId())
+                    && start(assignment) <= end(created) && start(created) <= end(assignment))
+                return true;
+        }
+        return !conflicts.conflictsWith(assignment).isEmpty();
+    }
+
+    private static long start(Assignment assignment) {
+        return assignment.getStartDate() == null ? Long.MIN_VALUE : assignment.getStartDate().getTime();
+    }
+
+    private static long end(Assignment assignment) {
+        return assignment.getEndDate() == null ? Long.MAX_VALUE : assignment.getEndDate().getTime();
+    }
+
+    /**
+     * @return the ids of the updates that matched no assignment: deleted after {@link #findExisting} read them. Only
+     * looked up when the bulk write matched fewer assignments than it updated
+     */
+    private static Set<String> unmatched(DBCollection collection, List<String> updated, BulkWriteResult written) {
+        Set<String> unmatched = new HashSet<>();
+        if (updated.isEmpty() || written == null || written.getMatchedCount() >= updated.size())
+            return unmatched;
+        Set<Object> ids = new HashSet<>();
+        for (String id : updated) {
+            unmatched.add(id);
+            ids.add(toMongoId(id));
+        }
+        for (DBObject document : collection.find(new BasicDBObject("_id", new BasicDBObject("$in", ids)), new BasicDBObject("_id", 1)))
+            unmatched.remove(document.get("_id").toString());
+        return unmatched;
+    }
+
+    /**
+     * Loads the current consultant and customer of every assignment the batch updates or deletes with a
+     * single query, to report unknown ids per item and to invalidate the caches of the old state.
+     */
+    private Map<String, Assignment> findExisting(DBCollection collection, List<BulkOperation> batch) {
+        Set<Object> ids = new HashSet<>();
+        for (BulkOperation operation : batch) {
+            if (operation.getOp() != null && operation.getOp() != BulkOperation.Type.CREATE && operation.getId() != null)
+                ids.add(toMongoId(operation.getId()));
+        }
+        Map<String, Assignment> existing = new HashMap<>();
+        if (ids.isEmpty())
+            return existing;
+        DBObject query = new BasicDBObject("_id", new BasicDBObject("$in", ids));
+        DBObject fields = new BasicDBObject("consultantId", 1).append("customerId", 1);
+        for (DBObject document : collection.find(query, fields)) {
+            String id = document.get("_id").toString();
+            existing.put(id, new Assignment(id, (String) document.get("consultantId"), (String) document.get("customerId"), null, null));
+        }
+        return existing;
+    }
+
+    private DBObject toDocument(Assignment assignment) {
+        DBObject document = new BasicDBObject();
+        mongo.getConverter().write(assignment, document);
+        return document;
+    }
+
+    /**
+     * Same update as {@link AssignmentRepositoryCustom#updateFields}, so bulk updates also bump the version.
+     */
+    private static DBObject toUpdate(Assignment assignment) {
+        DBObject fields = new BasicDBObject("consultantId", assignment.getConsultantId())
+                .append("customerId", assignment.getCustomerId())
+                .append("startDate", assignment.getStartDate())
+                .append("endDate", assignment.getEndDate())
+                .append("lastModified", assignment.getLastModified())
+                .append("changeId", assignment.getChangeId());
+        return new BasicDBObject("$set", fields).append("$inc", new BasicDBObject("version", 1));
+    }
+
+    /**
+     * A change of the bulk write, recorded in the change log before the write. Its id is taken up front, to write
+     * the assignment with. The version of an update is not known up front, so bulk updates are published without one.
+     */
+    private static AssignmentChange change(AssignmentChange.Type type, String id, Assignment assignment, Date now) {
+        Assignment state = assignment == null ? new Assignment(id, null, null, null, null)
+                : new Assignment(id, assignment.getConsultantId(), assignment.getCustomerId(), assignment.getStartDate(), assignment.getEndDate());
+        if (type == AssignmentChange.Type.CREATED)
+            state.setVersion(0L);
+        state.setLastModified(type == AssignmentChange.Type.DELETED ? null : now);
+        AssignmentChange change = new AssignmentChange(type, state, now);
+        change.setId(new ObjectId().toString());
+        return change;
+    }
+
+    private static DBObject byId(String id) {
+        return new BasicDBObject("_id", toMongoId(id));
+    }
+
+    private static Object toMongoId(String id) {
+        return ObjectId.isValid(id) ? new ObjectId(id) : id;
+    }
+
+    private static BulkResult result(int index, BulkOperation operation, String id, HttpStatus status, String error) {
+        return new BulkResult(index, operation.getOp(), id, status.value(), error);
+    }
+}
@@ -0,0 +1,165 @@
+package be.foreseegroup.micro.resourceservice.assignment.service;
+
+import be.foreseegroup.micro.resourceservice.assignment.metrics.RequestMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Runs the handler bodies of {@link AssignmentService} on a bounded pool, so a slow Mongo holds a pool thread
+ * instead of a servlet container thread. When all {@code assignment.async.pool-size} threads are busy and
+ * {@code assignment.async.queue-capacity} handlers are waiting, a request is answered with
+ * SERVICE_UNAVAILABLE (503) right away; so is a request still waiting after {@code assignment.async.timeout-ms}.
+ * A write that is still running then is answered with GATEWAY_TIMEOUT (504) instead, without Retry-After: it may
+ * still be applied, and a retry could apply it twice.
+ * With {@code assignment.async.enabled} off the handlers run on the calling thread.
+ * <p>
+ * An interceptor can take a request over by putting a handler in the {@link #TAKEOVER_ATTRIBUTE} request
+ * attribute, the sharding forwarding to the owner of a consultant does: it then runs in place of the handler of the
+ * endpoint, on the same pool and with the same timeout, and the handler of the endpoint only runs when it answers null.
+ */
+@Component
+public class AssignmentExecutor implements PublicMetrics {
+    public static final String TAKEOVER_ATTRIBUTE = AssignmentExecutor.class.getName() + ".takeover";
+    private static final String RETRY_AFTER_SECONDS = "1";
+
+    @Value("${assignment.async.enabled:true}")
+    private boolean enabled;
+
+    @Value("${assignment.async.pool-size:32}")
+    private int poolSize;
+
+    @Value("${assignment.async.queue-capacity:64}")
+    private int queueCapacity;
+
+    @Value("${assignment.async.timeout-ms:10000}")
+    private long timeoutMillis;
+
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    void init() {
+        if (enabled)
+            executor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueCapacity),
+                    new CustomizableThreadFactory("assignment-async-"), new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (executor != null)
+            executor.shutdown();
+    }
+
+    public <T> DeferredResult<ResponseEntity<T>> submit(Supplier<ResponseEntity<T>> handler) {
+        return submit(handler, false);
+    }
+
+    /**
+     * {@link #submit} of a handler that writes, answered with GATEWAY_TIMEOUT (504) when it times out after it started.
+     */
+    public <T> DeferredResult<ResponseEntity<T>> submitWrite(Supplier<ResponseEntity<T>> handler) {
+        return submit(handler, true);
+    }
+
+    private <T> DeferredResult<ResponseEntity<T>> submit(Supplier<ResponseEntity<T>> endpoint, boolean write) {
+        Supplier<ResponseEntity<T>> handler = takenOver(endpoint);
+        DeferredResult<ResponseEntity<T>> result = new DeferredResult<>(timeoutMillis);
+        if (executor == null) {
+            complete(result, handler);
+            return result;
+        }
+        // Whoever flips this first decides: the pool thread runs the handler, or the timeout answers for it unrun
+        AtomicBoolean started = new AtomicBoolean();
+        result.onTimeout(() -> {
+            timedOut.incrementAndGet();
+            result.setResult(!started.compareAndSet(false, true) && write ? gatewayTimeout() : unavailable());
+        });
+        // The request is recycled once it completes, possibly before the handler does: hand over its metrics only
+        RequestMetrics metrics = RequestMetrics.current();
+        try {
+            executor.execute(() -> {
+                if (!started.compareAndSet(false, true))
+                    return;
+                RequestMetrics.bind(metrics);
+                try {
+                    complete(result, handler);
+                } finally {
+                    RequestMetrics.bind(null);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            result.setResult(unavailable());
+        }
+        return result;
+    }
+
+    /** @return the handler an interceptor put in place of {@code endpoint}, falling back to it, or {@code endpoint} */
+    @SuppressWarnings("unchecked")
+    private static <T> Supplier<ResponseEntity<T>> takenOver(Supplier<ResponseEntity<T>> endpoint) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        Supplier<ResponseEntity<?>> takeover = attributes == null ? null
+                : (Supplier<ResponseEntity<?>>) attributes.getAttribute(TAKEOVER_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (takeover == null)
+            return endpoint;
+        // The body of the answer is not a T, but the message converters go by the class of the body itself
+        return () -> {
+            ResponseEntity<T> answer = (ResponseEntity<T>) takeover.get();
+            return answer != null ? answer : endpoint.get();
+        };
+    }
+
+    private static <T> void complete(DeferredResult<ResponseEntity<T>> result, Supplier<ResponseEntity<T>> handler) {
+        try {
+            result.setResult(handler.get());
+        } catch (RuntimeException e) {
+            result.setErrorResult(e);
+        }
+    }
+
+    private static <T> ResponseEntity<T> unavailable() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS);
+        return new ResponseEntity<>(headers, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    private static <T> ResponseEntity<T> gatewayTimeout() {
+        return new ResponseEntity<>(HttpStatus.GATEWAY_TIMEOUT);
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        List<Metric<?>> metrics = new ArrayList<>();
+        metrics.add(new Metric<>("executor.assignments.rejected", rejected.get()));
+        metrics.add(new Metric<>("executor.assignments.timedOut", timedOut.get()));
+        if (executor != null) {
+            metrics.add(new Metric<>("executor.assignments.active", executor.getActiveCount()));
+            metrics.add(new Metric<>("executor.assignments.queued", executor.getQueue().size()));
+        }
+        return metrics;
+    }
+}
@@ -2,11 +2,26 @@ package be.foreseegroup.micro.resourceservice.assignment.service;
 
 import be.foreseegroup.micro.resourceservice.assignment.model.Assignment;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+
+import java.util.Date;
 
 /**
  * Created by Kaj on 24/09/15.
  */
-public interface AssignmentRepository extends MongoRepository<Assignment, String> {
+public interface AssignmentRepository extends MongoRepository<Assignment, String>, AssignmentRepositoryCustom {
     Iterable<Assignment> findByConsultantId(String consultantId);
     Iterable<Assignment> findByCustomerId(String customerId);
+
+    /** Assignments running on {@code at}, bounded by the (endDate, startDate) index. */
+    @Query("{ 'endDate': { $gte: ?0 }, 'startDate': { $lte: ?0 } }")
+    Iterable<Assignment> findActiveAt(Date at);
+
+    /** Assignments of a consultant overlapping [from, to], bounded by the (consultantId, startDate) index. */
+    @Query("{ 'consultantId': ?0, 'startDate': { $lte: ?2 }, 'endDate': { $gte: ?1 } }")
+    Iterable<Assignment> findByConsultantIdOverlapping(String consultantId, Date from, Date to);
+
+    /** Assignments of a customer overlapping [from, to], bounded by the (customerId, startDate) index. */
+    @Query("{ 'customerId': ?0, 'startDate': { $lte: ?2 }, 'endDate': { $gte: ?1 } }")
+    Iterable<Assignment> findByCustomerIdOverlapping(String customerId, Date from, Date to);
 }
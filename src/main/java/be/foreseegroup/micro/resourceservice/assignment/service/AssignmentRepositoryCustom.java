@@ -0,0 +1,72 @@
+package be.foreseegroup.micro.resourceservice.assignment.service;
+
+import be.foreseegroup.micro.resourceservice.assignment.model.Assignment;
+import com.mongodb.ReadPreference;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Repository operations that can not be expressed as derived queries. Where a method takes {@code fields},
+ * only those assignment properties are read from Mongo, or all of them when {@code fields} is null. Where a method
+ * takes a {@code readPreference}, the assignments are read with it.
+ */
+public interface AssignmentRepositoryCustom {
+
+    /**
+     * Keyset page: at most {@code limit} assignments ordered by id, starting right after {@code afterId}
+     * (or at the beginning of the collection when {@code afterId} is null). The id is always read.
+     */
+    List<Assignment> findPageAfter(String afterId, int limit, Collection<String> fields, ReadPreference readPreference);
+
+    /**
+     * Hands every assignment to {@code consumer} while the Mongo cursor is iterated,
+     * without collecting the collection in memory.
+     */
+    void streamAll(Collection<String> fields, Consumer<Assignment> consumer);
+
+    /**
+     * {@link #streamAll} reading from the primary, for copies of the collection that go on to follow the change log
+     * and so must not miss a write that a secondary has not replicated yet.
+     */
+    void streamAllFromPrimary(Collection<String> fields, Consumer<Assignment> consumer);
+
+    /** Projected {@link AssignmentRepository#findActiveAt(Date)}. */
+    List<Assignment> findActiveAtProjected(Date at, Collection<String> fields, ReadPreference readPreference);
+
+    /** Assignments of a consultant, only those overlapping [from, to] when both bounds are given. */
+    List<Assignment> findByConsultantIdProjected(String consultantId, Date from, Date to, Collection<String> fields, ReadPreference readPreference);
+
+    /** Assignments of a customer, only those overlapping [from, to] when both bounds are given. */
+    List<Assignment> findByCustomerIdProjected(String customerId, Date from, Date to, Collection<String> fields, ReadPreference readPreference);
+
+    /**
+     * @return the assignment with only its id, version and lastModified read, or null when it does not exist
+     */
+    Assignment findVersion(String id);
+
+    /**
+     * Inserts a new assignment. Unlike {@code save}, never overwrites an assignment with the same id.
+     *
+     * @return the inserted assignment
+     * @throws org.springframework.dao.DuplicateKeyException when an assignment with that id exists
+     */
+    Assignment insertNew(Assignment assignment);
+
+    /**
+     * Atomically overwrites consultantId, customerId, startDate, endDate, lastModified and changeId and increments the
+     * version, in a single round-trip. When {@code expectedVersion} is given, the update only applies to that version.
+     *
+     * @return the assignment as it was before the update, or null when no assignment matched
+     */
+    Assignment updateFields(String id, Long expectedVersion, Assignment values);
+
+    /**
+     * Atomically removes an assignment in a single round-trip.
+     *
+     * @return the removed assignment, or null when it did not exist
+     */
+    Assignment removeById(String id);
+}
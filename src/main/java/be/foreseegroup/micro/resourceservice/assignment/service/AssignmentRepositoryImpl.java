@@ -0,0 +1,173 @@
+package be.foreseegroup.micro.resourceservice.assignment.service;
+
+import be.foreseegroup.micro.resourceservice.assignment.model.Assignment;
+import be.foreseegroup.micro.resourceservice.assignment.mongo.ReadRouting;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import com.mongodb.ReadPreference;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Implementation of {@link AssignmentRepositoryCustom}, picked up by Spring Data through the Impl suffix.
+ * The list reads use the read preference they are given, or that {@link ReadRouting#forLists()} hands out for the
+ * streams, set on their own cursor.
+ */
+public class AssignmentRepositoryImpl implements AssignmentRepositoryCustom {
+
+    @Autowired
+    private MongoOperations mongo;
+
+    @Autowired
+    private ReadRouting readRouting;
+
+    @Override
+    public List<Assignment> findPageAfter(String afterId, int limit, Collection<String> fields, ReadPreference readPreference) {
+        return findForList(pageAfter(afterId, limit, fields), readPreference);
+    }
+
+    @Override
+    public void streamAll(Collection<String> fields, Consumer<Assignment> consumer) {
+        forEach(project(new Query(), fields), readRouting.forLists(), consumer);
+    }
+
+    @Override
+    public void streamAllFromPrimary(Collection<String> fields, Consumer<Assignment> consumer) {
+        forEach(project(new Query(), fields), ReadPreference.primary(), consumer);
+    }
+
+    @Override
+    public List<Assignment> findActiveAtProjected(Date at, Collection<String> fields, ReadPreference readPreference) {
+        return findForList(project(activeAt(at), fields), readPreference);
+    }
+
+    @Override
+    public List<Assignment> findByConsultantIdProjected(String consultantId, Date from, Date to, Collection<String> fields,
+                                                        ReadPreference readPreference) {
+        return findForList(project(overlapping("consultantId", consultantId, from, to), fields), readPreference);
+    }
+
+    @Override
+    public List<Assignment> findByCustomerIdProjected(String customerId, Date from, Date to, Collection<String> fields,
+                                                      ReadPreference readPreference) {
+        return findForList(project(overlapping("customerId", customerId, from, to), fields), readPreference);
+    }
+
+    private List<Assignment> findForList(Query query, ReadPreference readPreference) {
+        List<Assignment> found = new ArrayList<>();
+        forEach(query, readPreference, found::add);
+        return found;
+    }
+
+    private void forEach(Query query, ReadPreference readPreference, Consumer<Assignment> consumer) {
+        forEach(mongo, mongo.getCollectionName(Assignment.class), query, readPreference, consumer);
+    }
+
+    /**
+     * Runs {@code query} on {@code collectionName} like {@link MongoOperations#find} does, but with {@code readPreference}
+     * set on the cursor: the preference of the template applies to the collection shared by all requests.
+     */
+    static void forEach(MongoOperations mongo, String collectionName, Query query, ReadPreference readPreference, Consumer<Assignment> consumer) {
+        MongoPersistentEntity<?> entity = mongo.getConverter().getMappingContext().getPersistentEntity(Assignment.class);
+        QueryMapper mapper = new QueryMapper(mongo.getConverter());
+        DBObject fields = query.getFieldsObject() == null ? null : mapper.getMappedFields(query.getFieldsObject(), entity);
+        mongo.execute(collectionName, collection -> {
+            DBCursor cursor = collection.find(mapper.getMappedObject(query.getQueryObject(), entity), fields)
+                    .setReadPreference(readPreference);
+            if (query.getSortObject() != null)
+                cursor.sort(mapper.getMappedSort(query.getSortObject(), entity));
+            if (query.getLimit() > 0)
+                cursor.limit(query.getLimit());
+            try {
+                while (cursor.hasNext())
+                    consumer.accept(mongo.getConverter().read(Assignment.class, cursor.next()));
+            } finally {
+                cursor.close();
+            }
+            return null;
+        });
+    }
+
+    /** Query of {@link #findPageAfter}: the page after {@code afterId} in id order, reading the id in any case. */
+    static Query pageAfter(String afterId, int limit, Collection<String> fields) {
+        Collection<String> read = fields;
+        if (fields != null && !fields.contains("id")) {
+            read = new ArrayList<>(fields);
+            read.add("id");
+        }
+        Query query = project(new Query(), read).with(new Sort(Sort.Direction.ASC, "id")).limit(limit);
+        if (afterId != null)
+            query.addCriteria(Criteria.where("id").gt(ObjectId.isValid(afterId) ? new ObjectId(afterId) : afterId));
+        return query;
+    }
+
+    static Query activeAt(Date at) {
+        return new Query(Criteria.where("endDate").gte(at).and("startDate").lte(at));
+    }
+
+    static Query overlapping(String key, String value, Date from, Date to) {
+        Criteria criteria = Criteria.where(key).is(value);
+        if (from != null && to != null)
+            criteria.and("startDate").lte(to).and("endDate").gte(from);
+        return new Query(criteria);
+    }
+
+    /** Restricts the query to {@code fields}, the id is left out unless it is one of them. */
+    static Query project(Query query, Collection<String> fields) {
+        if (fields != null) {
+            fields.forEach(query.fields()::include);
+            if (!fields.contains("id"))
+                query.fields().exclude("id");
+        }
+        return query;
+    }
+
+    @Override
+    public Assignment findVersion(String id) {
+        Query query = new Query(Criteria.where("id").is(id));
+        query.fields().include("version").include("lastModified");
+        return mongo.findOne(query, Assignment.class);
+    }
+
+    @Override
+    public Assignment insertNew(Assignment assignment) {
+        mongo.insert(assignment);
+        return assignment;
+    }
+
+    @Override
+    public Assignment updateFields(String id, Long expectedVersion, Assignment values) {
+        Query query = new Query(Criteria.where("id").is(id));
+        if (expectedVersion != null && expectedVersion == 0)
+            query.addCriteria(Criteria.where("version").in(0L, null));
+        else if (expectedVersion != null)
+            query.addCriteria(Criteria.where("version").is(expectedVersion));
+        Update update = new Update()
+                .set("consultantId", values.getConsultantId())
+                .set("customerId", values.getCustomerId())
+                .set("startDate", values.getStartDate())
+                .set("endDate", values.getEndDate())
+                .set("lastModified", values.getLastModified())
+                .set("changeId", values.getChangeId())
+                .inc("version", 1);
+        return mongo.findAndModify(query, update, Assignment.class);
+    }
+
+    @Override
+    public Assignment removeById(String id) {
+        return mongo.findAndRemove(new Query(Criteria.where("id").is(id)), Assignment.class);
+    }
+}
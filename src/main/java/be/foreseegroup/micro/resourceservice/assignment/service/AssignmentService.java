@@ -1,12 +1,49 @@
 package be.foreseegroup.micro.resourceservice.assignment.service;
 
+import be.foreseegroup.micro.resourceservice.assignment.cache.AssignmentCache;
+import be.foreseegroup.micro.resourceservice.assignment.conflicts.AssignmentConflicts;
+import be.foreseegroup.micro.resourceservice.assignment.events.ChangeLog;
+import be.foreseegroup.micro.resourceservice.assignment.metrics.RequestMetrics;
 import be.foreseegroup.micro.resourceservice.assignment.model.Assignment;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import be.foreseegroup.micro.resourceservice.assignment.model.AssignmentChange;
+import be.foreseegroup.micro.resourceservice.assignment.model.BatchGetResult;
+import be.foreseegroup.micro.resourceservice.assignment.model.BulkOperation;
+import be.foreseegroup.micro.resourceservice.assignment.model.BulkResult;
+import be.foreseegroup.micro.resourceservice.assignment.model.Conflict;
+import be.foreseegroup.micro.resourceservice.assignment.model.Utilization;
+import be.foreseegroup.micro.resourceservice.assignment.mongo.ReadRouting;
+import be.foreseegroup.micro.resourceservice.assignment.replica.AssignmentReplica;
+import be.foreseegroup.micro.resourceservice.assignment.utilization.UtilizationReport;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.ReadPreference;
+import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * Created by Kaj on 24/09/15.
@@ -14,69 +51,717 @@ import org.springframework.web.bind.annotation.*;
 
 @RestController
 public class AssignmentService {
-    private static final Logger LOG = LoggerFactory.getLogger(AssignmentService.class);
+    static final String CONTINUATION_TOKEN_HEADER = "X-Continuation-Token";
+    static final String NDJSON_VALUE = "application/x-ndjson";
+    static final String LAST_EVENT_ID_HEADER = "Last-Event-ID";
 
     @Autowired
     AssignmentRepository repo;
 
+    @Autowired
+    AssignmentCache cache;
+
+    @Autowired
+    AssignmentBulkWriter bulkWriter;
+
+    @Autowired
+    AssignmentExecutor executor;
+
+    @Autowired
+    ListVersions listVersions;
+
+    @Autowired
+    ChangeLog changes;
+
+    @Autowired
+    AssignmentArchive archive;
+
+    @Autowired(required = false)
+    AssignmentConflicts conflicts;
+
+    @Autowired(required = false)
+    AssignmentReplica replica;
+
+    @Autowired(required = false)
+    ChangeSubscriptions subscriptions;
+
+    @Autowired
+    UtilizationReport utilization;
+
+    @Autowired
+    ReadRouting readRouting;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Value("${assignment.paging.default-size:500}")
+    int defaultPageSize;
+
+    @Value("${assignment.paging.max-size:5000}")
+    int maxPageSize;
+
+    /**
+     * Returns one keyset page of assignments ordered by id. When the page is full, the token to fetch
+     * the next page is returned in the {@value #CONTINUATION_TOKEN_HEADER} header.
+     * With {@code fields}, e.g. {@code fields=id,consultantId}, only the listed properties are read and returned.
+     * With {@code includeArchived} the pages run over the archived assignments too, in the same id order.
+     * The ETag is the version of the whole collection, left out when the page is read from a secondary.
+     */
     @RequestMapping(method = RequestMethod.GET, value = "/assignments")
-    public ResponseEntity<Iterable<Assignment>> getAll() {
-        Iterable<Assignment> assignments = repo.findAll();
-        LOG.info("/assignments getAll method called, response size: {}", repo.count());
-        return new ResponseEntity<>(assignments, HttpStatus.OK);
+    public DeferredResult<ResponseEntity<Iterable<Assignment>>> getAll(@RequestParam(required = false) Integer limit,
+                                                                       @RequestParam(required = false) String token,
+                                                                       @RequestParam(required = false) String fields,
+                                                                       @RequestParam(defaultValue = "false") boolean includeArchived,
+                                                                       @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        Set<String> selected = fields == null ? null : SparseFields.parse(fields);
+        if (fields != null && selected == null)
+            return immediate(new ResponseEntity<>(HttpStatus.BAD_REQUEST));
+        int pageSize = limit == null ? defaultPageSize : limit;
+        if (pageSize < 1 || pageSize > maxPageSize)
+            return immediate(new ResponseEntity<>(HttpStatus.BAD_REQUEST));
+        String afterId;
+        if (token != null) {
+            afterId = ContinuationToken.decode(token);
+            if (afterId == null)
+                return immediate(new ResponseEntity<>(HttpStatus.BAD_REQUEST));
+        } else {
+            afterId = null;
+        }
+        return executor.submit(() -> {
+            ReadPreference preference = listPreference(replica == null || includeArchived);
+            HttpHeaders headers = versionHeaders(listVersions.get(ListVersions.ALL), includeArchived);
+            if (ifNoneMatch != null && ETags.matches(ifNoneMatch, headers.getETag()))
+                return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
+            headers = unlessSecondary(headers, preference);
+            List<Assignment> assignments = replica != null
+                    ? replica.findPageAfter(afterId, pageSize, selected)
+                    : repo.findPageAfter(afterId, pageSize, selected, preference);
+            if (includeArchived)
+                assignments = mergeById(assignments, archive.findPageAfter(afterId, pageSize, selected, preference), pageSize);
+            if (assignments.size() == pageSize)
+                headers.set(CONTINUATION_TOKEN_HEADER, ContinuationToken.encode(assignments.get(pageSize - 1).getId()));
+            if (selected != null && !selected.contains("id"))
+                assignments.forEach(assignment -> assignment.setId(null));
+            return new ResponseEntity<>(assignments, headers, HttpStatus.OK);
+        });
+    }
+
+    /**
+     * Streams the whole collection as newline delimited JSON, writing every document as soon as
+     * the Mongo cursor yields it, or the replica a page of it. With {@code includeArchived} the archived assignments
+     * follow. Runs on the container thread, which writes the response itself.
+     */
+    @RequestMapping(method = RequestMethod.GET, value = "/assignments", produces = NDJSON_VALUE)
+    public void streamAll(@RequestParam(required = false) String fields,
+                          @RequestParam(defaultValue = "false") boolean includeArchived,
+                          HttpServletResponse response) throws IOException {
+        Set<String> selected = fields == null ? null : SparseFields.parse(fields);
+        if (fields != null && selected == null) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+            return;
+        }
+        writeNdjson(response, (Consumer<Assignment> consumer) -> {
+            if (replica != null)
+                replica.streamAll(selected, consumer);
+            else
+                repo.streamAll(selected, consumer);
+            if (includeArchived)
+                archive.streamAll(selected, consumer);
+        });
     }
 
+    /**
+     * Returns an assignment with its version as ETag. An If-None-Match holding the current version is answered
+     * with NOT_MODIFIED (304), checked against the cache or by reading only the version from Mongo.
+     * With {@code includeArchived} an assignment that is not in the working set is looked up in the archive.
+     */
     @RequestMapping(method = RequestMethod.GET, value = "/assignments/{id}")
-    public ResponseEntity<Assignment> getById(@PathVariable String id) {
-        LOG.info("/assignments getById method called");
-        Assignment assignment = repo.findOne(id);
-        if (assignment == null)
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
-        return new ResponseEntity<>(assignment, HttpStatus.OK);
+    public DeferredResult<ResponseEntity<Assignment>> getById(@PathVariable String id,
+                                                              @RequestParam(defaultValue = "false") boolean includeArchived,
+                                                              @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (replica != null)
+            return executor.submit(() -> {
+                Assignment assignment = replica.findOne(id);
+                if (assignment == null)
+                    return includeArchived ? getArchived(id, ifNoneMatch) : new ResponseEntity<>(HttpStatus.NOT_FOUND);
+                HttpHeaders headers = versionHeaders(assignment);
+                if (ifNoneMatch != null && ETags.matches(ifNoneMatch, headers.getETag()))
+                    return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
+                return new ResponseEntity<>(assignment, headers, HttpStatus.OK);
+            });
+        return executor.submit(() -> {
+            if (ifNoneMatch != null) {
+                Assignment current = cache.peekById(id);
+                if (current == null)
+                    current = repo.findVersion(id);
+                if (current == null)
+                    return includeArchived ? getArchived(id, ifNoneMatch) : new ResponseEntity<>(HttpStatus.NOT_FOUND);
+                HttpHeaders headers = versionHeaders(current);
+                if (ETags.matches(ifNoneMatch, headers.getETag()))
+                    return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
+            }
+            Assignment assignment = cache.getById(id, repo::findOne);
+            if (assignment == null)
+                return includeArchived ? getArchived(id, ifNoneMatch) : new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            return new ResponseEntity<>(assignment, versionHeaders(assignment), HttpStatus.OK);
+        });
     }
 
+    /**
+     * Returns the assignments with the ids in the body, a JSON array, reading all ids that are not cached with a
+     * single Mongo query. Ids that do not exist are listed as missing. With {@code ordered} the assignments follow
+     * the order of the ids, otherwise the cached ones come first. At most {@code assignment.paging.max-size} ids.
+     */
+    @RequestMapping(method = RequestMethod.POST, value = "/assignments/batch-get")
+    public DeferredResult<ResponseEntity<BatchGetResult>> batchGet(@RequestBody List<String> ids,
+                                                                   @RequestParam(defaultValue = "false") boolean ordered) {
+        if (ids.size() > maxPageSize || ids.contains(null))
+            return immediate(new ResponseEntity<>(HttpStatus.BAD_REQUEST));
+        Set<String> requested = new LinkedHashSet<>(ids);
+        return executor.submit(() -> {
+            Map<String, Assignment> found = replica != null ? replica.findAll(requested) : cache.getAllById(requested, repo::findAll);
+            List<Assignment> assignments = new ArrayList<>(found.size());
+            List<String> missing = new ArrayList<>();
+            for (String id : requested) {
+                Assignment assignment = found.get(id);
+                if (assignment == null)
+                    missing.add(id);
+                else if (ordered)
+                    assignments.add(assignment);
+            }
+            if (!ordered)
+                assignments.addAll(found.values());
+            return new ResponseEntity<>(new BatchGetResult(assignments, missing), HttpStatus.OK);
+        });
+    }
+
+    /**
+     * {@link #batchGet} with the ids as a comma separated {@code ids} parameter.
+     */
+    @RequestMapping(method = RequestMethod.GET, value = "/assignments/batch-get")
+    public DeferredResult<ResponseEntity<BatchGetResult>> batchGetByParameter(@RequestParam List<String> ids,
+                                                                              @RequestParam(defaultValue = "false") boolean ordered) {
+        return batchGet(ids, ordered);
+    }
+
+    @RequestMapping(method = RequestMethod.GET, value = "/assignments/active")
+    public DeferredResult<ResponseEntity<Iterable<Assignment>>> getActive(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Date at,
+                                                                          @RequestParam(required = false) String fields,
+                                                                          @RequestParam(defaultValue = "false") boolean includeArchived,
+                                                                          @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        Set<String> selected = fields == null ? null : SparseFields.parse(fields);
+        if (fields != null && selected == null)
+            return immediate(new ResponseEntity<>(HttpStatus.BAD_REQUEST));
+        BiFunction<ReadPreference, Long, Iterable<Assignment>> query;
+        if (replica != null)
+            query = (preference, version) -> replica.findActiveAt(at, selected);
+        else
+            query = (preference, version) -> repo.findActiveAtProjected(at, selected, preference);
+        boolean readsMongo = replica == null || includeArchived;
+        if (includeArchived)
+            return executor.submit(() -> versionedWithArchive(ListVersions.ALL, listPreference(readsMongo), ifNoneMatch, query,
+                    preference -> archive.findActiveAt(at, selected, preference)));
+        return executor.submit(() -> versioned(ListVersions.ALL, listPreference(readsMongo), ifNoneMatch, query));
+    }
+
+    /**
+     * Returns up to {@code limit} changes after the {@code since} token, oldest first: creates and updates with the
+     * new state of the assignment, deletes as tombstones. The token to continue from is always returned in the
+     * {@value #CONTINUATION_TOKEN_HEADER} header. Without {@code since} only the token of the latest change is
+     * returned: take it before reading /assignments, then follow the changes from there.
+     * A token older than the retained log is answered with 410, the client then has to read /assignments again.
+     */
+    @RequestMapping(method = RequestMethod.GET, value = "/assignments/changes")
+    public DeferredResult<ResponseEntity<Iterable<AssignmentChange>>> getChanges(@RequestParam(required = false) String since,
+                                                                                 @RequestParam(required = false) Integer limit) {
+        if (!changes.isEnabled())
+            return immediate(new ResponseEntity<>(HttpStatus.NOT_FOUND));
+        int pageSize = limit == null ? defaultPageSize : limit;
+        if (pageSize < 1 || pageSize > maxPageSize)
+            return immediate(new ResponseEntity<>(HttpStatus.BAD_REQUEST));
+        Long after = since == null ? null : ContinuationToken.decodeSequence(since);
+        if (since != null && after == null)
+            return immediate(new ResponseEntity<>(HttpStatus.BAD_REQUEST));
+        return executor.submit(() -> {
+            HttpHeaders headers = new HttpHeaders();
+            if (after == null) {
+                headers.set(CONTINUATION_TOKEN_HEADER, ContinuationToken.encodeSequence(changes.lastSequence()));
+                return new ResponseEntity<>(Collections.emptyList(), headers, HttpStatus.OK);
+            }
+            List<AssignmentChange> found = changes.findAfter(after, pageSize);
+            if (found.isEmpty() || found.get(0).getSequence() != after + 1) {
+                Long first = changes.firstSequence();
+                if (first == null ? after < changes.lastSequence() : after + 1 < first)
+                    return new ResponseEntity<>(HttpStatus.GONE);
+            }
+            long last = found.isEmpty() ? after : found.get(found.size() - 1).getSequence();
+            headers.set(CONTINUATION_TOKEN_HEADER, ContinuationToken.encodeSequence(last));
+            return new ResponseEntity<>(found, headers, HttpStatus.OK);
+        });
+    }
+
+    /**
+     * Returns the assignments of a consultant, or only those overlapping [from, to] when both bounds are given.
+     * A {@code fields} selection is read from Mongo directly, bypassing the cache. With {@code includeArchived} the
+     * archived assignments follow.
+     * The ETag is the version of the list, so an unchanged list is answered with NOT_MODIFIED (304) without reading it.
+     */
     @RequestMapping(method = RequestMethod.GET, value = "/assignmentsbycid/{consultantId}")
-    public ResponseEntity<Iterable<Assignment>> getByConsultantId(@PathVariable String consultantId) {
-        LOG.info("/contracts getByConsultantId method called");
-        Iterable<Assignment> assignments = repo.findByConsultantId(consultantId);
-        return new ResponseEntity<>(assignments, HttpStatus.OK);
+    public DeferredResult<ResponseEntity<Iterable<Assignment>>> getByConsultantId(@PathVariable String consultantId,
+                                                                                  @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Date from,
+                                                                                  @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Date to,
+                                                                                  @RequestParam(required = false) String fields,
+                                                                                  @RequestParam(defaultValue = "false") boolean includeArchived,
+                                                                                  @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        Set<String> selected = fields == null ? null : SparseFields.parse(fields);
+        if (fields != null && selected == null)
+            return immediate(new ResponseEntity<>(HttpStatus.BAD_REQUEST));
+        if ((from == null) != (to == null) || (from != null && from.after(to)))
+            return immediate(new ResponseEntity<>(HttpStatus.BAD_REQUEST));
+        String list = ListVersions.ofConsultant(consultantId);
+        BiFunction<ReadPreference, Long, Iterable<Assignment>> query;
+        boolean readsMongo = includeArchived;
+        if (replica != null) {
+            query = (preference, version) -> replica.findByConsultantId(consultantId, from, to, selected);
+        } else if (selected != null || from != null) {
+            query = (preference, version) -> repo.findByConsultantIdProjected(consultantId, from, to, selected, preference);
+            readsMongo = true;
+        } else {
+            query = (preference, version) -> cache.getByConsultantId(consultantId, version, repo::findByConsultantId);
+        }
+        ReadPreference preference = listPreference(readsMongo);
+        if (includeArchived)
+            return executor.submit(() -> versionedWithArchive(list, preference, ifNoneMatch, query,
+                    archivePreference -> archive.findByConsultantId(consultantId, from, to, selected, archivePreference)));
+        return executor.submit(() -> versioned(list, preference, ifNoneMatch, query));
     }
 
+    /**
+     * Returns the assignments at a customer, or only those overlapping [from, to] when both bounds are given.
+     * A {@code fields} selection is read from Mongo directly, bypassing the cache. With {@code includeArchived} the
+     * archived assignments follow.
+     * The ETag is the version of the list, so an unchanged list is answered with NOT_MODIFIED (304) without reading it.
+     */
     @RequestMapping(method = RequestMethod.GET, value = "/assignmentsbycuid/{customerId}")
-    public ResponseEntity<Iterable<Assignment>> getByCustomerId(@PathVariable String customerId) {
-        LOG.info("/contracts getByCustomerId method called");
-        Iterable<Assignment> assignments = repo.findByCustomerId(customerId);
-        return new ResponseEntity<>(assignments, HttpStatus.OK);
+    public DeferredResult<ResponseEntity<Iterable<Assignment>>> getByCustomerId(@PathVariable String customerId,
+                                                                                @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Date from,
+                                                                                @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Date to,
+                                                                                @RequestParam(required = false) String fields,
+                                                                                @RequestParam(defaultValue = "false") boolean includeArchived,
+                                                                                @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        Set<String> selected = fields == null ? null : SparseFields.parse(fields);
+        if (fields != null && selected == null)
+            return immediate(new ResponseEntity<>(HttpStatus.BAD_REQUEST));
+        if ((from == null) != (to == null) || (from != null && from.after(to)))
+            return immediate(new ResponseEntity<>(HttpStatus.BAD_REQUEST));
+        String list = ListVersions.ofCustomer(customerId);
+        BiFunction<ReadPreference, Long, Iterable<Assignment>> query;
+        boolean readsMongo = includeArchived;
+        if (replica != null) {
+            query = (preference, version) -> replica.findByCustomerId(customerId, from, to, selected);
+        } else if (selected != null || from != null) {
+            query = (preference, version) -> repo.findByCustomerIdProjected(customerId, from, to, selected, preference);
+            readsMongo = true;
+        } else {
+            query = (preference, version) -> cache.getByCustomerId(customerId, version, repo::findByCustomerId);
+        }
+        ReadPreference preference = listPreference(readsMongo);
+        if (includeArchived)
+            return executor.submit(() -> versionedWithArchive(list, preference, ifNoneMatch, query,
+                    archivePreference -> archive.findByCustomerId(customerId, from, to, selected, archivePreference)));
+        return executor.submit(() -> versioned(list, preference, ifNoneMatch, query));
+    }
+
+    /**
+     * Pushes the changes of the consultant's assignments as server-sent events, see {@link ChangeSubscriptions}.
+     * The first event carries the change feed token to read the list at; a client reconnecting with Last-Event-ID
+     * gets the changes it missed. Answered with 404 unless {@code assignment.subscriptions.enabled}.
+     */
+    @RequestMapping(method = RequestMethod.GET, value = "/assignmentsbycid/{consultantId}/changes", produces = ChangeSubscriptions.EVENT_STREAM_VALUE)
+    public void subscribeByConsultantId(@PathVariable String consultantId,
+                                        @RequestHeader(value = LAST_EVENT_ID_HEADER, required = false) String lastEventId,
+                                        HttpServletRequest request, HttpServletResponse response) throws IOException {
+        subscribe(ChangeSubscriptions.ofConsultant(consultantId), lastEventId, request, response);
+    }
+
+    /**
+     * Pushes the changes of the assignments at the customer as server-sent events, the same way as
+     * {@link #subscribeByConsultantId}.
+     */
+    @RequestMapping(method = RequestMethod.GET, value = "/assignmentsbycuid/{customerId}/changes", produces = ChangeSubscriptions.EVENT_STREAM_VALUE)
+    public void subscribeByCustomerId(@PathVariable String customerId,
+                                      @RequestHeader(value = LAST_EVENT_ID_HEADER, required = false) String lastEventId,
+                                      HttpServletRequest request, HttpServletResponse response) throws IOException {
+        subscribe(ChangeSubscriptions.ofCustomer(customerId), lastEventId, request, response);
+    }
+
+    /**
+     * Returns the overlapping assignments of a consultant, ordered by the start of the overlap.
+     * Answered with 404 unless {@code assignment.conflicts.enabled}.
+     */
+    @RequestMapping(method = RequestMethod.GET, value = "/assignmentsbycid/{consultantId}/conflicts")
+    public DeferredResult<ResponseEntity<Iterable<Conflict>>> getConflictsByConsultantId(@PathVariable String consultantId) {
+        if (conflicts == null)
+            return immediate(new ResponseEntity<>(HttpStatus.NOT_FOUND));
+        return executor.submit(() -> new ResponseEntity<>(conflicts.conflictsOf(consultantId), HttpStatus.OK));
+    }
+
+    /**
+     * Returns the overlapping assignments of all consultants where the overlap falls in [from, to], ordered by the
+     * start of the overlap. Answered with 404 unless {@code assignment.conflicts.enabled}.
+     */
+    @RequestMapping(method = RequestMethod.GET, value = "/assignments/conflicts")
+    public DeferredResult<ResponseEntity<Iterable<Conflict>>> getConflicts(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Date from,
+                                                                           @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Date to) {
+        if (conflicts == null)
+            return immediate(new ResponseEntity<>(HttpStatus.NOT_FOUND));
+        if (from.after(to))
+            return immediate(new ResponseEntity<>(HttpStatus.BAD_REQUEST));
+        return executor.submit(() -> new ResponseEntity<>(conflicts.conflictsIn(from, to), HttpStatus.OK));
+    }
+
+    /**
+     * Returns the booked days, free intervals and utilization of every consultant with an assignment in [from, to],
+     * ordered by consultant id. The result is cached per window; the ETag is the version of the whole collection.
+     * A result read from a secondary is neither cached nor sent with an ETag.
+     */
+    @RequestMapping(method = RequestMethod.GET, value = "/assignments/utilization")
+    public DeferredResult<ResponseEntity<Iterable<Utilization>>> getUtilization(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Date from,
+                                                                                @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Date to,
+                                                                                @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (from.after(to))
+            return immediate(new ResponseEntity<>(HttpStatus.BAD_REQUEST));
+        return executor.submit(() -> {
+            ReadPreference preference = listPreference(replica == null);
+            ListVersions.Version version = listVersions.get(ListVersions.ALL);
+            HttpHeaders headers = versionHeaders(version);
+            if (ifNoneMatch != null && ETags.matches(ifNoneMatch, headers.getETag()))
+                return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
+            return new ResponseEntity<>(utilization.collect(from, to, version.getVersion(), preference),
+                    unlessSecondary(headers, preference), HttpStatus.OK);
+        });
     }
 
+    /**
+     * Streams the utilization of every consultant as newline delimited JSON while the aggregation runs, for
+     * windows or organisations too large to hold in one response. Runs on the container thread and is not cached.
+     */
+    @RequestMapping(method = RequestMethod.GET, value = "/assignments/utilization", produces = NDJSON_VALUE)
+    public void streamUtilization(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Date from,
+                                  @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Date to,
+                                  HttpServletResponse response) throws IOException {
+        if (from.after(to)) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+            return;
+        }
+        writeNdjson(response, (Consumer<Utilization> consumer) -> utilization.forEachConsultant(from, to, consumer));
+    }
+
+    /**
+     * Returns the booked days, free intervals and utilization of a consultant in [from, to].
+     * The ETag is the version of the list of the consultant, left out when the assignments are read from a secondary.
+     */
+    @RequestMapping(method = RequestMethod.GET, value = "/assignmentsbycid/{consultantId}/utilization")
+    public DeferredResult<ResponseEntity<Utilization>> getUtilizationByConsultantId(@PathVariable String consultantId,
+                                                                                    @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Date from,
+                                                                                    @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Date to,
+                                                                                    @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (from.after(to))
+            return immediate(new ResponseEntity<>(HttpStatus.BAD_REQUEST));
+        return executor.submit(() -> {
+            ReadPreference preference = listPreference(replica == null);
+            HttpHeaders headers = versionHeaders(listVersions.get(ListVersions.ofConsultant(consultantId)));
+            if (ifNoneMatch != null && ETags.matches(ifNoneMatch, headers.getETag()))
+                return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
+            return new ResponseEntity<>(utilization.ofConsultant(consultantId, from, to, preference),
+                    unlessSecondary(headers, preference), HttpStatus.OK);
+        });
+    }
+
+    /**
+     * Creates an assignment. An id that is already taken is answered with CONFLICT (409), an existing assignment is
+     * only changed by an update. With {@code assignment.conflicts.reject-overlapping-creates}, one overlapping another
+     * assignment of the same consultant is answered with CONFLICT (409) too. One that starts after it ends is
+     * answered with BAD_REQUEST (400).
+     */
     @RequestMapping(method = RequestMethod.POST, value = "/assignments")
-    public ResponseEntity<Assignment> create(@RequestBody Assignment assignment) {
-        LOG.info("/assignments create method called");
-        Assignment createdAssignment = repo.save(assignment);
-        return new ResponseEntity<>(createdAssignment, HttpStatus.OK);
+    public DeferredResult<ResponseEntity<Assignment>> create(@RequestBody Assignment assignment) {
+        if (isInverted(assignment))
+            return immediate(new ResponseEntity<>(HttpStatus.BAD_REQUEST));
+        assignment.setVersion(0L);
+        assignment.setLastModified(new Date());
+        if (assignment.getId() == null)
+            assignment.setId(ObjectId.get().toString());
+        return executor.submitWrite(() -> {
+            if (conflicts != null && conflicts.isRejectingOverlappingCreates() && !conflicts.conflictsWith(assignment).isEmpty())
+                return new ResponseEntity<>(HttpStatus.CONFLICT);
+            AssignmentChange change = changes.prepare(AssignmentChange.Type.CREATED, assignment);
+            Assignment createdAssignment;
+            try {
+                createdAssignment = repo.insertNew(assignment);
+            } catch (DuplicateKeyException e) {
+                changes.discard(change);
+                return new ResponseEntity<>(HttpStatus.CONFLICT);
+            }
+            cache.invalidate(createdAssignment);
+            listVersions.bump(createdAssignment);
+            changes.commit(change, createdAssignment);
+            if (replica != null)
+                replica.catchUpTo(change.getSequence());
+            if (subscriptions != null)
+                subscriptions.wake();
+            return new ResponseEntity<>(createdAssignment, versionHeaders(createdAssignment), HttpStatus.OK);
+        });
+    }
+
+    /**
+     * Runs a JSON array or an NDJSON stream of {@link BulkOperation}s as batched Mongo bulk writes and
+     * returns one {@link BulkResult} per item. The body is parsed while the batches are written,
+     * so this runs on the container thread that reads the request.
+     */
+    @RequestMapping(method = RequestMethod.POST, value = "/assignments/bulk")
+    public ResponseEntity<List<BulkResult>> bulk(@RequestParam(defaultValue = "true") boolean ordered,
+                                                 HttpServletRequest request) throws IOException {
+        MappingIterator<BulkOperation> operations = objectMapper.reader(BulkOperation.class).readValues(request.getInputStream());
+        List<BulkResult> results = bulkWriter.write(new BulkOperationIterator(operations), ordered);
+        return new ResponseEntity<>(results, HttpStatus.OK);
     }
 
+    /**
+     * Updates an assignment with a single find-and-modify. With an If-Match header the update only applies
+     * to that version of the assignment; a stale version is answered with PRECONDITION_FAILED (412). An assignment
+     * that starts after it ends is answered with BAD_REQUEST (400).
+     */
     @RequestMapping(method = RequestMethod.PUT, value = "/assignments/{id}")
-    public ResponseEntity<Assignment> update(@PathVariable String id, @RequestBody Assignment assignment) {
-        LOG.info("/assignments update method called");
-        Assignment update = repo.findOne(id);
-        if (update == null)
+    public DeferredResult<ResponseEntity<Assignment>> update(@PathVariable String id, @RequestBody Assignment assignment,
+                                                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        if (isInverted(assignment))
+            return immediate(new ResponseEntity<>(HttpStatus.BAD_REQUEST));
+        Long expectedVersion = null;
+        if (ifMatch != null && !"*".equals(ifMatch.trim())) {
+            expectedVersion = ETags.parseVersion(ifMatch);
+            if (expectedVersion == null)
+                return immediate(new ResponseEntity<>(HttpStatus.PRECONDITION_FAILED));
+        }
+        Long version = expectedVersion;
+        return executor.submitWrite(() -> update(id, assignment, version));
+    }
+
+    private ResponseEntity<Assignment> update(String id, Assignment assignment, Long expectedVersion) {
+        assignment.setLastModified(new Date());
+        Assignment updatedAssignment = new Assignment(id, assignment.getConsultantId(), assignment.getCustomerId(), assignment.getStartDate(), assignment.getEndDate());
+        updatedAssignment.setLastModified(assignment.getLastModified());
+        AssignmentChange change = changes.prepare(AssignmentChange.Type.UPDATED, updatedAssignment);
+        Assignment previous = repo.updateFields(id, expectedVersion, updatedAssignment);
+        if (previous == null) {
+            changes.discard(change);
+            if (expectedVersion != null && repo.exists(id))
+                return new ResponseEntity<>(HttpStatus.PRECONDITION_FAILED);
             return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
-        update.setConsultantId(assignment.getConsultantId());
-        update.setCustomerId(assignment.getCustomerId());
-        update.setStartDate(assignment.getStartDate());
-        update.setEndDate(assignment.getEndDate());
-        Assignment updatedAssignment = repo.save(update);
-        return new ResponseEntity<>(updatedAssignment, HttpStatus.OK);
+        }
+        updatedAssignment.setVersion((previous.getVersion() == null ? 0 : previous.getVersion()) + 1);
+        if (change != null)
+            change.recordPrevious(previous);
+        cache.invalidate(previous, updatedAssignment);
+        listVersions.bump(previous, updatedAssignment);
+        changes.commit(change, updatedAssignment);
+        if (replica != null)
+            replica.catchUpTo(change.getSequence());
+        if (subscriptions != null)
+            subscriptions.wake();
+        return new ResponseEntity<>(updatedAssignment, versionHeaders(updatedAssignment), HttpStatus.OK);
     }
 
     @RequestMapping(method = RequestMethod.DELETE, value = "/assignments/{id}")
-    public ResponseEntity<Assignment> delete(@PathVariable String id) {
-        LOG.info("/assignments delete method called");
-        Assignment assignment = repo.findOne(id);
+    public DeferredResult<ResponseEntity<Assignment>> delete(@PathVariable String id) {
+        return executor.submitWrite(() -> {
+            AssignmentChange change = changes.prepare(AssignmentChange.Type.DELETED, new Assignment(id, null, null, null, null));
+            Assignment assignment = repo.removeById(id);
+            if (assignment == null) {
+                changes.discard(change);
+                return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+            }
+            cache.invalidate(assignment);
+            listVersions.bump(assignment);
+            changes.commit(change, assignment);
+            if (replica != null)
+                replica.catchUpTo(change.getSequence());
+            if (subscriptions != null)
+                subscriptions.wake();
+            return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+        });
+    }
+
+    private void subscribe(String key, String lastEventId, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (subscriptions == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        Long since = lastEventId == null ? null : ContinuationToken.decodeSequence(lastEventId);
+        if (lastEventId != null && since == null) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+            return;
+        }
+        if (!subscriptions.subscribe(key, since, request)) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        }
+    }
+
+    /**
+     * Writes every object the source hands over as a line of JSON as soon as it is produced.
+     */
+    private <T> void writeNdjson(HttpServletResponse response, Consumer<Consumer<T>> source) throws IOException {
+        response.setContentType(NDJSON_VALUE);
+        OutputStream out = response.getOutputStream();
+        int[] written = new int[1];
+        try {
+            source.accept(value -> {
+                try {
+                    out.write(objectMapper.writeValueAsBytes(value));
+                    out.write('\n');
+                    written[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        out.flush();
+        RequestMetrics metrics = RequestMetrics.current();
+        if (metrics != null)
+            metrics.setResultSize(written[0]);
+    }
+
+    /**
+     * Answers with NOT_MODIFIED (304) when {@code ifNoneMatch} holds the current version of the list, and only
+     * runs the query with {@code preference} and that version otherwise. The version is read first, so it is never
+     * newer than the returned list; a list read from a secondary is returned without it, see {@link #unlessSecondary}.
+     */
+    private ResponseEntity<Iterable<Assignment>> versioned(String list, ReadPreference preference, String ifNoneMatch,
+                                                           BiFunction<ReadPreference, Long, Iterable<Assignment>> query) {
+        ListVersions.Version version = listVersions.get(list);
+        HttpHeaders headers = versionHeaders(version);
+        if (ifNoneMatch != null && ETags.matches(ifNoneMatch, headers.getETag()))
+            return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
+        return new ResponseEntity<>(query.apply(preference, version.getVersion()), unlessSecondary(headers, preference), HttpStatus.OK);
+    }
+
+    /**
+     * {@link #versioned} of the list in both tiers: the archived assignments follow those of the working set. Archiving
+     * bumps the version of the lists it moves assignments out of, so the version covers the archived part too.
+     */
+    private ResponseEntity<Iterable<Assignment>> versionedWithArchive(String list, ReadPreference preference, String ifNoneMatch,
+                                                                      BiFunction<ReadPreference, Long, Iterable<Assignment>> query,
+                                                                      Function<ReadPreference, List<Assignment>> archived) {
+        ListVersions.Version version = listVersions.get(list);
+        HttpHeaders headers = versionHeaders(version, true);
+        if (ifNoneMatch != null && ETags.matches(ifNoneMatch, headers.getETag()))
+            return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
+        List<Assignment> assignments = new ArrayList<>();
+        Set<String> ids = new HashSet<>();
+        for (Assignment assignment : query.apply(preference, version.getVersion())) {
+            assignments.add(assignment);
+            ids.add(assignment.getId());
+        }
+        // An assignment whose move was interrupted can be in both tiers for a while, the working set is authoritative
+        for (Assignment assignment : archived.apply(preference)) {
+            if (assignment.getId() == null || !ids.contains(assignment.getId()))
+                assignments.add(assignment);
+        }
+        return new ResponseEntity<>(assignments, unlessSecondary(headers, preference), HttpStatus.OK);
+    }
+
+    /**
+     * @return the read preference of a list read, the one of {@link ReadRouting#forLists()} when it is read from Mongo
+     * and the primary when it comes from the cache or the replica, which are never behind the list versions
+     */
+    private ReadPreference listPreference(boolean readsMongo) {
+        return readsMongo ? readRouting.forLists() : ReadPreference.primary();
+    }
+
+    /**
+     * Drops the version headers of a response read with a secondary preference: the version is read from the primary,
+     * and the secondary may not have replicated all the writes it counts yet. Without an ETag or Last-Modified the
+     * response can not be cached or revalidated under a version it does not hold.
+     */
+    private static HttpHeaders unlessSecondary(HttpHeaders headers, ReadPreference preference) {
+        return preference.equals(ReadPreference.primary()) ? headers : new HttpHeaders();
+    }
+
+    /** Answers {@link #getById} from the archive. */
+    private ResponseEntity<Assignment> getArchived(String id, String ifNoneMatch) {
+        Assignment assignment = archive.findOne(id);
         if (assignment == null)
-            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
-        repo.delete(assignment);
-        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        HttpHeaders headers = versionHeaders(assignment);
+        if (ifNoneMatch != null && ETags.matches(ifNoneMatch, headers.getETag()))
+            return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
+        return new ResponseEntity<>(assignment, headers, HttpStatus.OK);
+    }
+
+    /**
+     * Merges two pages in id order, the order of Mongo: string ids before object ids. Returns at most {@code limit}
+     * assignments, an id in both pages once.
+     */
+    private static List<Assignment> mergeById(List<Assignment> hot, List<Assignment> archived, int limit) {
+        List<Assignment> merged = new ArrayList<>(Math.min(limit, hot.size() + archived.size()));
+        int h = 0;
+        int a = 0;
+        while (merged.size() < limit && (h < hot.size() || a < archived.size())) {
+            int order = h == hot.size() ? 1 : a == archived.size() ? -1 : compareIds(hot.get(h).getId(), archived.get(a).getId());
+            if (order <= 0) {
+                merged.add(hot.get(h++));
+                if (order == 0)
+                    a++;
+            } else {
+                merged.add(archived.get(a++));
+            }
+        }
+        return merged;
+    }
+
+    private static int compareIds(String left, String right) {
+        boolean leftObjectId = ObjectId.isValid(left);
+        if (leftObjectId != ObjectId.isValid(right))
+            return leftObjectId ? 1 : -1;
+        return left.compareTo(right);
+    }
+
+    private static HttpHeaders versionHeaders(Assignment assignment) {
+        return versionHeaders(assignment.getVersion(), assignment.getLastModified());
+    }
+
+    private static HttpHeaders versionHeaders(ListVersions.Version version) {
+        return versionHeaders(version.getVersion(), version.getLastModified());
+    }
+
+    /** The ETag of a list including the archive differs from that of the working set at the same version. */
+    private static HttpHeaders versionHeaders(ListVersions.Version version, boolean includeArchived) {
+        HttpHeaders headers = versionHeaders(version);
+        if (includeArchived)
+            headers.setETag(ETags.ofArchived(version.getVersion()));
+        return headers;
+    }
+
+    private static HttpHeaders versionHeaders(Long version, Date lastModified) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(ETags.of(version));
+        if (lastModified != null)
+            headers.setLastModified(lastModified.getTime());
+        return headers;
+    }
+
+    /** @return true when the assignment starts after it ends, a period the lists and reports cannot place */
+    static boolean isInverted(Assignment assignment) {
+        return assignment.getStartDate() != null && assignment.getEndDate() != null
+                && assignment.getStartDate().after(assignment.getEndDate());
+    }
+
+    private static <T> DeferredResult<ResponseEntity<T>> immediate(ResponseEntity<T> response) {
+        DeferredResult<ResponseEntity<T>> result = new DeferredResult<>();
+        result.setResult(response);
+        return result;
     }
 }
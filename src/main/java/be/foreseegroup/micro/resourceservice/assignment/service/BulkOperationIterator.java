@@ -0,0 +1,53 @@
+package be.foreseegroup.micro.resourceservice.assignment.service;
+
+import be.foreseegroup.micro.resourceservice.assignment.model.BulkOperation;
+import com.fasterxml.jackson.databind.MappingIterator;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads bulk operations from a request body. An item that can not be parsed is returned once as an
+ * operation without op, after which the iteration ends: the parser can not resynchronise on the input.
+ */
+class BulkOperationIterator implements Iterator<BulkOperation> {
+    private final MappingIterator<BulkOperation> operations;
+    private boolean unreadable;
+    private boolean done;
+
+    BulkOperationIterator(MappingIterator<BulkOperation> operations) {
+        this.operations = operations;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (done)
+            return false;
+        if (unreadable)
+            return true;
+        try {
+            if (operations.hasNextValue())
+                return true;
+        } catch (Exception e) {
+            unreadable = true;
+            return true;
+        }
+        done = true;
+        return false;
+    }
+
+    @Override
+    public BulkOperation next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+        if (!unreadable) {
+            try {
+                return operations.nextValue();
+            } catch (Exception e) {
+                // reported as an unreadable item below
+            }
+        }
+        done = true;
+        return new BulkOperation();
+    }
+}
@@ -0,0 +1,127 @@
+package be.foreseegroup.micro.resourceservice.assignment.service;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * One open event stream of {@link ChangeSubscriptions}. Events are queued in a buffer of a fixed size and written
+ * with non-blocking writes: whenever the connection cannot take more, the container calls back once it can, so no
+ * thread waits on a slow client. A client that falls a whole buffer behind is dropped.
+ */
+final class ChangeSubscriber implements WriteListener, AsyncListener {
+    private final String key;
+    private final AsyncContext async;
+    private final ServletOutputStream out;
+    private final Queue<byte[]> buffer;
+    private final Consumer<ChangeSubscriber> onClose;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    ChangeSubscriber(String key, AsyncContext async, int bufferSize, Consumer<ChangeSubscriber> onClose) throws IOException {
+        this.key = key;
+        this.async = async;
+        this.out = async.getResponse().getOutputStream();
+        this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        this.onClose = onClose;
+        async.addListener(this);
+    }
+
+    /** Starts writing: the container calls {@link #onWritePossible()} as soon as the connection takes data. */
+    void start() {
+        out.setWriteListener(this);
+    }
+
+    String getKey() {
+        return key;
+    }
+
+    boolean isClosed() {
+        return closed.get();
+    }
+
+    /**
+     * Queues an event and writes what the connection takes right away.
+     *
+     * @return false when the buffer is full, the subscriber is then closed
+     */
+    boolean offer(byte[] event) {
+        if (closed.get())
+            return true;
+        if (!buffer.offer(event)) {
+            close();
+            return false;
+        }
+        drain();
+        return true;
+    }
+
+    @Override
+    public void onWritePossible() {
+        drain();
+    }
+
+    /**
+     * Writes the buffered events until the buffer is empty or the connection is not ready. Called by the thread
+     * offering an event and by the container, one at a time: a write may only follow an {@code isReady()} that
+     * returned true.
+     */
+    private synchronized void drain() {
+        try {
+            while (!closed.get() && out.isReady()) {
+                byte[] event = buffer.poll();
+                if (event == null)
+                    return;
+                out.write(event);
+                if (buffer.isEmpty() && out.isReady())
+                    out.flush();
+            }
+        } catch (IOException | IllegalStateException e) {
+            close();
+        }
+    }
+
+    /** Ends the stream, if it is still open. */
+    void close() {
+        if (!closed.compareAndSet(false, true))
+            return;
+        buffer.clear();
+        onClose.accept(this);
+        try {
+            async.complete();
+        } catch (IllegalStateException e) {
+            // Completed by the container already
+        }
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        close();
+    }
+
+    @Override
+    public void onComplete(AsyncEvent event) {
+        close();
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) {
+        close();
+    }
+
+    @Override
+    public void onError(AsyncEvent event) {
+        close();
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {
+
+    }
+}
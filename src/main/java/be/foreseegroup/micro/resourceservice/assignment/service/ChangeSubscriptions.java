@@ -0,0 +1,376 @@
+package be.foreseegroup.micro.resourceservice.assignment.service;
+
+import be.foreseegroup.micro.resourceservice.assignment.events.ChangeLog;
+import be.foreseegroup.micro.resourceservice.assignment.model.Assignment;
+import be.foreseegroup.micro.resourceservice.assignment.model.AssignmentChange;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.servlet.AsyncContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Pushes the assignment changes of a consultant or customer to its subscribers as server-sent events, so a client
+ * no longer polls the list. A single thread follows the {@link ChangeLog}, so the writes of every instance are
+ * pushed: right after a write of this instance, within {@code assignment.subscriptions.poll-interval-ms} for the
+ * others. Every change is serialized once and handed to the subscribers of its consultant and customer, those of
+ * before an update included, so an assignment moved away is pushed too.
+ * <p>
+ * Every event carries the change feed token of its change as id. A client reconnecting with Last-Event-ID first gets
+ * the changes it missed, or a {@code reset} event when more than {@code assignment.subscriptions.max-replay} changes
+ * were made since or more of them concern it than its buffer holds, after which it reads the list again. Changes may be pushed more than once, the version tells
+ * the newest state.
+ * <p>
+ * Each subscriber buffers {@code assignment.subscriptions.buffer-size} events; see {@link ChangeSubscriber}. Enabled
+ * with {@code assignment.subscriptions.enabled=true}, which needs {@code assignment.changes.enabled}.
+ */
+@Component
+@ConditionalOnProperty("assignment.subscriptions.enabled")
+public class ChangeSubscriptions implements PublicMetrics {
+    static final String EVENT_STREAM_VALUE = "text/event-stream";
+    private static final int BATCH_SIZE = 500;
+    private static final byte[] HEARTBEAT = ":\n\n".getBytes(StandardCharsets.UTF_8);
+    private static final Logger LOG = LoggerFactory.getLogger(ChangeSubscriptions.class);
+
+    @Autowired
+    private ChangeLog changes;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${assignment.subscriptions.buffer-size:256}")
+    private int bufferSize;
+
+    @Value("${assignment.subscriptions.max-subscribers:10000}")
+    private int maxSubscribers;
+
+    @Value("${assignment.subscriptions.max-replay:10000}")
+    private long maxReplay;
+
+    @Value("${assignment.subscriptions.poll-interval-ms:1000}")
+    private long pollIntervalMillis;
+
+    @Value("${assignment.subscriptions.heartbeat-interval-ms:15000}")
+    private long heartbeatIntervalMillis;
+
+    @Value("${assignment.subscriptions.timeout-ms:1800000}")
+    private long timeoutMillis;
+
+    private final ConcurrentMap<String, Set<ChangeSubscriber>> subscribers = new ConcurrentHashMap<>();
+    private final Queue<Joining> joining = new ConcurrentLinkedQueue<>();
+    private final Semaphore wakeups = new Semaphore(0);
+    private final AtomicInteger open = new AtomicInteger();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    private volatile long sequence;
+    private long lastHeartbeat;
+    private volatile boolean running;
+    private Thread thread;
+
+    @PostConstruct
+    void start() {
+        if (!changes.isEnabled())
+            throw new IllegalStateException("assignment.subscriptions.enabled needs assignment.changes.enabled");
+        sequence = changes.lastSequence();
+        lastHeartbeat = System.currentTimeMillis();
+        running = true;
+        thread = new Thread(this::run, "assignment-subscriptions");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        thread.interrupt();
+        thread.join(pollIntervalMillis);
+        for (Set<ChangeSubscriber> subscribed : subscribers.values())
+            subscribed.forEach(ChangeSubscriber::close);
+    }
+
+    static String ofConsultant(String consultantId) {
+        return "consultant:" + consultantId;
+    }
+
+    static String ofCustomer(String customerId) {
+        return "customer:" + customerId;
+    }
+
+    /**
+     * Pushes the changes of this instance without waiting for the next poll.
+     */
+    public void wake() {
+        wakeups.release();
+    }
+
+    /**
+     * Answers the request with the event stream of {@code key}, asynchronously: the request is left open once the
+     * handler returns.
+     *
+     * @param since sequence of the last change the client has seen, or null for a new subscription
+     * @return false when {@code assignment.subscriptions.max-subscribers} streams are open, nothing was started
+     */
+    boolean subscribe(String key, Long since, HttpServletRequest request) throws IOException {
+        if (open.incrementAndGet() > maxSubscribers) {
+            open.decrementAndGet();
+            rejected.incrementAndGet();
+            return false;
+        }
+        AsyncContext async = request.startAsync();
+        async.setTimeout(timeoutMillis);
+        HttpServletResponse response = (HttpServletResponse) async.getResponse();
+        response.setContentType(EVENT_STREAM_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        ChangeSubscriber subscriber = new ChangeSubscriber(key, async, bufferSize, this::closed);
+        joining.add(new Joining(subscriber, since));
+        subscriber.start();
+        wake();
+        return true;
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                // Followed first, so a joining subscriber is caught up to the changes committed before it joined
+                int found = follow();
+                admit();
+                heartbeat();
+                if (found < BATCH_SIZE) {
+                    wakeups.tryAcquire(pollIntervalMillis, TimeUnit.MILLISECONDS);
+                    wakeups.drainPermits();
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                LOG.warn("Could not push assignment changes: {}", e.getMessage());
+                sleep(pollIntervalMillis);
+            }
+        }
+    }
+
+    /**
+     * Catches the new subscribers up to the changes pushed already and adds them to the subscribers of their key.
+     */
+    private void admit() {
+        Joining join;
+        while ((join = joining.poll()) != null) {
+            ChangeSubscriber subscriber = join.subscriber;
+            if (join.since == null || join.since >= sequence)
+                deliver(subscriber, event("subscribed", sequence, ContinuationToken.encodeSequence(sequence)));
+            else if (!replay(subscriber, join.since))
+                deliver(subscriber, event("reset", sequence, ContinuationToken.encodeSequence(sequence)));
+            subscribers.computeIfAbsent(subscriber.getKey(), key -> ConcurrentHashMap.newKeySet()).add(subscriber);
+            // Closed before it was added, so it was not removed either
+            if (subscriber.isClosed())
+                unindex(subscriber);
+        }
+    }
+
+    /**
+     * Pushes the changes of the subscriber's key after {@code since} up to those pushed to every subscriber. They
+     * are only pushed once they are known to fit in the buffer of the subscriber, which is only emptied while
+     * the client reads, so a large replay is a reset instead of an eviction. The changes committed but not followed
+     * yet count too: they are pushed to the subscriber right after the replay.
+     *
+     * @return false when too many changes were made since, they no longer fit in the buffer, or they are no longer
+     * logged
+     */
+    private boolean replay(ChangeSubscriber subscriber, long since) {
+        long last = Math.max(sequence, changes.lastSequence());
+        if (last - since > maxReplay)
+            return false;
+        List<byte[]> missed = new ArrayList<>();
+        int following = 0;
+        long after = since;
+        while (after < last) {
+            List<AssignmentChange> found = changes.findAfter(after, BATCH_SIZE);
+            if (found.isEmpty()) {
+                if (after == since)
+                    return false;
+                break;
+            }
+            if (after == since && found.get(0).getSequence() != since + 1) {
+                Long first = changes.firstSequence();
+                if (first != null && since + 1 < first)
+                    return false;
+            }
+            for (AssignmentChange change : found) {
+                if (change.getSequence() > last)
+                    break;
+                if (keysOf(change).contains(subscriber.getKey())) {
+                    if (missed.size() + following == bufferSize)
+                        return false;
+                    if (change.getSequence() <= sequence)
+                        missed.add(event(change));
+                    else
+                        following++;
+                }
+                after = change.getSequence();
+            }
+            if (after < found.get(found.size() - 1).getSequence())
+                break;
+        }
+        missed.forEach(event -> deliver(subscriber, event));
+        return true;
+    }
+
+    /**
+     * Pushes the changes logged since the last call.
+     *
+     * @return the number of changes read
+     */
+    private int follow() {
+        List<AssignmentChange> found = changes.findAfter(sequence, BATCH_SIZE);
+        if (!found.isEmpty() && found.get(0).getSequence() != sequence + 1) {
+            Long first = changes.firstSequence();
+            if (first != null && sequence + 1 < first) {
+                LOG.warn("Assignment changes after {} expired before they were pushed, resetting the subscribers", sequence);
+                long last = found.get(0).getSequence() - 1;
+                byte[] reset = event("reset", last, ContinuationToken.encodeSequence(last));
+                forEachSubscriber(subscriber -> deliver(subscriber, reset));
+            }
+        }
+        for (AssignmentChange change : found) {
+            Set<ChangeSubscriber> targets = new HashSet<>();
+            for (String key : keysOf(change)) {
+                Set<ChangeSubscriber> subscribed = subscribers.get(key);
+                if (subscribed != null)
+                    targets.addAll(subscribed);
+            }
+            if (!targets.isEmpty()) {
+                byte[] event = event(change);
+                for (ChangeSubscriber subscriber : targets)
+                    deliver(subscriber, event);
+            }
+            sequence = change.getSequence();
+        }
+        return found.size();
+    }
+
+    /**
+     * Sends a comment to every subscriber every {@code assignment.subscriptions.heartbeat-interval-ms}, so proxies
+     * keep quiet streams open and the streams of clients that are gone fail.
+     */
+    private void heartbeat() {
+        long now = System.currentTimeMillis();
+        if (now - lastHeartbeat < heartbeatIntervalMillis)
+            return;
+        lastHeartbeat = now;
+        forEachSubscriber(subscriber -> deliver(subscriber, HEARTBEAT));
+    }
+
+    private void deliver(ChangeSubscriber subscriber, byte[] event) {
+        if (subscriber.offer(event)) {
+            sent.incrementAndGet();
+        } else {
+            evicted.incrementAndGet();
+            LOG.debug("Dropped a subscriber of {} that fell {} events behind", subscriber.getKey(), bufferSize);
+        }
+    }
+
+    private void forEachSubscriber(Consumer<ChangeSubscriber> action) {
+        for (Set<ChangeSubscriber> subscribed : subscribers.values())
+            subscribed.forEach(action);
+    }
+
+    private void closed(ChangeSubscriber subscriber) {
+        unindex(subscriber);
+        open.decrementAndGet();
+    }
+
+    private void unindex(ChangeSubscriber subscriber) {
+        subscribers.computeIfPresent(subscriber.getKey(), (key, subscribed) -> {
+            subscribed.remove(subscriber);
+            return subscribed.isEmpty() ? null : subscribed;
+        });
+    }
+
+    /** @return the keys of the consultant and customer of the assignment, before and after the change */
+    private static Set<String> keysOf(AssignmentChange change) {
+        Set<String> keys = new HashSet<>(4);
+        for (Assignment assignment : new Assignment[]{change.getAssignment(), change.getPrevious()}) {
+            if (assignment == null)
+                continue;
+            if (assignment.getConsultantId() != null)
+                keys.add(ofConsultant(assignment.getConsultantId()));
+            if (assignment.getCustomerId() != null)
+                keys.add(ofCustomer(assignment.getCustomerId()));
+        }
+        return keys;
+    }
+
+    private byte[] event(AssignmentChange change) {
+        try {
+            return event(change.getType().name().toLowerCase(), change.getSequence(), objectMapper.writeValueAsString(change));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] event(String type, long sequence, String data) {
+        return ("id: " + ContinuationToken.encodeSequence(sequence) + "\nevent: " + type + "\ndata: " + data + "\n\n")
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        List<Metric<?>> metrics = new ArrayList<>();
+        metrics.add(new Metric<>("subscriptions.open", open.get()));
+        metrics.add(new Metric<>("subscriptions.events.sent", sent.get()));
+        metrics.add(new Metric<>("subscriptions.evicted", evicted.get()));
+        metrics.add(new Metric<>("subscriptions.rejected", rejected.get()));
+        metrics.add(new Metric<>("subscriptions.sequence", sequence));
+        return metrics;
+    }
+
+    /** A new subscriber and the sequence it has seen, waiting to be admitted by the thread pushing the changes. */
+    private static final class Joining {
+        final ChangeSubscriber subscriber;
+        final Long since;
+
+        Joining(ChangeSubscriber subscriber, Long since) {
+            this.subscriber = subscriber;
+            this.since = since;
+        }
+    }
+}
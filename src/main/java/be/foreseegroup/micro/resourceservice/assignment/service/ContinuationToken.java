@@ -0,0 +1,62 @@
+package be.foreseegroup.micro.resourceservice.assignment.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque continuation tokens: for keyset pagination, wrapping the id of the last assignment of a page,
+ * and for the change feed, wrapping the sequence of the last change read.
+ */
+final class ContinuationToken {
+    private static final String PREFIX = "a1:";
+    private static final String CHANGES_PREFIX = "c1:";
+
+    private ContinuationToken() {
+    }
+
+    static String encode(String lastId) {
+        return wrap(PREFIX + lastId);
+    }
+
+    /**
+     * @return the id wrapped in the token, or null when the token was not issued by {@link #encode(String)}
+     */
+    static String decode(String token) {
+        return unwrap(token, PREFIX);
+    }
+
+    static String encodeSequence(long sequence) {
+        return wrap(CHANGES_PREFIX + sequence);
+    }
+
+    /**
+     * @return the sequence wrapped in the token, or null when the token was not issued by {@link #encodeSequence(long)}
+     */
+    static Long decodeSequence(String token) {
+        String sequence = unwrap(token, CHANGES_PREFIX);
+        if (sequence == null)
+            return null;
+        try {
+            long value = Long.parseLong(sequence);
+            return value < 0 ? null : value;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String wrap(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String unwrap(String token, String prefix) {
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (!raw.startsWith(prefix) || raw.length() == prefix.length())
+            return null;
+        return raw.substring(prefix.length());
+    }
+}
@@ -0,0 +1,48 @@
+package be.foreseegroup.micro.resourceservice.assignment.service;
+
+/**
+ * Strong ETags derived from the version of an assignment or of an assignment list.
+ */
+final class ETags {
+    private ETags() {
+    }
+
+    static String of(Long version) {
+        return "\"" + (version == null ? 0 : version) + "\"";
+    }
+
+    /**
+     * ETag of a list version served with the archived assignments, so it never matches the list of only the working set.
+     */
+    static String ofArchived(long version) {
+        return "\"" + version + "-archived\"";
+    }
+
+    /**
+     * @return true when {@code ifNoneMatch}, a list of ETags or {@code *}, holds {@code eTag} (weak comparison)
+     */
+    static boolean matches(String ifNoneMatch, String eTag) {
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/"))
+                candidate = candidate.substring(2);
+            if (candidate.equals("*") || candidate.equals(eTag))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return the version of a strong ETag issued by {@link #of(Long)}, or null for any other value
+     */
+    static Long parseVersion(String eTag) {
+        String value = eTag.trim();
+        if (value.length() < 3 || value.charAt(0) != '"' || value.charAt(value.length() - 1) != '"')
+            return null;
+        try {
+            return Long.valueOf(value.substring(1, value.length() - 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
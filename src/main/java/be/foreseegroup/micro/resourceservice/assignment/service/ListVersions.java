@@ -0,0 +1,149 @@
+package be.foreseegroup.micro.resourceservice.assignment.service;
+
+import be.foreseegroup.micro.resourceservice.assignment.cache.AssignmentCache;
+import be.foreseegroup.micro.resourceservice.assignment.events.ChangeLog;
+import be.foreseegroup.micro.resourceservice.assignment.model.Assignment;
+import be.foreseegroup.micro.resourceservice.assignment.model.AssignmentChange;
+import be.foreseegroup.micro.resourceservice.assignment.replica.AssignmentReplica;
+import com.mongodb.BasicDBObject;
+import com.mongodb.BulkWriteOperation;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Versions of the assignment lists: all assignments, and the assignments of every consultant and customer.
+ * Every write bumps the versions of the lists it touches, so an unchanged list is recognized by reading a single
+ * small document instead of the list. Bump after writing and read before querying, so a list is never
+ * served with a version newer than its content. Invalidate the {@link AssignmentCache} before the bump, so the
+ * new version is never served with a list cached before the write.
+ * <p>
+ * Bump before committing the change of the write to the {@link ChangeLog}: a write whose writer stopped before the
+ * bump leaves its change pending, and the bump is made up for when the change log settles it.
+ * <p>
+ * With the {@link AssignmentReplica}, the version of a list is the sequence of the last change to it that the replica
+ * applied, so checking a version does not go to Mongo either and always matches the content served from the replica.
+ */
+@Component
+class ListVersions implements ChangeLog.RecoveryListener {
+    static final String COLLECTION = "assignmentListVersions";
+    static final String ALL = "all";
+
+    @Autowired
+    private MongoOperations mongo;
+
+    @Autowired(required = false)
+    private AssignmentReplica replica;
+
+    static String ofConsultant(String consultantId) {
+        return "consultant:" + consultantId;
+    }
+
+    static String ofCustomer(String customerId) {
+        return "customer:" + customerId;
+    }
+
+    /**
+     * @return the version of the list, 0 when it was never written
+     */
+    Version get(String list) {
+        if (replica != null)
+            return fromReplica(list);
+        DBObject document = collection().findOne(new BasicDBObject("_id", list));
+        if (document == null)
+            return new Version(0, null);
+        return new Version(((Number) document.get("version")).longValue(), (Date) document.get("lastModified"));
+    }
+
+    /**
+     * Bumps, in a single round-trip, the version of every list the given assignments are in.
+     * Pass both the old and the new state of an updated assignment.
+     */
+    void bump(Assignment... assignments) {
+        Set<String> lists = new LinkedHashSet<>();
+        lists.add(ALL);
+        for (Assignment assignment : assignments) {
+            if (assignment == null)
+                continue;
+            if (assignment.getConsultantId() != null)
+                lists.add(ofConsultant(assignment.getConsultantId()));
+            if (assignment.getCustomerId() != null)
+                lists.add(ofCustomer(assignment.getCustomerId()));
+        }
+        DBObject update = bumped();
+        BulkWriteOperation bulk = collection().initializeUnorderedBulkOperation();
+        for (String list : lists)
+            bulk.find(new BasicDBObject("_id", list)).upsert().updateOne(update);
+        bulk.execute();
+    }
+
+    /**
+     * Bumps the lists of changes whose writers stopped after the write. The lists a delete removed the assignment from,
+     * or an update moved it away from, are not known then, so every list is bumped.
+     */
+    @Override
+    public void recovered(List<AssignmentChange> changes) {
+        List<Assignment> changed = new ArrayList<>();
+        boolean unknown = false;
+        for (AssignmentChange change : changes) {
+            Assignment state = change.getAssignment();
+            if (state != null && state.getConsultantId() != null)
+                changed.add(state);
+            else
+                unknown = true;
+            if (change.getPrevious() != null)
+                changed.add(change.getPrevious());
+            else if (change.getType() == AssignmentChange.Type.UPDATED)
+                unknown = true;
+        }
+        bump(changed.toArray(new Assignment[changed.size()]));
+        if (unknown)
+            collection().updateMulti(new BasicDBObject(), bumped());
+    }
+
+    private static DBObject bumped() {
+        return new BasicDBObject("$inc", new BasicDBObject("version", 1))
+                .append("$set", new BasicDBObject("lastModified", new Date()));
+    }
+
+    private Version fromReplica(String list) {
+        long[] change;
+        if (list.startsWith("consultant:"))
+            change = replica.lastChangeOfConsultant(list.substring("consultant:".length()));
+        else if (list.startsWith("customer:"))
+            change = replica.lastChangeOfCustomer(list.substring("customer:".length()));
+        else
+            change = replica.lastChange();
+        return new Version(change[0], new Date(change[1]));
+    }
+
+    private DBCollection collection() {
+        return mongo.getCollection(COLLECTION);
+    }
+
+    static final class Version {
+        private final long version;
+        private final Date lastModified;
+
+        Version(long version, Date lastModified) {
+            this.version = version;
+            this.lastModified = lastModified;
+        }
+
+        long getVersion() {
+            return version;
+        }
+
+        Date getLastModified() {
+            return lastModified;
+        }
+    }
+}
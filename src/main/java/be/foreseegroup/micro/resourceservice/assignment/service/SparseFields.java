@@ -0,0 +1,31 @@
+package be.foreseegroup.micro.resourceservice.assignment.service;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * The {@code fields} parameter of the list endpoints: a comma separated list of the assignment properties to return.
+ */
+final class SparseFields {
+    static final Set<String> NAMES = Collections.unmodifiableSet(new LinkedHashSet<>(
+            Arrays.asList("id", "consultantId", "customerId", "startDate", "endDate", "version")));
+
+    private SparseFields() {
+    }
+
+    /**
+     * @return the requested properties, or null when the list is empty or names an unknown property
+     */
+    static Set<String> parse(String fields) {
+        Set<String> names = new LinkedHashSet<>();
+        for (String name : fields.split(",")) {
+            name = name.trim();
+            if (!NAMES.contains(name))
+                return null;
+            names.add(name);
+        }
+        return names;
+    }
+}
@@ -0,0 +1,88 @@
+package be.foreseegroup.micro.resourceservice.assignment.service;
+
+import be.foreseegroup.micro.resourceservice.assignment.model.Assignment;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.stereotype.Component;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * Converts assignments written while startDate/endDate were free-form strings into real dates.
+ * Values that can not be parsed are kept under legacyStartDate/legacyEndDate and the date is removed,
+ * so the document stays readable. Enable with {@code assignment.migration.string-dates=true}; the
+ * migration only touches documents that still hold string dates, so it is safe to run repeatedly.
+ */
+@Component
+@ConditionalOnProperty("assignment.migration.string-dates")
+public class StringDateMigration implements CommandLineRunner {
+    private static final Logger LOG = LoggerFactory.getLogger(StringDateMigration.class);
+
+    private static final int BSON_STRING = 2;
+    private static final String[] FIELDS = {"startDate", "endDate"};
+    private static final String[] PATTERNS = {Assignment.DATE_PATTERN, "yyyy-MM-dd'T'HH:mm:ss", "dd/MM/yyyy", "dd-MM-yyyy"};
+
+    @Autowired
+    private MongoOperations mongo;
+
+    @Override
+    public void run(String... args) {
+        DBCollection collection = mongo.getCollection(mongo.getCollectionName(Assignment.class));
+        DBObject query = new BasicDBObject("$or", Arrays.asList(
+                new BasicDBObject(FIELDS[0], new BasicDBObject("$type", BSON_STRING)),
+                new BasicDBObject(FIELDS[1], new BasicDBObject("$type", BSON_STRING))));
+        int migrated = 0;
+        int unparseable = 0;
+        try (DBCursor cursor = collection.find(query)) {
+            for (DBObject document : cursor) {
+                BasicDBObject set = new BasicDBObject();
+                BasicDBObject unset = new BasicDBObject();
+                for (String field : FIELDS) {
+                    Object value = document.get(field);
+                    if (!(value instanceof String))
+                        continue;
+                    Date date = parse((String) value);
+                    if (date != null) {
+                        set.put(field, date);
+                    } else {
+                        set.put("legacy" + Character.toUpperCase(field.charAt(0)) + field.substring(1), value);
+                        unset.put(field, "");
+                        unparseable++;
+                    }
+                }
+                BasicDBObject update = new BasicDBObject("$set", set);
+                if (!unset.isEmpty())
+                    update.put("$unset", unset);
+                collection.update(new BasicDBObject("_id", document.get("_id")), update);
+                migrated++;
+            }
+        }
+        LOG.info("Migrated string dates of {} assignments, {} values could not be parsed", migrated, unparseable);
+    }
+
+    static Date parse(String value) {
+        for (String pattern : PATTERNS) {
+            SimpleDateFormat format = new SimpleDateFormat(pattern);
+            format.setTimeZone(TimeZone.getTimeZone("UTC"));
+            format.setLenient(false);
+            try {
+                return format.parse(value.trim());
+            } catch (ParseException e) {
+                // try the next pattern
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,70 @@
+package be.foreseegroup.micro.resourceservice.assignment.sharding;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.discovery.DiscoveryClient;
+import com.netflix.discovery.DiscoveryManager;
+import com.netflix.discovery.shared.Application;
+import org.springframework.cloud.netflix.eureka.EurekaInstanceConfigBean;
+
+import javax.annotation.PostConstruct;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the peers from the Eureka registry fetched by this instance, through the {@link DiscoveryManager}, as the
+ * Eureka client only exists once the instance registered. Instances advertise their virtual nodes in the
+ * {@value #VIRTUAL_NODES} entry of their metadataMap, next to the {@value #INSTANCE_ID} that names them; this instance
+ * adds its own entry before it registers. Instances without the entry, e.g. ones running without
+ * {@code assignment.sharding.enabled}, are not on the ring.
+ */
+public class EurekaPeerDirectory implements PeerDirectory {
+    static final String VIRTUAL_NODES = "shardVirtualNodes";
+    static final String INSTANCE_ID = "instanceId";
+
+    private final EurekaInstanceConfigBean instance;
+    private final int virtualNodes;
+
+    public EurekaPeerDirectory(EurekaInstanceConfigBean instance, int virtualNodes) {
+        this.instance = instance;
+        this.virtualNodes = virtualNodes;
+    }
+
+    /** Runs before the Eureka lifecycle registers the instance with its metadata. */
+    @PostConstruct
+    void advertise() {
+        instance.getMetadataMap().put(VIRTUAL_NODES, String.valueOf(virtualNodes));
+    }
+
+    @Override
+    public ShardPeer local() {
+        String id = instance.getMetadataMap().get(INSTANCE_ID);
+        String host = instance.getHostname();
+        return new ShardPeer(id != null ? id : host + ":" + instance.getNonSecurePort(),
+                URI.create("http://" + host + ":" + instance.getNonSecurePort()), virtualNodes);
+    }
+
+    @Override
+    public List<ShardPeer> peers() {
+        List<ShardPeer> peers = new ArrayList<>();
+        DiscoveryClient eureka = DiscoveryManager.getInstance().getDiscoveryClient();
+        if (eureka == null)
+            return peers;
+        Application application = eureka.getApplication(instance.getAppname());
+        if (application == null)
+            return peers;
+        for (InstanceInfo info : application.getInstances()) {
+            String nodes = info.getMetadata().get(VIRTUAL_NODES);
+            if (info.getStatus() != InstanceInfo.InstanceStatus.UP || nodes == null)
+                continue;
+            String id = info.getMetadata().get(INSTANCE_ID);
+            try {
+                peers.add(new ShardPeer(id != null ? id : info.getId(), URI.create("http://" + info.getHostName() + ":" + info.getPort()),
+                        Integer.parseInt(nodes)));
+            } catch (NumberFormatException e) {
+                // Not on the ring, like an instance without the entry
+            }
+        }
+        return peers;
+    }
+}
@@ -0,0 +1,15 @@
+package be.foreseegroup.micro.resourceservice.assignment.sharding;
+
+import java.util.List;
+
+/**
+ * Where the {@link ShardRouter} learns which instances take part in the consultant ring.
+ */
+public interface PeerDirectory {
+
+    /** @return this instance as it advertises itself */
+    ShardPeer local();
+
+    /** @return the instances of the service that are up and advertise virtual nodes, this one included once registered */
+    List<ShardPeer> peers();
+}
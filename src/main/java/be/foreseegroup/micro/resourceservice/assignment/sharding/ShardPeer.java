@@ -0,0 +1,55 @@
+package be.foreseegroup.micro.resourceservice.assignment.sharding;
+
+import java.net.URI;
+import java.util.Objects;
+
+/**
+ * An instance taking part in the consultant ring: its Eureka instance id, where it is reached and how many virtual
+ * nodes it takes, which sets its share of the consultants.
+ */
+public final class ShardPeer {
+    private final String id;
+    private final URI uri;
+    private final int virtualNodes;
+
+    public ShardPeer(String id, URI uri, int virtualNodes) {
+        this.id = id;
+        this.uri = uri;
+        this.virtualNodes = virtualNodes;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public URI getUri() {
+        return uri;
+    }
+
+    public int getVirtualNodes() {
+        return virtualNodes;
+    }
+
+    /** @return the same path and query on this peer */
+    URI resolve(String path, String query) {
+        return URI.create(uri.getScheme() + "://" + uri.getRawAuthority() + path + (query == null ? "" : "?" + query));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof ShardPeer))
+            return false;
+        ShardPeer other = (ShardPeer) o;
+        return id.equals(other.id) && Objects.equals(uri, other.uri) && virtualNodes == other.virtualNodes;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, uri, virtualNodes);
+    }
+
+    @Override
+    public String toString() {
+        return id + "@" + uri;
+    }
+}
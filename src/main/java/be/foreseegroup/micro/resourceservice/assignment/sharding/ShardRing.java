@@ -0,0 +1,80 @@
+package be.foreseegroup.micro.resourceservice.assignment.sharding;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Consistent hash ring of consultant ids over the {@link ShardPeer}s. Every peer puts its virtual nodes on the ring
+ * at hashes of its id; a consultant belongs to the first node at or after the hash of the consultant id. The nodes
+ * only depend on the peer ids, so every instance builds the same ring from the same peers, and a peer joining or
+ * leaving only moves the consultants of its own nodes, about one in the number of peers.
+ * <p>
+ * Immutable.
+ */
+final class ShardRing {
+    private final List<ShardPeer> peers;
+    private final long[] tokens;
+    private final ShardPeer[] owners;
+
+    ShardRing(Collection<ShardPeer> peers) {
+        List<ShardPeer> sorted = new ArrayList<>(peers);
+        sorted.sort(Comparator.comparing(ShardPeer::getId));
+        this.peers = Collections.unmodifiableList(sorted);
+        int size = 0;
+        for (ShardPeer peer : sorted)
+            size += Math.max(peer.getVirtualNodes(), 0);
+        long[] hashes = new long[size];
+        ShardPeer[] nodes = new ShardPeer[size];
+        int next = 0;
+        for (ShardPeer peer : sorted) {
+            for (int i = 0; i < peer.getVirtualNodes(); i++) {
+                hashes[next] = hash(peer.getId() + "#" + i);
+                nodes[next++] = peer;
+            }
+        }
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++)
+            order[i] = i;
+        Arrays.sort(order, (a, b) -> hashes[a] != hashes[b] ? Long.compare(hashes[a], hashes[b]) : nodes[a].getId().compareTo(nodes[b].getId()));
+        tokens = new long[size];
+        owners = new ShardPeer[size];
+        for (int i = 0; i < size; i++) {
+            tokens[i] = hashes[order[i]];
+            owners[i] = nodes[order[i]];
+        }
+    }
+
+    /** @return the peers on the ring, ordered by id */
+    List<ShardPeer> peers() {
+        return peers;
+    }
+
+    /** @return the peer owning the key, null when the ring is empty */
+    ShardPeer ownerOf(String key) {
+        if (tokens.length == 0)
+            return null;
+        int position = Arrays.binarySearch(tokens, hash(key));
+        if (position < 0)
+            position = -position - 1;
+        return owners[position == tokens.length ? 0 : position];
+    }
+
+    /** FNV-1a over the chars, spread with the MurmurHash3 finalizer, so similar ids land far apart on the ring. */
+    static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
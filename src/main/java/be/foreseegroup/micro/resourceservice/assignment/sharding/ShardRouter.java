@@ -0,0 +1,205 @@
+package be.foreseegroup.micro.resourceservice.assignment.sharding;
+
+import be.foreseegroup.micro.resourceservice.assignment.cache.AssignmentCache;
+import be.foreseegroup.micro.resourceservice.assignment.limits.LimitsProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.client.DefaultResponseErrorHandler;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Spreads the consultants over the instances on a {@link ShardRing}, rebuilt from the {@link PeerDirectory} every
+ * {@code assignment.sharding.refresh-interval-ms}. This instance is always on its own ring, also before the registry
+ * lists it. When the ring changes, the consultant lists of the consultants this instance no longer owns are dropped
+ * from the {@link AssignmentCache}, so the cache only holds the lists of its own shard.
+ * <p>
+ * Requests forwarded to the owner, redirected to it, or served here because the owner could not be reached are
+ * counted as {@code sharding.requests.*}.
+ */
+public class ShardRouter implements PublicMetrics {
+    static final String FORWARDED_HEADER = "X-Assignment-Shard-Forwarded";
+    private static final Logger LOG = LoggerFactory.getLogger(ShardRouter.class);
+    private static final Set<String> HOP_BY_HOP = new HashSet<>(Arrays.asList(
+            "connection", "keep-alive", "transfer-encoding", "te", "upgrade", "host", "content-length"));
+
+    private final PeerDirectory directory;
+    private final AssignmentCache cache;
+    private final LimitsProperties limits;
+    private final long refreshIntervalMillis;
+    private final RestTemplate rest;
+
+    private volatile ShardRing ring = new ShardRing(Collections.emptyList());
+    private ScheduledExecutorService refresher;
+
+    private final LongAdder ringChanges = new LongAdder();
+    private final LongAdder local = new LongAdder();
+    private final LongAdder forwarded = new LongAdder();
+    private final LongAdder redirected = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+
+    public ShardRouter(PeerDirectory directory, AssignmentCache cache, LimitsProperties limits, long refreshIntervalMillis,
+                       int forwardTimeoutMillis) {
+        this.directory = directory;
+        this.cache = cache;
+        this.limits = limits;
+        this.refreshIntervalMillis = refreshIntervalMillis;
+        SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
+        factory.setConnectTimeout(forwardTimeoutMillis);
+        factory.setReadTimeout(forwardTimeoutMillis);
+        rest = new RestTemplate(factory);
+        rest.setErrorHandler(new DefaultResponseErrorHandler() {
+            @Override
+            public boolean hasError(ClientHttpResponse response) {
+                return false;
+            }
+        });
+    }
+
+    @PostConstruct
+    void start() {
+        refresh();
+        refresher = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("assignment-sharding-"));
+        refresher.scheduleWithFixedDelay(() -> {
+            try {
+                refresh();
+            } catch (RuntimeException e) {
+                LOG.warn("Could not refresh the consultant ring: {}", e.getMessage());
+            }
+        }, refreshIntervalMillis, refreshIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (refresher != null)
+            refresher.shutdownNow();
+    }
+
+    /** Rebuilds the ring when the peers changed. */
+    void refresh() {
+        ShardPeer self = directory.local();
+        List<ShardPeer> peers = new ArrayList<>();
+        for (ShardPeer peer : directory.peers()) {
+            if (!peer.getId().equals(self.getId()))
+                peers.add(peer);
+        }
+        peers.add(self);
+        if (new HashSet<>(peers).equals(new HashSet<>(ring.peers())))
+            return;
+        ring = new ShardRing(peers);
+        ringChanges.increment();
+        LOG.info("Consultants are spread over {}", ring.peers());
+        cache.retainConsultants(consultantId -> ownerOf(consultantId) == null);
+    }
+
+    /** @return the peer owning the consultant, null when this instance owns it */
+    public ShardPeer ownerOf(String consultantId) {
+        ShardPeer owner = ring.ownerOf(consultantId);
+        return owner == null || owner.getId().equals(directory.local().getId()) ? null : owner;
+    }
+
+    void servedLocally() {
+        local.increment();
+    }
+
+    void redirected() {
+        redirected.increment();
+    }
+
+    /**
+     * Prepares proxying the GET request to the same path on {@code owner}: the request is read here, on the calling
+     * thread, and sent when the returned handler runs. Its answer, status and headers included, is the answer to the
+     * request. The owner serves a request marked as forwarded itself, so a request never bounces between instances
+     * that disagree about the ring. A request that does not name its client in the
+     * {@code assignment.limits.client-header} header names its remote address there, so the owner limits the
+     * client instead of this instance.
+     *
+     * @return the handler forwarding the request, answering null when the owner could not be reached so the request
+     * is served here
+     */
+    Supplier<ResponseEntity<?>> forwarding(ShardPeer owner, HttpServletRequest request) {
+        URI uri = owner.resolve(request.getRequestURI(), request.getQueryString());
+        HttpHeaders headers = new HttpHeaders();
+        for (String name : Collections.list(request.getHeaderNames())) {
+            if (!HOP_BY_HOP.contains(name.toLowerCase()))
+                headers.put(name, Collections.list(request.getHeaders(name)));
+        }
+        if (!headers.containsKey(limits.getClientHeader()))
+            headers.set(limits.getClientHeader(), request.getRemoteAddr());
+        headers.set(FORWARDED_HEADER, directory.local().getId());
+        return () -> forward(owner, uri, headers);
+    }
+
+    private ResponseEntity<?> forward(ShardPeer owner, URI uri, HttpHeaders headers) {
+        try {
+            ResponseEntity<byte[]> answer = rest.execute(uri, HttpMethod.GET, outgoing -> outgoing.getHeaders().putAll(headers), incoming -> {
+                HttpHeaders copied = new HttpHeaders();
+                for (Map.Entry<String, List<String>> header : incoming.getHeaders().entrySet()) {
+                    if (header.getKey() != null && !HOP_BY_HOP.contains(header.getKey().toLowerCase()))
+                        copied.put(header.getKey(), header.getValue());
+                }
+                try (InputStream body = body(incoming)) {
+                    return new ResponseEntity<>(body == null ? null : StreamUtils.copyToByteArray(body), copied,
+                            HttpStatus.valueOf(incoming.getRawStatusCode()));
+                }
+            });
+            forwarded.increment();
+            return answer;
+        } catch (RestClientException e) {
+            fallbacks.increment();
+            LOG.debug("Could not forward to {}, serving {} here: {}", owner, uri.getPath(), e.getMessage());
+            return null;
+        }
+    }
+
+    /** @return the body, null when there is none, e.g. for NOT_MODIFIED (304) */
+    private static InputStream body(ClientHttpResponse response) {
+        try {
+            return response.getBody();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        List<Metric<?>> metrics = new ArrayList<>();
+        metrics.add(new Metric<>("sharding.peers", ring.peers().size()));
+        metrics.add(new Metric<>("sharding.ring.changes", ringChanges.sum()));
+        metrics.add(new Metric<>("sharding.requests.local", local.sum()));
+        metrics.add(new Metric<>("sharding.requests.forwarded", forwarded.sum()));
+        metrics.add(new Metric<>("sharding.requests.redirected", redirected.sum()));
+        metrics.add(new Metric<>("sharding.requests.fallback", fallbacks.sum()));
+        return metrics;
+    }
+}
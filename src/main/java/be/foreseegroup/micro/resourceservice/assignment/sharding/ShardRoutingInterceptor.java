@@ -0,0 +1,75 @@
+package be.foreseegroup.micro.resourceservice.assignment.sharding;
+
+import be.foreseegroup.micro.resourceservice.assignment.replica.AssignmentReplica;
+import be.foreseegroup.micro.resourceservice.assignment.service.AssignmentExecutor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Sends a GET of a consultant, an endpoint with a {@code consultantId} path variable, that another instance owns to
+ * that instance: forwarded, or with {@code assignment.sharding.redirect} answered with TEMPORARY_REDIRECT (307)
+ * to the owner, named in the {@value #OWNER_HEADER} header, so a client can learn the routing. Requests that were
+ * forwarded already are always served here.
+ * <p>
+ * Writes are served wherever they arrive. The owner still serves their result right after: its cached lists are
+ * only served under the list version shared by all instances, and with the {@link AssignmentReplica} a forwarded
+ * request first has the replica read the changes committed until then.
+ */
+public class ShardRoutingInterceptor extends HandlerInterceptorAdapter {
+    static final String OWNER_HEADER = "X-Assignment-Shard-Owner";
+    private static final String ROUTED = ShardRoutingInterceptor.class.getName() + ".routed";
+
+    private final ShardRouter router;
+    private final boolean redirect;
+    private final AssignmentReplica replica;
+
+    public ShardRoutingInterceptor(ShardRouter router, boolean redirect, AssignmentReplica replica) {
+        this.router = router;
+        this.redirect = redirect;
+        this.replica = replica;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // Asynchronously handled requests pass here again when dispatched back to the container
+        if (!(handler instanceof HandlerMethod) || request.getAttribute(ROUTED) != null)
+            return true;
+        request.setAttribute(ROUTED, Boolean.TRUE);
+        Map<String, String> variables = (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        String consultantId = variables == null ? null : variables.get("consultantId");
+        if (consultantId == null || !"GET".equals(request.getMethod()))
+            return true;
+        boolean forwarded = request.getHeader(ShardRouter.FORWARDED_HEADER) != null;
+        ShardPeer owner = forwarded ? null : router.ownerOf(consultantId);
+        if (owner == null) {
+            router.servedLocally();
+            // The client may have written through the instance that forwarded it, the replica reads that write first
+            if (forwarded && replica != null)
+                request.setAttribute(AssignmentExecutor.TAKEOVER_ATTRIBUTE, (Supplier<ResponseEntity<?>>) () -> {
+                    replica.catchUp();
+                    return null;
+                });
+            return true;
+        }
+        if (redirect) {
+            response.setStatus(HttpStatus.TEMPORARY_REDIRECT.value());
+            response.setHeader(OWNER_HEADER, owner.getId());
+            response.setHeader(HttpHeaders.LOCATION, owner.resolve(request.getRequestURI(), request.getQueryString()).toString());
+            router.redirected();
+            return false;
+        }
+        // Forwarded on the pool of the assignment handlers, not on this container thread
+        request.setAttribute(AssignmentExecutor.TAKEOVER_ATTRIBUTE, router.forwarding(owner, request));
+        return true;
+    }
+}
@@ -0,0 +1,65 @@
+package be.foreseegroup.micro.resourceservice.assignment.sharding;
+
+import be.foreseegroup.micro.resourceservice.assignment.cache.AssignmentCache;
+import be.foreseegroup.micro.resourceservice.assignment.limits.LimitsProperties;
+import be.foreseegroup.micro.resourceservice.assignment.replica.AssignmentReplica;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.netflix.eureka.EurekaInstanceConfigBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
+
+/**
+ * Partitions the consultants over the instances registered in Eureka, see {@link ShardRouter}, and puts the
+ * {@link ShardRoutingInterceptor} in front of the consultant endpoints. Enabled with
+ * {@code assignment.sharding.enabled=true}.
+ */
+@Configuration
+@ConditionalOnProperty("assignment.sharding.enabled")
+public class ShardingConfiguration extends WebMvcConfigurerAdapter {
+
+    @Autowired
+    private AssignmentCache cache;
+
+    @Autowired
+    private PeerDirectory peerDirectory;
+
+    @Autowired
+    private LimitsProperties limits;
+
+    @Autowired(required = false)
+    private AssignmentReplica replica;
+
+    @Value("${assignment.sharding.virtual-nodes:64}")
+    private int virtualNodes;
+
+    @Value("${assignment.sharding.refresh-interval-ms:5000}")
+    private long refreshIntervalMillis;
+
+    @Value("${assignment.sharding.forward-timeout-ms:5000}")
+    private int forwardTimeoutMillis;
+
+    @Value("${assignment.sharding.redirect:false}")
+    private boolean redirect;
+
+    @Bean
+    public EurekaPeerDirectory eurekaPeerDirectory(EurekaInstanceConfigBean instance) {
+        return new EurekaPeerDirectory(instance, virtualNodes);
+    }
+
+    @Bean
+    public ShardRouter shardRouter() {
+        return new ShardRouter(peerDirectory, cache, limits, refreshIntervalMillis, forwardTimeoutMillis);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // Every instance follows all changes, so a subscription is served wherever it arrives
+        registry.addInterceptor(new ShardRoutingInterceptor(shardRouter(), redirect, replica))
+                .addPathPatterns("/assignmentsbycid/**")
+                .excludePathPatterns("/assignmentsbycid/*/changes");
+    }
+}
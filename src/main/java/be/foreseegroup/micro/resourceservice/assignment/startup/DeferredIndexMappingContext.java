@@ -0,0 +1,42 @@
+package be.foreseegroup.micro.resourceservice.assignment.startup;
+
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Mapping context that holds back the events creating the Mongo indexes of newly mapped entities until
+ * {@link #createIndexes()}. It starts without an initial entity set, so the template creates no indexes
+ * when it is constructed either; entities are mapped when the repositories first use them.
+ */
+class DeferredIndexMappingContext extends MongoMappingContext {
+    private final List<ApplicationEvent> deferred = new ArrayList<>();
+    private ApplicationEventPublisher publisher;
+    private boolean deferring = true;
+
+    @Override
+    public void setApplicationEventPublisher(ApplicationEventPublisher applicationEventPublisher) {
+        publisher = applicationEventPublisher;
+        super.setApplicationEventPublisher(this::publish);
+    }
+
+    private synchronized void publish(ApplicationEvent event) {
+        if (deferring)
+            deferred.add(event);
+        else
+            publisher.publishEvent(event);
+    }
+
+    /**
+     * Creates the indexes of the entities mapped so far; those of entities mapped later are created right away.
+     */
+    synchronized void createIndexes() {
+        deferring = false;
+        for (ApplicationEvent event : deferred)
+            publisher.publishEvent(event);
+        deferred.clear();
+    }
+}
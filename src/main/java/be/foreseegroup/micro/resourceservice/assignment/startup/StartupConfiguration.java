@@ -0,0 +1,41 @@
+package be.foreseegroup.micro.resourceservice.assignment.startup;
+
+import be.foreseegroup.micro.resourceservice.assignment.conflicts.AssignmentConflicts;
+import be.foreseegroup.micro.resourceservice.assignment.replica.AssignmentReplica;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+/**
+ * Moves the Mongo index creation and the loading of the conflict index and the replica out of the startup path, see
+ * {@link StartupWarmUp}. Enabled with {@code assignment.startup.warm-up-in-background=true}, as the fast-start
+ * profile does.
+ */
+@Configuration
+@ConditionalOnProperty("assignment.startup.warm-up-in-background")
+public class StartupConfiguration {
+
+    @Autowired(required = false)
+    private AssignmentConflicts conflicts;
+
+    @Autowired(required = false)
+    private AssignmentReplica replica;
+
+    @Value("${assignment.startup.retry-interval-ms:5000}")
+    private long retryIntervalMillis;
+
+    /** Replaces the mapping context of the Mongo auto-configuration. Static, as the repositories behind the conflicts need it. */
+    @Bean
+    public static MongoMappingContext mongoMappingContext() {
+        return new DeferredIndexMappingContext();
+    }
+
+    @Bean
+    public StartupWarmUp warmUpHealthIndicator(MongoOperations mongo, MongoMappingContext mongoMappingContext) {
+        return new StartupWarmUp(mongo, (DeferredIndexMappingContext) mongoMappingContext, conflicts, replica, retryIntervalMillis);
+    }
+}
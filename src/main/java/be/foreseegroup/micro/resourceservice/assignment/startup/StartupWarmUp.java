@@ -0,0 +1,100 @@
+package be.foreseegroup.micro.resourceservice.assignment.startup;
+
+import be.foreseegroup.micro.resourceservice.assignment.AssignmentServiceApplication;
+import be.foreseegroup.micro.resourceservice.assignment.conflicts.AssignmentConflicts;
+import be.foreseegroup.micro.resourceservice.assignment.replica.AssignmentReplica;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.boot.actuate.health.AbstractHealthIndicator;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.core.type.filter.AnnotationTypeFilter;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.ClassUtils;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Does the startup work that does not have to block the application context once it is running: connects to
+ * Mongo, creates the indexes held back by the {@link DeferredIndexMappingContext} and reads the conflict index and
+ * the replica. Until that succeeded the health is OUT_OF_SERVICE, or DOWN while it is being retried after a failure.
+ * Requests are served meanwhile; one that needs the conflict index or the replica reads it itself.
+ */
+class StartupWarmUp extends AbstractHealthIndicator implements ApplicationListener<ContextRefreshedEvent> {
+    private static final Logger LOG = LoggerFactory.getLogger(StartupWarmUp.class);
+
+    private final MongoOperations mongo;
+    private final DeferredIndexMappingContext mappingContext;
+    private final AssignmentConflicts conflicts;
+    private final AssignmentReplica replica;
+    private final long retryIntervalMillis;
+
+    private ScheduledExecutorService worker;
+    private long started;
+    private volatile boolean done;
+    private volatile Exception failure;
+
+    StartupWarmUp(MongoOperations mongo, DeferredIndexMappingContext mappingContext, AssignmentConflicts conflicts,
+                  AssignmentReplica replica, long retryIntervalMillis) {
+        this.mongo = mongo;
+        this.mappingContext = mappingContext;
+        this.conflicts = conflicts;
+        this.replica = replica;
+        this.retryIntervalMillis = retryIntervalMillis;
+    }
+
+    @Override
+    public synchronized void onApplicationEvent(ContextRefreshedEvent event) {
+        if (worker != null)
+            return;
+        started = System.currentTimeMillis();
+        worker = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("assignment-warm-up-"));
+        worker.execute(this::warmUp);
+    }
+
+    @PreDestroy
+    synchronized void stop() {
+        if (worker != null)
+            worker.shutdownNow();
+    }
+
+    private void warmUp() {
+        try {
+            mongo.executeCommand("{ ping: 1 }");
+            mappingContext.createIndexes();
+            ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(false);
+            scanner.addIncludeFilter(new AnnotationTypeFilter(Document.class));
+            for (BeanDefinition document : scanner.findCandidateComponents(AssignmentServiceApplication.class.getPackage().getName()))
+                mappingContext.getPersistentEntity(ClassUtils.resolveClassName(document.getBeanClassName(), getClass().getClassLoader()));
+            if (conflicts != null)
+                conflicts.ensureLoaded();
+            if (replica != null)
+                replica.ensureLoaded();
+            done = true;
+            failure = null;
+            LOG.info("Warmed up {} ms after the context was started", System.currentTimeMillis() - started);
+        } catch (RuntimeException e) {
+            failure = e;
+            LOG.warn("Warm-up failed, retrying in {} ms: {}", retryIntervalMillis, e.getMessage());
+            worker.schedule(this::warmUp, retryIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    protected void doHealthCheck(Health.Builder builder) {
+        if (done)
+            builder.up();
+        else if (failure != null)
+            builder.down(failure);
+        else
+            builder.outOfService();
+    }
+}
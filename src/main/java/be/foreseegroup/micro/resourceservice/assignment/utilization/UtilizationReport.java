@@ -0,0 +1,350 @@
+package be.foreseegroup.micro.resourceservice.assignment.utilization;
+
+import be.foreseegroup.micro.resourceservice.assignment.model.Assignment;
+import be.foreseegroup.micro.resourceservice.assignment.model.Utilization;
+import be.foreseegroup.micro.resourceservice.assignment.mongo.ReadRouting;
+import be.foreseegroup.micro.resourceservice.assignment.replica.AssignmentReplica;
+import com.mongodb.AggregationOptions;
+import com.mongodb.BasicDBObject;
+import com.mongodb.Cursor;
+import com.mongodb.DBCollection;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import com.mongodb.ReadPreference;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Booked days, free intervals and utilization of the consultants over a date window, computed by a Mongo
+ * aggregation that groups the assignments overlapping the window per consultant, ordered by consultant.
+ * The groups are turned into {@link Utilization}s one at a time as the cursor yields them, so only the assignments
+ * of one consultant are held at once.
+ * <p>
+ * Windows of {@code assignment.utilization.parallel-threshold-days} or more are split into
+ * {@code assignment.utilization.partitions} ranges of consultant ids that are aggregated in parallel. Their results
+ * are still handed over in consultant order: a partition waits once it is {@value #PARTITION_BUFFER} results ahead.
+ * Consultants without an assignment in the window are not listed.
+ * <p>
+ * The aggregations and the partition boundaries are read with the list read preference of {@link ReadRouting}, or
+ * with the one the caller passes. Only results read from the primary are cached: a secondary may lag the version
+ * they would be cached under.
+ * With the {@link AssignmentReplica}, the periods are taken from the replica instead and Mongo is not read at all.
+ */
+@Component
+public class UtilizationReport {
+    private static final long DAY = 86400000L;
+    private static final int PARTITION_BUFFER = 1000;
+    private static final Utilization END = new Utilization();
+    private static final List<String> PERIOD_FIELDS = Arrays.asList("startDate", "endDate");
+
+    @Autowired
+    private MongoOperations mongo;
+
+    @Autowired
+    private ReadRouting readRouting;
+
+    @Autowired(required = false)
+    private AssignmentReplica replica;
+
+    @Value("${assignment.utilization.parallel-threshold-days:90}")
+    private int parallelThresholdDays;
+
+    @Value("${assignment.utilization.partitions:4}")
+    private int partitions;
+
+    @Value("${assignment.utilization.cache-size:16}")
+    private int cacheSize;
+
+    @Value("${assignment.utilization.cache-max-consultants:20000}")
+    private int cacheMaxConsultants;
+
+    private ExecutorService pool;
+    private Map<Window, Cached> cache;
+
+    @PostConstruct
+    void init() {
+        if (partitions > 1)
+            pool = Executors.newFixedThreadPool(partitions, new CustomizableThreadFactory("assignment-utilization-"));
+        cache = new LinkedHashMap<Window, Cached>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Window, Cached> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (pool != null)
+            pool.shutdownNow();
+    }
+
+    /**
+     * Hands the utilization of every consultant booked in [from, to] to {@code consumer}, ordered by consultant id.
+     */
+    public void forEachConsultant(Date from, Date to, Consumer<Utilization> consumer) {
+        forEachConsultant(from, to, readRouting.forLists(), consumer);
+    }
+
+    private void forEachConsultant(Date from, Date to, ReadPreference readPreference, Consumer<Utilization> consumer) {
+        if (replica != null) {
+            replica.forEachConsultant(from, to, (consultantId, periods) -> consumer.accept(utilization(consultantId, from, to, periods)));
+            return;
+        }
+        List<String> bounds = days(from, to) >= parallelThresholdDays && pool != null ? boundaries(readPreference) : Collections.emptyList();
+        if (bounds.isEmpty()) {
+            aggregate(from, to, overlapping(from, to), readPreference, consumer);
+            return;
+        }
+        List<Partition> running = new ArrayList<>();
+        try {
+            for (int i = 0; i <= bounds.size(); i++) {
+                DBObject match = overlapping(from, to);
+                BasicDBObject range = new BasicDBObject();
+                if (i > 0)
+                    range.append("$gte", bounds.get(i - 1));
+                if (i < bounds.size())
+                    range.append("$lt", bounds.get(i));
+                match.put("consultantId", range);
+                Partition partition = new Partition();
+                partition.task = pool.submit(() -> partition.run(() -> aggregate(from, to, match, readPreference, partition::put)));
+                running.add(partition);
+            }
+            for (Partition partition : running)
+                partition.drain(consumer);
+        } finally {
+            for (Partition partition : running)
+                partition.task.cancel(true);
+        }
+    }
+
+    /**
+     * Collects {@link #forEachConsultant}, read with {@code readPreference}. The result is kept per window for as long
+     * as {@code version}, the version of the assignment collection read from the primary, stays the same; a result
+     * read from a secondary is not kept.
+     */
+    public List<Utilization> collect(Date from, Date to, long version, ReadPreference readPreference) {
+        Window window = new Window(from, to);
+        synchronized (cache) {
+            Cached cached = cache.get(window);
+            if (cached != null && cached.version == version)
+                return cached.utilizations;
+        }
+        List<Utilization> utilizations = new ArrayList<>();
+        forEachConsultant(from, to, readPreference, utilizations::add);
+        if (cacheSize > 0 && readPreference.equals(ReadPreference.primary()) && utilizations.size() <= cacheMaxConsultants) {
+            synchronized (cache) {
+                cache.put(window, new Cached(version, utilizations));
+            }
+        }
+        return utilizations;
+    }
+
+    /**
+     * @return the utilization of one consultant, also when not booked in the window, read with {@code readPreference}
+     */
+    public Utilization ofConsultant(String consultantId, Date from, Date to, ReadPreference readPreference) {
+        if (replica != null) {
+            List<long[]> periods = new ArrayList<>();
+            for (Assignment assignment : replica.findByConsultantId(consultantId, from, to, PERIOD_FIELDS))
+                periods.add(new long[]{assignment.getStartDate().getTime(), assignment.getEndDate().getTime()});
+            return utilization(consultantId, from, to, periods);
+        }
+        DBObject match = overlapping(from, to);
+        match.put("consultantId", consultantId);
+        Utilization[] found = new Utilization[1];
+        aggregate(from, to, match, readPreference, utilization -> found[0] = utilization);
+        return found[0] != null ? found[0] : utilization(consultantId, from, to, Collections.emptyList());
+    }
+
+    private void aggregate(Date from, Date to, DBObject match, ReadPreference readPreference, Consumer<Utilization> consumer) {
+        List<DBObject> pipeline = Arrays.asList(
+                new BasicDBObject("$match", match),
+                new BasicDBObject("$group", new BasicDBObject("_id", "$consultantId")
+                        .append("periods", new BasicDBObject("$push", new BasicDBObject("startDate", "$startDate").append("endDate", "$endDate")))),
+                new BasicDBObject("$sort", new BasicDBObject("_id", 1)));
+        AggregationOptions options = AggregationOptions.builder()
+                .outputMode(AggregationOptions.OutputMode.CURSOR)
+                .allowDiskUse(true)
+                .build();
+        Cursor cursor = collection().aggregate(pipeline, options, readPreference);
+        try {
+            while (cursor.hasNext()) {
+                DBObject group = cursor.next();
+                if (group.get("_id") == null)
+                    continue;
+                List<long[]> periods = new ArrayList<>();
+                for (Object period : (List<?>) group.get("periods")) {
+                    DBObject dates = (DBObject) period;
+                    periods.add(new long[]{((Date) dates.get("startDate")).getTime(), ((Date) dates.get("endDate")).getTime()});
+                }
+                consumer.accept(utilization((String) group.get("_id"), from, to, periods));
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Ids splitting the assignments in {@code partitions} ranges of about the same size, read from the
+     * (consultantId, startDate) index. Consultants are not split over two ranges.
+     */
+    private List<String> boundaries(ReadPreference readPreference) {
+        long count = collection().getCount(readPreference);
+        List<String> bounds = new ArrayList<>();
+        for (int i = 1; i < partitions; i++) {
+            DBCursor cursor = collection().find(new BasicDBObject("consultantId", new BasicDBObject("$ne", null)),
+                    new BasicDBObject("consultantId", 1).append("_id", 0))
+                    .sort(new BasicDBObject("consultantId", 1))
+                    .skip((int) (count * i / partitions))
+                    .limit(1)
+                    .setReadPreference(readPreference);
+            try {
+                if (!cursor.hasNext())
+                    break;
+                String bound = (String) cursor.next().get("consultantId");
+                if (bounds.isEmpty() || !bounds.get(bounds.size() - 1).equals(bound))
+                    bounds.add(bound);
+            } finally {
+                cursor.close();
+            }
+        }
+        return bounds;
+    }
+
+    private static DBObject overlapping(Date from, Date to) {
+        return new BasicDBObject("startDate", new BasicDBObject("$lte", to)).append("endDate", new BasicDBObject("$gte", from));
+    }
+
+    /**
+     * Merges the periods of a consultant, clipped to the window, into booked days and the free intervals between them.
+     * A period that starts after it ends, stored before such assignments were rejected, books no days.
+     */
+    static Utilization utilization(String consultantId, Date from, Date to, List<long[]> periods) {
+        long first = Math.floorDiv(from.getTime(), DAY);
+        long last = Math.floorDiv(to.getTime(), DAY);
+        List<long[]> days = new ArrayList<>(periods.size());
+        for (long[] period : periods) {
+            long[] clipped = {Math.max(first, Math.floorDiv(period[0], DAY)), Math.min(last, Math.floorDiv(period[1], DAY))};
+            if (clipped[0] <= clipped[1])
+                days.add(clipped);
+        }
+        days.sort((a, b) -> Long.compare(a[0], b[0]));
+
+        int booked = 0;
+        List<Utilization.Interval> free = new ArrayList<>();
+        long nextFree = first;
+        for (long[] period : days) {
+            if (period[0] > nextFree)
+                free.add(new Utilization.Interval(new Date(nextFree * DAY), new Date((period[0] - 1) * DAY)));
+            if (period[1] >= nextFree) {
+                booked += period[1] - Math.max(period[0], nextFree) + 1;
+                nextFree = period[1] + 1;
+            }
+        }
+        if (nextFree <= last)
+            free.add(new Utilization.Interval(new Date(nextFree * DAY), new Date(last * DAY)));
+        double percent = Math.round(1000.0 * booked / (last - first + 1)) / 10.0;
+        return new Utilization(consultantId, from, to, booked, percent, free);
+    }
+
+    private static long days(Date from, Date to) {
+        return Math.floorDiv(to.getTime(), DAY) - Math.floorDiv(from.getTime(), DAY) + 1;
+    }
+
+    private DBCollection collection() {
+        return mongo.getCollection(mongo.getCollectionName(Assignment.class));
+    }
+
+    /** One consultant range aggregated on the pool, handing its results over through a bounded queue. */
+    private static class Partition {
+        final BlockingQueue<Utilization> results = new ArrayBlockingQueue<>(PARTITION_BUFFER);
+        volatile RuntimeException failure;
+        Future<?> task;
+
+        void run(Runnable aggregation) {
+            try {
+                aggregation.run();
+            } catch (RuntimeException e) {
+                failure = e;
+            } finally {
+                try {
+                    results.put(END);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        void put(Utilization utilization) {
+            try {
+                results.put(utilization);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Utilization report was cancelled", e);
+            }
+        }
+
+        void drain(Consumer<Utilization> consumer) {
+            try {
+                for (Utilization utilization = results.take(); utilization != END; utilization = results.take())
+                    consumer.accept(utilization);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Utilization report was interrupted", e);
+            }
+            if (failure != null)
+                throw failure;
+        }
+    }
+
+    private static final class Window {
+        final Date from;
+        final Date to;
+
+        Window(Date from, Date to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Window && from.equals(((Window) o).from) && to.equals(((Window) o).to);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(from, to);
+        }
+    }
+
+    private static final class Cached {
+        final long version;
+        final List<Utilization> utilizations;
+
+        Cached(long version, List<Utilization> utilizations) {
+            this.version = version;
+            this.utilizations = utilizations;
+        }
+    }
+}
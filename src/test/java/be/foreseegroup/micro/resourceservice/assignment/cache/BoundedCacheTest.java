@@ -0,0 +1,48 @@
+package be.foreseegroup.micro.resourceservice.assignment.cache;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the size and time bounds of {@link BoundedCache}.
+ */
+public class BoundedCacheTest {
+
+    /** Test case: exceedingMaxSizeShouldEvictLeastRecentlyUsedEntry
+     *
+     * Test if adding an entry to a full cache evicts the entry that was read least recently
+     */
+    @Test
+    public void exceedingMaxSizeShouldEvictLeastRecentlyUsedEntry() {
+        BoundedCache<String, String> cache = new BoundedCache<>(2, 60000);
+        cache.put("a", "1");
+        cache.put("b", "2");
+
+        //Read "a" so "b" becomes the least recently used entry
+        assertEquals("1", cache.get("a"));
+        cache.put("c", "3");
+
+        assertNull("Least recently used entry was not evicted", cache.get("b"));
+        assertEquals("1", cache.get("a"));
+        assertEquals("3", cache.get("c"));
+        assertEquals("Eviction count did not match", 1, cache.evictions());
+        assertEquals("Hit count did not match", 3, cache.hits());
+        assertEquals("Miss count did not match", 1, cache.misses());
+    }
+
+    /** Test case: expiredEntryShouldBeMissed
+     *
+     * Test if an entry read after its TTL is dropped and counted as an eviction
+     */
+    @Test
+    public void expiredEntryShouldBeMissed() throws InterruptedException {
+        BoundedCache<String, String> cache = new BoundedCache<>(10, 1);
+        cache.put("a", "1");
+        Thread.sleep(5);
+
+        assertNull("Expired entry was returned", cache.get("a"));
+        assertEquals("Expired entry was not removed", 0, cache.size());
+        assertEquals("Eviction count did not match", 1, cache.evictions());
+    }
+}
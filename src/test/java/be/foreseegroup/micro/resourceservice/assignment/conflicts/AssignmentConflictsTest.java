@@ -0,0 +1,158 @@
+package be.foreseegroup.micro.resourceservice.assignment.conflicts;
+
+import be.foreseegroup.micro.resourceservice.assignment.AssignmentServiceApplication;
+import be.foreseegroup.micro.resourceservice.assignment.model.Assignment;
+import be.foreseegroup.micro.resourceservice.assignment.model.BulkOperation;
+import be.foreseegroup.micro.resourceservice.assignment.model.BulkResult;
+import be.foreseegroup.micro.resourceservice.assignment.model.Conflict;
+import be.foreseegroup.micro.resourceservice.assignment.service.AssignmentRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.boot.test.TestRestTemplate;
+import org.springframework.boot.test.WebIntegrationTest;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.web.client.RestTemplate;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+/**
+ * Integration tests of the conflict endpoints and of rejecting overlapping creates.
+ */
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = AssignmentServiceApplication.class)
+@WebIntegrationTest({"server.port=0", "assignment.conflicts.enabled=true", "assignment.conflicts.reject-overlapping-creates=true"})
+@DirtiesContext
+public class AssignmentConflictsTest {
+
+    private static final ParameterizedTypeReference<List<Conflict>> CONFLICT_LIST = new ParameterizedTypeReference<List<Conflict>>() {
+    };
+    private static final ParameterizedTypeReference<List<BulkResult>> BULK_RESULT_LIST = new ParameterizedTypeReference<List<BulkResult>>() {
+    };
+
+    @Value("${local.server.port}")
+    private int port;
+
+    @Autowired
+    private AssignmentRepository repo;
+
+    private RestTemplate restTemplate = new TestRestTemplate();
+    private HttpHeaders jsonHeaders;
+
+    private static Date date(String value) {
+        SimpleDateFormat format = new SimpleDateFormat(Assignment.DATE_PATTERN);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        try {
+            return format.parse(value);
+        } catch (ParseException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        repo.deleteAll();
+        jsonHeaders = new HttpHeaders();
+        jsonHeaders.setContentType(MediaType.APPLICATION_JSON);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        repo.deleteAll();
+    }
+
+    /** Test case: overlappingUpdateShouldBeReportedAsConflict
+     *
+     * Test if moving an assignment onto another assignment of the same consultant is reported for the consultant and in range,
+     * and no longer once the assignment is deleted
+     */
+    @Test
+    public void overlappingUpdateShouldBeReportedAsConflict() {
+        String url = "http://localhost:" + port;
+        Assignment first = create(new Assignment("consultantConflict", "customerId1", date("2015-01-01"), date("2015-01-31"))).getBody();
+        Assignment second = create(new Assignment("consultantConflict", "customerId2", date("2015-02-01"), date("2015-02-28"))).getBody();
+        assertEquals("Conflicts were reported without overlap", 0, conflicts(url + "/assignmentsbycid/consultantConflict/conflicts").size());
+
+        second.setStartDate(date("2015-01-20"));
+        restTemplate.exchange(url + "/assignments/" + second.getId(), HttpMethod.PUT, new HttpEntity<>(second, jsonHeaders), Assignment.class);
+
+        List<Conflict> conflicts = conflicts(url + "/assignmentsbycid/consultantConflict/conflicts");
+        assertEquals("Number of conflicts did not match", 1, conflicts.size());
+        assertEquals("Start of the overlap did not match", date("2015-01-20"), conflicts.get(0).getFrom());
+        assertEquals("End of the overlap did not match", date("2015-01-31"), conflicts.get(0).getTo());
+        assertEquals("Conflict in range was not found", 1, conflicts(url + "/assignments/conflicts?from=2015-01-25&to=2015-01-26").size());
+        assertEquals("Conflict out of range was found", 0, conflicts(url + "/assignments/conflicts?from=2015-02-01&to=2015-02-28").size());
+
+        restTemplate.delete(url + "/assignments/" + first.getId());
+        assertEquals("Conflict remained after a delete", 0, conflicts(url + "/assignmentsbycid/consultantConflict/conflicts").size());
+    }
+
+    /** Test case: overlappingCreateShouldBeRejected
+     *
+     * Test if creating an assignment overlapping one of the same consultant results in HttpStatus code: CONFLICT (409)
+     * An overlapping assignment of another consultant should still be created
+     */
+    @Test
+    public void overlappingCreateShouldBeRejected() {
+        create(new Assignment("consultantReject", "customerId1", date("2015-01-01"), date("2015-01-31")));
+
+        ResponseEntity<Assignment> rejected = create(new Assignment("consultantReject", "customerId2", date("2015-01-31"), date("2015-02-28")));
+        assertEquals("HttpStatus code did not match", HttpStatus.CONFLICT, rejected.getStatusCode());
+        assertEquals("Overlapping assignment was saved", 1, repo.count());
+
+        ResponseEntity<Assignment> other = create(new Assignment("otherConsultant", "customerId2", date("2015-01-31"), date("2015-02-28")));
+        assertEquals("HttpStatus code did not match", HttpStatus.OK, other.getStatusCode());
+    }
+
+    /** Test case: overlappingBulkCreateShouldBeRejected
+     *
+     * Test if a bulk create overlapping an assignment of the same consultant, stored or created earlier in the same
+     * request, is reported with HttpStatus code: CONFLICT (409) and not saved
+     */
+    @Test
+    public void overlappingBulkCreateShouldBeRejected() {
+        create(new Assignment("consultantBulkReject", "customerId1", date("2015-01-01"), date("2015-01-31")));
+
+        List<BulkOperation> operations = new ArrayList<>();
+        operations.add(new BulkOperation(BulkOperation.Type.CREATE, null, new Assignment("consultantBulkReject", "customerId2", date("2015-01-31"), date("2015-02-28"))));
+        operations.add(new BulkOperation(BulkOperation.Type.CREATE, null, new Assignment("consultantBulkReject", "customerId2", date("2015-03-01"), date("2015-03-31"))));
+        operations.add(new BulkOperation(BulkOperation.Type.CREATE, null, new Assignment("consultantBulkReject", "customerId3", date("2015-03-15"), date("2015-04-15"))));
+        ResponseEntity<List<BulkResult>> response = restTemplate.exchange("http://localhost:" + port + "/assignments/bulk?ordered=false",
+                HttpMethod.POST, new HttpEntity<>(operations, jsonHeaders), BULK_RESULT_LIST);
+
+        assertEquals("Status of the create overlapping a stored assignment did not match", 409, response.getBody().get(0).getStatus());
+        assertEquals("Status of the create without overlap did not match", 200, response.getBody().get(1).getStatus());
+        assertEquals("Status of the create overlapping an earlier item did not match", 409, response.getBody().get(2).getStatus());
+        assertEquals("Overlapping assignments were saved", 2, repo.count());
+    }
+
+    private ResponseEntity<Assignment> create(Assignment assignment) {
+        return restTemplate.postForEntity("http://localhost:" + port + "/assignments", new HttpEntity<>(assignment, jsonHeaders), Assignment.class);
+    }
+
+    private List<Conflict> conflicts(String url) {
+        ResponseEntity<List<Conflict>> response = restTemplate.exchange(url, HttpMethod.GET, null, CONFLICT_LIST);
+        assertEquals("HttpStatus code did not match", HttpStatus.OK, response.getStatusCode());
+        return response.getBody();
+    }
+}
@@ -0,0 +1,96 @@
+package be.foreseegroup.micro.resourceservice.assignment.conflicts;
+
+import be.foreseegroup.micro.resourceservice.assignment.model.Assignment;
+import be.foreseegroup.micro.resourceservice.assignment.model.Conflict;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the incremental overlap bookkeeping of {@link ConflictIndex} and the queries of {@link IntervalTree}.
+ */
+public class ConflictIndexTest {
+    private static final long DAY = 86400000L;
+
+    /** Test case: overlappingAssignmentsShouldConflictUntilMoved
+     *
+     * Test if two overlapping assignments of a consultant are reported with the overlapping days,
+     * and no longer once one of them is moved or removed
+     */
+    @Test
+    public void overlappingAssignmentsShouldConflictUntilMoved() {
+        ConflictIndex index = new ConflictIndex();
+        index.put(assignment("b", "consultant1", 10, 20));
+        index.put(assignment("a", "consultant1", 15, 30));
+        index.put(assignment("c", "consultant2", 0, 40));
+
+        List<Conflict> conflicts = index.conflictsOf("consultant1");
+        assertEquals("Number of conflicts did not match", 1, conflicts.size());
+        assertEquals("AssignmentId did not match", "a", conflicts.get(0).getAssignmentId());
+        assertEquals("OtherAssignmentId did not match", "b", conflicts.get(0).getOtherAssignmentId());
+        assertEquals("Start of the overlap did not match", new Date(15 * DAY), conflicts.get(0).getFrom());
+        assertEquals("End of the overlap did not match", new Date(20 * DAY), conflicts.get(0).getTo());
+        assertEquals("Assignments of another consultant conflicted", 0, index.conflictsOf("consultant2").size());
+        assertEquals("Conflict in range was not found", 1, index.conflictsIn(new Date(18 * DAY), new Date(25 * DAY)).size());
+        assertEquals("Conflict out of range was found", 0, index.conflictsIn(new Date(21 * DAY), new Date(25 * DAY)).size());
+
+        index.put(assignment("a", "consultant1", 21, 30));
+        assertEquals("Conflict remained after a move", 0, index.conflictsOf("consultant1").size());
+        assertEquals("Conflict remained after a move", 0, index.conflictsIn(new Date(0), new Date(40 * DAY)).size());
+
+        index.put(assignment("a", "consultant1", 20, 30));
+        assertEquals("Conflict on a shared day was not found", 1, index.conflictsOf("consultant1").size());
+        index.remove("b");
+        assertEquals("Conflict remained after a delete", 0, index.conflictsOf("consultant1").size());
+        assertEquals("Number of assignments did not match", 2, index.size());
+    }
+
+    /** Test case: overlapQueriesShouldMatchExhaustiveSearch
+     *
+     * Test if the overlap queries of the tree return the same intervals as comparing them all, after random inserts and removes
+     */
+    @Test
+    public void overlapQueriesShouldMatchExhaustiveSearch() {
+        Random random = new Random(42);
+        IntervalTree<String> tree = new IntervalTree<>();
+        Map<String, long[]> intervals = new HashMap<>();
+        for (int i = 0; i < 5000; i++) {
+            String key = "k" + random.nextInt(1000);
+            long[] existing = intervals.remove(key);
+            if (existing != null) {
+                assertTrue("Interval was not removed", tree.remove(existing[0], key));
+            } else {
+                long start = random.nextInt(10000);
+                long[] interval = {start, start + random.nextInt(500)};
+                intervals.put(key, interval);
+                tree.insert(interval[0], interval[1], key, key);
+            }
+        }
+        assertEquals("Size did not match", intervals.size(), tree.size());
+
+        for (int q = 0; q < 200; q++) {
+            long from = random.nextInt(11000) - 500;
+            long to = from + random.nextInt(1000);
+            List<String> expected = new ArrayList<>();
+            for (Map.Entry<String, long[]> entry : intervals.entrySet()) {
+                if (entry.getValue()[0] <= to && entry.getValue()[1] >= from)
+                    expected.add(entry.getKey());
+            }
+            List<String> found = tree.overlapping(from, to);
+            assertEquals("Overlapping intervals did not match", new HashSet<>(expected), new HashSet<>(found));
+            assertEquals("Intervals were returned twice", expected.size(), found.size());
+        }
+    }
+
+    private static Assignment assignment(String id, String consultantId, int startDay, int endDay) {
+        return new Assignment(id, consultantId, "customer", new Date(startDay * DAY), new Date(endDay * DAY));
+    }
+}
@@ -0,0 +1,132 @@
+package be.foreseegroup.micro.resourceservice.assignment.events;
+
+import be.foreseegroup.micro.resourceservice.assignment.AssignmentServiceApplication;
+import be.foreseegroup.micro.resourceservice.assignment.model.Assignment;
+import be.foreseegroup.micro.resourceservice.assignment.model.AssignmentChange;
+import be.foreseegroup.micro.resourceservice.assignment.service.AssignmentRepository;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.springframework.amqp.core.AnonymousQueue;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.TopicExchange;
+import org.springframework.amqp.rabbit.connection.CachingConnectionFactory;
+import org.springframework.amqp.rabbit.core.RabbitAdmin;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.embedded.EmbeddedWebApplicationContext;
+import org.springframework.boot.test.TestRestTemplate;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Measures the latency the change log adds to POST and PUT /assignments, by running the same writes with
+ * {@code assignment.changes.enabled} and {@code assignment.events.enabled} off and on against an embedded broker.
+ * With events on, it also reports how long the publisher took to publish every change after the last write returned.
+ * Run with {@code gradle benchmark}; the number of writes is set with {@code -Dbenchmark.events.writes}.
+ */
+public class AssignmentEventsBenchmark {
+
+    @ClassRule
+    public static final EmbeddedBroker BROKER = new EmbeddedBroker();
+
+    private static final int WRITES = Integer.getInteger("benchmark.events.writes", 2000);
+    private static final String EXCHANGE = "assignment.changes";
+
+    @Test
+    public void compareWriteLatencyWithAndWithoutEvents() throws Exception {
+        Result without = run(false);
+        Result with = run(true);
+        System.out.printf("%,d creates and updates%n", WRITES);
+        System.out.println("events off: " + without);
+        System.out.println("events on:  " + with);
+        assertEquals("Not every change was published", 2 * WRITES, with.received);
+    }
+
+    private Result run(boolean events) throws Exception {
+        CachingConnectionFactory connectionFactory = new CachingConnectionFactory("localhost", EmbeddedBroker.PORT);
+        RabbitAdmin admin = new RabbitAdmin(connectionFactory);
+        TopicExchange exchange = new TopicExchange(EXCHANGE, true, false);
+        Queue queue = new AnonymousQueue();
+        admin.declareExchange(exchange);
+        admin.declareQueue(queue);
+        admin.declareBinding(BindingBuilder.bind(queue).to(exchange).with("assignment.#"));
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(AssignmentServiceApplication.class)
+                .run("--server.port=0", "--eureka.client.enabled=false",
+                        "--spring.rabbitmq.port=" + EmbeddedBroker.PORT,
+                        "--assignment.changes.enabled=" + events,
+                        "--assignment.events.enabled=" + events,
+                        "--assignment.metrics.log-sample-rate=0");
+        try {
+            MongoOperations mongo = context.getBean(MongoOperations.class);
+            context.getBean(AssignmentRepository.class).deleteAll();
+            mongo.remove(new Query(), AssignmentChange.class);
+            String url = "http://localhost:" + ((EmbeddedWebApplicationContext) context).getEmbeddedServletContainer().getPort() + "/assignments";
+            RestTemplate restTemplate = new TestRestTemplate();
+            HttpHeaders jsonHeaders = new HttpHeaders();
+            jsonHeaders.setContentType(MediaType.APPLICATION_JSON);
+
+            List<Long> nanos = new ArrayList<>(2 * WRITES);
+            for (int i = 0; i < WRITES; i++) {
+                long start = System.nanoTime();
+                Assignment created = restTemplate.postForEntity(url, new HttpEntity<>(new Assignment("consultant" + i, "customer" + i, new Date(), new Date()), jsonHeaders), Assignment.class).getBody();
+                nanos.add(System.nanoTime() - start);
+                created.setCustomerId("customer" + (i + 1));
+                start = System.nanoTime();
+                restTemplate.exchange(url + "/" + created.getId(), HttpMethod.PUT, new HttpEntity<>(created, jsonHeaders), Assignment.class);
+                nanos.add(System.nanoTime() - start);
+            }
+            long lastWrite = System.nanoTime();
+            while (mongo.count(new Query(Criteria.where("published").is(false)), AssignmentChange.class) > 0)
+                Thread.sleep(1);
+            double drainMillis = (System.nanoTime() - lastWrite) / 1e6;
+
+            RabbitTemplate consumer = new RabbitTemplate(connectionFactory);
+            int received = 0;
+            while (consumer.receive(queue.getName()) != null)
+                received++;
+            context.getBean(AssignmentRepository.class).deleteAll();
+
+            Collections.sort(nanos);
+            return new Result(nanos.get(nanos.size() / 2) / 1e6, nanos.get((int) (nanos.size() * 0.99)) / 1e6, received, drainMillis);
+        } finally {
+            context.close();
+            connectionFactory.destroy();
+        }
+    }
+
+    private static class Result {
+        final double p50Millis;
+        final double p99Millis;
+        final int received;
+        final double drainMillis;
+
+        Result(double p50Millis, double p99Millis, int received, double drainMillis) {
+            this.p50Millis = p50Millis;
+            this.p99Millis = p99Millis;
+            this.received = received;
+            this.drainMillis = drainMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("write p50 %.2f ms, p99 %.2f ms, all published %.0f ms after the last write, %,d changes received",
+                    p50Millis, p99Millis, drainMillis, received);
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package be.foreseegroup.micro.resourceservice.assignment.events;
+
+import be.foreseegroup.micro.resourceservice.assignment.AssignmentServiceApplication;
+import be.foreseegroup.micro.resourceservice.assignment.model.Assignment;
+import be.foreseegroup.micro.resourceservice.assignment.model.AssignmentChange;
+import be.foreseegroup.micro.resourceservice.assignment.service.AssignmentRepository;
+import org.bson.types.ObjectId;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.amqp.core.AnonymousQueue;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.TopicExchange;
+import org.springframework.amqp.rabbit.connection.CachingConnectionFactory;
+import org.springframework.amqp.rabbit.core.RabbitAdmin;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.boot.test.TestRestTemplate;
+import org.springframework.boot.test.WebIntegrationTest;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.Date;
+
+import static org.junit.Assert.*;
+
+/**
+ * Integration tests of the assignment change events, published to an embedded broker.
+ */
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = AssignmentServiceApplication.class)
+@WebIntegrationTest({"server.port=0", "spring.rabbitmq.port=" + EmbeddedBroker.PORT,
+        "assignment.events.enabled=true", "assignment.events.poll-interval-ms=100", "assignment.changes.pending-timeout-ms=500"})
+@DirtiesContext
+public class AssignmentEventsTest {
+
+    @ClassRule
+    public static final EmbeddedBroker BROKER = new EmbeddedBroker();
+
+    private static final long RECEIVE_TIMEOUT_MS = 10000;
+
+    @Value("${local.server.port}")
+    private int port;
+
+    @Value("${assignment.events.exchange:assignment.changes}")
+    private String exchange;
+
+    @Autowired
+    private AssignmentRepository repo;
+
+    @Autowired
+    private MongoOperations mongo;
+
+    private final MessageConverter converter = new Jackson2JsonMessageConverter();
+    private RestTemplate restTemplate = new TestRestTemplate();
+    private CachingConnectionFactory connectionFactory;
+    private RabbitTemplate consumer;
+    private Queue queue;
+
+    @Before
+    public void setUp() throws Exception {
+        repo.deleteAll();
+        mongo.dropCollection(AssignmentChange.class);
+        connectionFactory = new CachingConnectionFactory("localhost", EmbeddedBroker.PORT);
+        RabbitAdmin admin = new RabbitAdmin(connectionFactory);
+        TopicExchange changes = new TopicExchange(exchange, true, false);
+        queue = new AnonymousQueue();
+        admin.declareExchange(changes);
+        admin.declareQueue(queue);
+        admin.declareBinding(BindingBuilder.bind(queue).to(changes).with("assignment.#"));
+        consumer = new RabbitTemplate(connectionFactory);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        connectionFactory.destroy();
+        repo.deleteAll();
+    }
+
+    /** Test case: writesShouldPublishChangesInOrder
+     *
+     * Test if a create, an update and a delete of an assignment are published in that order, with their routing keys
+     * Every change should be marked published once the broker confirmed them
+     */
+    @Test
+    public void writesShouldPublishChangesInOrder() {
+        String url = "http://localhost:" + port + "/assignments";
+        HttpHeaders jsonHeaders = new HttpHeaders();
+        jsonHeaders.setContentType(MediaType.APPLICATION_JSON);
+        Assignment assignment = new Assignment("consultantId1", "customerId1", new Date(), new Date());
+        Assignment created = restTemplate.postForEntity(url, new HttpEntity<>(assignment, jsonHeaders), Assignment.class).getBody();
+        created.setCustomerId("customerId2");
+        restTemplate.exchange(url + "/" + created.getId(), HttpMethod.PUT, new HttpEntity<>(created, jsonHeaders), Assignment.class);
+        restTemplate.delete(url + "/" + created.getId());
+
+        Message createdMessage = receive();
+        assertEquals("Routing key did not match", "assignment.created", createdMessage.getMessageProperties().getReceivedRoutingKey());
+        AssignmentChange createdChange = (AssignmentChange) converter.fromMessage(createdMessage);
+        assertEquals("AssignmentId did not match", created.getId(), createdChange.getAssignmentId());
+        assertEquals("ConsultantId did not match", "consultantId1", createdChange.getAssignment().getConsultantId());
+
+        AssignmentChange updatedChange = (AssignmentChange) converter.fromMessage(receive());
+        assertEquals("Type did not match", AssignmentChange.Type.UPDATED, updatedChange.getType());
+        assertEquals("Version did not match", Long.valueOf(1), updatedChange.getVersion());
+        assertEquals("CustomerId did not match", "customerId2", updatedChange.getAssignment().getCustomerId());
+
+        AssignmentChange deletedChange = (AssignmentChange) converter.fromMessage(receive());
+        assertEquals("Type did not match", AssignmentChange.Type.DELETED, deletedChange.getType());
+        assertEquals("CustomerId of the removed assignment did not match", "customerId2", deletedChange.getAssignment().getCustomerId());
+
+        assertEquals("Changes were not marked published", 0, awaitUnpublished());
+    }
+
+    /** Test case: failedWriteShouldNotPublishChange
+     *
+     * Test if an update of an unexisting assignment leaves nothing in the change log and publishes nothing
+     */
+    @Test
+    public void failedWriteShouldNotPublishChange() throws Exception {
+        HttpHeaders jsonHeaders = new HttpHeaders();
+        jsonHeaders.setContentType(MediaType.APPLICATION_JSON);
+        Assignment assignment = new Assignment("consultantId1", "customerId1", new Date(), new Date());
+        ResponseEntity<Assignment> response = restTemplate.exchange("http://localhost:" + port + "/assignments/unexistingid", HttpMethod.PUT, new HttpEntity<>(assignment, jsonHeaders), Assignment.class);
+        assertEquals("HttpStatus code did not match", HttpStatus.BAD_REQUEST, response.getStatusCode());
+
+        assertEquals("Change log was not empty", 0, mongo.count(new Query(), AssignmentChange.class));
+        Thread.sleep(500);
+        assertNull("A change was published for a failed write", consumer.receive(queue.getName()));
+    }
+
+    /** Test case: pendingChangesShouldBeSettledAfterACrash
+     *
+     * Test if a change left pending by a crash is published, with the version of the assignment, when the assignment
+     * still holds the state it wrote, and dropped when the write did not happen or a later write replaced it
+     */
+    @Test
+    public void pendingChangesShouldBeSettledAfterACrash() {
+        Date time = new Date(System.currentTimeMillis() - 1000);
+        Assignment written = new Assignment(ObjectId.get().toString(), "consultantId1", "customerId1", new Date(), new Date());
+        mongo.insert(new AssignmentChange(AssignmentChange.Type.CREATED, written, time));
+        Assignment replaced = new Assignment(written.getId(), "consultantId1", "customerId2", new Date(), new Date());
+        replaced.setVersion(1L);
+        AssignmentChange latest = new AssignmentChange(AssignmentChange.Type.UPDATED, replaced, time);
+        mongo.insert(latest);
+        replaced.setChangeId(latest.getId());
+        repo.save(replaced);
+        Assignment lost = new Assignment(ObjectId.get().toString(), "consultantId2", "customerId2", new Date(), new Date());
+        mongo.insert(new AssignmentChange(AssignmentChange.Type.CREATED, lost, time));
+
+        AssignmentChange change = (AssignmentChange) converter.fromMessage(receive());
+        assertEquals("Change id did not match", latest.getId(), change.getId());
+        assertEquals("Version did not match", Long.valueOf(1), change.getVersion());
+        assertEquals("Change was not marked published", 0, awaitUnpublished());
+        assertEquals("Changes of the lost and the replaced write were not dropped", 1, mongo.count(new Query(), AssignmentChange.class));
+        assertNull("A change was published for a write that did not happen", consumer.receive(queue.getName()));
+    }
+
+    private Message receive() {
+        long end = System.currentTimeMillis() + RECEIVE_TIMEOUT_MS;
+        while (System.currentTimeMillis() < end) {
+            Message message = consumer.receive(queue.getName());
+            if (message != null)
+                return message;
+            sleep(20);
+        }
+        fail("No change was published within " + RECEIVE_TIMEOUT_MS + " ms");
+        return null;
+    }
+
+    private long awaitUnpublished() {
+        Query unpublished = new Query(Criteria.where("published").is(false));
+        long end = System.currentTimeMillis() + RECEIVE_TIMEOUT_MS;
+        long count = mongo.count(unpublished, AssignmentChange.class);
+        while (count != 0 && System.currentTimeMillis() < end) {
+            sleep(20);
+            count = mongo.count(unpublished, AssignmentChange.class);
+        }
+        return count;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package be.foreseegroup.micro.resourceservice.assignment.events;
+
+import org.apache.qpid.server.Broker;
+import org.apache.qpid.server.BrokerOptions;
+import org.junit.rules.ExternalResource;
+
+import java.nio.file.Files;
+
+/**
+ * An in-memory AMQP 0-9-1 broker standing in for RabbitMQ, with the default guest account.
+ * Use it as a {@code @ClassRule}, so it outlives the application context of the test class.
+ */
+public class EmbeddedBroker extends ExternalResource {
+    public static final int PORT = 5699;
+
+    private Broker broker;
+
+    @Override
+    protected void before() throws Throwable {
+        BrokerOptions options = new BrokerOptions();
+        options.setConfigurationStoreType("Memory");
+        options.setInitialConfigurationLocation(EmbeddedBroker.class.getResource("/qpid-broker.json").toExternalForm());
+        options.setConfigProperty("qpid.amqp_port", String.valueOf(PORT));
+        options.setConfigProperty("qpid.work_dir", Files.createTempDirectory("qpid").toString());
+        options.setStartupLoggedToSystemOut(false);
+        broker = new Broker();
+        broker.startup(options);
+    }
+
+    @Override
+    protected void after() {
+        broker.shutdown();
+    }
+}
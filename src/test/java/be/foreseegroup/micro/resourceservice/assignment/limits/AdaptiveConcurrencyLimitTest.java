@@ -0,0 +1,73 @@
+package be.foreseegroup.micro.resourceservice.assignment.limits;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for shedding and adapting the limit of {@link AdaptiveConcurrencyLimit}.
+ */
+public class AdaptiveConcurrencyLimitTest {
+    private static final long MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private AdaptiveConcurrencyLimit limit;
+
+    @Before
+    public void setUp() {
+        LimitsProperties.Concurrency settings = new LimitsProperties.Concurrency();
+        settings.setInitialLimit(10);
+        settings.setMinLimit(2);
+        settings.setMaxLimit(11);
+        settings.setWindowMs(100);
+        limit = new AdaptiveConcurrencyLimit(settings, 0);
+    }
+
+    /** Test case: requestsOverTheLimitShouldBeShed
+     *
+     * Test if no more requests than the limit are admitted at once, and a released permit admits the next request
+     */
+    @Test
+    public void requestsOverTheLimitShouldBeShed() {
+        for (int i = 0; i < 10; i++)
+            assertTrue("Request within the limit was shed", limit.tryAcquire());
+        assertFalse("Request over the limit was admitted", limit.tryAcquire());
+
+        limit.release(MILLI, MILLI);
+        assertTrue("Request after a release was shed", limit.tryAcquire());
+        assertEquals("In flight count did not match", 10, limit.inFlight());
+    }
+
+    /** Test case: limitShouldGrowWhenReachedAndShrinkWhenLatencyRises
+     *
+     * Test if a window that reaches the limit at a steady latency raises the limit by one, up to the maximum,
+     * and a window averaging over twice the lowest latency shrinks it by a tenth
+     */
+    @Test
+    public void limitShouldGrowWhenReachedAndShrinkWhenLatencyRises() {
+        saturate(MILLI, 50 * MILLI);
+        saturate(MILLI, 150 * MILLI);
+        assertEquals("Limit did not grow", 11, limit.limit());
+
+        saturate(MILLI, 300 * MILLI);
+        assertEquals("Limit grew over the maximum", 11, limit.limit());
+
+        //A window is evaluated by the first release after it ended, so the slow requests count from the next window on
+        saturate(5 * MILLI, 450 * MILLI);
+        saturate(5 * MILLI, 600 * MILLI);
+        assertEquals("Limit did not shrink", 9, limit.limit());
+        saturate(5 * MILLI, 750 * MILLI);
+        assertEquals("Limit did not shrink again", 8, limit.limit());
+    }
+
+    /** Fills the limit and releases every request after {@code latency}, at {@code now}. */
+    private void saturate(long latency, long now) {
+        int admitted = 0;
+        while (limit.tryAcquire())
+            admitted++;
+        for (int i = 0; i < admitted; i++)
+            limit.release(latency, now);
+    }
+}
@@ -0,0 +1,104 @@
+package be.foreseegroup.micro.resourceservice.assignment.limits;
+
+import be.foreseegroup.micro.resourceservice.assignment.AssignmentServiceApplication;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.test.EnvironmentTestUtils;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.boot.test.TestRestTemplate;
+import org.springframework.boot.test.WebIntegrationTest;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+/**
+ * Integration tests of the per client rate limit in front of the assignment endpoints.
+ */
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = AssignmentServiceApplication.class)
+@WebIntegrationTest({"server.port=0", "assignment.limits.rate.enabled=true", "assignment.limits.rate.requests-per-second=0.01",
+        "assignment.limits.rate.burst=2", "assignment.limits.rate.clients.importer.requests-per-second=0"})
+@DirtiesContext
+public class LoadLimitInterceptorTest {
+
+    @Value("${local.server.port}")
+    private int port;
+
+    @Autowired
+    private LoadLimiter limiter;
+
+    @Autowired
+    private ConfigurableApplicationContext context;
+
+    private RestTemplate restTemplate = new TestRestTemplate();
+
+    /** Test case: clientOverItsRateShouldBeLimited
+     *
+     * Test if a client that used up its burst is answered with HttpStatus code: TOO_MANY_REQUESTS (429) and a Retry-After,
+     * while another client, a client without limit and the actuator endpoints are still served
+     * The rejection should be counted for the endpoint
+     */
+    @Test
+    public void clientOverItsRateShouldBeLimited() {
+        assertEquals(HttpStatus.OK, get("/assignments", "batch").getStatusCode());
+        assertEquals(HttpStatus.OK, get("/assignments", "batch").getStatusCode());
+
+        ResponseEntity<String> limited = get("/assignments", "batch");
+        assertEquals("HttpStatus code did not match", HttpStatus.TOO_MANY_REQUESTS, limited.getStatusCode());
+        assertNotNull("Retry-After was not set", limited.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+
+        assertEquals("Other client was limited", HttpStatus.OK, get("/assignments", "other").getStatusCode());
+        assertEquals("Other endpoint was limited", HttpStatus.OK, get("/assignments/active?at=2015-01-01", "batch").getStatusCode());
+        for (int i = 0; i < 5; i++)
+            assertEquals("Unlimited client was limited", HttpStatus.OK, get("/assignments", "importer").getStatusCode());
+        assertNotEquals("Actuator endpoint was limited", HttpStatus.TOO_MANY_REQUESTS, get("/health", "batch").getStatusCode());
+
+        assertEquals("Rejection count did not match", 1L, metric("limits.assignments.getAll.rateLimited"));
+    }
+
+    /** Test case: refreshedLimitShouldApply
+     *
+     * Test if a limit changed in the environment applies to the next request once the change is published,
+     * as {@code POST /refresh} does
+     */
+    @Test
+    public void refreshedLimitShouldApply() {
+        get("/assignments/batch-get?ids=1", "refreshed");
+        get("/assignments/batch-get?ids=1", "refreshed");
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, get("/assignments/batch-get?ids=1", "refreshed").getStatusCode());
+
+        EnvironmentTestUtils.addEnvironment(context, "assignment.limits.rate.endpoints.batchGetByParameter.requests-per-second:1000");
+        context.publishEvent(new EnvironmentChangeEvent(Collections.singleton("assignment.limits.rate.endpoints.batchGetByParameter.requests-per-second")));
+
+        assertEquals("Refreshed limit did not apply", HttpStatus.OK, get("/assignments/batch-get?ids=1", "refreshed").getStatusCode());
+    }
+
+    private ResponseEntity<String> get(String path, String client) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("X-Api-Key", client);
+        return restTemplate.exchange("http://localhost:" + port + path, HttpMethod.GET, new HttpEntity<>(headers), String.class);
+    }
+
+    private Object metric(String name) {
+        for (Metric<?> metric : limiter.metrics()) {
+            if (metric.getName().equals(name))
+                return metric.getValue();
+        }
+        return null;
+    }
+}
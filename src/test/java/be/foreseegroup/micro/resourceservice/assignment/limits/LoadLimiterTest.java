@@ -0,0 +1,67 @@
+package be.foreseegroup.micro.resourceservice.assignment.limits;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.actuate.metrics.Metric;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the decisions of {@link LoadLimiter}.
+ */
+public class LoadLimiterTest {
+
+    private LimitsProperties properties;
+    private LoadLimiter limiter;
+
+    @Before
+    public void setUp() {
+        properties = new LimitsProperties();
+        properties.getConcurrency().setEnabled(true);
+        properties.getConcurrency().setInitialLimit(4);
+        properties.getConcurrency().setMinLimit(4);
+        limiter = new LoadLimiter(properties);
+    }
+
+    /** Test case: unlimitedRequestsShouldNotTakePermits
+     *
+     * Test if requests admitted without a limit, like the streams, are admitted while the limit is reached and
+     * leave the permits of the limited requests alone
+     */
+    @Test
+    public void unlimitedRequestsShouldNotTakePermits() {
+        for (int i = 0; i < 10; i++)
+            assertNotNull("Unlimited request was shed", limiter.acquireConcurrency("streamAll", false));
+        for (int i = 0; i < 4; i++)
+            assertNotNull("Request within the limit was shed", limiter.acquireConcurrency("getAll", true));
+        assertNull("Request over the limit was admitted", limiter.acquireConcurrency("getAll", true));
+        assertNotNull("Unlimited request was shed at the limit", limiter.acquireConcurrency("streamAll", false));
+    }
+
+    /** Test case: fullBucketsShouldBeSweptOverTheMaximum
+     *
+     * Test if new clients past the maximum number of buckets are served without dropping buckets on the way,
+     * and the sweep drops the buckets that are full again
+     */
+    @Test
+    public void fullBucketsShouldBeSweptOverTheMaximum() throws InterruptedException {
+        properties.getRate().setEnabled(true);
+        properties.getRate().setRequestsPerSecond(1000000);
+        properties.getRate().setBurst(1);
+        for (int i = 0; i <= 10000; i++)
+            assertEquals("Request of a new client was limited", 0, limiter.acquireRate("client" + i, "getAll"));
+        assertEquals("Number of buckets did not match", 10001, metric("limits.rate.buckets"));
+
+        Thread.sleep(1);
+        limiter.sweep();
+        assertEquals("Full buckets were not dropped", 0, metric("limits.rate.buckets"));
+    }
+
+    private Object metric(String name) {
+        for (Metric<?> metric : limiter.metrics()) {
+            if (metric.getName().equals(name))
+                return metric.getValue();
+        }
+        return null;
+    }
+}
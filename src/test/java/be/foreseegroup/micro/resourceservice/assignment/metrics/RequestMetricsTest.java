@@ -0,0 +1,168 @@
+package be.foreseegroup.micro.resourceservice.assignment.metrics;
+
+import be.foreseegroup.micro.resourceservice.assignment.AssignmentServiceApplication;
+import be.foreseegroup.micro.resourceservice.assignment.model.Assignment;
+import be.foreseegroup.micro.resourceservice.assignment.service.AssignmentRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.actuate.metrics.reader.MetricReader;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.boot.test.TestRestTemplate;
+import org.springframework.boot.test.WebIntegrationTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Regression tests for the per-request metrics of GET /assignments.
+ */
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = AssignmentServiceApplication.class)
+@WebIntegrationTest("server.port=0")
+@ActiveProfiles(RequestMetricsTest.PROFILE)
+@DirtiesContext
+public class RequestMetricsTest {
+    static final String PROFILE = "request-metrics-test";
+
+    private static final int ASSIGNMENT_COUNT = 1000;
+    private static final int ITERATIONS = 50;
+
+    @Autowired
+    private AssignmentRepository repo;
+
+    @Autowired
+    private MetricReader metrics;
+
+    @Autowired
+    private CompletedRequests completed;
+
+    @Value("${local.server.port}")
+    private int port;
+
+    private RestTemplate restTemplate = new TestRestTemplate();
+
+    @Before
+    public void setUp() throws Exception {
+        repo.deleteAll();
+        for (int i = 0; i < ASSIGNMENT_COUNT; i++)
+            repo.save(new Assignment("consultantId" + i, "customerId" + i, new Date(), new Date()));
+        completed.clear();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        repo.deleteAll();
+    }
+
+    /** Test case: getAllShouldCostOneMongoOperation
+     *
+     * Test if a GET on all assignments costs a single Mongo round-trip (it used to be two: findAll and count)
+     * Also, the result size, Mongo time and serialization time should be recorded for the request
+     */
+    @Test
+    public void getAllShouldCostOneMongoOperation() throws Exception {
+        for (int i = 0; i < ITERATIONS; i++) {
+            ResponseEntity<String> response = restTemplate.getForEntity(resource("/assignments"), String.class);
+            assertEquals("HttpStatus code did not match", HttpStatus.OK, response.getStatusCode());
+
+            //The metrics are published after the response was written, so wait for the ones of this request
+            RequestMetrics request = completed.poll(10, TimeUnit.SECONDS);
+            assertNotNull("Metrics of the request were not published", request);
+            assertEquals("Endpoint did not match", "getAll", request.getEndpoint());
+
+            //Check if the request only cost a single Mongo operation, and no count in particular
+            assertEquals("Mongo operation count did not match", 1, request.getMongoOperations());
+            assertFalse("A count was sent", request.getMongoOperationNames().stream().anyMatch(name -> name.startsWith("count")));
+
+            //Check if the result size was taken from the fetched page
+            assertEquals("Result size did not match", 500, request.getResultSize());
+
+            //Check if the Mongo time was recorded for the request
+            assertTrue("Mongo time was not recorded", request.getMongoNanos() > 0);
+        }
+
+        //Check if the values were published as gauges too
+        assertEquals("Mongo operation gauge did not match", 1, gauge("mongo.operations"), 0);
+        assertEquals("Result size gauge did not match", 500, gauge("resultSize"), 0);
+        assertTrue("Mongo time was not recorded", gauge("mongo.time") >= 0);
+        assertTrue("Serialization time was not recorded", gauge("serialization.time") >= 0);
+    }
+
+    /** Test case: latencyHistogramsShouldBeExposed
+     *
+     * Test if the endpoint and repository latency histograms and the error counters are published on /metrics
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void latencyHistogramsShouldBeExposed() {
+        for (int i = 0; i < ITERATIONS; i++)
+            restTemplate.getForEntity(resource("/assignments"), String.class);
+        ResponseEntity<String> notFound = restTemplate.getForEntity(resource("/assignments/unknownId"), String.class);
+        assertEquals("HttpStatus code did not match", HttpStatus.NOT_FOUND, notFound.getStatusCode());
+
+        Map<String, Number> published = restTemplate.getForObject(resource("/metrics"), Map.class);
+
+        //Check if the latency percentiles were recorded for the endpoint and the repository method
+        assertTrue("Endpoint latency count did not match", published.get("histogram.assignments.getAll.latency.count").longValue() >= ITERATIONS);
+        assertTrue("Repository latency count did not match", published.get("histogram.mongo.findPageAfter.latency.count").longValue() >= ITERATIONS);
+        assertTrue("Percentiles are not ordered", published.get("histogram.assignments.getAll.latency.p50").doubleValue()
+                <= published.get("histogram.assignments.getAll.latency.p999").doubleValue());
+        assertEquals("Result size p50 did not match", 500, published.get("histogram.assignments.getAll.resultSize.p50").doubleValue(), 0);
+
+        //Check if the failed lookup was counted as a client error
+        assertNotNull("Client errors were not counted", published.get("counter.assignments.getById.clientErrors"));
+    }
+
+    private String resource(String path) {
+        return "http://localhost:" + port + path;
+    }
+
+    private double gauge(String name) {
+        Metric<?> metric = metrics.findOne("gauge.assignments.getAll." + name);
+        assertNotNull("Metric " + name + " was not recorded", metric);
+        return metric.getValue().doubleValue();
+    }
+
+    /**
+     * Registers the {@link CompletedRequests} in this test's profile only, as component scanning picks it up for every test.
+     */
+    @Configuration
+    @Profile(PROFILE)
+    static class CompletedRequestsConfiguration {
+
+        @Bean
+        public CompletedRequests completedRequests() {
+            return new CompletedRequests();
+        }
+    }
+
+    /**
+     * Collects the metrics of every completed request, in completion order.
+     */
+    static class CompletedRequests extends LinkedBlockingQueue<RequestMetrics> implements RequestMetricsListener {
+
+        @Override
+        public void requestCompleted(RequestMetrics metrics) {
+            add(metrics);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package be.foreseegroup.micro.resourceservice.assignment.mongo;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Date;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the replication lag {@link ReadRouting} takes from {@code replSetGetStatus}.
+ */
+public class ReadRoutingTest {
+
+    /** Test case: lagShouldBeThatOfTheFurthestSecondary
+     *
+     * Test if the lag is the distance between the optime of the primary and the oldest optime of a secondary,
+     * members in other states (recovering, arbiter) should be ignored
+     */
+    @Test
+    public void lagShouldBeThatOfTheFurthestSecondary() {
+        DBObject status = new BasicDBObject("members", Arrays.asList(
+                member("SECONDARY", 9000),
+                member("PRIMARY", 10000),
+                member("SECONDARY", 7500),
+                member("RECOVERING", 0),
+                new BasicDBObject("stateStr", "ARBITER")));
+
+        assertEquals("Lag did not match", 2500, ReadRouting.maxLagMillis(status));
+    }
+
+    /** Test case: lagShouldBeUnknownWithoutPrimaryOrSecondary
+     *
+     * Test if a replica set without a primary, without a secondary, or a status without members has an unknown lag
+     */
+    @Test
+    public void lagShouldBeUnknownWithoutPrimaryOrSecondary() {
+        assertEquals(Long.MAX_VALUE, ReadRouting.maxLagMillis(new BasicDBObject("members", Arrays.asList(member("SECONDARY", 10000)))));
+        assertEquals(Long.MAX_VALUE, ReadRouting.maxLagMillis(new BasicDBObject("members", Arrays.asList(member("PRIMARY", 10000)))));
+        assertEquals(Long.MAX_VALUE, ReadRouting.maxLagMillis(new BasicDBObject("ok", 0)));
+    }
+
+    private static DBObject member(String state, long optime) {
+        return new BasicDBObject("stateStr", state).append("optimeDate", new Date(optime));
+    }
+}
@@ -0,0 +1,191 @@
+package be.foreseegroup.micro.resourceservice.assignment.replica;
+
+import be.foreseegroup.micro.resourceservice.assignment.AssignmentServiceApplication;
+import be.foreseegroup.micro.resourceservice.assignment.model.Assignment;
+import be.foreseegroup.micro.resourceservice.assignment.model.AssignmentChange;
+import be.foreseegroup.micro.resourceservice.assignment.service.AssignmentRepository;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.boot.test.TestRestTemplate;
+import org.springframework.boot.test.WebIntegrationTest;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.web.client.RestTemplate;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+/**
+ * Integration tests of serving the assignment reads from the {@link AssignmentReplica}.
+ * Assignments removed straight from Mongo are not seen by the replica, which shows a read did not go to Mongo.
+ */
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = AssignmentServiceApplication.class)
+@WebIntegrationTest({"server.port=0", "assignment.replica.enabled=true"})
+@DirtiesContext
+public class AssignmentReplicaTest {
+
+    private static final ParameterizedTypeReference<List<Assignment>> ASSIGNMENT_LIST = new ParameterizedTypeReference<List<Assignment>>() {
+    };
+
+    @Value("${local.server.port}")
+    private int port;
+
+    @Autowired
+    private AssignmentRepository repo;
+
+    @Autowired
+    private MongoOperations mongo;
+
+    private RestTemplate restTemplate = new TestRestTemplate();
+    private HttpHeaders jsonHeaders;
+
+    private static Date date(String value) {
+        SimpleDateFormat format = new SimpleDateFormat(Assignment.DATE_PATTERN);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        try {
+            return format.parse(value);
+        } catch (ParseException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        repo.deleteAll();
+        jsonHeaders = new HttpHeaders();
+        jsonHeaders.setContentType(MediaType.APPLICATION_JSON);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        repo.deleteAll();
+    }
+
+    /** Test case: writesShouldBeReadFromReplica
+     *
+     * Test if creates, updates and deletes are read back right away from the replica, by id and by consultant in a range,
+     * while an assignment removed from Mongo without going through the service is still served
+     */
+    @Test
+    public void writesShouldBeReadFromReplica() {
+        String url = "http://localhost:" + port;
+        Assignment first = create(new Assignment("consultantReplica", "customerId1", date("2015-01-01"), date("2015-01-31")));
+        Assignment second = create(new Assignment("consultantReplica", "customerReplica", date("2015-01-15"), date("2015-02-28")));
+        assertEquals("Number of assignments in range did not match", 2, list(url + "/assignmentsbycid/consultantReplica?from=2015-01-20&to=2015-01-25").size());
+
+        second.setStartDate(date("2015-02-01"));
+        restTemplate.exchange(url + "/assignments/" + second.getId(), HttpMethod.PUT, new HttpEntity<>(second, jsonHeaders), Assignment.class);
+        List<Assignment> inRange = list(url + "/assignmentsbycid/consultantReplica?from=2015-01-20&to=2015-01-25");
+        assertEquals("Number of assignments in range did not match", 1, inRange.size());
+        assertEquals("Id did not match", first.getId(), inRange.get(0).getId());
+        assertEquals("Number of assignments at the customer did not match", 1, list(url + "/assignmentsbycuid/customerReplica").size());
+
+        restTemplate.delete(url + "/assignments/" + first.getId());
+        assertEquals("HttpStatus code did not match", HttpStatus.NOT_FOUND,
+                restTemplate.getForEntity(url + "/assignments/" + first.getId(), Assignment.class).getStatusCode());
+
+        repo.delete(second.getId());
+        ResponseEntity<Assignment> served = restTemplate.getForEntity(url + "/assignments/" + second.getId(), Assignment.class);
+        assertEquals("HttpStatus code did not match", HttpStatus.OK, served.getStatusCode());
+        assertEquals("StartDate did not match", date("2015-02-01"), served.getBody().getStartDate());
+        assertEquals("Version did not match", Long.valueOf(1), served.getBody().getVersion());
+    }
+
+    /** Test case: listETagShouldOnlyChangeWithItsList
+     *
+     * Test if the ETag of the list of a consultant is answered with NOT_MODIFIED (304) until an assignment of that
+     * consultant is written, also when assignments of other consultants are
+     */
+    @Test
+    public void listETagShouldOnlyChangeWithItsList() {
+        String url = "http://localhost:" + port + "/assignmentsbycid/consultantETag";
+        create(new Assignment("consultantETag", "customerId1", date("2015-01-01"), date("2015-01-31")));
+        String eTag = restTemplate.getForEntity(url, String.class).getHeaders().getETag();
+        assertNotNull("GET response did not contain an ETag", eTag);
+        assertEquals("HttpStatus code did not match", HttpStatus.NOT_MODIFIED, getIfNoneMatch(url, eTag).getStatusCode());
+
+        create(new Assignment("otherConsultant", "customerId1", date("2015-01-01"), date("2015-01-31")));
+        assertEquals("HttpStatus code did not match", HttpStatus.NOT_MODIFIED, getIfNoneMatch(url, eTag).getStatusCode());
+
+        create(new Assignment("consultantETag", "customerId2", date("2015-02-01"), date("2015-02-28")));
+        ResponseEntity<String> changed = getIfNoneMatch(url, eTag);
+        assertEquals("HttpStatus code did not match", HttpStatus.OK, changed.getStatusCode());
+        assertNotEquals("ETag did not change after a create", eTag, changed.getHeaders().getETag());
+    }
+
+    /** Test case: ownWriteShouldBeReadPastACommitInFlight
+     *
+     * Test if a create is read back right away from the replica while the commit of another write, numbered before
+     * it, is still in flight, once that commit lands
+     */
+    @Test
+    public void ownWriteShouldBeReadPastACommitInFlight() throws Exception {
+        DBObject counter = mongo.getCollection("assignmentCounters").findAndModify(new BasicDBObject("_id", "changes"), null, null, false,
+                new BasicDBObject("$inc", new BasicDBObject("value", 1L)), true, true);
+        long inFlight = ((Number) counter.get("value")).longValue();
+        // Lands a while after the create was committed behind it
+        Thread commit = new Thread(() -> {
+            Query created = new Query(Criteria.where("sequence").is(inFlight + 1));
+            try {
+                while (!mongo.exists(created, AssignmentChange.class))
+                    Thread.sleep(10);
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                return;
+            }
+            AssignmentChange change = new AssignmentChange(AssignmentChange.Type.CREATED,
+                    new Assignment("consultantInFlight", "customerId1", date("2015-01-01"), date("2015-01-31")), new Date());
+            change.setState(AssignmentChange.State.READY);
+            change.setSequence(inFlight);
+            change.setAllocated(new Date());
+            mongo.insert(change);
+        });
+        commit.start();
+        Assignment created = create(new Assignment("consultantGap", "customerId1", date("2015-01-01"), date("2015-01-31")));
+        ResponseEntity<Assignment> served = restTemplate.getForEntity("http://localhost:" + port + "/assignments/" + created.getId(), Assignment.class);
+        commit.join();
+        assertEquals("HttpStatus code did not match", HttpStatus.OK, served.getStatusCode());
+    }
+
+    private Assignment create(Assignment assignment) {
+        ResponseEntity<Assignment> response = restTemplate.postForEntity("http://localhost:" + port + "/assignments", new HttpEntity<>(assignment, jsonHeaders), Assignment.class);
+        assertEquals("HttpStatus code did not match", HttpStatus.OK, response.getStatusCode());
+        return response.getBody();
+    }
+
+    private List<Assignment> list(String url) {
+        ResponseEntity<List<Assignment>> response = restTemplate.exchange(url, HttpMethod.GET, null, ASSIGNMENT_LIST);
+        assertEquals("HttpStatus code did not match", HttpStatus.OK, response.getStatusCode());
+        return response.getBody();
+    }
+
+    private ResponseEntity<String> getIfNoneMatch(String url, String eTag) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch(eTag);
+        return restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), String.class);
+    }
+}
@@ -0,0 +1,181 @@
+package be.foreseegroup.micro.resourceservice.assignment.replica;
+
+import be.foreseegroup.micro.resourceservice.assignment.model.Assignment;
+import org.bson.types.ObjectId;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the columns, id order, range queries and list stamps of {@link ColumnarAssignments}.
+ */
+public class ColumnarAssignmentsTest {
+    private static final long DAY = 86400000L;
+
+    /** Test case: randomWritesShouldMatchMap
+     *
+     * Test if lookups, keyset pages and range queries return the same assignments as a sorted map holding them,
+     * after loading and after random puts and removes
+     */
+    @Test
+    public void randomWritesShouldMatchMap() {
+        Random random = new Random(42);
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            byte[] bytes = new byte[12];
+            random.nextBytes(bytes);
+            ids.add(new ObjectId(bytes).toString());
+        }
+        // Fixed length hex ids sort like their unsigned bytes
+        Map<String, Assignment> expected = new TreeMap<>();
+        ColumnarAssignments columns = new ColumnarAssignments(10, 1000, 0);
+        for (int i = 0; i < 100; i++) {
+            Assignment assignment = random(ids.get(i), random);
+            expected.put(assignment.getId(), assignment);
+            columns.append(assignment);
+        }
+        columns.sortById();
+        assertMatches(expected, columns, random);
+
+        for (int i = 0; i < 2000; i++) {
+            String id = ids.get(random.nextInt(ids.size()));
+            if (random.nextInt(3) == 0) {
+                expected.remove(id);
+                columns.remove(id, 11 + i, 2000 + i);
+            } else {
+                Assignment assignment = random(id, random);
+                expected.put(id, assignment);
+                columns.put(assignment, 11 + i, 2000 + i);
+            }
+        }
+        assertMatches(expected, columns, random);
+    }
+
+    /** Test case: writesShouldStampTheirLists
+     *
+     * Test if a write stamps all assignments and the lists of the consultants and customers before and after it,
+     * and leaves the other lists at the stamp of the load
+     */
+    @Test
+    public void writesShouldStampTheirLists() {
+        ColumnarAssignments columns = new ColumnarAssignments(10, 1000, 0);
+        columns.append(assignment("a", "consultant1", "customer1", 0, 10));
+        columns.append(assignment("b", "consultant2", "customer1", 0, 10));
+        columns.sortById();
+        assertArrayEquals("Stamp of a loaded list did not match", new long[]{10, 1000}, columns.stampOfConsultant("consultant1"));
+        assertArrayEquals("Stamp of an unknown list did not match", new long[]{10, 1000}, columns.stampOfCustomer("unknown"));
+
+        columns.put(assignment("a", "consultant3", "customer1", 0, 10), 11, 2000);
+        assertArrayEquals("Stamp of all did not match", new long[]{11, 2000}, columns.stampOfAll());
+        assertArrayEquals("Stamp of the old consultant did not match", new long[]{11, 2000}, columns.stampOfConsultant("consultant1"));
+        assertArrayEquals("Stamp of the new consultant did not match", new long[]{11, 2000}, columns.stampOfConsultant("consultant3"));
+        assertArrayEquals("Stamp of an untouched consultant moved", new long[]{10, 1000}, columns.stampOfConsultant("consultant2"));
+
+        columns.remove("b", 12, 3000);
+        assertArrayEquals("Stamp after a delete did not match", new long[]{12, 3000}, columns.stampOfConsultant("consultant2"));
+        assertArrayEquals("Stamp after a delete did not match", new long[]{12, 3000}, columns.stampOfCustomer("customer1"));
+        assertEquals("Deleted assignment was still listed", 0, columns.ofConsultant("consultant2", null, null, null).size());
+    }
+
+    /** Test case: stringIdsShouldSortBeforeObjectIds
+     *
+     * Test if ids that are not ObjectIds are kept as they are and listed before the ObjectIds, like Mongo sorts them,
+     * and if a field selection only fills the selected properties
+     */
+    @Test
+    public void stringIdsShouldSortBeforeObjectIds() {
+        ColumnarAssignments columns = new ColumnarAssignments(0, 0, 0);
+        String objectId = new ObjectId().toString();
+        columns.put(assignment(objectId, "consultant1", "customer1", 0, 10), 1, 1);
+        columns.put(assignment("zz", "consultant1", "customer1", 0, 10), 2, 2);
+        columns.put(assignment("aa", "consultant1", null, 5, 20), 3, 3);
+
+        List<String> order = columns.pageAfter(null, 10, null).stream().map(Assignment::getId).collect(Collectors.toList());
+        assertEquals("Id order did not match", Arrays.asList("aa", "zz", objectId), order);
+        assertEquals("Page after a string id did not match", objectId, columns.pageAfter("zz", 10, null).get(0).getId());
+
+        Assignment selected = columns.ofConsultant("consultant1", new Date(15 * DAY), new Date(16 * DAY), Arrays.asList("id", "endDate")).get(0);
+        assertEquals("Id did not match", "aa", selected.getId());
+        assertEquals("EndDate did not match", new Date(20 * DAY), selected.getEndDate());
+        assertNull("Unselected property was filled", selected.getConsultantId());
+        assertNull("Unselected property was filled", selected.getStartDate());
+        assertNull("Missing customer was filled", columns.get("aa").getCustomerId());
+    }
+
+    private static void assertMatches(Map<String, Assignment> expected, ColumnarAssignments columns, Random random) {
+        assertEquals("Size did not match", expected.size(), columns.size());
+        for (Assignment assignment : expected.values())
+            assertSame(assignment, columns.get(assignment.getId()));
+
+        List<String> paged = new ArrayList<>();
+        String after = null;
+        for (List<Assignment> page = columns.pageAfter(null, 7, null); !page.isEmpty(); page = columns.pageAfter(after, 7, null)) {
+            for (Assignment assignment : page)
+                paged.add(assignment.getId());
+            after = paged.get(paged.size() - 1);
+        }
+        assertEquals("Id order did not match", new ArrayList<>(expected.keySet()), paged);
+
+        for (int q = 0; q < 50; q++) {
+            long from = random.nextInt(120);
+            long to = from + random.nextInt(30);
+            String consultant = "consultant" + random.nextInt(6);
+            List<String> found = ids(columns.ofConsultant(consultant, new Date(from * DAY), new Date(to * DAY), null));
+            List<String> wanted = expected.values().stream()
+                    .filter(a -> consultant.equals(a.getConsultantId()))
+                    .filter(a -> a.getStartDate().getTime() <= to * DAY && a.getEndDate().getTime() >= from * DAY)
+                    .map(Assignment::getId)
+                    .collect(Collectors.toList());
+            assertEquals("Range of the consultant did not match", wanted, found);
+
+            String customer = "customer" + random.nextInt(4);
+            assertEquals("Assignments at the customer did not match",
+                    expected.values().stream().filter(a -> customer.equals(a.getCustomerId())).map(Assignment::getId).collect(Collectors.toList()),
+                    ids(columns.ofCustomer(customer, null, null, null)));
+
+            List<String> active = ids(columns.activeAt(new Date(from * DAY), Collections.singletonList("id")));
+            assertEquals("Active assignments did not match",
+                    expected.values().stream()
+                            .filter(a -> a.getStartDate().getTime() <= from * DAY && a.getEndDate().getTime() >= from * DAY)
+                            .map(Assignment::getId)
+                            .collect(Collectors.toList()),
+                    active);
+        }
+    }
+
+    private static void assertSame(Assignment expected, Assignment actual) {
+        assertNotNull("Assignment was not found", actual);
+        assertEquals("ConsultantId did not match", expected.getConsultantId(), actual.getConsultantId());
+        assertEquals("CustomerId did not match", expected.getCustomerId(), actual.getCustomerId());
+        assertEquals("StartDate did not match", expected.getStartDate(), actual.getStartDate());
+        assertEquals("EndDate did not match", expected.getEndDate(), actual.getEndDate());
+        assertEquals("Version did not match", expected.getVersion(), actual.getVersion());
+        assertEquals("LastModified did not match", expected.getLastModified(), actual.getLastModified());
+    }
+
+    private static List<String> ids(List<Assignment> assignments) {
+        return assignments.stream().map(Assignment::getId).collect(Collectors.toList());
+    }
+
+    private static Assignment random(String id, Random random) {
+        long start = random.nextInt(100);
+        Assignment assignment = assignment(id, "consultant" + random.nextInt(6), "customer" + random.nextInt(4), start, start + random.nextInt(40));
+        assignment.setVersion((long) random.nextInt(5));
+        assignment.setLastModified(new Date(random.nextInt(100000)));
+        return assignment;
+    }
+
+    private static Assignment assignment(String id, String consultantId, String customerId, long startDay, long endDay) {
+        return new Assignment(id, consultantId, customerId, new Date(startDay * DAY), new Date(endDay * DAY));
+    }
+}
@@ -0,0 +1,141 @@
+package be.foreseegroup.micro.resourceservice.assignment.service;
+
+import be.foreseegroup.micro.resourceservice.assignment.AssignmentServiceApplication;
+import be.foreseegroup.micro.resourceservice.assignment.model.Assignment;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.boot.test.TestRestTemplate;
+import org.springframework.boot.test.WebIntegrationTest;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Integration tests of moving ended assignments to the {@link AssignmentArchive}, with the replica enabled, so the
+ * archiving also has to reach the copy of the working set in memory.
+ */
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = AssignmentServiceApplication.class)
+@WebIntegrationTest({"server.port=0", "assignment.archive.enabled=true", "assignment.archive.interval-ms=3600000",
+        "assignment.replica.enabled=true"})
+@DirtiesContext
+public class AssignmentArchiverTest {
+
+    private static final ParameterizedTypeReference<List<Assignment>> ASSIGNMENT_LIST = new ParameterizedTypeReference<List<Assignment>>() {
+    };
+
+    @Value("${local.server.port}")
+    private int port;
+
+    @Autowired
+    private AssignmentRepository repo;
+
+    @Autowired
+    private AssignmentArchiver archiver;
+
+    @Autowired
+    private MongoOperations mongo;
+
+    private RestTemplate restTemplate = new TestRestTemplate();
+
+    @Before
+    public void setUp() throws Exception {
+        repo.deleteAll();
+        mongo.remove(new Query(), Assignment.class, AssignmentArchive.COLLECTION);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        // Through the service, so the replica sees the deletes
+        repo.findAll().forEach(assignment -> restTemplate.delete(url("/assignments/" + assignment.getId())));
+        mongo.remove(new Query(), Assignment.class, AssignmentArchive.COLLECTION);
+    }
+
+    /** Test case: endedAssignmentShouldOnlyBeReadWithIncludeArchived
+     *
+     * Test if an assignment that ended before the horizon leaves the working set, so the consultant list and the
+     * lookup by id no longer return it, and if both still return it with includeArchived=true, under another ETag
+     */
+    @Test
+    public void endedAssignmentShouldOnlyBeReadWithIncludeArchived() {
+        Assignment ended = restTemplate.postForObject(url("/assignments"),
+                new Assignment("consultantArchive", "customerArchive", new Date(0), new Date(86400000L)), Assignment.class);
+        Assignment running = restTemplate.postForObject(url("/assignments"),
+                new Assignment("consultantArchive", "customerArchive", new Date(0), new Date(System.currentTimeMillis() + TimeUnit.DAYS.toMillis(30))), Assignment.class);
+
+        archiver.archiveBatch();
+        assertFalse("Ended assignment was not moved out of the working set", repo.exists(ended.getId()));
+        assertTrue("Running assignment was archived", repo.exists(running.getId()));
+
+        ResponseEntity<List<Assignment>> hot = restTemplate.exchange(url("/assignmentsbycid/consultantArchive"), HttpMethod.GET, null, ASSIGNMENT_LIST);
+        assertEquals("Number of assignments did not match", 1, hot.getBody().size());
+        assertEquals("Assignment did not match", running.getId(), hot.getBody().get(0).getId());
+        ResponseEntity<List<Assignment>> both = restTemplate.exchange(url("/assignmentsbycid/consultantArchive?includeArchived=true"), HttpMethod.GET, null, ASSIGNMENT_LIST);
+        assertEquals("Number of assignments did not match", 2, both.getBody().size());
+        assertNotEquals("ETag did not tell the lists apart", hot.getHeaders().getETag(), both.getHeaders().getETag());
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch(hot.getHeaders().getETag());
+        assertEquals("HttpStatus code did not match", HttpStatus.OK, restTemplate.exchange(url("/assignmentsbycid/consultantArchive?includeArchived=true"),
+                HttpMethod.GET, new HttpEntity<>(headers), String.class).getStatusCode());
+
+        assertEquals("HttpStatus code did not match", HttpStatus.NOT_FOUND,
+                restTemplate.getForEntity(url("/assignments/" + ended.getId()), String.class).getStatusCode());
+        ResponseEntity<Assignment> archived = restTemplate.getForEntity(url("/assignments/" + ended.getId() + "?includeArchived=true"), Assignment.class);
+        assertEquals("HttpStatus code did not match", HttpStatus.OK, archived.getStatusCode());
+        assertEquals("Consultant did not match", "consultantArchive", archived.getBody().getConsultantId());
+    }
+
+    /** Test case: pagesShouldRunOverBothTiersInIdOrder
+     *
+     * Test if paging through all assignments with includeArchived=true returns the archived and the running assignments
+     * once each, in id order, while the default pages only hold the running ones
+     */
+    @Test
+    public void pagesShouldRunOverBothTiersInIdOrder() {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            Date end = i % 2 == 0 ? new Date(86400000L) : new Date(System.currentTimeMillis() + TimeUnit.DAYS.toMillis(30));
+            ids.add(restTemplate.postForObject(url("/assignments"), new Assignment("consultantArchive" + i, "customerArchive", new Date(0), end), Assignment.class).getId());
+        }
+        archiver.archiveBatch();
+
+        List<String> paged = new ArrayList<>();
+        String token = null;
+        do {
+            ResponseEntity<List<Assignment>> page = restTemplate.exchange(url("/assignments?includeArchived=true&limit=2" + (token == null ? "" : "&token=" + token)),
+                    HttpMethod.GET, null, ASSIGNMENT_LIST);
+            page.getBody().forEach(assignment -> paged.add(assignment.getId()));
+            token = page.getHeaders().getFirst(AssignmentService.CONTINUATION_TOKEN_HEADER);
+        } while (token != null);
+        assertEquals("Ids did not match", ids, paged);
+
+        assertEquals("Number of assignments did not match", 3,
+                restTemplate.exchange(url("/assignments"), HttpMethod.GET, null, ASSIGNMENT_LIST).getBody().size());
+    }
+
+    private String url(String path) {
+        return "http://localhost:" + port + path;
+    }
+}
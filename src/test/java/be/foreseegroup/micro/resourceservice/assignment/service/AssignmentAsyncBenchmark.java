@@ -0,0 +1,169 @@
+package be.foreseegroup.micro.resourceservice.assignment.service;
+
+import be.foreseegroup.micro.resourceservice.assignment.AssignmentServiceApplication;
+import be.foreseegroup.micro.resourceservice.assignment.model.Assignment;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.junit.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.embedded.EmbeddedWebApplicationContext;
+import org.springframework.boot.test.TestRestTemplate;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.repository.Repository;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares blocking and asynchronous handling of uncached GET /assignments/{id} while every Mongo call is delayed by
+ * {@code -Dbenchmark.async.latency-ms}. Besides the throughput of the slow endpoint, the latency of /info,
+ * which needs no Mongo, shows whether the container threads were still free to serve it.
+ * Run with {@code gradle benchmark}.
+ */
+public class AssignmentAsyncBenchmark {
+
+    private static final long LATENCY_MS = Long.getLong("benchmark.async.latency-ms", 200);
+    private static final int CLIENTS = Integer.getInteger("benchmark.async.clients", 64);
+    private static final long DURATION_MS = Long.getLong("benchmark.async.duration-ms", 10000);
+    private static final int CONTAINER_THREADS = 8;
+    private static final int ASYNC_THREADS = 16;
+    private static final long BACKOFF_MS = 100;
+
+    @Test
+    public void compareBlockingAndAsyncThroughput() throws Exception {
+        Result blocking = run(false);
+        Result async = run(true);
+        System.out.printf("Mongo latency %d ms, %d clients, %d container threads, %d async threads%n",
+                LATENCY_MS, CLIENTS, CONTAINER_THREADS, ASYNC_THREADS);
+        System.out.println("blocking: " + blocking);
+        System.out.println("async:    " + async);
+        assertTrue("Async handling served less requests than blocking handling", async.served >= blocking.served);
+        assertTrue("/info was not faster with async handling", async.probeP99Millis < blocking.probeP99Millis);
+    }
+
+    private Result run(boolean async) throws Exception {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(AssignmentServiceApplication.class)
+                .initializers(applicationContext -> applicationContext.getBeanFactory().addBeanPostProcessor(new MongoLatency()))
+                .run("--server.port=0", "--eureka.client.enabled=false",
+                        "--server.tomcat.max-threads=" + CONTAINER_THREADS,
+                        "--assignment.async.enabled=" + async,
+                        "--assignment.async.pool-size=" + ASYNC_THREADS,
+                        "--assignment.async.queue-capacity=" + ASYNC_THREADS,
+                        "--assignment.cache.max-size=0",
+                        "--assignment.metrics.log-sample-rate=0");
+        try {
+            AssignmentRepository repo = context.getBean(AssignmentRepository.class);
+            repo.deleteAll();
+            List<Assignment> assignments = new ArrayList<>();
+            for (int i = 0; i < 100; i++)
+                assignments.add(new Assignment("consultant" + i, "customer" + i, new Date(), new Date()));
+            List<String> ids = new ArrayList<>();
+            for (Assignment assignment : repo.save(assignments))
+                ids.add(assignment.getId());
+            String baseUrl = "http://localhost:" + ((EmbeddedWebApplicationContext) context).getEmbeddedServletContainer().getPort();
+            Result result = load(baseUrl, ids);
+            repo.deleteAll();
+            return result;
+        } finally {
+            context.close();
+        }
+    }
+
+    private Result load(String baseUrl, List<String> ids) throws InterruptedException {
+        RestTemplate restTemplate = new TestRestTemplate();
+        // A connection per client thread, the pooled HTTP client would limit the number of concurrent requests
+        restTemplate.setRequestFactory(new SimpleClientHttpRequestFactory());
+        AtomicLong served = new AtomicLong();
+        AtomicLong rejected = new AtomicLong();
+        List<Long> probeNanos = Collections.synchronizedList(new ArrayList<>());
+        long end = System.currentTimeMillis() + DURATION_MS;
+
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENTS + 1);
+        for (int i = 0; i < CLIENTS; i++) {
+            clients.execute(() -> {
+                while (System.currentTimeMillis() < end) {
+                    ResponseEntity<String> response = restTemplate.getForEntity(baseUrl + "/assignments/" + ids.get(ThreadLocalRandom.current().nextInt(ids.size())), String.class);
+                    if (response.getStatusCode() == HttpStatus.OK)
+                        served.incrementAndGet();
+                    else if (response.getStatusCode() == HttpStatus.SERVICE_UNAVAILABLE) {
+                        rejected.incrementAndGet();
+                        sleep(BACKOFF_MS);
+                    }
+                }
+            });
+        }
+        clients.execute(() -> {
+            while (System.currentTimeMillis() < end) {
+                long start = System.nanoTime();
+                restTemplate.getForEntity(baseUrl + "/info", String.class);
+                probeNanos.add(System.nanoTime() - start);
+                sleep(20);
+            }
+        });
+        clients.shutdown();
+        clients.awaitTermination(DURATION_MS + 60000, TimeUnit.MILLISECONDS);
+
+        Collections.sort(probeNanos);
+        long probeP99 = probeNanos.isEmpty() ? 0 : probeNanos.get((int) (probeNanos.size() * 0.99));
+        return new Result(served.get() * 1000.0 / DURATION_MS, rejected.get(), probeP99 / 1e6);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Delays every repository call, as a slow or overloaded Mongo would. */
+    private static class MongoLatency implements BeanPostProcessor {
+        @Override
+        public Object postProcessBeforeInitialization(Object bean, String beanName) {
+            return bean;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (!(bean instanceof Repository))
+                return bean;
+            ProxyFactory proxyFactory = new ProxyFactory(bean);
+            proxyFactory.addAdvice((MethodInterceptor) invocation -> {
+                Thread.sleep(LATENCY_MS);
+                return invocation.proceed();
+            });
+            return proxyFactory.getProxy();
+        }
+    }
+
+    private static class Result {
+        final double served;
+        final long rejected;
+        final double probeP99Millis;
+
+        Result(double served, long rejected, double probeP99Millis) {
+            this.served = served;
+            this.rejected = rejected;
+            this.probeP99Millis = probeP99Millis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%,.0f requests/s served, %,d rejected with 503, /info p99 %.1f ms", served, rejected, probeP99Millis);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package be.foreseegroup.micro.resourceservice.assignment.service;
+
+import be.foreseegroup.micro.resourceservice.assignment.AssignmentServiceApplication;
+import be.foreseegroup.micro.resourceservice.assignment.model.Assignment;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.boot.test.TestRestTemplate;
+import org.springframework.boot.test.WebIntegrationTest;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.Date;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares the create throughput of POST /assignments with POST /assignments/bulk.
+ * Run with {@code gradle benchmark}; the number of assignments is set with {@code -Dbenchmark.bulk.assignments}.
+ */
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = AssignmentServiceApplication.class)
+@WebIntegrationTest
+public class AssignmentBulkBenchmark {
+
+    private static final String UNIT_RESOURCE = "http://localhost:8888/assignments";
+    private static final int ASSIGNMENTS = Integer.getInteger("benchmark.bulk.assignments", 10000);
+
+    @Autowired
+    private AssignmentRepository repo;
+
+    private RestTemplate restTemplate = new TestRestTemplate();
+
+    @Before
+    public void setUp() throws Exception {
+        repo.deleteAll();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        repo.deleteAll();
+    }
+
+    @Test
+    public void compareSingleAndBulkCreateThroughput() {
+        HttpHeaders jsonHeaders = new HttpHeaders();
+        jsonHeaders.setContentType(MediaType.APPLICATION_JSON);
+        long start = System.nanoTime();
+        for (int i = 0; i < ASSIGNMENTS; i++) {
+            Assignment assignment = new Assignment("consultant" + i, "customer" + i, new Date(), new Date());
+            restTemplate.postForEntity(UNIT_RESOURCE, new HttpEntity<>(assignment, jsonHeaders), Assignment.class);
+        }
+        double singlePerSecond = ASSIGNMENTS / ((System.nanoTime() - start) / 1e9);
+        assertEquals("Single creates were lost", ASSIGNMENTS, repo.count());
+
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < ASSIGNMENTS; i++) {
+            body.append("{\"op\":\"CREATE\",\"assignment\":{\"consultantId\":\"consultant").append(i)
+                    .append("\",\"customerId\":\"customer").append(i)
+                    .append("\",\"startDate\":\"2015-01-01\",\"endDate\":\"2015-12-31\"}}\n");
+        }
+        HttpHeaders ndjsonHeaders = new HttpHeaders();
+        ndjsonHeaders.setContentType(MediaType.valueOf(AssignmentService.NDJSON_VALUE));
+        start = System.nanoTime();
+        restTemplate.postForEntity(UNIT_RESOURCE + "/bulk?ordered=false", new HttpEntity<>(body.toString(), ndjsonHeaders), String.class);
+        double bulkPerSecond = ASSIGNMENTS / ((System.nanoTime() - start) / 1e9);
+        assertEquals("Bulk creates were lost", 2 * ASSIGNMENTS, repo.count());
+
+        System.out.printf("%,d creates: single %,.0f/s, bulk %,.0f/s, speedup %.1fx%n",
+                ASSIGNMENTS, singlePerSecond, bulkPerSecond, bulkPerSecond / singlePerSecond);
+        assertTrue("Bulk creates were less than 10x faster than single creates", bulkPerSecond >= 10 * singlePerSecond);
+    }
+}
@@ -0,0 +1,122 @@
+package be.foreseegroup.micro.resourceservice.assignment.service;
+
+import be.foreseegroup.micro.resourceservice.assignment.AssignmentServiceApplication;
+import be.foreseegroup.micro.resourceservice.assignment.model.Assignment;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Compares collection scans with the declared compound indexes for the date range lookups.
+ * Run with {@code gradle benchmark}; the dataset size is set with {@code -Dbenchmark.assignments}.
+ */
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = AssignmentServiceApplication.class)
+public class AssignmentIndexBenchmark {
+
+    private static final int ASSIGNMENTS = Integer.getInteger("benchmark.assignments", 1000000);
+    private static final int CONSULTANTS = ASSIGNMENTS / 100;
+    private static final int CUSTOMERS = ASSIGNMENTS / 1000;
+    private static final int BATCH_SIZE = 10000;
+    private static final int ITERATIONS = 20;
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+    private static final long EPOCH = TimeUnit.DAYS.toMillis(365 * 45);
+    private static final DBObject NATURAL_ORDER = new BasicDBObject("$natural", 1);
+
+    @Autowired
+    private MongoOperations mongo;
+
+    private DBCollection collection;
+
+    @Before
+    public void setUp() throws Exception {
+        collection = mongo.getCollection(mongo.getCollectionName(Assignment.class));
+        collection.remove(new BasicDBObject());
+        Random random = new Random(42);
+        List<DBObject> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < ASSIGNMENTS; i++) {
+            long start = EPOCH + random.nextInt(3650) * DAY;
+            batch.add(new BasicDBObject("consultantId", "consultant" + random.nextInt(CONSULTANTS))
+                    .append("customerId", "customer" + random.nextInt(CUSTOMERS))
+                    .append("startDate", new Date(start))
+                    .append("endDate", new Date(start + (1 + random.nextInt(180)) * DAY)));
+            if (batch.size() == BATCH_SIZE) {
+                collection.insert(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty())
+            collection.insert(batch);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        collection.remove(new BasicDBObject());
+    }
+
+    @Test
+    public void compareScanAndIndexLatency() {
+        Random random = new Random(7);
+        report("assignmentsbycid range", () -> {
+            long from = EPOCH + random.nextInt(3650) * DAY;
+            return new BasicDBObject("consultantId", "consultant" + random.nextInt(CONSULTANTS))
+                    .append("startDate", new BasicDBObject("$lte", new Date(from + 90 * DAY)))
+                    .append("endDate", new BasicDBObject("$gte", new Date(from)));
+        });
+        report("assignmentsbycuid range", () -> {
+            long from = EPOCH + random.nextInt(3650) * DAY;
+            return new BasicDBObject("customerId", "customer" + random.nextInt(CUSTOMERS))
+                    .append("startDate", new BasicDBObject("$lte", new Date(from + 30 * DAY)))
+                    .append("endDate", new BasicDBObject("$gte", new Date(from)));
+        });
+        report("assignments/active", () -> {
+            Date at = new Date(EPOCH + (3650 - random.nextInt(30)) * DAY);
+            return new BasicDBObject("endDate", new BasicDBObject("$gte", at))
+                    .append("startDate", new BasicDBObject("$lte", at));
+        });
+    }
+
+    private void report(String name, Supplier<DBObject> queries) {
+        long scanNanos = 0;
+        long indexNanos = 0;
+        int results = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            DBObject query = queries.get();
+            long start = System.nanoTime();
+            int scanned = count(collection.find(query).hint(NATURAL_ORDER));
+            scanNanos += System.nanoTime() - start;
+            start = System.nanoTime();
+            results += count(collection.find(query));
+            indexNanos += System.nanoTime() - start;
+            if (i == 0 && scanned != results)
+                throw new IllegalStateException("Scan and index returned different results for " + name);
+        }
+        System.out.printf("%-24s %,d docs: scan %8.2f ms, index %8.2f ms, %.1f results/query%n", name, ASSIGNMENTS,
+                scanNanos / 1e6 / ITERATIONS, indexNanos / 1e6 / ITERATIONS, results / (double) ITERATIONS);
+    }
+
+    private static int count(DBCursor cursor) {
+        try {
+            return cursor.itcount();
+        } finally {
+            cursor.close();
+        }
+    }
+}
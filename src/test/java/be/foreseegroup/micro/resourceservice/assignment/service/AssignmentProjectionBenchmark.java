@@ -0,0 +1,97 @@
+package be.foreseegroup.micro.resourceservice.assignment.service;
+
+import be.foreseegroup.micro.resourceservice.assignment.AssignmentServiceApplication;
+import be.foreseegroup.micro.resourceservice.assignment.cache.AssignmentCache;
+import be.foreseegroup.micro.resourceservice.assignment.model.Assignment;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.boot.test.TestRestTemplate;
+import org.springframework.boot.test.WebIntegrationTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares the response size and latency of GET /assignmentsbycuid/{customerId} with and without
+ * {@code fields=id,consultantId} on a customer with many assignments. The cache is cleared before every
+ * request, so both variants read from Mongo.
+ * Run with {@code gradle benchmark}; the number of assignments is set with {@code -Dbenchmark.projection.assignments}.
+ */
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = AssignmentServiceApplication.class)
+@WebIntegrationTest
+public class AssignmentProjectionBenchmark {
+
+    private static final String UNIT_RESOURCE = "http://localhost:8888/assignmentsbycuid/customer";
+    private static final int ASSIGNMENTS = Integer.getInteger("benchmark.projection.assignments", 20000);
+    private static final int ITERATIONS = 20;
+
+    @Autowired
+    private AssignmentRepository repo;
+
+    @Autowired
+    private AssignmentCache cache;
+
+    private RestTemplate restTemplate = new TestRestTemplate();
+
+    @Before
+    public void setUp() throws Exception {
+        repo.deleteAll();
+        List<Assignment> assignments = new ArrayList<>(ASSIGNMENTS);
+        for (int i = 0; i < ASSIGNMENTS; i++)
+            assignments.add(new Assignment("consultant" + i, "customer", new Date(), new Date()));
+        repo.save(assignments);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        repo.deleteAll();
+    }
+
+    @Test
+    public void compareFullAndProjectedResponses() {
+        measure(UNIT_RESOURCE);
+        measure(UNIT_RESOURCE + "?fields=id,consultantId");
+
+        Measurement full = measure(UNIT_RESOURCE);
+        Measurement projected = measure(UNIT_RESOURCE + "?fields=id,consultantId");
+
+        System.out.printf("%,d assignments: full %,d bytes in %.1f ms, fields=id,consultantId %,d bytes in %.1f ms (%.1fx smaller)%n",
+                ASSIGNMENTS, full.bytes, full.millis, projected.bytes, projected.millis, full.bytes / (double) projected.bytes);
+        assertTrue("Projected responses were not at least 2x smaller", full.bytes >= 2 * projected.bytes);
+    }
+
+    private Measurement measure(String url) {
+        long bytes = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            cache.clear();
+            ResponseEntity<String> response = restTemplate.getForEntity(url, String.class);
+            assertEquals("HttpStatus code did not match", HttpStatus.OK, response.getStatusCode());
+            bytes = response.getBody().length();
+        }
+        return new Measurement(bytes, (System.nanoTime() - start) / 1e6 / ITERATIONS);
+    }
+
+    private static class Measurement {
+        final long bytes;
+        final double millis;
+
+        Measurement(long bytes, double millis) {
+            this.bytes = bytes;
+            this.millis = millis;
+        }
+    }
+}
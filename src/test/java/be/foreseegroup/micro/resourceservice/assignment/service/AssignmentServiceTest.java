@@ -1,7 +1,19 @@
 package be.foreseegroup.micro.resourceservice.assignment.service;
 
 import be.foreseegroup.micro.resourceservice.assignment.AssignmentServiceApplication;
+import be.foreseegroup.micro.resourceservice.assignment.cache.AssignmentCache;
+import be.foreseegroup.micro.resourceservice.assignment.format.FormatConfiguration;
 import be.foreseegroup.micro.resourceservice.assignment.model.Assignment;
+import be.foreseegroup.micro.resourceservice.assignment.model.AssignmentChange;
+import be.foreseegroup.micro.resourceservice.assignment.model.BatchGetResult;
+import be.foreseegroup.micro.resourceservice.assignment.model.BulkOperation;
+import be.foreseegroup.micro.resourceservice.assignment.model.BulkResult;
+import be.foreseegroup.micro.resourceservice.assignment.model.Utilization;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.bson.types.ObjectId;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -15,7 +27,24 @@ import org.springframework.http.*;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.web.client.RestTemplate;
 
+import java.io.ByteArrayInputStream;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
 
 import static org.junit.Assert.*;
 
@@ -33,19 +62,36 @@ public class AssignmentServiceTest {
     private static final String UNIT_RESOURCE = ROOT_PATH + UNIT_PATH;
 
 
-    private static final Assignment CONTRACT_1 = new Assignment("consultantId1", "customerId1", "startDate1", "endDate1");
-    private static final Assignment CONTRACT_2 = new Assignment("consultantId2", "customerId2", "startDate2", "endDate2");
+    private static final Assignment CONTRACT_1 = new Assignment("consultantId1", "customerId1", date("2015-01-01"), date("2015-01-28"));
+    private static final Assignment CONTRACT_2 = new Assignment("consultantId2", "customerId2", date("2015-02-01"), date("2015-02-28"));
     private static final String NON_EXISTING_ID = "nonExistingId";
 
     @Autowired
     private AssignmentRepository repo;
 
+    @Autowired
+    private AssignmentCache cache;
+
+    @Autowired
+    private ListVersions listVersions;
+
     private RestTemplate restTemplate = new TestRestTemplate();
 
 
+    private static Date date(String value) {
+        SimpleDateFormat format = new SimpleDateFormat(Assignment.DATE_PATTERN);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        try {
+            return format.parse(value);
+        } catch (ParseException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
     @Before
     public void setUp() throws Exception {
         repo.deleteAll();
+        cache.clear();
     }
 
     @After
@@ -157,6 +203,72 @@ public class AssignmentServiceTest {
         assertEquals("Response body size did not match", 2, responseList.size());
     }
 
+    /** Test case: getAssignmentsWithLimitShouldReturnPagesWithContinuationToken
+     *
+     * Test if a GET with a limit returns at most that many entries, together with a continuation token
+     * Following the token should return the remaining entries without a new token
+     */
+    @Test
+    public void getAssignmentsWithLimitShouldReturnPagesWithContinuationToken() {
+        //Add the Assignments that we will page through
+        repo.save(new Assignment("consultantId1", "customerId1", date("2015-01-01"), date("2015-01-28")));
+        repo.save(new Assignment("consultantId2", "customerId2", date("2015-02-01"), date("2015-02-28")));
+        repo.save(new Assignment("consultantId3", "customerId3", date("2015-03-01"), date("2015-03-28")));
+
+        //Instantiate the HTTP GET Request for the first page
+        ParameterizedTypeReference<List<Assignment>> responseType = new ParameterizedTypeReference<List<Assignment>>() {};
+        ResponseEntity<List<Assignment>> firstPage = restTemplate.exchange(UNIT_RESOURCE + "?limit=2", HttpMethod.GET, null, responseType);
+
+        //Check if the first page is full and points to the next one
+        assertEquals("HttpStatus code did not match", HttpStatus.OK, firstPage.getStatusCode());
+        assertEquals("First page size did not match", 2, firstPage.getBody().size());
+        String token = firstPage.getHeaders().getFirst(AssignmentService.CONTINUATION_TOKEN_HEADER);
+        assertNotNull("First page did not contain a continuation token", token);
+
+        //Follow the continuation token
+        ResponseEntity<List<Assignment>> secondPage = restTemplate.exchange(UNIT_RESOURCE + "?limit=2&token=" + token, HttpMethod.GET, null, responseType);
+
+        //Check if the second page contains the remaining entry and ends the iteration
+        assertEquals("HttpStatus code did not match", HttpStatus.OK, secondPage.getStatusCode());
+        assertEquals("Second page size did not match", 1, secondPage.getBody().size());
+        assertNull("Last page contained a continuation token", secondPage.getHeaders().getFirst(AssignmentService.CONTINUATION_TOKEN_HEADER));
+        assertTrue("Pages overlapped", secondPage.getBody().get(0).getId().compareTo(firstPage.getBody().get(1).getId()) > 0);
+    }
+
+    /** Test case: getAssignmentsWithInvalidTokenShouldReturnError
+     *
+     * Test if a GET with a continuation token that was not issued by the service returns HttpStatus code: BAD_REQUEST (400)
+     */
+    @Test
+    public void getAssignmentsWithInvalidTokenShouldReturnError() {
+        ResponseEntity<String> response = restTemplate.getForEntity(UNIT_RESOURCE + "?token=notatoken", String.class);
+
+        //Check if we receive the correct HttpStatus code
+        assertEquals("HttpStatus code did not match", HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    /** Test case: streamAssignmentsShouldReturnAllAssignmentsAsNdjson
+     *
+     * Test if a GET accepting application/x-ndjson returns every entry on its own line
+     */
+    @Test
+    public void streamAssignmentsShouldReturnAllAssignmentsAsNdjson() {
+        repo.save(CONTRACT_1);
+        repo.save(CONTRACT_2);
+
+        //Instantiate the HTTP GET Request
+        HttpHeaders requestHeaders = new HttpHeaders();
+        requestHeaders.setAccept(Collections.singletonList(MediaType.valueOf(AssignmentService.NDJSON_VALUE)));
+        ResponseEntity<String> response = restTemplate.exchange(UNIT_RESOURCE, HttpMethod.GET, new HttpEntity<>(requestHeaders), String.class);
+
+        //Check if we receive the correct HttpStatus code
+        assertEquals("HttpStatus code did not match", HttpStatus.OK, response.getStatusCode());
+
+        //Check if every entry was written on its own line
+        assertEquals("Response line count did not match", 2, response.getBody().split("\n").length);
+    }
+
+
 
     /** Test case: getAssignmentsByConsultantIdShouldReturnAssignments
      *
@@ -168,11 +280,11 @@ public class AssignmentServiceTest {
     public void getAssignmentsByConsultantIdShouldReturnAssignments() {
         //Add the Assignments that we will try to GET request to the database;
 
-        Assignment a = new Assignment("consultantId1","customerId1","startDate1","endDate1");
-        Assignment b = new Assignment("consultantId1","customerId2","startDate2","endDate2");
-        Assignment c = new Assignment("consultantId1","customerId3","startDate3","endDate3");
-        Assignment d = new Assignment("consultantId4","customerId4","startDate4","endDate4");
-        Assignment e = new Assignment("consultantId5","customerId5","startDate5","endDate5");
+        Assignment a = new Assignment("consultantId1","customerId1",date("2015-01-01"),date("2015-01-28"));
+        Assignment b = new Assignment("consultantId1","customerId2",date("2015-02-01"),date("2015-02-28"));
+        Assignment c = new Assignment("consultantId1","customerId3",date("2015-03-01"),date("2015-03-28"));
+        Assignment d = new Assignment("consultantId4","customerId4",date("2015-04-01"),date("2015-04-28"));
+        Assignment e = new Assignment("consultantId5","customerId5",date("2015-05-01"),date("2015-05-28"));
 
         repo.save(a);
         repo.save(b);
@@ -222,11 +334,11 @@ public class AssignmentServiceTest {
     public void getAssignmentsByCustomerIdShouldReturnAssignments() {
         //Add the Assignments that we will try to GET request to the database;
 
-        Assignment a = new Assignment("consultantId1","customerId1","startDate1","endDate1");
-        Assignment b = new Assignment("consultantId2","customerId1","startDate2","endDate2");
-        Assignment c = new Assignment("consultantId3","customerId1","startDate3","endDate3");
-        Assignment d = new Assignment("consultantId4","customerId4","startDate4","endDate4");
-        Assignment e = new Assignment("consultantId5","customerId5","startDate5","endDate5");
+        Assignment a = new Assignment("consultantId1","customerId1",date("2015-01-01"),date("2015-01-28"));
+        Assignment b = new Assignment("consultantId2","customerId1",date("2015-02-01"),date("2015-02-28"));
+        Assignment c = new Assignment("consultantId3","customerId1",date("2015-03-01"),date("2015-03-28"));
+        Assignment d = new Assignment("consultantId4","customerId4",date("2015-04-01"),date("2015-04-28"));
+        Assignment e = new Assignment("consultantId5","customerId5",date("2015-05-01"),date("2015-05-28"));
 
         repo.save(a);
         repo.save(b);
@@ -265,6 +377,136 @@ public class AssignmentServiceTest {
 
 
 
+    /** Test case: batchGetShouldReturnFoundAndMissingAssignments
+     *
+     * Test if a multi-get returns the existing assignments, cached or not, in the order of the ids when asked to
+     * Ids that do not exist should be reported as missing, for the POST and the GET variant alike
+     */
+    @Test
+    public void batchGetShouldReturnFoundAndMissingAssignments() {
+        Assignment first = repo.save(new Assignment("consultantId1", "customerId1", date("2015-01-01"), date("2015-01-28")));
+        Assignment second = repo.save(new Assignment("consultantId2", "customerId2", date("2015-02-01"), date("2015-02-28")));
+        Assignment third = repo.save(new Assignment("consultantId3", "customerId1", date("2015-03-01"), date("2015-03-31")));
+        String missingId = ObjectId.get().toString();
+
+        //Load one of them in the cache
+        restTemplate.getForEntity(UNIT_RESOURCE + "/" + second.getId(), Assignment.class);
+
+        HttpHeaders jsonHeaders = new HttpHeaders();
+        jsonHeaders.setContentType(MediaType.APPLICATION_JSON);
+        List<String> ids = Arrays.asList(third.getId(), missingId, second.getId(), first.getId());
+        ResponseEntity<BatchGetResult> response = restTemplate.postForEntity(UNIT_RESOURCE + "/batch-get?ordered=true", new HttpEntity<>(ids, jsonHeaders), BatchGetResult.class);
+        assertEquals("HttpStatus code did not match", HttpStatus.OK, response.getStatusCode());
+        List<String> found = new ArrayList<>();
+        response.getBody().getFound().forEach(assignment -> found.add(assignment.getId()));
+        assertEquals("Found assignments did not match the order of the ids", Arrays.asList(third.getId(), second.getId(), first.getId()), found);
+        assertEquals("Missing ids did not match", Collections.singletonList(missingId), response.getBody().getMissing());
+        assertEquals("customerId of the received object is invalid", "customerId1", response.getBody().getFound().get(0).getCustomerId());
+
+        ResponseEntity<BatchGetResult> byParameter = restTemplate.getForEntity(UNIT_RESOURCE + "/batch-get?ids=" + first.getId() + "," + missingId, BatchGetResult.class);
+        assertEquals("Number of found assignments did not match", 1, byParameter.getBody().getFound().size());
+        assertEquals("Missing ids did not match", Collections.singletonList(missingId), byParameter.getBody().getMissing());
+    }
+
+    /** Test case: getActiveAssignmentsShouldReturnRunningAssignments
+     *
+     * Test if a GET on the active assignments returns the Assignments running on the given date, bounds included
+     * The Http response should have HttpStatus Code: OK (200)
+     */
+
+    @Test
+    public void getActiveAssignmentsShouldReturnRunningAssignments() {
+        //Add the Assignments that we will try to GET request to the database
+        repo.save(new Assignment("consultantId1","customerId1",date("2015-01-01"),date("2015-03-31")));
+        repo.save(new Assignment("consultantId2","customerId2",date("2015-03-31"),date("2015-06-30")));
+        repo.save(new Assignment("consultantId3","customerId3",date("2015-04-01"),date("2015-06-30")));
+        repo.save(new Assignment("consultantId4","customerId4",date("2014-01-01"),date("2014-12-31")));
+
+        //Instantiate the HTTP GET Request
+        ParameterizedTypeReference<List<Assignment>> responseType = new ParameterizedTypeReference<List<Assignment>>() {};
+        ResponseEntity<List<Assignment>> response = restTemplate.exchange(UNIT_RESOURCE + "/active?at=2015-03-31", HttpMethod.GET, null, responseType);
+
+        //Check if we receive the correct HttpStatus code
+        assertEquals("HttpStatus code did not match", HttpStatus.OK, response.getStatusCode());
+
+        //Check if the amount of entries is correct
+        assertEquals("Response body size did not match", 2, response.getBody().size());
+    }
+
+    /** Test case: getAssignmentsByConsultantIdInRangeShouldReturnOverlappingAssignments
+     *
+     * Test if a GET based on ConsultantId with a from/to range only returns the Assignments overlapping that range
+     * A range with only one bound should return HttpStatus Code: BAD_REQUEST (400)
+     */
+
+    @Test
+    public void getAssignmentsByConsultantIdInRangeShouldReturnOverlappingAssignments() {
+        //Add the Assignments that we will try to GET request to the database
+        repo.save(new Assignment("consultantId1","customerId1",date("2015-01-01"),date("2015-01-31")));
+        repo.save(new Assignment("consultantId1","customerId2",date("2015-02-15"),date("2015-03-15")));
+        repo.save(new Assignment("consultantId1","customerId3",date("2015-04-01"),date("2015-04-30")));
+        repo.save(new Assignment("consultantId2","customerId1",date("2015-02-01"),date("2015-02-28")));
+
+        String url = ROOT_PATH + "/assignmentsbycid/consultantId1";
+
+        //Instantiate the HTTP GET Request
+        ParameterizedTypeReference<List<Assignment>> responseType = new ParameterizedTypeReference<List<Assignment>>() {};
+        ResponseEntity<List<Assignment>> response = restTemplate.exchange(url + "?from=2015-01-31&to=2015-03-01", HttpMethod.GET, null, responseType);
+
+        //Check if we receive the correct HttpStatus code
+        assertEquals("HttpStatus code did not match", HttpStatus.OK, response.getStatusCode());
+
+        //Check if only the overlapping entries were returned
+        assertEquals("Response body size did not match", 2, response.getBody().size());
+
+        //Check if a half open range is refused
+        ResponseEntity<String> halfOpen = restTemplate.getForEntity(url + "?from=2015-01-31", String.class);
+        assertEquals("HttpStatus code did not match", HttpStatus.BAD_REQUEST, halfOpen.getStatusCode());
+    }
+
+    /** Test case: getAssignmentsByCustomerIdWithFieldsShouldOnlyReturnThoseFields
+     *
+     * Test if a GET based on CustomerId with a fields selection only returns the selected properties
+     * An unknown property should return HttpStatus Code: BAD_REQUEST (400)
+     */
+
+    @Test
+    public void getAssignmentsByCustomerIdWithFieldsShouldOnlyReturnThoseFields() {
+        //Add the Assignments that we will try to GET request to the database
+        Assignment savedAssignment1 = repo.save(new Assignment("consultantId1","customerId1",date("2015-01-01"),date("2015-01-28")));
+        repo.save(new Assignment("consultantId3","customerId1",date("2015-03-01"),date("2015-03-28")));
+        repo.save(new Assignment("consultantId2","customerId2",date("2015-02-01"),date("2015-02-28")));
+
+        String url = ROOT_PATH + "/assignmentsbycuid/customerId1";
+
+        //Instantiate the HTTP GET Request
+        ParameterizedTypeReference<List<Map<String, Object>>> responseType = new ParameterizedTypeReference<List<Map<String, Object>>>() {};
+        ResponseEntity<List<Map<String, Object>>> response = restTemplate.exchange(url + "?fields=id,consultantId", HttpMethod.GET, null, responseType);
+
+        //Check if we receive the correct HttpStatus code
+        assertEquals("HttpStatus code did not match", HttpStatus.OK, response.getStatusCode());
+
+        //Check if the amount of entries is correct
+        assertEquals("Response body size did not match", 2, response.getBody().size());
+
+        //Check if only the selected properties were returned
+        for (Map<String, Object> assignment : response.getBody())
+            assertEquals("Returned properties did not match", new HashSet<>(Arrays.asList("id", "consultantId")), assignment.keySet());
+        assertTrue("Response body did not contain the id", response.getBody().stream().anyMatch(a -> savedAssignment1.getId().equals(a.get("id"))));
+
+        //Check if the selection also applies to a page of all assignments, without the id
+        ResponseEntity<List<Map<String, Object>>> page = restTemplate.exchange(UNIT_RESOURCE + "?fields=customerId&limit=2", HttpMethod.GET, null, responseType);
+        assertEquals("Response body size did not match", 2, page.getBody().size());
+        assertEquals("Returned properties did not match", Collections.singleton("customerId"), page.getBody().get(0).keySet());
+        assertNotNull("Continuation token was not returned", page.getHeaders().getFirst(AssignmentService.CONTINUATION_TOKEN_HEADER));
+
+        //Check if an unknown property is refused
+        ResponseEntity<String> unknown = restTemplate.getForEntity(url + "?fields=id,salary", String.class);
+        assertEquals("HttpStatus code did not match", HttpStatus.BAD_REQUEST, unknown.getStatusCode());
+    }
+
+
+
     /** Test case: createAssignmentShouldCreateAssignment
      *
      * Test if a POST result of a Assignment instance results in the Assignment being saved to the database
@@ -341,6 +583,118 @@ public class AssignmentServiceTest {
         assertEquals("An entry was added to the database", 0, repo.count());
     }
 
+    /** Test case: createOrEditAssignmentEndingBeforeItStartsShouldReturnError
+     *
+     * Test if a POST or PUT of an assignment that starts after it ends leaves the database untouched
+     * The Http Request response should have HttpStatus code: BAD_REQUEST (400)
+     */
+    @Test
+    public void createOrEditAssignmentEndingBeforeItStartsShouldReturnError() {
+        HttpHeaders requestHeaders = new HttpHeaders();
+        requestHeaders.setContentType(MediaType.APPLICATION_JSON);
+        Assignment inverted = new Assignment("consultantId1", "customerId1", date("2015-01-28"), date("2015-01-01"));
+        ResponseEntity<Assignment> created = restTemplate.postForEntity(UNIT_RESOURCE, new HttpEntity<>(inverted, requestHeaders), Assignment.class);
+        assertEquals("HttpStatus code did not match", HttpStatus.BAD_REQUEST, created.getStatusCode());
+        assertEquals("An entry was added to the database", 0, repo.count());
+
+        Assignment existing = repo.save(new Assignment("consultantId1", "customerId1", date("2015-01-01"), date("2015-01-28")));
+        ResponseEntity<Assignment> edited = restTemplate.exchange(UNIT_RESOURCE + "/" + existing.getId(), HttpMethod.PUT,
+                new HttpEntity<>(inverted, requestHeaders), Assignment.class);
+        assertEquals("HttpStatus code did not match", HttpStatus.BAD_REQUEST, edited.getStatusCode());
+        assertEquals("End date was changed", date("2015-01-28"), repo.findOne(existing.getId()).getEndDate());
+    }
+
+    /** Test case: createWithExistingIdShouldReturnConflict
+     *
+     * Test if a POST with the id of an existing assignment leaves that assignment and its version untouched
+     * The Http Request response should have HttpStatus code: CONFLICT (409)
+     */
+    @Test
+    public void createWithExistingIdShouldReturnConflict() {
+        HttpHeaders requestHeaders = new HttpHeaders();
+        requestHeaders.setContentType(MediaType.APPLICATION_JSON);
+        Assignment created = restTemplate.postForEntity(UNIT_RESOURCE, new HttpEntity<>(new Assignment("consultantId1", "customerId1", date("2015-01-01"), date("2015-01-28")), requestHeaders), Assignment.class).getBody();
+        Assignment updated = new Assignment(created.getId(), "consultantId1", "customerId2", date("2015-01-01"), date("2015-01-28"));
+        restTemplate.exchange(UNIT_RESOURCE + "/" + created.getId(), HttpMethod.PUT, new HttpEntity<>(updated, requestHeaders), Assignment.class);
+
+        Assignment duplicate = new Assignment(created.getId(), "consultantId2", "customerId2", date("2015-02-01"), date("2015-02-28"));
+        ResponseEntity<Assignment> response = restTemplate.postForEntity(UNIT_RESOURCE, new HttpEntity<>(duplicate, requestHeaders), Assignment.class);
+        assertEquals("HttpStatus code did not match", HttpStatus.CONFLICT, response.getStatusCode());
+
+        Assignment assignmentFromDb = repo.findOne(created.getId());
+        assertEquals("consultantId did not match", "consultantId1", assignmentFromDb.getConsultantId());
+        assertEquals("Version did not match", Long.valueOf(1), assignmentFromDb.getVersion());
+        assertEquals("More than one record was added to the database", 1, repo.count());
+    }
+
+    /** Test case: bulkShouldCreateUpdateAndDeleteAssignments
+     *
+     * Test if an unordered bulk request runs every valid item and reports a result per item
+     * Unknown ids should be reported with HttpStatus code NOT_FOUND (404) without failing the other items
+     */
+    @Test
+    public void bulkShouldCreateUpdateAndDeleteAssignments() {
+        Assignment toUpdate = repo.save(new Assignment("consultantId1", "customerId1", date("2015-01-01"), date("2015-01-28")));
+        Assignment toDelete = repo.save(new Assignment("consultantId2", "customerId2", date("2015-02-01"), date("2015-02-28")));
+
+        List<BulkOperation> operations = new ArrayList<>();
+        operations.add(new BulkOperation(BulkOperation.Type.CREATE, null, new Assignment("consultantId3", "customerId3", date("2015-03-01"), date("2015-03-28"))));
+        operations.add(new BulkOperation(BulkOperation.Type.UPDATE, toUpdate.getId(), new Assignment("consultantIdEdited", "customerId1", date("2015-01-01"), date("2015-01-28"))));
+        operations.add(new BulkOperation(BulkOperation.Type.DELETE, toDelete.getId(), null));
+        operations.add(new BulkOperation(BulkOperation.Type.DELETE, new ObjectId().toString(), null));
+
+        //Instantiate the HTTP POST Request
+        HttpHeaders requestHeaders = new HttpHeaders();
+        requestHeaders.setContentType(MediaType.APPLICATION_JSON);
+        ParameterizedTypeReference<List<BulkResult>> responseType = new ParameterizedTypeReference<List<BulkResult>>() {};
+        ResponseEntity<List<BulkResult>> response = restTemplate.exchange(UNIT_RESOURCE + "/bulk?ordered=false", HttpMethod.POST, new HttpEntity<>(operations, requestHeaders), responseType);
+
+        //Check if we receive the correct HttpStatus code
+        assertEquals("HttpStatus code did not match", HttpStatus.OK, response.getStatusCode());
+
+        //Check if every item was reported
+        List<BulkResult> results = response.getBody();
+        assertEquals("Result count did not match", 4, results.size());
+        assertEquals("Create status did not match", 200, results.get(0).getStatus());
+        assertNotNull("Created entry did not contain an ID", results.get(0).getId());
+        assertEquals("Update status did not match", 200, results.get(1).getStatus());
+        assertEquals("Delete status did not match", 204, results.get(2).getStatus());
+        assertEquals("Unknown id status did not match", 404, results.get(3).getStatus());
+
+        //Check if the writes reached the database
+        assertEquals("Entry count did not match", 2, repo.count());
+        assertEquals("Update was not saved to the database", "consultantIdEdited", repo.findOne(toUpdate.getId()).getConsultantId());
+        assertNotNull("Create was not saved to the database", repo.findOne(results.get(0).getId()));
+    }
+
+    /** Test case: orderedNdjsonBulkShouldStopAtFirstFailure
+     *
+     * Test if an ordered NDJSON bulk request stops at the first failing item
+     * The items after it should be reported with HttpStatus code FAILED_DEPENDENCY (424) and not be written
+     */
+    @Test
+    public void orderedNdjsonBulkShouldStopAtFirstFailure() {
+        String body = "{\"op\":\"CREATE\",\"assignment\":{\"consultantId\":\"consultantId1\",\"customerId\":\"customerId1\"}}\n"
+                + "{\"op\":\"UPDATE\",\"id\":\"" + new ObjectId() + "\",\"assignment\":{\"consultantId\":\"consultantId2\"}}\n"
+                + "{\"op\":\"CREATE\",\"assignment\":{\"consultantId\":\"consultantId3\",\"customerId\":\"customerId3\"}}\n";
+
+        //Instantiate the HTTP POST Request
+        HttpHeaders requestHeaders = new HttpHeaders();
+        requestHeaders.setContentType(MediaType.valueOf(AssignmentService.NDJSON_VALUE));
+        ParameterizedTypeReference<List<BulkResult>> responseType = new ParameterizedTypeReference<List<BulkResult>>() {};
+        ResponseEntity<List<BulkResult>> response = restTemplate.exchange(UNIT_RESOURCE + "/bulk", HttpMethod.POST, new HttpEntity<>(body, requestHeaders), responseType);
+
+        //Check if the items after the unknown id were not run
+        List<BulkResult> results = response.getBody();
+        assertEquals("Result count did not match", 3, results.size());
+        assertEquals("First create status did not match", 200, results.get(0).getStatus());
+        assertEquals("Unknown id status did not match", 404, results.get(1).getStatus());
+        assertEquals("Skipped create status did not match", 424, results.get(2).getStatus());
+
+        //Check if only the first create reached the database
+        assertEquals("Entry count did not match", 1, repo.count());
+    }
+
     /** Test case: editAssignmentShouldSaveEditionsAndReturnUpdatedAssignment
      *
      * Test if a PUT request to edit an entry results in the entry being saved
@@ -357,8 +711,8 @@ public class AssignmentServiceTest {
         //Update the Assignment
         savedAssignment.setConsultantId("consultantIdEdited");
         savedAssignment.setCustomerId("customerIdEdited");
-        savedAssignment.setStartDate("startDateEdited");
-        savedAssignment.setEndDate("endDateEdited");
+        savedAssignment.setStartDate(date("2016-01-01"));
+        savedAssignment.setEndDate(date("2016-12-31"));
 
 
         //Instantiate the HTTP PUT Request
@@ -394,6 +748,317 @@ public class AssignmentServiceTest {
         assertEquals("Updated entry was not saved to the database", savedAssignment.getEndDate(), updatedAssignment.getEndDate());
     }
 
+    /** Test case: getAfterEditShouldNotReturnCachedAssignments
+     *
+     * Test if the lookups by id and by consultant that were cached before a PUT request reflect the edition afterwards
+     */
+    @Test
+    public void getAfterEditShouldNotReturnCachedAssignments() {
+        Assignment savedAssignment = repo.save(CONTRACT_1);
+
+        String url = UNIT_RESOURCE + "/" + savedAssignment.getId();
+        ParameterizedTypeReference<List<Assignment>> responseType = new ParameterizedTypeReference<List<Assignment>>() {};
+
+        //Fill the caches
+        restTemplate.getForEntity(url, Assignment.class);
+        restTemplate.exchange(ROOT_PATH + "/assignmentsbycid/consultantId1", HttpMethod.GET, null, responseType);
+
+        //Move the Assignment to another consultant
+        savedAssignment.setConsultantId("consultantIdEdited");
+        HttpHeaders requestHeaders = new HttpHeaders();
+        requestHeaders.setContentType(MediaType.APPLICATION_JSON);
+        restTemplate.exchange(url, HttpMethod.PUT, new HttpEntity<>(savedAssignment, requestHeaders), Assignment.class);
+
+        //Check if the lookup by id returns the edited entry
+        ResponseEntity<Assignment> byId = restTemplate.getForEntity(url, Assignment.class);
+        assertEquals("Cached entry was returned after an update", "consultantIdEdited", byId.getBody().getConsultantId());
+
+        //Check if both the old and the new consultant reflect the edition
+        ResponseEntity<List<Assignment>> oldConsultant = restTemplate.exchange(ROOT_PATH + "/assignmentsbycid/consultantId1", HttpMethod.GET, null, responseType);
+        assertEquals("Cached list of the old consultant was returned after an update", 0, oldConsultant.getBody().size());
+        ResponseEntity<List<Assignment>> newConsultant = restTemplate.exchange(ROOT_PATH + "/assignmentsbycid/consultantIdEdited", HttpMethod.GET, null, responseType);
+        assertEquals("Cached list of the new consultant was returned after an update", 1, newConsultant.getBody().size());
+    }
+
+    /** Test case: editWithStaleETagShouldReturnPreconditionFailed
+     *
+     * Test if a PUT request with an If-Match header of an older version is refused with HttpStatus code: PRECONDITION_FAILED (412)
+     * A PUT request with the current ETag should succeed and return the next ETag
+     */
+    @Test
+    public void editWithStaleETagShouldReturnPreconditionFailed() {
+        Assignment savedAssignment = repo.save(CONTRACT_1);
+        String url = UNIT_RESOURCE + "/" + savedAssignment.getId();
+
+        //Fetch the current ETag
+        String eTag = restTemplate.getForEntity(url, Assignment.class).getHeaders().getETag();
+        assertNotNull("GET response did not contain an ETag", eTag);
+
+        //Update with the current ETag
+        HttpHeaders requestHeaders = new HttpHeaders();
+        requestHeaders.setContentType(MediaType.APPLICATION_JSON);
+        requestHeaders.set(HttpHeaders.IF_MATCH, eTag);
+        ResponseEntity<Assignment> response = restTemplate.exchange(url, HttpMethod.PUT, new HttpEntity<>(savedAssignment, requestHeaders), Assignment.class);
+        assertEquals("HttpStatus code did not match", HttpStatus.OK, response.getStatusCode());
+        assertNotEquals("ETag did not change after an update", eTag, response.getHeaders().getETag());
+
+        //Update again with the now stale ETag
+        ResponseEntity<Assignment> staleResponse = restTemplate.exchange(url, HttpMethod.PUT, new HttpEntity<>(savedAssignment, requestHeaders), Assignment.class);
+        assertEquals("HttpStatus code did not match", HttpStatus.PRECONDITION_FAILED, staleResponse.getStatusCode());
+    }
+
+    /** Test case: getWithCurrentETagShouldReturnNotModified
+     *
+     * Test if a GET request with an If-None-Match header holding the current ETag returns HttpStatus code: NOT_MODIFIED (304)
+     * An outdated ETag should return the assignment again
+     */
+    @Test
+    public void getWithCurrentETagShouldReturnNotModified() {
+        Assignment savedAssignment = repo.save(new Assignment("consultantId1", "customerId1", date("2015-01-01"), date("2015-01-28")));
+        String url = UNIT_RESOURCE + "/" + savedAssignment.getId();
+        String eTag = restTemplate.getForEntity(url, Assignment.class).getHeaders().getETag();
+
+        HttpHeaders requestHeaders = new HttpHeaders();
+        requestHeaders.setIfNoneMatch(eTag);
+        ResponseEntity<Assignment> response = restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(requestHeaders), Assignment.class);
+        assertEquals("HttpStatus code did not match", HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertEquals("ETag did not match", eTag, response.getHeaders().getETag());
+
+        requestHeaders.setIfNoneMatch("\"41\"");
+        ResponseEntity<Assignment> outdated = restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(requestHeaders), Assignment.class);
+        assertEquals("HttpStatus code did not match", HttpStatus.OK, outdated.getStatusCode());
+        assertEquals("ConsultantId did not match", "consultantId1", outdated.getBody().getConsultantId());
+    }
+
+    /** Test case: getListWithCurrentETagShouldReturnNotModifiedUntilChanged
+     *
+     * Test if the list of a consultant is answered with HttpStatus code: NOT_MODIFIED (304) while its ETag is current
+     * Creating an assignment for that consultant should change the ETag and the Last-Modified header
+     */
+    @Test
+    public void getListWithCurrentETagShouldReturnNotModifiedUntilChanged() {
+        String url = ROOT_PATH + "/assignmentsbycid/consultantIdETag";
+        HttpHeaders jsonHeaders = new HttpHeaders();
+        jsonHeaders.setContentType(MediaType.APPLICATION_JSON);
+        restTemplate.postForEntity(UNIT_RESOURCE, new HttpEntity<>(new Assignment("consultantIdETag", "customerId1", date("2015-01-01"), date("2015-01-28")), jsonHeaders), Assignment.class);
+
+        ResponseEntity<String> first = restTemplate.getForEntity(url, String.class);
+        String eTag = first.getHeaders().getETag();
+        assertNotNull("GET response did not contain an ETag", eTag);
+        assertTrue("GET response did not contain a Last-Modified header", first.getHeaders().getLastModified() > 0);
+
+        HttpHeaders requestHeaders = new HttpHeaders();
+        requestHeaders.setIfNoneMatch(eTag);
+        ResponseEntity<String> unchanged = restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(requestHeaders), String.class);
+        assertEquals("HttpStatus code did not match", HttpStatus.NOT_MODIFIED, unchanged.getStatusCode());
+
+        restTemplate.postForEntity(UNIT_RESOURCE, new HttpEntity<>(new Assignment("consultantIdETag", "customerId2", date("2015-02-01"), date("2015-02-28")), jsonHeaders), Assignment.class);
+
+        ResponseEntity<String> changed = restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(requestHeaders), String.class);
+        assertEquals("HttpStatus code did not match", HttpStatus.OK, changed.getStatusCode());
+        assertNotEquals("ETag did not change after a create", eTag, changed.getHeaders().getETag());
+    }
+
+    /** Test case: cachedListShouldNotBeServedUnderANewerVersion
+     *
+     * Test if a cached list of a consultant is reloaded once its version moved on without the cache being
+     * invalidated here, as after a write of another instance whose invalidation did not reach this one
+     */
+    @Test
+    public void cachedListShouldNotBeServedUnderANewerVersion() {
+        String url = ROOT_PATH + "/assignmentsbycid/consultantIdCached";
+        ParameterizedTypeReference<List<Assignment>> responseType = new ParameterizedTypeReference<List<Assignment>>() {};
+        repo.save(new Assignment("consultantIdCached", "customerId1", date("2015-01-01"), date("2015-01-28")));
+        ResponseEntity<List<Assignment>> cached = restTemplate.exchange(url, HttpMethod.GET, null, responseType);
+        assertEquals("Number of assignments did not match", 1, cached.getBody().size());
+
+        Assignment written = repo.save(new Assignment("consultantIdCached", "customerId2", date("2015-02-01"), date("2015-02-28")));
+        listVersions.bump(written);
+
+        ResponseEntity<List<Assignment>> reloaded = restTemplate.exchange(url, HttpMethod.GET, null, responseType);
+        assertNotEquals("ETag did not change after the write", cached.getHeaders().getETag(), reloaded.getHeaders().getETag());
+        assertEquals("Cached list was served under the new ETag", 2, reloaded.getBody().size());
+    }
+
+    /** Test case: utilizationShouldReportBookedAndFreeDays
+     *
+     * Test if the utilization of a window merges overlapping assignments and lists the free days around them
+     * A long window, aggregated in parallel, and the NDJSON stream should report the same consultants in order
+     * An assignment stored with its start after its end should book no days
+     */
+    @Test
+    public void utilizationShouldReportBookedAndFreeDays() {
+        repo.save(new Assignment("consultantA", "customerId1", date("2015-01-01"), date("2015-01-10")));
+        repo.save(new Assignment("consultantA", "customerId2", date("2015-01-05"), date("2015-01-15")));
+        repo.save(new Assignment("consultantA", "customerId1", date("2015-01-21"), date("2015-02-10")));
+        repo.save(new Assignment("consultantA", "customerId3", date("2015-01-19"), date("2015-01-17")));
+        repo.save(new Assignment("consultantB", "customerId1", date("2015-03-01"), date("2015-03-31")));
+        repo.save(new Assignment("consultantC", "customerId1", date("2015-06-01"), date("2015-12-31")));
+
+        ParameterizedTypeReference<List<Utilization>> utilizationList = new ParameterizedTypeReference<List<Utilization>>() {
+        };
+        ResponseEntity<List<Utilization>> january = restTemplate.exchange(UNIT_RESOURCE + "/utilization?from=2015-01-01&to=2015-01-31", HttpMethod.GET, null, utilizationList);
+        assertEquals("HttpStatus code did not match", HttpStatus.OK, january.getStatusCode());
+        assertEquals("Consultants without assignments in the window were listed", 1, january.getBody().size());
+        Utilization consultantA = january.getBody().get(0);
+        assertEquals("Booked days did not match", 26, consultantA.getBookedDays());
+        assertEquals("Utilization did not match", 83.9, consultantA.getUtilization(), 0.001);
+        assertEquals("Number of free intervals did not match", 1, consultantA.getFreeIntervals().size());
+        assertEquals("Start of the free interval did not match", date("2015-01-16"), consultantA.getFreeIntervals().get(0).getFrom());
+        assertEquals("End of the free interval did not match", date("2015-01-20"), consultantA.getFreeIntervals().get(0).getTo());
+
+        ResponseEntity<List<Utilization>> year = restTemplate.exchange(UNIT_RESOURCE + "/utilization?from=2015-01-01&to=2015-12-31", HttpMethod.GET, null, utilizationList);
+        List<String> consultants = new ArrayList<>();
+        year.getBody().forEach(utilization -> consultants.add(utilization.getConsultantId()));
+        assertEquals("Consultants did not match", Arrays.asList("consultantA", "consultantB", "consultantC"), consultants);
+        assertEquals("Booked days did not match", 36, year.getBody().get(0).getBookedDays());
+
+        HttpHeaders requestHeaders = new HttpHeaders();
+        requestHeaders.setAccept(Collections.singletonList(MediaType.valueOf(AssignmentService.NDJSON_VALUE)));
+        ResponseEntity<String> stream = restTemplate.exchange(UNIT_RESOURCE + "/utilization?from=2015-01-01&to=2015-12-31", HttpMethod.GET, new HttpEntity<>(requestHeaders), String.class);
+        assertEquals("Response line count did not match", 3, stream.getBody().split("\n").length);
+
+        ResponseEntity<Utilization> free = restTemplate.getForEntity(ROOT_PATH + "/assignmentsbycid/consultantB/utilization?from=2015-01-01&to=2015-01-31", Utilization.class);
+        assertEquals("Booked days did not match", 0, free.getBody().getBookedDays());
+        assertEquals("Free interval did not cover the window", date("2015-01-31"), free.getBody().getFreeIntervals().get(0).getTo());
+    }
+
+    /** Test case: changesShouldReturnWritesAfterToken
+     *
+     * Test if the change feed returns a create, an update and a delete made after the token, in that order and in pages
+     * Continuing from the last token should return nothing until the next write, an invalid token HttpStatus code: BAD_REQUEST (400)
+     */
+    @Test
+    public void changesShouldReturnWritesAfterToken() {
+        String url = UNIT_RESOURCE + "/changes";
+        ParameterizedTypeReference<List<AssignmentChange>> changeList = new ParameterizedTypeReference<List<AssignmentChange>>() {
+        };
+        String token = restTemplate.getForEntity(url, String.class).getHeaders().getFirst(AssignmentService.CONTINUATION_TOKEN_HEADER);
+        assertNotNull("Continuation token was not returned", token);
+
+        HttpHeaders jsonHeaders = new HttpHeaders();
+        jsonHeaders.setContentType(MediaType.APPLICATION_JSON);
+        Assignment created = restTemplate.postForEntity(UNIT_RESOURCE, new HttpEntity<>(CONTRACT_1, jsonHeaders), Assignment.class).getBody();
+        created.setCustomerId("customerId2");
+        restTemplate.exchange(UNIT_RESOURCE + "/" + created.getId(), HttpMethod.PUT, new HttpEntity<>(created, jsonHeaders), Assignment.class);
+        restTemplate.delete(UNIT_RESOURCE + "/" + created.getId());
+
+        ResponseEntity<List<AssignmentChange>> first = restTemplate.exchange(url + "?limit=2&since=" + token, HttpMethod.GET, null, changeList);
+        assertEquals("HttpStatus code did not match", HttpStatus.OK, first.getStatusCode());
+        assertEquals("Number of changes did not match", 2, first.getBody().size());
+        assertEquals("Type did not match", AssignmentChange.Type.CREATED, first.getBody().get(0).getType());
+        assertEquals("AssignmentId did not match", created.getId(), first.getBody().get(0).getAssignmentId());
+        assertEquals("Type did not match", AssignmentChange.Type.UPDATED, first.getBody().get(1).getType());
+        assertEquals("CustomerId did not match", "customerId2", first.getBody().get(1).getAssignment().getCustomerId());
+
+        token = first.getHeaders().getFirst(AssignmentService.CONTINUATION_TOKEN_HEADER);
+        ResponseEntity<List<AssignmentChange>> second = restTemplate.exchange(url + "?limit=2&since=" + token, HttpMethod.GET, null, changeList);
+        assertEquals("Number of changes did not match", 1, second.getBody().size());
+        assertEquals("Type did not match", AssignmentChange.Type.DELETED, second.getBody().get(0).getType());
+        assertEquals("AssignmentId of the tombstone did not match", created.getId(), second.getBody().get(0).getAssignmentId());
+
+        token = second.getHeaders().getFirst(AssignmentService.CONTINUATION_TOKEN_HEADER);
+        ResponseEntity<List<AssignmentChange>> caughtUp = restTemplate.exchange(url + "?since=" + token, HttpMethod.GET, null, changeList);
+        assertEquals("Changes were returned twice", 0, caughtUp.getBody().size());
+        assertEquals("Continuation token changed without a write", token, caughtUp.getHeaders().getFirst(AssignmentService.CONTINUATION_TOKEN_HEADER));
+
+        ResponseEntity<String> invalid = restTemplate.getForEntity(url + "?since=invalid", String.class);
+        assertEquals("HttpStatus code did not match", HttpStatus.BAD_REQUEST, invalid.getStatusCode());
+    }
+
+    /** Test case: binaryFormatsShouldBeNegotiated
+     *
+     * Test if an assignment posted as CBOR can be read back as Smile, and a GET without preference still returns JSON
+     * A large JSON list should be gzipped for a client accepting it, a single assignment should not
+     */
+    @Test
+    public void binaryFormatsShouldBeNegotiated() throws Exception {
+        ObjectMapper cbor = new ObjectMapper(new CBORFactory());
+        ObjectMapper smile = new ObjectMapper(new SmileFactory());
+
+        HttpHeaders cborHeaders = new HttpHeaders();
+        cborHeaders.setContentType(MediaType.valueOf(FormatConfiguration.CBOR_VALUE));
+        cborHeaders.setAccept(Collections.singletonList(MediaType.valueOf(FormatConfiguration.CBOR_VALUE)));
+        String body = "{\"consultantId\":\"consultantId1\",\"customerId\":\"customerId1\",\"startDate\":\"2015-01-01\",\"endDate\":\"2015-01-28\"}";
+        ResponseEntity<byte[]> created = restTemplate.exchange(UNIT_RESOURCE, HttpMethod.POST,
+                new HttpEntity<>(cbor.writeValueAsBytes(new ObjectMapper().readTree(body)), cborHeaders), byte[].class);
+        assertEquals("HttpStatus code did not match", HttpStatus.OK, created.getStatusCode());
+        assertTrue("Content type was not CBOR", MediaType.valueOf(FormatConfiguration.CBOR_VALUE).isCompatibleWith(created.getHeaders().getContentType()));
+        String id = cbor.readTree(created.getBody()).get("id").asText();
+
+        HttpHeaders smileHeaders = new HttpHeaders();
+        smileHeaders.setAccept(Collections.singletonList(MediaType.valueOf(FormatConfiguration.SMILE_VALUE)));
+        ResponseEntity<byte[]> read = restTemplate.exchange(UNIT_RESOURCE + "/" + id, HttpMethod.GET, new HttpEntity<>(smileHeaders), byte[].class);
+        assertTrue("Content type was not Smile", MediaType.valueOf(FormatConfiguration.SMILE_VALUE).isCompatibleWith(read.getHeaders().getContentType()));
+        assertEquals("Vary header did not match", HttpHeaders.ACCEPT, read.getHeaders().getFirst(HttpHeaders.VARY));
+        JsonNode assignment = smile.readTree(read.getBody());
+        assertEquals("consultantId of the received object is invalid", "consultantId1", assignment.get("consultantId").asText());
+        assertEquals("startDate of the received object is invalid", "2015-01-01", assignment.get("startDate").asText());
+
+        ResponseEntity<String> json = restTemplate.getForEntity(UNIT_RESOURCE + "/" + id, String.class);
+        assertTrue("Default content type was not JSON", MediaType.APPLICATION_JSON.isCompatibleWith(json.getHeaders().getContentType()));
+
+        for (int i = 0; i < 100; i++)
+            repo.save(new Assignment("consultantId" + i, "customerId1", date("2015-01-01"), date("2015-01-28")));
+        RestTemplate plain = new RestTemplate();
+        HttpHeaders gzipHeaders = new HttpHeaders();
+        gzipHeaders.set(HttpHeaders.ACCEPT_ENCODING, "gzip");
+        ResponseEntity<byte[]> list = plain.exchange(UNIT_RESOURCE, HttpMethod.GET, new HttpEntity<>(gzipHeaders), byte[].class);
+        assertEquals("Large list was not gzipped", "gzip", list.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        List<?> assignments = new ObjectMapper().readValue(new GZIPInputStream(new ByteArrayInputStream(list.getBody())), List.class);
+        assertEquals("Number of received assignments did not match", 101, assignments.size());
+
+        ResponseEntity<byte[]> single = plain.exchange(UNIT_RESOURCE + "/" + id, HttpMethod.GET, new HttpEntity<>(gzipHeaders), byte[].class);
+        assertNull("Small response was gzipped", single.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+    }
+
+    /** Test case: concurrentConditionalEditsShouldNotLoseUpdates
+     *
+     * Test if many threads updating the same entry with If-Match never overwrite each other's update
+     * Every successful update should have produced its own version, and the final version should count them all
+     */
+    @Test
+    public void concurrentConditionalEditsShouldNotLoseUpdates() throws Exception {
+        final int threads = 8;
+        final int updatesPerThread = 20;
+        Assignment savedAssignment = repo.save(CONTRACT_1);
+        String url = UNIT_RESOURCE + "/" + savedAssignment.getId();
+
+        Set<String> appliedVersions = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final int thread = t;
+            futures.add(executor.submit(() -> {
+                RestTemplate client = new TestRestTemplate();
+                int applied = 0;
+                while (applied < updatesPerThread) {
+                    //Read the current version and try to update it, retrying when another thread won the race
+                    ResponseEntity<Assignment> current = client.getForEntity(url, Assignment.class);
+                    Assignment update = current.getBody();
+                    update.setConsultantId("consultant-" + thread + "-" + applied);
+                    HttpHeaders requestHeaders = new HttpHeaders();
+                    requestHeaders.setContentType(MediaType.APPLICATION_JSON);
+                    requestHeaders.set(HttpHeaders.IF_MATCH, current.getHeaders().getETag());
+                    ResponseEntity<Assignment> response = client.exchange(url, HttpMethod.PUT, new HttpEntity<>(update, requestHeaders), Assignment.class);
+                    if (response.getStatusCode() == HttpStatus.OK) {
+                        assertTrue("Two updates produced the same version", appliedVersions.add(response.getHeaders().getETag()));
+                        applied++;
+                    } else {
+                        assertEquals("HttpStatus code did not match", HttpStatus.PRECONDITION_FAILED, response.getStatusCode());
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures)
+            future.get(2, TimeUnit.MINUTES);
+        executor.shutdown();
+
+        //Check if no update was lost
+        assertEquals("Applied update count did not match", threads * updatesPerThread, appliedVersions.size());
+        assertEquals("Final version did not count every update", Long.valueOf(threads * updatesPerThread), repo.findOne(savedAssignment.getId()).getVersion());
+    }
+
     /** Test case: editUnexistingAssignmentShouldReturnError
      *
      * Test that when we try to update an unexisting entry the Http Request response does not contain an object
@@ -0,0 +1,230 @@
+package be.foreseegroup.micro.resourceservice.assignment.service;
+
+import be.foreseegroup.micro.resourceservice.assignment.AssignmentServiceApplication;
+import be.foreseegroup.micro.resourceservice.assignment.model.Assignment;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.boot.test.TestRestTemplate;
+import org.springframework.boot.test.WebIntegrationTest;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Integration tests of the server-sent events pushed by {@link ChangeSubscriptions}, each stream read on a thread of its own.
+ */
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = AssignmentServiceApplication.class)
+@WebIntegrationTest({"server.port=0", "assignment.subscriptions.enabled=true", "assignment.subscriptions.buffer-size=8"})
+@DirtiesContext
+public class ChangeSubscriptionsTest {
+
+    @Value("${local.server.port}")
+    private int port;
+
+    @Autowired
+    private AssignmentRepository repo;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private RestTemplate restTemplate = new TestRestTemplate();
+    private CloseableHttpClient client = HttpClients.custom().setMaxConnPerRoute(10).build();
+    private final List<EventStream> streams = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        repo.deleteAll();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        for (EventStream stream : streams)
+            stream.close();
+        client.close();
+        repo.deleteAll();
+    }
+
+    /** Test case: subscribersShouldReceiveChangesOfTheirConsultantOrCustomer
+     *
+     * Test if a subscriber of a consultant receives the create, the update moving the assignment away and the
+     * delete of the assignment it then no longer has, and a subscriber of the customer receives all three,
+     * while a subscriber of another consultant only receives the update moving the assignment to it
+     */
+    @Test
+    public void subscribersShouldReceiveChangesOfTheirConsultantOrCustomer() throws Exception {
+        EventStream consultant = subscribe("/assignmentsbycid/consultantEvents1/changes", null);
+        EventStream other = subscribe("/assignmentsbycid/consultantEvents2/changes", null);
+        EventStream customer = subscribe("/assignmentsbycuid/customerEvents/changes", null);
+        assertEquals("First event did not match", "subscribed", consultant.next().type);
+        assertEquals("First event did not match", "subscribed", other.next().type);
+        assertEquals("First event did not match", "subscribed", customer.next().type);
+
+        Assignment created = restTemplate.postForObject(url("/assignments"),
+                new Assignment("consultantEvents1", "customerEvents", new Date(0), new Date(86400000L)), Assignment.class);
+        restTemplate.exchange(url("/assignments/" + created.getId()), HttpMethod.PUT,
+                new HttpEntity<>(new Assignment("consultantEvents2", "customerEvents", new Date(0), new Date(86400000L))), Assignment.class);
+        restTemplate.delete(url("/assignments/" + created.getId()));
+
+        Event createdEvent = consultant.next();
+        assertEquals("Event did not match", "created", createdEvent.type);
+        assertEquals("Assignment did not match", created.getId(), createdEvent.data.path("assignmentId").asText());
+        Event moved = consultant.next();
+        assertEquals("Event did not match", "updated", moved.type);
+        assertEquals("Consultant after the update did not match", "consultantEvents2", moved.data.path("assignment").path("consultantId").asText());
+        assertEquals("Consultant before the update did not match", "consultantEvents1", moved.data.path("previous").path("consultantId").asText());
+
+        assertEquals("Event did not match", "created", customer.next().type);
+        assertEquals("Event did not match", "updated", customer.next().type);
+        assertEquals("Event did not match", "deleted", customer.next().type);
+
+        assertEquals("Event did not match", "updated", other.next().type);
+        assertEquals("Event did not match", "deleted", other.next().type);
+        assertNull("Change of another consultant was pushed", consultant.poll(500));
+    }
+
+    /** Test case: reconnectingSubscriberShouldReceiveMissedChanges
+     *
+     * Test if a subscriber reconnecting with the id of the last event it received first gets the changes of its
+     * consultant made in between, and not those of other consultants
+     */
+    @Test
+    public void reconnectingSubscriberShouldReceiveMissedChanges() throws Exception {
+        EventStream first = subscribe("/assignmentsbycid/consultantEvents3/changes", null);
+        String lastEventId = first.next().id;
+        first.close();
+
+        restTemplate.postForObject(url("/assignments"), new Assignment("consultantEvents4", "customerEvents", new Date(0), new Date(86400000L)), Assignment.class);
+        Assignment missed = restTemplate.postForObject(url("/assignments"),
+                new Assignment("consultantEvents3", "customerEvents", new Date(0), new Date(86400000L)), Assignment.class);
+
+        EventStream again = subscribe("/assignmentsbycid/consultantEvents3/changes", lastEventId);
+        Event replayed = again.next();
+        assertEquals("Event did not match", "created", replayed.type);
+        assertEquals("Assignment did not match", missed.getId(), replayed.data.path("assignmentId").asText());
+        assertNotEquals("Event id was not advanced", lastEventId, replayed.id);
+        assertNull("Change of another consultant was replayed", again.poll(500));
+    }
+
+    /** Test case: reconnectingSubscriberShouldBeResetWhenMissedChangesOverflowItsBuffer
+     *
+     * Test if a subscriber reconnecting after more changes of its consultant than its buffer holds gets a reset
+     * event instead of being dropped halfway the replay
+     */
+    @Test
+    public void reconnectingSubscriberShouldBeResetWhenMissedChangesOverflowItsBuffer() throws Exception {
+        EventStream first = subscribe("/assignmentsbycid/consultantEvents5/changes", null);
+        String lastEventId = first.next().id;
+        first.close();
+
+        for (int i = 0; i < 9; i++)
+            restTemplate.postForObject(url("/assignments"), new Assignment("consultantEvents5", "customerEvents", new Date(0), new Date(86400000L)), Assignment.class);
+
+        EventStream again = subscribe("/assignmentsbycid/consultantEvents5/changes", lastEventId);
+        assertEquals("Event did not match", "reset", again.next().type);
+        assertNull("Changes were replayed after the reset", again.poll(500));
+    }
+
+    private EventStream subscribe(String path, String lastEventId) throws IOException {
+        HttpGet request = new HttpGet(url(path));
+        request.setHeader(HttpHeaders.ACCEPT, ChangeSubscriptions.EVENT_STREAM_VALUE);
+        if (lastEventId != null)
+            request.setHeader(AssignmentService.LAST_EVENT_ID_HEADER, lastEventId);
+        HttpResponse response = client.execute(request);
+        assertEquals("HttpStatus code did not match", 200, response.getStatusLine().getStatusCode());
+        assertTrue("Content type did not match", response.getEntity().getContentType().getValue().startsWith(ChangeSubscriptions.EVENT_STREAM_VALUE));
+        EventStream stream = new EventStream(request, response);
+        streams.add(stream);
+        return stream;
+    }
+
+    private String url(String path) {
+        return "http://localhost:" + port + path;
+    }
+
+    private static final class Event {
+        String id;
+        String type;
+        JsonNode data;
+    }
+
+    /** Reads the events of a stream on a thread of its own, skipping the heartbeats. */
+    private final class EventStream {
+        private final HttpGet request;
+        private final HttpResponse response;
+        private final BlockingQueue<Event> events = new LinkedBlockingQueue<>();
+
+        EventStream(HttpGet request, HttpResponse response) {
+            this.request = request;
+            this.response = response;
+            Thread reader = new Thread(this::read, "event-stream");
+            reader.setDaemon(true);
+            reader.start();
+        }
+
+        private void read() {
+            try (BufferedReader lines = new BufferedReader(new InputStreamReader(response.getEntity().getContent(), StandardCharsets.UTF_8))) {
+                Event event = new Event();
+                String line;
+                while ((line = lines.readLine()) != null) {
+                    if (line.startsWith("id: ")) {
+                        event.id = line.substring(4);
+                    } else if (line.startsWith("event: ")) {
+                        event.type = line.substring(7);
+                    } else if (line.startsWith("data: ")) {
+                        String data = line.substring(6);
+                        event.data = data.startsWith("{") ? objectMapper.readTree(data) : null;
+                    } else if (line.isEmpty() && event.type != null) {
+                        events.add(event);
+                        event = new Event();
+                    }
+                }
+            } catch (IOException e) {
+                // Closed by the test
+            }
+        }
+
+        Event next() throws InterruptedException {
+            Event event = poll(10000);
+            assertNotNull("No event was pushed", event);
+            return event;
+        }
+
+        Event poll(long timeoutMillis) throws InterruptedException {
+            return events.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+
+        /** Closes the connection, which ends the read of the other thread. */
+        void close() {
+            request.abort();
+        }
+    }
+}
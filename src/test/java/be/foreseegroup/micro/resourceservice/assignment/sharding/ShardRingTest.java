@@ -0,0 +1,73 @@
+package be.foreseegroup.micro.resourceservice.assignment.sharding;
+
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the spread of {@link ShardRing} and the consultants it moves when peers join or leave.
+ */
+public class ShardRingTest {
+    private static final int CONSULTANTS = 20000;
+
+    /** Test case: consultantsShouldBeSpreadEvenly
+     *
+     * Test if every peer owns about its share of the consultants, and if a ring built from the same peers in another
+     * order assigns every consultant to the same peer
+     */
+    @Test
+    public void consultantsShouldBeSpreadEvenly() {
+        List<ShardPeer> peers = Arrays.asList(peer("a", 64), peer("b", 64), peer("c", 64), peer("d", 64));
+        ShardRing ring = new ShardRing(peers);
+        List<ShardPeer> reversed = new ArrayList<>(peers);
+        Collections.reverse(reversed);
+        ShardRing same = new ShardRing(reversed);
+
+        Map<String, Integer> owned = new HashMap<>();
+        for (int i = 0; i < CONSULTANTS; i++) {
+            String consultant = "consultant" + i;
+            assertEquals("Owner depended on the order of the peers", ring.ownerOf(consultant).getId(), same.ownerOf(consultant).getId());
+            owned.merge(ring.ownerOf(consultant).getId(), 1, Integer::sum);
+        }
+        for (ShardPeer peer : peers) {
+            double share = owned.get(peer.getId()) / (double) CONSULTANTS;
+            assertTrue("Share of " + peer.getId() + " was " + share, share > 0.15 && share < 0.35);
+        }
+        assertNull("Empty ring had an owner", new ShardRing(Collections.emptyList()).ownerOf("consultant"));
+    }
+
+    /** Test case: joiningPeerShouldOnlyTakeItsShare
+     *
+     * Test if a peer joining only takes consultants from the others, about its share, and no consultant moves
+     * between the peers that were there already
+     */
+    @Test
+    public void joiningPeerShouldOnlyTakeItsShare() {
+        ShardRing before = new ShardRing(Arrays.asList(peer("a", 64), peer("b", 64), peer("c", 64)));
+        ShardRing after = new ShardRing(Arrays.asList(peer("a", 64), peer("b", 64), peer("c", 64), peer("d", 64)));
+        int moved = 0;
+        for (int i = 0; i < CONSULTANTS; i++) {
+            String consultant = "consultant" + i;
+            String from = before.ownerOf(consultant).getId();
+            String to = after.ownerOf(consultant).getId();
+            if (!from.equals(to)) {
+                assertEquals("Consultant moved between peers that stayed", "d", to);
+                moved++;
+            }
+        }
+        double share = moved / (double) CONSULTANTS;
+        assertTrue("Share moved to the new peer was " + share, share > 0.15 && share < 0.35);
+    }
+
+    private static ShardPeer peer(String id, int virtualNodes) {
+        return new ShardPeer(id, URI.create("http://" + id + ":8080"), virtualNodes);
+    }
+}
@@ -0,0 +1,204 @@
+package be.foreseegroup.micro.resourceservice.assignment.sharding;
+
+import be.foreseegroup.micro.resourceservice.assignment.AssignmentServiceApplication;
+import be.foreseegroup.micro.resourceservice.assignment.model.Assignment;
+import be.foreseegroup.micro.resourceservice.assignment.service.AssignmentRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.embedded.EmbeddedServletContainerInitializedEvent;
+import org.springframework.boot.context.embedded.EmbeddedWebApplicationContext;
+import org.springframework.boot.test.TestRestTemplate;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.RestTemplate;
+
+import javax.annotation.PreDestroy;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.Assert.*;
+
+/**
+ * Integration tests of the consultant sharding with two instances in one JVM, registered in an in-memory stand-in
+ * of the Eureka registry instead of Eureka.
+ */
+public class ShardRoutingTest {
+
+    private static final ParameterizedTypeReference<List<Assignment>> ASSIGNMENT_LIST = new ParameterizedTypeReference<List<Assignment>>() {
+    };
+
+    private final List<ConfigurableApplicationContext> instances = new ArrayList<>();
+    private RestTemplate restTemplate = new TestRestTemplate();
+
+    @Before
+    public void setUp() throws Exception {
+        instances.add(start("instance-a"));
+        instances.add(start("instance-b"));
+        instances.get(0).getBean(AssignmentRepository.class).deleteAll();
+        for (ConfigurableApplicationContext instance : instances)
+            instance.getBean(ShardRouter.class).refresh();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (instances.get(0).isActive())
+            instances.get(0).getBean(AssignmentRepository.class).deleteAll();
+        for (ConfigurableApplicationContext instance : instances)
+            instance.close();
+    }
+
+    /** Test case: requestForOtherShardShouldBeForwarded
+     *
+     * Test if a consultant list requested from the instance that does not own the consultant is answered by the owner,
+     * conditional requests included, and only cached there
+     */
+    @Test
+    public void requestForOtherShardShouldBeForwarded() {
+        String consultantId = ownedBy(instances.get(1));
+        String url = url(instances.get(0)) + "/assignmentsbycid/" + consultantId;
+        restTemplate.postForEntity(url(instances.get(0)) + "/assignments",
+                new Assignment(consultantId, "customerId1", new Date(0), new Date(86400000L)), Assignment.class);
+
+        ResponseEntity<List<Assignment>> response = restTemplate.exchange(url, HttpMethod.GET, null, ASSIGNMENT_LIST);
+        assertEquals("HttpStatus code did not match", HttpStatus.OK, response.getStatusCode());
+        assertEquals("Number of assignments did not match", 1, response.getBody().size());
+        assertNotNull("Forwarded response did not contain an ETag", response.getHeaders().getETag());
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch(response.getHeaders().getETag());
+        assertEquals("HttpStatus code did not match", HttpStatus.NOT_MODIFIED,
+                restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), String.class).getStatusCode());
+
+        assertEquals("Requests forwarded did not match", 2L, metric(instances.get(0), "sharding.requests.forwarded"));
+        assertEquals("Requests served by the owner did not match", 2L, metric(instances.get(1), "sharding.requests.local"));
+        assertEquals("List was cached by the instance not owning it", 0L, metric(instances.get(0), "cache.assignments.byConsultantId.size"));
+        assertEquals("List was not cached by the owner", 1L, metric(instances.get(1), "cache.assignments.byConsultantId.size"));
+    }
+
+    /** Test case: writeOnOtherInstanceShouldBeServedByOwner
+     *
+     * Test if a write made on the instance that does not own the consultant is in the list the owner answers with
+     * next, while the owner had the list cached and no invalidation is broadcast
+     */
+    @Test
+    public void writeOnOtherInstanceShouldBeServedByOwner() {
+        String consultantId = ownedBy(instances.get(1));
+        String url = url(instances.get(0)) + "/assignmentsbycid/" + consultantId;
+        restTemplate.postForEntity(url(instances.get(0)) + "/assignments",
+                new Assignment(consultantId, "customerId1", new Date(0), new Date(86400000L)), Assignment.class);
+        assertEquals("Number of assignments did not match", 1, restTemplate.exchange(url, HttpMethod.GET, null, ASSIGNMENT_LIST).getBody().size());
+        assertEquals("List was not cached by the owner", 1L, metric(instances.get(1), "cache.assignments.byConsultantId.size"));
+
+        restTemplate.postForEntity(url(instances.get(0)) + "/assignments",
+                new Assignment(consultantId, "customerId2", new Date(0), new Date(86400000L)), Assignment.class);
+        assertEquals("Owner served the list from before the write", 2, restTemplate.exchange(url, HttpMethod.GET, null, ASSIGNMENT_LIST).getBody().size());
+    }
+
+    /** Test case: requestShouldBeServedLocallyWhenOwnerIsGone
+     *
+     * Test if a consultant request is served by the instance itself when the owner cannot be reached, and if the
+     * instance owns the consultant once the registry no longer lists the owner
+     */
+    @Test
+    public void requestShouldBeServedLocallyWhenOwnerIsGone() {
+        String consultantId = ownedBy(instances.get(1));
+        ShardRouter router = instances.get(0).getBean(ShardRouter.class);
+        instances.get(1).close();
+
+        ResponseEntity<List<Assignment>> response = restTemplate.exchange(url(instances.get(0)) + "/assignmentsbycid/" + consultantId,
+                HttpMethod.GET, null, ASSIGNMENT_LIST);
+        assertEquals("HttpStatus code did not match", HttpStatus.OK, response.getStatusCode());
+        assertEquals("Requests served after a failed forward did not match", 1L, metric(instances.get(0), "sharding.requests.fallback"));
+
+        router.refresh();
+        assertNull("Consultant of the instance that left was not taken over", router.ownerOf(consultantId));
+    }
+
+    private static ConfigurableApplicationContext start(String id) {
+        RootBeanDefinition directory = new RootBeanDefinition(LocalPeerDirectory.class);
+        directory.getConstructorArgumentValues().addGenericArgumentValue(id);
+        directory.setPrimary(true);
+        return new SpringApplicationBuilder(AssignmentServiceApplication.class)
+                .initializers(context -> ((BeanDefinitionRegistry) context).registerBeanDefinition("localPeerDirectory", directory))
+                .run("--server.port=0", "--spring.jmx.enabled=false", "--endpoints.jmx.enabled=false",
+                        "--assignment.sharding.enabled=true", "--assignment.sharding.refresh-interval-ms=60000",
+                        "--assignment.sharding.forward-timeout-ms=1000");
+    }
+
+    /** @return a consultant id that {@code owner} owns */
+    private String ownedBy(ConfigurableApplicationContext owner) {
+        ShardRouter other = instances.get(owner == instances.get(0) ? 1 : 0).getBean(ShardRouter.class);
+        for (int i = 0; i < 1000; i++) {
+            if (other.ownerOf("consultantSharded" + i) != null)
+                return "consultantSharded" + i;
+        }
+        throw new IllegalStateException("No consultant is owned by the other instance");
+    }
+
+    private static String url(ConfigurableApplicationContext instance) {
+        return "http://localhost:" + ((EmbeddedWebApplicationContext) instance).getEmbeddedServletContainer().getPort();
+    }
+
+    private static long metric(ConfigurableApplicationContext instance, String name) {
+        for (PublicMetrics metrics : instance.getBeansOfType(PublicMetrics.class).values()) {
+            for (Metric<?> metric : metrics.metrics()) {
+                if (metric.getName().equals(name))
+                    return metric.getValue().longValue();
+            }
+        }
+        throw new IllegalArgumentException(name);
+    }
+
+    /**
+     * Stand-in for the Eureka registry shared by the instances in this JVM: an instance registers once its port is
+     * known and deregisters when it is closed.
+     */
+    static class LocalPeerDirectory implements PeerDirectory, ApplicationListener<EmbeddedServletContainerInitializedEvent> {
+        private static final Map<String, ShardPeer> REGISTERED = new ConcurrentHashMap<>();
+
+        private final String id;
+        private volatile ShardPeer local;
+
+        LocalPeerDirectory(String id) {
+            this.id = id;
+            this.local = new ShardPeer(id, URI.create("http://localhost:0"), 64);
+        }
+
+        @Override
+        public void onApplicationEvent(EmbeddedServletContainerInitializedEvent event) {
+            local = new ShardPeer(id, URI.create("http://localhost:" + event.getEmbeddedServletContainer().getPort()), 64);
+            REGISTERED.put(id, local);
+        }
+
+        @PreDestroy
+        void deregister() {
+            REGISTERED.remove(id);
+        }
+
+        @Override
+        public ShardPeer local() {
+            return local;
+        }
+
+        @Override
+        public List<ShardPeer> peers() {
+            return new ArrayList<>(REGISTERED.values());
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package be.foreseegroup.micro.resourceservice.assignment.startup;
+
+import be.foreseegroup.micro.resourceservice.assignment.AssignmentServiceApplication;
+import be.foreseegroup.micro.resourceservice.assignment.model.Assignment;
+import be.foreseegroup.micro.resourceservice.assignment.model.AssignmentChange;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.boot.test.WebIntegrationTest;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Integration test of the background warm-up of the fast-start profile.
+ */
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = AssignmentServiceApplication.class)
+@WebIntegrationTest({"server.port=0", "assignment.startup.warm-up-in-background=true", "assignment.conflicts.enabled=true"})
+@DirtiesContext
+public class StartupWarmUpTest {
+
+    @Autowired
+    private StartupWarmUp warmUp;
+
+    @Autowired
+    private MongoOperations mongo;
+
+    /** Test case: warmUpShouldCreateIndexesAndReportHealth
+     *
+     * Test if the health of the warm-up turns UP once it is done, and if the Mongo indexes of the assignments
+     * and of the change log were created by then
+     */
+    @Test
+    public void warmUpShouldCreateIndexesAndReportHealth() throws Exception {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (warmUp.health().getStatus() != Status.UP && System.currentTimeMillis() < deadline)
+            Thread.sleep(50);
+        assertEquals("Warm-up did not finish", Status.UP, warmUp.health().getStatus());
+
+        assertTrue("Assignment index was not created", indexNames(Assignment.class).contains("consultant_start"));
+        assertTrue("Change log index was not created", indexNames(AssignmentChange.class).contains("state_time"));
+    }
+
+    private Set<String> indexNames(Class<?> entity) {
+        Set<String> names = new HashSet<>();
+        for (IndexInfo index : mongo.indexOps(entity).getIndexInfo())
+            names.add(index.getName());
+        return names;
+    }
+}